@@ -0,0 +1,51 @@
+package com.nymble;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the per-sign-up cost of {@link Destination#decreaseActivityCapacity(Activity)} as the number of
+ * activities at a destination grows. With the id index the cost should stay flat.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class ActivityIndexBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int activitiesPerDestination;
+
+    private Destination destination;
+
+    private Activity[] offered;
+
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        destination = new Destination("Bench");
+        offered = new Activity[activitiesPerDestination];
+        for (int i = 0; i < activitiesPerDestination; i++) {
+            offered[i] = new Activity("Activity " + i, "Benchmark activity", 1.0, Integer.MAX_VALUE, destination);
+            destination.addActivity(offered[i]);
+        }
+    }
+
+    @Benchmark
+    public boolean decreaseActivityCapacity() {
+        cursor = (cursor + 31) % offered.length;
+        return destination.decreaseActivityCapacity(offered[cursor]);
+    }
+}
@@ -0,0 +1,54 @@
+package com.nymble;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sells every seat of one activity with all benchmark threads signing up concurrently. Each iteration
+ * reports the time to sell out; divide {@code seats} by it for sign-ups per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class ActivitySignUpBenchmark {
+
+    @Param({"1000000"})
+    public int seats;
+
+    private Passenger passenger;
+
+    private Activity activity;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        BookingEvents.setSink(event -> { });
+        passenger = new NormalPassenger("Benchmark Passenger", 0.0);
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpIteration() {
+        activity = new Activity("Benchmark", "Contended activity", 1.0, seats, new Destination("Bench"));
+    }
+
+    @Benchmark
+    public int sellOut() {
+        int sold = 0;
+        while (activity.signUpPassenger(passenger)) {
+            sold++;
+        }
+        return sold;
+    }
+}
@@ -0,0 +1,88 @@
+package com.nymble;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares finding the ten cheapest activities with enough free seats through an {@link AvailabilityIndex}
+ * with scanning the itinerary, and measures what keeping the index current adds to each seat claim.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class AvailabilityBenchmark {
+
+    @Param({"1000", "100000"})
+    public int activityCount;
+
+    private static final int ACTIVITIES_PER_DESTINATION = 100;
+
+    private static final int MIN_SEATS = 40;
+
+    private TravelPackage travelPackage;
+
+    private AvailabilityIndex index;
+
+    private Activity[] activities;
+
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        travelPackage = new TravelPackage("Benchmark Tour", 10);
+        activities = new Activity[activityCount];
+        Destination destination = null;
+        for (int i = 0; i < activityCount; i++) {
+            if (i % ACTIVITIES_PER_DESTINATION == 0) {
+                destination = new Destination("Destination " + i, 100);
+                travelPackage.addDestination(destination);
+            }
+            // Capacities cycle so that only some activities qualify, and prices are spread out.
+            activities[i] = new Activity("Activity " + i, "Benchmark activity", (i * 7919) % 10_000 / 10.0,
+                    i % 50, destination);
+            destination.addActivity(activities[i]);
+        }
+        index = new AvailabilityIndex(travelPackage.getItinerary());
+    }
+
+    @Benchmark
+    public List<Activity> indexedQuery() {
+        return index.findCheapest(MIN_SEATS, 10);
+    }
+
+    @Benchmark
+    public List<Activity> nestedScan() {
+        List<Activity> matches = new ArrayList<>();
+        for (Destination destination : travelPackage.getItinerary()) {
+            for (Activity activity : destination.getActivities()) {
+                if (activity.getCapacity() >= MIN_SEATS) {
+                    matches.add(activity);
+                }
+            }
+        }
+        matches.sort((a, b) -> Long.compare(a.getCostCents(), b.getCostCents()));
+        return matches.subList(0, Math.min(10, matches.size()));
+    }
+
+    @Benchmark
+    public void claimAndReturnSeat() {
+        cursor = (cursor + 31) % activities.length;
+        if (activities[cursor].tryReserveSeat()) {
+            activities[cursor].releaseSeat();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.nymble;
+
+import java.io.File;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmark suite once per thread count and writes one JSON result file per run, so that
+ * results from two releases can be diffed file by file.
+ *
+ * <p>Usage: {@code java -jar target/benchmarks.jar [jmh options]}. Thread counts come from the
+ * {@code -Dthreads=1,2,4} system property and default to powers of two up to the number of cores.
+ * Results go to {@code -DresultDir=...}, by default {@code target/jmh-results}. Any regular JMH
+ * command-line options (benchmark regex, {@code -p}, {@code -f}, {@code -wi}, ...) are passed through.</p>
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        File resultDir = new File(System.getProperty("resultDir", "target/jmh-results"));
+        if (!resultDir.isDirectory() && !resultDir.mkdirs()) {
+            throw new IllegalStateException("Cannot create " + resultDir);
+        }
+
+        for (int threads : threadCounts()) {
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                    .parent(commandLine)
+                    .threads(threads)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(new File(resultDir, "threads-" + threads + ".json").getPath());
+            new Runner(options.build()).run();
+        }
+    }
+
+    private static int[] threadCounts() {
+        String configured = System.getProperty("threads");
+        if (configured != null) {
+            String[] parts = configured.split(",");
+            int[] counts = new int[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                counts[i] = Integer.parseInt(parts[i].trim());
+            }
+            return counts;
+        }
+        int cores = Runtime.getRuntime().availableProcessors();
+        int steps = 32 - Integer.numberOfLeadingZeros(cores);
+        int[] counts = new int[steps];
+        for (int i = 0; i < steps; i++) {
+            counts[i] = 1 << i;
+        }
+        return counts;
+    }
+}
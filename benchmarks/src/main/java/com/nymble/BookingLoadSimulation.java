@@ -0,0 +1,65 @@
+package com.nymble;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Simulates a large number of concurrent clients, each on its own virtual thread, booking through a
+ * {@link BookingService}: every client enrolls in one of a few packages and then signs up for an activity.
+ * Prints the elapsed time, the outcome counts and the heap in use afterwards.
+ *
+ * <p>Usage: {@code java -Xmx2g -cp target/benchmarks.jar com.nymble.BookingLoadSimulation [clients] [packages]}.</p>
+ */
+public final class BookingLoadSimulation {
+
+    private BookingLoadSimulation() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int packageCount = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        BookingEvents.setSink(event -> { });
+
+        TravelPackage[] packages = new TravelPackage[packageCount];
+        Activity[] activities = new Activity[packageCount];
+        for (int p = 0; p < packageCount; p++) {
+            packages[p] = new TravelPackage("Package " + p, clients);
+            Destination destination = new Destination("Destination " + p);
+            activities[p] = new Activity("Activity " + p, "Simulated activity", 10.0, clients, destination);
+            destination.addActivity(activities[p]);
+            packages[p].addDestination(destination);
+        }
+
+        AtomicInteger enrolled = new AtomicInteger();
+        AtomicInteger signedUp = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(clients);
+        long start = System.nanoTime();
+        try (BookingService service = new BookingService()) {
+            for (int i = 0; i < clients; i++) {
+                int client = i;
+                Thread.ofVirtual().start(() -> {
+                    try {
+                        int p = client % packageCount;
+                        Passenger passenger = new GoldPassenger("Client " + client, 1_000.0);
+                        if (service.enroll(packages[p], passenger).join()) {
+                            enrolled.incrementAndGet();
+                        }
+                        if (service.signUp(packages[p], passenger, activities[p]).join()) {
+                            signedUp.incrementAndGet();
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            done.await();
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long usedMb = (runtime.totalMemory() - runtime.freeMemory()) >> 20;
+        System.out.printf("%,d clients in %,d ms: %,d enrolled, %,d signed up, %,d MB heap in use (max %,d MB)%n",
+                clients, elapsedMillis, enrolled.get(), signedUp.get(), usedMb, runtime.maxMemory() >> 20);
+    }
+}
@@ -0,0 +1,68 @@
+package com.nymble;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares starting up from a memory-mapped {@link Catalog}, touching one destination, with building
+ * every {@link Destination} and {@link Activity} on the heap as {@code Main} does today.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class CatalogBenchmark {
+
+    @Param({"10000", "300000"})
+    public int activityCount;
+
+    private static final int ACTIVITIES_PER_DESTINATION = 100;
+
+    private Path file;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = Files.createTempFile("catalog-bench", ".bin");
+        Catalog.write(buildAll(), file);
+    }
+
+    private List<Destination> buildAll() {
+        List<Destination> destinations = new ArrayList<>();
+        for (int d = 0; d * ACTIVITIES_PER_DESTINATION < activityCount; d++) {
+            Destination destination = new Destination("Destination " + d, 100);
+            for (int a = 0; a < ACTIVITIES_PER_DESTINATION; a++) {
+                destination.addActivity(new Activity("Activity " + a, "Benchmark activity", 10.0, 50, destination));
+            }
+            destinations.add(destination);
+        }
+        return destinations;
+    }
+
+    @Benchmark
+    public Activity openCatalogAndReadOne() throws IOException {
+        Catalog catalog = Catalog.open(file);
+        return catalog.getDestination(catalog.getDestinationCount() / 2).getActivities().get(0);
+    }
+
+    @Benchmark
+    public Activity buildOnHeap() {
+        List<Destination> destinations = buildAll();
+        return destinations.get(destinations.size() / 2).getActivities().get(0);
+    }
+}
@@ -0,0 +1,79 @@
+package com.nymble;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Enrolls a full roster into a fresh package per iteration, either one {@link TravelPackage#addPassenger}
+ * call at a time (shared between all benchmark threads) or with a single
+ * {@link TravelPackage#addPassengers} call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class EnrollmentBenchmark {
+
+    @Param({"1000", "100000"})
+    public int rosterSize;
+
+    @Param({"1", "20"})
+    public int activitiesPerDestination;
+
+    private TravelPackage travelPackage;
+
+    private List<Passenger> roster;
+
+    private AtomicInteger next;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        BookingEvents.setSink(event -> { });
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpIteration() {
+        travelPackage = new TravelPackage("Benchmark Tour", rosterSize);
+        Destination destination = new Destination("Bench");
+        for (int i = 0; i < activitiesPerDestination; i++) {
+            destination.addActivity(new Activity("Activity " + i, "Benchmark activity", 10.0, rosterSize, destination));
+        }
+        travelPackage.addDestination(destination);
+        roster = new ArrayList<>(rosterSize);
+        for (int i = 0; i < rosterSize; i++) {
+            roster.add(new GoldPassenger("Passenger " + i, 1_000_000.0));
+        }
+        next = new AtomicInteger();
+    }
+
+    @Benchmark
+    public int addPassenger() {
+        int enrolled = 0;
+        for (int i = next.getAndIncrement(); i < rosterSize; i = next.getAndIncrement()) {
+            if (travelPackage.addPassenger(roster.get(i))) {
+                enrolled++;
+            }
+        }
+        return enrolled;
+    }
+
+    @Benchmark
+    public EnrollmentResult[] addPassengers() {
+        return travelPackage.addPassengers(roster);
+    }
+}
@@ -0,0 +1,57 @@
+package com.nymble;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the retained heap of an activity roster, the {@link Roster} of {@link Passenger} references that
+ * {@link Activity#getSignedUpPassengers()} snapshots, with the {@link IdBitmap} of passenger numbers that
+ * {@link EnrollmentIndex} queries. Passengers themselves are created up front and excluded from both figures.
+ *
+ * <p>Usage: {@code java -cp target/benchmarks.jar com.nymble.EnrollmentFootprint [passengers] [every]}, where
+ * every {@code every}-th passenger number is on the roster (1 for a dense roster).</p>
+ */
+public final class EnrollmentFootprint {
+
+    private EnrollmentFootprint() {
+    }
+
+    public static void main(String[] args) {
+        int passengers = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int every = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        List<Passenger> listed = new ArrayList<>();
+        for (int i = 0; i < passengers; i++) {
+            Passenger passenger = new NormalPassenger("Passenger " + i, 0.0);
+            if (i % every == 0) {
+                listed.add(passenger);
+            }
+        }
+
+        long baseline = usedHeap();
+        Roster<Passenger> roster = new Roster<>();
+        roster.addAll(listed);
+        long rosterBytes = usedHeap() - baseline;
+        System.out.printf("roster: %,d bytes (%.1f bytes/member)%n", rosterBytes, (double) rosterBytes / listed.size());
+
+        baseline = usedHeap();
+        IdBitmap bitmap = new IdBitmap();
+        for (Passenger passenger : listed) {
+            bitmap.add(passenger.getPassengerNumber());
+        }
+        long bitmapBytes = usedHeap() - baseline;
+        System.out.printf("bitmap: %,d bytes (%.1f bytes/member, %,d estimated)%n",
+                bitmapBytes, (double) bitmapBytes / listed.size(), bitmap.getSizeInBytes());
+        System.out.printf("ratio:  %.1fx%n", (double) rosterBytes / bitmapBytes);
+        if (roster.size() != bitmap.getCardinality()) {
+            throw new IllegalStateException();
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,84 @@
+package com.nymble;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares answering "who is signed up for A and B but not C" by walking rosters with the same question
+ * answered by {@link EnrollmentIndex}. Each passenger joins each of the three activities with probability
+ * one half.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class EnrollmentQueryBenchmark {
+
+    @Param({"1000", "100000"})
+    public int passengers;
+
+    private Activity a;
+
+    private Activity b;
+
+    private Activity c;
+
+    private EnrollmentIndex index;
+
+    private int[] inAll;
+
+    private int[] inNone;
+
+    @Setup
+    public void setUp() {
+        Destination destination = new Destination("Bench");
+        a = new Activity("A", "Benchmark activity", 0.0, Integer.MAX_VALUE, destination);
+        b = new Activity("B", "Benchmark activity", 0.0, Integer.MAX_VALUE, destination);
+        c = new Activity("C", "Benchmark activity", 0.0, Integer.MAX_VALUE, destination);
+        destination.addActivity(a);
+        destination.addActivity(b);
+        destination.addActivity(c);
+        Random random = new Random(42);
+        for (int i = 0; i < passengers; i++) {
+            Passenger passenger = new NormalPassenger("Passenger " + i, 0.0);
+            for (Activity activity : new Activity[] {a, b, c}) {
+                if (random.nextBoolean()) {
+                    activity.signUpPassenger(passenger);
+                }
+            }
+        }
+        index = new EnrollmentIndex(List.of(destination));
+        inAll = new int[] {a.getId(), b.getId()};
+        inNone = new int[] {c.getId()};
+    }
+
+    @Benchmark
+    public List<Passenger> rosterScan() {
+        List<Passenger> result = new ArrayList<>();
+        for (Passenger passenger : a.getSignedUpPassengers()) {
+            if (b.isSignedUp(passenger) && !c.isSignedUp(passenger)) {
+                result.add(passenger);
+            }
+        }
+        return result;
+    }
+
+    @Benchmark
+    public IdBitmap bitmapQuery() {
+        return index.findPassengers(inAll, inNone);
+    }
+}
@@ -0,0 +1,42 @@
+package com.nymble;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the packages and rosters shared by several benchmarks.
+ */
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    /**
+     * Builds a package with one destination and {@code activities} activities, and enrolls
+     * {@code rosterSize} passengers spread evenly over the three tiers.
+     */
+    static TravelPackage enrolledPackage(int rosterSize, int activities) {
+        TravelPackage travelPackage = new TravelPackage("Benchmark Tour", rosterSize);
+        Destination destination = new Destination("Bench", 100);
+        for (int i = 0; i < activities; i++) {
+            destination.addActivity(new Activity("Activity " + i, "Benchmark activity", 10.0, rosterSize, destination));
+        }
+        travelPackage.addDestination(destination);
+        List<Passenger> roster = new ArrayList<>(rosterSize);
+        for (int i = 0; i < rosterSize; i++) {
+            switch (i % 3) {
+                case 0:
+                    roster.add(new NormalPassenger("Passenger " + i, 1_000_000.0));
+                    break;
+                case 1:
+                    roster.add(new GoldPassenger("Passenger " + i, 1_000_000.0));
+                    break;
+                default:
+                    roster.add(new PremiumPassenger("Passenger " + i, 1_000_000.0));
+                    break;
+            }
+        }
+        travelPackage.addPassengers(roster);
+        return travelPackage;
+    }
+}
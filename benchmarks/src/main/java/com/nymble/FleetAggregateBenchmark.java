@@ -0,0 +1,67 @@
+package com.nymble;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link PackageCatalog#aggregate()} over a fleet of packages on fork-join pools of different sizes.
+ * The time should fall roughly in proportion to the pool size, up to the number of cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class FleetAggregateBenchmark {
+
+    @Param({"10000"})
+    public int packageCount;
+
+    @Param({"1", "4"})
+    public int parallelism;
+
+    private ForkJoinPool pool;
+
+    private PackageCatalog catalog;
+
+    @Setup
+    public void setUp() {
+        BookingEvents.setSink(event -> { });
+        pool = new ForkJoinPool(parallelism);
+        catalog = new PackageCatalog(pool);
+        for (int p = 0; p < packageCount; p++) {
+            TravelPackage travelPackage = new TravelPackage("Package " + p, 20);
+            Destination destination = new Destination("Destination " + p, 100);
+            for (int a = 0; a < 5; a++) {
+                destination.addActivity(new Activity("Activity " + a, "Benchmark activity", 10.0, 40, destination));
+            }
+            travelPackage.addDestination(destination);
+            for (int i = 0; i < p % 20; i++) {
+                travelPackage.addPassenger(new NormalPassenger("Passenger " + i, 1_000_000.0));
+            }
+            catalog.add(travelPackage);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public FleetStats aggregate() {
+        return catalog.aggregate();
+    }
+}
@@ -0,0 +1,62 @@
+package com.nymble;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the retained heap of a roster held as {@link Passenger} objects with the same roster in a
+ * {@link PassengerStore}. Each passenger signs up for a handful of activities.
+ *
+ * <p>Usage: {@code java -cp target/benchmarks.jar com.nymble.FootprintComparison [passengers] [activities]}.
+ * Run with a heap large enough for the object roster, e.g. {@code -Xmx4g} for a few million passengers.</p>
+ */
+public final class FootprintComparison {
+
+    private FootprintComparison() {
+    }
+
+    public static void main(String[] args) {
+        int passengers = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int activitiesPerPassenger = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        Destination destination = new Destination("Bench");
+        List<Activity> activities = new ArrayList<>();
+        for (int i = 0; i < activitiesPerPassenger; i++) {
+            activities.add(new Activity("Activity " + i, "Benchmark activity", 10.0, Integer.MAX_VALUE, destination));
+        }
+        String[] names = new String[passengers];
+        for (int i = 0; i < passengers; i++) {
+            names[i] = "Passenger " + i;
+        }
+
+        long baseline = usedHeap();
+        List<Passenger> objects = new ArrayList<>(passengers);
+        for (int i = 0; i < passengers; i++) {
+            Passenger passenger = new NormalPassenger(names[i], 100.0);
+            passenger.addAllToSignUpActivities(activities);
+            objects.add(passenger);
+        }
+        long objectBytes = usedHeap() - baseline;
+        System.out.printf("objects: %,d bytes (%.1f bytes/passenger)%n", objectBytes, (double) objectBytes / passengers);
+        objects = null;
+
+        baseline = usedHeap();
+        PassengerStore store = new PassengerStore(passengers);
+        for (int i = 0; i < passengers; i++) {
+            store.add(names[i], 100.0, PassengerType.NORMAL).addAllToSignUpActivities(activities);
+        }
+        long storeBytes = usedHeap() - baseline;
+        System.out.printf("store:   %,d bytes (%.1f bytes/passenger)%n", storeBytes, (double) storeBytes / passengers);
+        System.out.printf("ratio:   %.2fx (names are shared by both layouts and excluded)%n", (double) objectBytes / storeBytes);
+        if (store.size() != passengers || objects != null) {
+            throw new IllegalStateException();
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
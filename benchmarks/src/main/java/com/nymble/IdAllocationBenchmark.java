@@ -0,0 +1,39 @@
+package com.nymble;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares block-based {@link PassengerIdAllocator} allocation with a single shared {@link AtomicInteger}
+ * as the number of benchmark threads grows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class IdAllocationBenchmark {
+
+    private final PassengerIdAllocator allocator = new PassengerIdAllocator(PassengerIdAllocator.DEFAULT_BLOCK_SIZE);
+
+    private final AtomicInteger counter = new AtomicInteger();
+
+    @Benchmark
+    public int blockAllocator() {
+        return allocator.next();
+    }
+
+    @Benchmark
+    public int sharedAtomicInteger() {
+        return counter.getAndIncrement();
+    }
+}
@@ -0,0 +1,97 @@
+package com.nymble;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link PackageImporter} on a generated file of one destination, five activities and
+ * {@code passengers} passenger lines, against reading the same file with no parsing at all. The gap between
+ * {@code importFile} and {@code readOnly} is what parsing and enrollment cost over the disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class ImportBenchmark {
+
+    @Param({"1000000"})
+    public int passengers;
+
+    @Param({"csv", "jsonl"})
+    public String format;
+
+    private Path file;
+
+    private TravelPackage travelPackage;
+
+    @Setup(Level.Trial)
+    public void writeFile() throws IOException {
+        BookingEvents.setSink(event -> { });
+        file = Files.createTempFile("import-bench", "." + format);
+        boolean csv = format.equals("csv");
+        String[] tiers = {"normal", "silver", "gold"};
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write(csv ? "destination,Bench\n" : "{\"kind\":\"destination\",\"name\":\"Bench\"}\n");
+            for (int i = 0; i < 5; i++) {
+                out.write(csv
+                        ? "activity,Bench,Activity " + i + ",Benchmark activity,10.00," + passengers + "\n"
+                        : "{\"kind\":\"activity\",\"destination\":\"Bench\",\"name\":\"Activity " + i
+                                + "\",\"description\":\"Benchmark activity\",\"cost\":10.00,\"capacity\":"
+                                + passengers + "}\n");
+            }
+            for (int i = 0; i < passengers; i++) {
+                String tier = tiers[i % tiers.length];
+                out.write(csv
+                        ? "passenger," + tier + ",Passenger " + i + ",1000.00\n"
+                        : "{\"kind\":\"passenger\",\"tier\":\"" + tier + "\",\"name\":\"Passenger " + i
+                                + "\",\"balance\":1000.00}\n");
+            }
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void newPackage() {
+        travelPackage = new TravelPackage("Imported Tour", passengers);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public ImportSummary importFile() throws IOException {
+        return new PackageImporter(travelPackage).importFile(file);
+    }
+
+    @Benchmark
+    public long readOnly() throws IOException {
+        byte[] buffer = new byte[PackageImporter.DEFAULT_CHUNK_SIZE];
+        long total = 0;
+        try (InputStream in = Files.newInputStream(file)) {
+            for (int read; (read = in.read(buffer)) > 0; ) {
+                total += read;
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,116 @@
+package com.nymble;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures durable enrollment through a {@link BookingJournal}, where every {@code addPassenger} waits for
+ * its group commit, and recovery of a roster either entirely from a snapshot or entirely from journal replay.
+ */
+public class JournalBenchmark {
+
+    /**
+     * A package with a journal installed as the event sink.
+     */
+    @State(Scope.Benchmark)
+    public static class Journaled {
+
+        private TravelPackage travelPackage;
+
+        private BookingJournal journal;
+
+        @Setup(Level.Iteration)
+        public void setUp() throws IOException {
+            travelPackage = new TravelPackage("Journaled Tour", Integer.MAX_VALUE);
+            Destination destination = new Destination("Bench");
+            destination.addActivity(new Activity("Activity", "Benchmark activity", 10.0, Integer.MAX_VALUE, destination));
+            travelPackage.addDestination(destination);
+            journal = new BookingJournal(travelPackage, Files.createTempDirectory("journal-bench"), true, 0);
+            BookingEvents.setSink(journal);
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() throws IOException {
+            BookingEvents.setSink(event -> { });
+            journal.close();
+        }
+    }
+
+    /**
+     * A journal directory holding a whole roster, as a snapshot or as journal records.
+     */
+    @State(Scope.Benchmark)
+    public static class Recorded {
+
+        @Param({"100000", "1000000"})
+        public int rosterSize;
+
+        @Param({"snapshot", "journal"})
+        public String source;
+
+        private Path directory;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            directory = Files.createTempDirectory("journal-bench");
+            TravelPackage travelPackage = new TravelPackage("Recorded Tour", rosterSize);
+            Destination destination = new Destination("Bench");
+            for (int i = 0; i < 5; i++) {
+                destination.addActivity(new Activity("Activity " + i, "Benchmark activity", 10.0, rosterSize, destination));
+            }
+            travelPackage.addDestination(destination);
+            BookingJournal journal = new BookingJournal(travelPackage, directory, false, 0);
+            BookingEvents.setSink(journal);
+            for (int i = 0; i < rosterSize; i++) {
+                travelPackage.addPassenger(new PremiumPassenger("Passenger " + i, 1_000.0));
+            }
+            if (source.equals("snapshot")) {
+                journal.checkpoint();
+            }
+            BookingEvents.setSink(event -> { });
+            journal.close();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    public boolean durableAddPassenger(Journaled state) {
+        return state.travelPackage.addPassenger(new PremiumPassenger("Passenger", 1_000.0));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public TravelPackage recover(Recorded state) throws IOException {
+        return BookingJournal.recover(state.directory);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public BookingLedger fold(Recorded state) throws IOException {
+        return BookingJournal.fold(state.directory, new BookingLedger());
+    }
+}
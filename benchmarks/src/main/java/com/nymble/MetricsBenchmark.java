@@ -0,0 +1,57 @@
+package com.nymble;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures what {@link BookingMetrics} adds to a sign-up, with metrics on and off. The sign-up is one that
+ * gets rejected, so repeated calls leave the passenger and activity unchanged.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class MetricsBenchmark {
+
+    @Param({"true", "false"})
+    public boolean enabled;
+
+    private Activity activity;
+
+    private Passenger passenger;
+
+    private boolean previouslyEnabled;
+
+    @Setup
+    public void setUp() {
+        BookingEvents.setSink(event -> { });
+        previouslyEnabled = BookingMetrics.isEnabled();
+        BookingMetrics.setEnabled(enabled);
+        Destination destination = new Destination("Bench");
+        activity = new Activity("Activity", "Benchmark activity", 100.0, 10, destination);
+        destination.addActivity(activity);
+        passenger = new NormalPassenger("Passenger", 1.0);
+    }
+
+    @TearDown
+    public void tearDown() {
+        BookingMetrics.setEnabled(previouslyEnabled);
+    }
+
+    @Benchmark
+    public boolean rejectedSignUp() {
+        return passenger.trySignUpForActivity(activity);
+    }
+}
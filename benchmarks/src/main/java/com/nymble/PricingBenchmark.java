@@ -0,0 +1,66 @@
+package com.nymble;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Prices every passenger of an enrolled roster, for the package and for an activity, and the roster as a whole.
+ * Both per-passenger prices come from cached {@link PricingEngine} tables.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class PricingBenchmark {
+
+    @Param({"1000", "100000"})
+    public int rosterSize;
+
+    @Param({"1", "20"})
+    public int activitiesPerDestination;
+
+    private TravelPackage travelPackage;
+
+    private Passenger[] roster;
+
+    private Activity activity;
+
+    @Setup
+    public void setUp() {
+        BookingEvents.setSink(event -> { });
+        travelPackage = Fixtures.enrolledPackage(rosterSize, activitiesPerDestination);
+        roster = travelPackage.getPassengers().toArray(new Passenger[0]);
+        activity = travelPackage.getItinerary().get(0).getActivities().get(0);
+    }
+
+    @Benchmark
+    public void calculateTotalCost(Blackhole blackhole) {
+        for (Passenger passenger : roster) {
+            blackhole.consume(travelPackage.calculateTotalCostCents(passenger));
+        }
+    }
+
+    @Benchmark
+    public long calculateTotalCostForAllPassengers() {
+        return travelPackage.calculateTotalCostForAllPassengersCents();
+    }
+
+    @Benchmark
+    public void activityCost(Blackhole blackhole) {
+        for (Passenger passenger : roster) {
+            blackhole.consume(passenger.activityCostCents(activity));
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.nymble;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Renders the package report into a string, and streams it to a channel that discards its input.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class ReportBenchmark {
+
+    @Param({"1000", "100000"})
+    public int rosterSize;
+
+    @Param({"1", "20"})
+    public int activitiesPerDestination;
+
+    private TravelPackage travelPackage;
+
+    private WritableByteChannel sink;
+
+    @Setup
+    public void setUp() {
+        BookingEvents.setSink(event -> { });
+        travelPackage = Fixtures.enrolledPackage(rosterSize, activitiesPerDestination);
+        sink = Channels.newChannel(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        });
+    }
+
+    @Benchmark
+    public String generateReport() {
+        return travelPackage.generateReport();
+    }
+
+    @Benchmark
+    public void writeReport() throws IOException {
+        travelPackage.writeReport(sink);
+    }
+}
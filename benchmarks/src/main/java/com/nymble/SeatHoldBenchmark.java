@@ -0,0 +1,76 @@
+package com.nymble;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures seat holds against a {@link SeatHoldScheduler} configured like the default one that already
+ * times {@code outstanding} holds with TTLs spread between five and fifteen minutes. Placing and releasing a
+ * hold, and expiring one, should cost the same however many others are outstanding. The wheel is advanced
+ * by hand on a synthetic clock so that expiry work is measured rather than waited for.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class SeatHoldBenchmark {
+
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private static final long SPREAD_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+    @Param({"0", "1000000"})
+    public int outstanding;
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private SeatHoldScheduler scheduler;
+
+    private Activity activity;
+
+    private long placed;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        clock.set(0);
+        scheduler = new SeatHoldScheduler(clock::get, TICK_NANOS, 8192, false);
+        activity = new Activity("Bench", "Benchmark activity", 10.0, Integer.MAX_VALUE, new Destination("Bench"));
+        for (int i = 0; i < outstanding; i++) {
+            activity.holdSeat(SPREAD_NANOS / 2 + (i * 7919L) % SPREAD_NANOS, TimeUnit.NANOSECONDS, scheduler);
+        }
+        placed = 1;
+        clock.set(TICK_NANOS);
+        scheduler.advance();
+    }
+
+    @Benchmark
+    public boolean holdAndRelease() {
+        return activity.releaseHold(activity.holdSeat(1, TimeUnit.MINUTES, scheduler));
+    }
+
+    /**
+     * Places a hold due on the next tick and advances the wheel one tick, expiring that hold together with
+     * any outstanding holds due on the same tick.
+     */
+    @Benchmark
+    public long holdAndExpire() {
+        activity.holdSeat(0, TimeUnit.NANOSECONDS, scheduler);
+        placed++;
+        clock.set(placed * TICK_NANOS);
+        scheduler.advance();
+        return scheduler.getExpiredCount();
+    }
+}
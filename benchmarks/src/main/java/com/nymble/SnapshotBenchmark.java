@@ -0,0 +1,57 @@
+package com.nymble;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures taking a roster snapshot with {@link TravelPackage#getPassengers()} and the cost writers pay to keep
+ * snapshots cheap. Taking a snapshot should stay flat as the roster grows, and a withdrawal plus re-enrollment
+ * should grow only logarithmically.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class SnapshotBenchmark {
+
+    @Param({"1000", "100000"})
+    public int rosterSize;
+
+    private TravelPackage travelPackage;
+
+    private List<Passenger> roster;
+
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        BookingEvents.setSink(event -> { });
+        travelPackage = Fixtures.enrolledPackage(rosterSize, 0);
+        roster = travelPackage.getPassengers();
+    }
+
+    @Benchmark
+    public List<Passenger> takeSnapshot() {
+        return travelPackage.getPassengers();
+    }
+
+    @Benchmark
+    public boolean withdrawAndReenroll() {
+        cursor = (cursor + 7919) % rosterSize;
+        Passenger passenger = roster.get(cursor);
+        travelPackage.removePassenger(passenger);
+        return travelPackage.addPassenger(passenger);
+    }
+}
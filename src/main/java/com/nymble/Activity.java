@@ -8,10 +8,24 @@
 
 package com.nymble;
 import java.util.List;
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
 
 class Activity {
 
+    /**
+     * Source of activity identifiers.
+     */
+    private static final AtomicInteger idSequence = new AtomicInteger();
+
+    /**
+     * A stable identifier for the activity, unique within this JVM.
+     */
+    private final int id;
+
     /**
      * The name of the activity.
      */
@@ -23,14 +37,15 @@ class Activity {
     private String description;
 
     /**
-     * The cost of participating in the activity.
+     * The cost of participating in the activity, in cents.
      */
-    private double cost;
+    private final long costCents;
 
     /**
-     * The maximum number of passengers that can participate in the activity.
+     * The number of seats still available. Seats are claimed with a compare-and-set loop so that
+     * concurrent sign-ups never take the count below zero.
      */
-    private int capacity;
+    private final AtomicInteger capacity;
 
     /**
      * The destination where the activity takes place.
@@ -38,9 +53,38 @@ class Activity {
     private Destination destination;
 
     /**
-     * The list of passengers who have signed up for the activity.
+     * The passengers who have signed up for the activity, in sign-up order, keyed by passenger number. A
+     * passenger is found, added and removed in constant time without a lock, readers get immutable snapshots,
+     * and {@link EnrollmentIndex} combines the roster's bitmaps of passenger numbers across activities.
      */
-    private List<Passenger> signedUpPassengers;
+    private final Roster<Passenger> signedUpPassengers;
+
+    /**
+     * Shared by activities nobody is observing.
+     */
+    private static final CapacityListener[] NO_LISTENERS = new CapacityListener[0];
+
+    /**
+     * Observers of the seat count. Replaced as a whole on change so the booking path reads it without locking.
+     */
+    private volatile CapacityListener[] capacityListeners = NO_LISTENERS;
+
+    /**
+     * This activity's entry in the active {@link BookingMetrics}, cached to skip the lookup by id. Written
+     * racily; a stale value is detected by its owner and replaced.
+     */
+    BookingMetrics.ActivityMetrics metrics;
+
+    /**
+     * The price of the activity for every tier, built on first use by {@link PricingEngine}. Written racily;
+     * a table from another engine is detected and rebuilt.
+     */
+    PricingEngine.PriceTable prices;
+
+    /**
+     * The requests waiting for a seat, created when the first one joins.
+     */
+    private volatile Waitlist waitlist;
 
     /**
      * Constructs a new Activity object with the specified details.
@@ -52,12 +96,69 @@ class Activity {
      * @param destination The destination where the activity takes place
      */
     public Activity(String name, String description, double cost, int capacity, Destination destination) {
+        this.id = idSequence.getAndIncrement();
         this.name = name;
         this.description = description;
-        this.cost = cost;
+        this.costCents = Money.ofMajor(cost);
         this.destination = destination;
-        this.signedUpPassengers = new ArrayList<>();
-        this.capacity = Math.max(0, capacity);
+        this.signedUpPassengers = new Roster<>(Passenger::getPassengerNumber);
+        this.capacity = new AtomicInteger(Math.max(0, capacity));
+    }
+
+    /**
+     * Reconstructs an activity with a known id, for example when loading a snapshot. Ids handed out to new
+     * activities afterwards are above any id restored this way.
+     *
+     * @param id The activity's existing id
+     * @param name The name of the activity
+     * @param description A description of the activity
+     * @param costCents The cost of the activity in cents
+     * @param capacity The number of seats still available
+     * @param destination The destination where the activity takes place
+     */
+    Activity(int id, String name, String description, long costCents, int capacity, Destination destination) {
+        reserveIdsThrough(id);
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.costCents = costCents;
+        this.destination = destination;
+        this.signedUpPassengers = new Roster<>(Passenger::getPassengerNumber);
+        this.capacity = new AtomicInteger(Math.max(0, capacity));
+    }
+
+    /**
+     * Creates a new activity whose cost is already known in cents, so it does not round-trip through a
+     * {@code double}, for example when importing parsed amounts.
+     *
+     * @param name The name of the activity
+     * @param description A description of the activity
+     * @param costCents The cost of the activity in cents
+     * @param capacity The maximum capacity of the activity
+     * @param destination The destination where the activity takes place
+     * @return The activity, with a new id
+     */
+    static Activity ofCents(String name, String description, long costCents, int capacity, Destination destination) {
+        return new Activity(idSequence.getAndIncrement(), name, description, costCents, capacity, destination);
+    }
+
+    /**
+     * Makes sure activities created from now on get ids above {@code id}, for example because activities
+     * with ids up to it exist in a catalog but have not been loaded yet.
+     *
+     * @param id The highest id already taken
+     */
+    static void reserveIdsThrough(int id) {
+        idSequence.accumulateAndGet(id + 1, Math::max);
+    }
+
+    /**
+     * Returns the activity's unique identifier.
+     *
+     * @return The activity id
+     */
+    public int getId() {
+        return id;
     }
 
     /**
@@ -84,7 +185,16 @@ class Activity {
      * @return The activity cost
      */
     public double getCost() {
-        return cost;
+        return Money.toMajor(costCents);
+    }
+
+    /**
+     * Returns the cost of participating in the activity in cents.
+     *
+     * @return The activity cost in cents
+     */
+    public long getCostCents() {
+        return costCents;
     }
 
     /**
@@ -93,7 +203,7 @@ class Activity {
      * @return The activity capacity
      */
     public int getCapacity() {
-        return capacity;
+        return capacity.get();
     }
 
     /**
@@ -108,36 +218,387 @@ class Activity {
     /**
      * Returns a list of passengers who have signed up for the activity.
      *
-     * @return The list of signed-up passengers
+     * @return An immutable snapshot of the signed-up passengers, in sign-up order
      */
     public List<Passenger> getSignedUpPassengers() {
-        return signedUpPassengers;
+        return signedUpPassengers.snapshot();
     }
 
     /**
      * Attempts to sign up a passenger for the activity if there's available capacity.
+     * Safe to call from multiple threads; the activity is never oversold.
      *
      * @param passenger The passenger to sign up
-     * @return true if the passenger was successfully signed up, false if the activity is full
+     * @return true if the passenger was successfully signed up, false if the activity is full or the
+     *         passenger is already on the roster
      */
     public boolean signUpPassenger(Passenger passenger) {
-        if (capacity > 0) {
-            signedUpPassengers.add(passenger);
-            capacity--;
-            return true;
+        if (signedUpPassengers.contains(passenger) || !tryReserveSeat()) {
+            return false;
+        }
+        if (!enlist(passenger)) {
+            releaseSeat(); // Lost a race with the same passenger signing up on another thread.
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Cancels a passenger's place on the activity and gives the seat back, as
+     * {@link Passenger#cancelActivity(Activity)} does.
+     *
+     * @param passenger The passenger
+     * @return true if the passenger held a place
+     */
+    public boolean cancelPassenger(Passenger passenger) {
+        return passenger.cancelActivity(this);
+    }
+
+    /**
+     * Checks whether a passenger is on the roster.
+     *
+     * @param passenger The passenger
+     * @return true if the passenger is listed
+     */
+    public boolean isSignedUp(Passenger passenger) {
+        return signedUpPassengers.contains(passenger);
+    }
+
+    /**
+     * Signs up a passenger if a seat is free and nobody is waiting, and otherwise puts them on the waitlist.
+     * Waiters are promoted by tier and then in joining order as seats are given back.
+     *
+     * @param passenger The passenger to sign up
+     * @return A future completed with true once the passenger holds a seat; cancelling it leaves the waitlist
+     */
+    public CompletableFuture<Boolean> signUpPassengerOrWait(Passenger passenger) {
+        if (signedUpPassengers.contains(passenger)) {
+            return CompletableFuture.completedFuture(false);
+        }
+        if (getWaitlistSize() == 0 && signUpPassenger(passenger)) {
+            return CompletableFuture.completedFuture(true);
+        }
+        return awaitSeat(passenger.getType(), () -> enlist(passenger));
+    }
+
+    /**
+     * Sets a seat aside for a limited time, for example while a payment is processed. The seat leaves the
+     * capacity at once and comes back by itself if the hold is neither confirmed nor released before the time
+     * is up. Holds are timed by {@link SeatHoldScheduler#getDefault()}.
+     *
+     * @param ttl How long the hold lasts
+     * @param unit The unit of {@code ttl}
+     * @return The hold, or null if the activity is full
+     */
+    public SeatHold holdSeat(long ttl, TimeUnit unit) {
+        return holdSeat(ttl, unit, SeatHoldScheduler.getDefault());
+    }
+
+    /**
+     * Sets a seat aside for a limited time, timed by the given scheduler.
+     *
+     * @param ttl How long the hold lasts
+     * @param unit The unit of {@code ttl}
+     * @param scheduler The scheduler that expires the hold
+     * @return The hold, or null if the activity is full
+     */
+    public SeatHold holdSeat(long ttl, TimeUnit unit, SeatHoldScheduler scheduler) {
+        if (!tryReserveSeat()) {
+            return null;
+        }
+        try {
+            return scheduler.schedule(this, unit.toNanos(ttl));
+        } catch (RuntimeException e) {
+            releaseSeat();
+            throw e;
+        }
+    }
+
+    /**
+     * Turns a hold into a place on the roster for a passenger, as {@link #signUpPassenger(Passenger)} would
+     * with a free seat. A passenger already listed keeps their place, and the held seat is given back.
+     *
+     * @param hold The hold
+     * @param passenger The passenger to sign up
+     * @return true if the passenger was signed up, false if the hold had already ended or the passenger was
+     *         already listed
+     * @throws IllegalArgumentException If the hold is on another activity
+     */
+    public boolean confirmHold(SeatHold hold, Passenger passenger) {
+        checkOwnHold(hold);
+        if (!hold.finish(SeatHold.State.CONFIRMED)) {
+            return false;
+        }
+        if (!enlist(passenger)) {
+            releaseSeat();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Ends a hold early and gives its seat back.
+     *
+     * @param hold The hold
+     * @return true if the seat was given back, false if the hold had already ended
+     * @throws IllegalArgumentException If the hold is on another activity
+     */
+    public boolean releaseHold(SeatHold hold) {
+        checkOwnHold(hold);
+        if (!hold.finish(SeatHold.State.RELEASED)) {
+            return false;
         }
-        return false;
+        releaseSeat();
+        return true;
+    }
+
+    /**
+     * Makes sure a hold was placed on this activity.
+     *
+     * @param hold The hold
+     * @throws IllegalArgumentException If the hold is on another activity
+     */
+    private void checkOwnHold(SeatHold hold) {
+        if (hold.getActivity() != this) {
+            throw new IllegalArgumentException("Hold is on " + hold.getActivity().getName() + ", not " + name);
+        }
+    }
+
+    /**
+     * Returns the number of requests waiting for a seat.
+     *
+     * @return The waitlist length
+     */
+    public int getWaitlistSize() {
+        Waitlist current = waitlist;
+        return current == null ? 0 : current.size();
+    }
+
+    /**
+     * Queues a request for the next free seat, behind any request of the same or a higher tier already
+     * waiting.
+     *
+     * @param tier The tier of the passenger
+     * @param claim Takes up the seat once one has been reserved for the request, returning false if it was
+     *              not used
+     * @return A future completed with the result of the claim
+     */
+    CompletableFuture<Boolean> awaitSeat(PassengerType tier, BooleanSupplier claim) {
+        Waitlist.Waiter waiter = waitlist().add(tier, claim);
+        // A seat may have come back between the caller finding the activity full and joining the queue.
+        promoteWaiters();
+        return waiter.result;
     }
 
     /**
      * Decreases the activity's capacity by 1, ensuring it doesn't go below 0.
+     *
+     * @return true if a seat was taken, false if the activity was already full
      */
-    public void decreaseCapacity() {
-        if (capacity > 0) {
-            capacity--;
+    public boolean decreaseCapacity() {
+        return tryReserveSeat();
+    }
+
+    /**
+     * Claims one seat if any are left.
+     *
+     * @return true if a seat was claimed, false if the activity is full
+     */
+    boolean tryReserveSeat() {
+        int available;
+        do {
+            available = capacity.get();
+            if (available <= 0) {
+                return false;
+            }
+        } while (!capacity.compareAndSet(available, available - 1));
+        notifyCapacityChanged();
+        return true;
+    }
+
+    /**
+     * Claims up to {@code requested} seats in a single compare-and-set.
+     *
+     * @param requested The number of seats wanted
+     * @return The number of seats actually claimed, between 0 and {@code requested}
+     */
+    int tryReserveSeats(int requested) {
+        int available;
+        int granted;
+        do {
+            available = capacity.get();
+            granted = Math.min(available, requested);
+            if (granted <= 0) {
+                return 0;
+            }
+        } while (!capacity.compareAndSet(available, available - granted));
+        notifyCapacityChanged();
+        return granted;
+    }
+
+    /**
+     * Gives back a seat claimed with {@link #tryReserveSeat()} that was not used.
+     */
+    void releaseSeat() {
+        capacity.incrementAndGet();
+        notifyCapacityChanged();
+        promoteWaiters();
+    }
+
+    /**
+     * Gives back seats claimed with {@link #tryReserveSeats(int)} that were not used.
+     *
+     * @param seats The number of seats to return
+     */
+    void releaseSeats(int seats) {
+        if (seats > 0) {
+            capacity.addAndGet(seats);
+            notifyCapacityChanged();
+            promoteWaiters();
         }
     }
 
+    /**
+     * Registers an observer of the seat count.
+     *
+     * @param listener The listener to add
+     */
+    synchronized void addCapacityListener(CapacityListener listener) {
+        CapacityListener[] current = capacityListeners;
+        CapacityListener[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = listener;
+        capacityListeners = updated;
+    }
+
+    /**
+     * Unregisters an observer of the seat count.
+     *
+     * @param listener The listener to remove
+     */
+    synchronized void removeCapacityListener(CapacityListener listener) {
+        CapacityListener[] current = capacityListeners;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == listener) {
+                CapacityListener[] updated = new CapacityListener[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                capacityListeners = updated.length == 0 ? NO_LISTENERS : updated;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Tells every registered listener that the seat count changed.
+     */
+    private void notifyCapacityChanged() {
+        for (CapacityListener listener : capacityListeners) {
+            listener.capacityChanged(this);
+        }
+    }
+
+    /**
+     * Returns the waitlist, creating it on first use.
+     */
+    private Waitlist waitlist() {
+        Waitlist current = waitlist;
+        if (current == null) {
+            synchronized (this) {
+                current = waitlist;
+                if (current == null) {
+                    current = new Waitlist();
+                    waitlist = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Hands free seats to waiting requests until either runs out. A seat whose claim declines it goes to
+     * the next waiter.
+     */
+    private void promoteWaiters() {
+        Waitlist current = waitlist;
+        if (current == null) {
+            return;
+        }
+        Waitlist.Waiter waiter;
+        while ((waiter = current.pollWithSeat(this)) != null) {
+            boolean used = false;
+            try {
+                used = !waiter.result.isDone() && waiter.claim.getAsBoolean();
+                waiter.result.complete(used);
+            } catch (RuntimeException e) {
+                waiter.result.completeExceptionally(e);
+            } finally {
+                if (!used) {
+                    capacity.incrementAndGet();
+                    notifyCapacityChanged();
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a passenger to the roster for a seat that has already been claimed. A passenger already listed
+     * is not listed twice, and the caller should then give the claimed seat back.
+     *
+     * @param passenger The passenger holding the seat
+     * @return true if the passenger was added, false if they were already listed
+     */
+    boolean addToRoster(Passenger passenger) {
+        return enlist(passenger);
+    }
+
+    /**
+     * Takes a passenger off the roster without touching the seat count.
+     *
+     * @param passenger The passenger
+     * @return true if the passenger was listed
+     */
+    boolean removeFromRoster(Passenger passenger) {
+        return signedUpPassengers.remove(passenger);
+    }
+
+    /**
+     * Adds several passengers to the roster for seats that have already been claimed.
+     *
+     * @param passengers The passengers holding the seats
+     */
+    void addAllToRoster(List<Passenger> passengers) {
+        signedUpPassengers.addAll(passengers);
+    }
+
+    /**
+     * Copies the passenger numbers on the roster.
+     *
+     * @return A new bitmap
+     */
+    IdBitmap getSignedUpNumbers() {
+        return signedUpPassengers.ids();
+    }
+
+    /**
+     * Checks by passenger number whether a passenger is on the roster.
+     *
+     * @param passengerNumber The passenger number
+     * @return true if the passenger is listed
+     */
+    boolean isSignedUp(int passengerNumber) {
+        return signedUpPassengers.containsId(passengerNumber);
+    }
+
+    /**
+     * Lists a passenger on the roster unless their number is already there.
+     *
+     * @param passenger The passenger
+     * @return true if the passenger was added
+     */
+    private boolean enlist(Passenger passenger) {
+        return signedUpPassengers.add(passenger);
+    }
+
     /**
      * Provides a formatted string with details about the activity, including its name, destination,
      * capacity, available spaces, and cost.
@@ -145,9 +606,10 @@ class Activity {
      * @return A formatted string with activity details
      */
     public String getActivityDetails() {
+        int available = capacity.get();
         return "- " + name + " at " + destination.getName() +
-                " (Capacity: " + (capacity + signedUpPassengers.size()) +
-                ", Available Spaces: " + capacity +
-                ", Cost: " + cost + ")";
+                " (Capacity: " + (available + signedUpPassengers.size()) +
+                ", Available Spaces: " + available +
+                ", Cost: " + getCost() + ")";
     }
 }
@@ -0,0 +1,270 @@
+/**
+ * Decouples booking threads from slow event consumers.
+ *
+ * @author Parth Ahuja
+ * @version 1.0
+ * @since 2024-01-01
+ */
+package com.nymble;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Buffers booking events in a bounded ring buffer and hands them to a delegate sink on a single
+ * background thread. Booking threads only pay for an enqueue; what happens when the buffer is full
+ * is decided by the {@link OverflowPolicy}.
+ */
+public class AsyncEventSink implements BookingEventSink, AutoCloseable {
+
+    /**
+     * What to do with an event when the buffer is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Discard the event and count it in {@link AsyncEventSink#getDroppedCount()}.
+         */
+        DROP,
+
+        /**
+         * Wait on the booking thread until the drain thread frees up room.
+         */
+        BLOCK
+    }
+
+    /**
+     * The maximum number of events handed to the delegate per drain cycle.
+     */
+    private static final int DRAIN_BATCH = 256;
+
+    /**
+     * The sink that receives events on the drain thread.
+     */
+    private final BookingEventSink delegate;
+
+    /**
+     * The bounded ring buffer between booking threads and the drain thread.
+     */
+    private final BlockingQueue<BookingEvent> buffer;
+
+    /**
+     * The behaviour when the buffer is full.
+     */
+    private final OverflowPolicy policy;
+
+    /**
+     * The number of events accepted into the buffer. Counted before an event is enqueued, so a
+     * {@link #flush()} that sees the count also waits for the event; taken back if the event is dropped.
+     */
+    private final AtomicLong accepted = new AtomicLong();
+
+    /**
+     * The number of events handed to the delegate.
+     */
+    private final AtomicLong delivered = new AtomicLong();
+
+    /**
+     * The number of events discarded because the buffer was full.
+     */
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Signalled by the drain thread after each batch it delivers, and when it exits.
+     */
+    private final Object progress = new Object();
+
+    /**
+     * The background thread that drains the buffer.
+     */
+    private final Thread drainer;
+
+    /**
+     * Set once {@link #close()} has been called.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Constructs a sink and starts its drain thread.
+     *
+     * @param delegate The sink to hand events to
+     * @param capacity The maximum number of buffered events
+     * @param policy The behaviour when the buffer is full
+     */
+    public AsyncEventSink(BookingEventSink delegate, int capacity, OverflowPolicy policy) {
+        this.delegate = delegate;
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.policy = policy;
+        this.drainer = new Thread(this::drain, "booking-event-drainer");
+        this.drainer.setDaemon(true);
+        this.drainer.start();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Enqueues the event, dropping it or waiting for room if the buffer is full.
+     */
+    @Override
+    public void publish(BookingEvent event) {
+        if (closed) {
+            dropped.incrementAndGet();
+            return;
+        }
+        accepted.incrementAndGet();
+        if (buffer.offer(event)) {
+            return;
+        }
+        if (policy == OverflowPolicy.DROP) {
+            reject();
+            return;
+        }
+        try {
+            buffer.put(event);
+        } catch (InterruptedException e) {
+            reject();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Takes back the acceptance of an event that did not make it into the buffer.
+     */
+    private void reject() {
+        accepted.decrementAndGet();
+        dropped.incrementAndGet();
+        synchronized (progress) {
+            progress.notifyAll();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Waits until the drain thread has delivered every event accepted before this call.
+     */
+    @Override
+    public void flush() throws InterruptedException {
+        long target = accepted.get();
+        synchronized (progress) {
+            // An event counted in the target may still be dropped, which lowers the accepted count instead.
+            while (delivered.get() < Math.min(target, accepted.get()) && drainer.isAlive()) {
+                progress.wait();
+            }
+        }
+        delegate.flush();
+    }
+
+    /**
+     * Stops accepting events, delivers whatever is still buffered, and stops the drain thread. If
+     * interrupted while waiting, the wait carries on and the interrupt status is restored afterwards.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        drainer.interrupt();
+        boolean interrupted = false;
+        while (drainer.isAlive()) {
+            try {
+                drainer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        try {
+            delegate.flush();
+        } catch (InterruptedException e) {
+            interrupted = true;
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the number of events accepted into the buffer.
+     *
+     * @return The accepted event count
+     */
+    public long getAcceptedCount() {
+        return accepted.get();
+    }
+
+    /**
+     * Returns the number of events handed to the delegate.
+     *
+     * @return The delivered event count
+     */
+    public long getDeliveredCount() {
+        return delivered.get();
+    }
+
+    /**
+     * Returns the number of events discarded because the buffer was full or the sink was closed.
+     *
+     * @return The dropped event count
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Body of the drain thread: moves events from the buffer to the delegate in batches until closed,
+     * then delivers whatever is left.
+     */
+    private void drain() {
+        try {
+            drainUntilClosed();
+        } finally {
+            synchronized (progress) {
+                progress.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Delivers batches until closed, then whatever is left in the buffer.
+     */
+    private void drainUntilClosed() {
+        List<BookingEvent> batch = new ArrayList<>(DRAIN_BATCH);
+        while (!closed) {
+            try {
+                BookingEvent first = buffer.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                buffer.drainTo(batch, DRAIN_BATCH - 1);
+                deliver(batch);
+            } catch (InterruptedException e) {
+                // close() interrupts us; fall through to the final drain
+            }
+        }
+        while (buffer.drainTo(batch, DRAIN_BATCH) > 0) {
+            deliver(batch);
+        }
+    }
+
+    /**
+     * Hands a batch to the delegate, isolating the drain thread from delegate failures.
+     *
+     * @param batch The events to deliver; cleared afterwards
+     */
+    private void deliver(List<BookingEvent> batch) {
+        for (BookingEvent event : batch) {
+            try {
+                delegate.publish(event);
+            } catch (RuntimeException e) {
+                // a misbehaving consumer must not stop event delivery
+            }
+        }
+        delivered.addAndGet(batch.size());
+        batch.clear();
+        synchronized (progress) {
+            progress.notifyAll();
+        }
+    }
+}
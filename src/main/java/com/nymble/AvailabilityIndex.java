@@ -0,0 +1,317 @@
+/**
+ * Index of activities by price and free seats.
+ *
+ * @author Parth Ahuja
+ * @version 1.0
+ * @since 2024-01-01
+ */
+package com.nymble;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Answers "the cheapest activities with at least k free seats, optionally within a price range" without
+ * walking every destination. Activities are kept sorted by cost, and a segment tree over that order holds the
+ * largest free-seat count of each range. A query descends only into ranges that can still contain a match,
+ * so finding each result takes O(log n).
+ *
+ * <p>The index registers a {@link CapacityListener} on every activity it holds. The listener runs on the
+ * booking path, so it takes no lock: it only marks the activity stale, and the next query refreshes the
+ * stale leaves and their ancestors, O(log n) each. Activities added to a destination after indexing are not
+ * picked up automatically; pass them to {@link #add(Activity)}. Close the index to stop observing its
+ * activities.</p>
+ */
+public final class AvailabilityIndex implements AutoCloseable {
+
+    /**
+     * Orders activities by cost, then by id so that equal prices have a stable order.
+     */
+    private static final Comparator<Activity> BY_COST =
+            Comparator.comparingLong(Activity::getCostCents).thenComparingInt(Activity::getId);
+
+    /**
+     * The free-seat value of tree leaves past the last activity, below any real count.
+     */
+    private static final int EMPTY = -1;
+
+    /**
+     * The entry of each indexed activity.
+     */
+    private final Map<Activity, Entry> entries = new IdentityHashMap<>();
+
+    /**
+     * The most recently marked entry of a lock-free stack of stale entries, linked through
+     * {@link Entry#nextStale}, or null if none is stale.
+     */
+    private final AtomicReference<Entry> stale = new AtomicReference<>();
+
+    /**
+     * The indexed activities in cost order.
+     */
+    private Activity[] sorted = new Activity[0];
+
+    /**
+     * The segment tree: node {@code i} has children {@code 2i} and {@code 2i + 1}, leaves start at
+     * {@link #leafBase}, and every node holds the largest free-seat count below it.
+     */
+    private int[] tree = new int[2];
+
+    /**
+     * The index of the first leaf, a power of two.
+     */
+    private int leafBase = 1;
+
+    /**
+     * Whether activities were added since the tree was last built.
+     */
+    private boolean dirty;
+
+    /**
+     * Whether the index has been closed.
+     */
+    private boolean closed;
+
+    /**
+     * Constructs an index over every activity currently offered at the given destinations, for example a
+     * package's itinerary.
+     *
+     * @param destinations The destinations whose activities to index
+     */
+    public AvailabilityIndex(Collection<Destination> destinations) {
+        for (Destination destination : destinations) {
+            for (Activity activity : destination.getActivities()) {
+                add(activity);
+            }
+        }
+    }
+
+    /**
+     * Adds an activity to the index. Adding an activity already indexed has no effect.
+     *
+     * @param activity The activity to index
+     */
+    public void add(Activity activity) {
+        Entry entry;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("Availability index is closed");
+            }
+            if (entries.containsKey(activity)) {
+                return;
+            }
+            entry = new Entry(activity);
+            entries.put(activity, entry);
+            dirty = true;
+        }
+        activity.addCapacityListener(entry);
+    }
+
+    /**
+     * Returns the number of indexed activities.
+     *
+     * @return The activity count
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the cheapest activities with at least {@code minSeats} free seats.
+     *
+     * @param minSeats The number of free seats required
+     * @param limit The maximum number of activities to return
+     * @return Up to {@code limit} activities, cheapest first
+     */
+    public List<Activity> findCheapest(int minSeats, int limit) {
+        return findCheapest(Long.MIN_VALUE, Long.MAX_VALUE, minSeats, limit);
+    }
+
+    /**
+     * Returns the cheapest activities costing between {@code minCostCents} and {@code maxCostCents}, inclusive,
+     * with at least {@code minSeats} free seats.
+     *
+     * @param minCostCents The lowest cost in cents
+     * @param maxCostCents The highest cost in cents
+     * @param minSeats The number of free seats required
+     * @param limit The maximum number of activities to return
+     * @return Up to {@code limit} activities, cheapest first
+     */
+    public synchronized List<Activity> findCheapest(long minCostCents, long maxCostCents, int minSeats, int limit) {
+        if (minSeats < 0 || limit < 0) {
+            throw new IllegalArgumentException("minSeats and limit must not be negative: " + minSeats + ", " + limit);
+        }
+        if (dirty) {
+            rebuild();
+        }
+        refreshStale();
+        List<Activity> result = new ArrayList<>(Math.min(limit, sorted.length));
+        int from = firstCostingAtLeast(minCostCents);
+        int to = maxCostCents == Long.MAX_VALUE ? sorted.length : firstCostingAtLeast(maxCostCents + 1);
+        while (result.size() < limit && from < to) {
+            int found = firstWithSeats(1, 0, leafBase, from, to, minSeats);
+            if (found < 0) {
+                break;
+            }
+            result.add(sorted[found]);
+            from = found + 1;
+        }
+        return result;
+    }
+
+    /**
+     * Stops observing the indexed activities. Queries still answer from the counts seen last.
+     */
+    @Override
+    public void close() {
+        Entry[] closing;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            closing = entries.values().toArray(new Entry[0]);
+        }
+        for (Entry entry : closing) {
+            entry.activity.removeCapacityListener(entry);
+        }
+        synchronized (this) {
+            refreshStale();
+        }
+    }
+
+    /**
+     * Copies the current seat count of every stale activity into its leaf and updates the leaf's ancestors.
+     * Each entry is unmarked before its count is read, so a change racing with the refresh marks it again.
+     */
+    private void refreshStale() {
+        for (Entry entry = stale.getAndSet(null); entry != null; ) {
+            Entry next = entry.nextStale;
+            entry.nextStale = null;
+            entry.marked.set(false);
+            if (entry.position >= 0) {
+                int node = leafBase + entry.position;
+                tree[node] = entry.activity.getCapacity();
+                for (node >>= 1; node > 0; node >>= 1) {
+                    tree[node] = Math.max(tree[2 * node], tree[2 * node + 1]);
+                }
+            }
+            entry = next;
+        }
+    }
+
+    /**
+     * Sorts every indexed activity by cost and builds the tree from their current seat counts.
+     */
+    private void rebuild() {
+        sorted = entries.keySet().toArray(new Activity[0]);
+        Arrays.sort(sorted, BY_COST);
+        leafBase = Integer.highestOneBit(Math.max(1, sorted.length - 1)) << 1;
+        tree = new int[2 * leafBase];
+        Arrays.fill(tree, leafBase, tree.length, EMPTY);
+        for (int i = 0; i < sorted.length; i++) {
+            entries.get(sorted[i]).position = i;
+            tree[leafBase + i] = sorted[i].getCapacity();
+        }
+        for (int node = leafBase - 1; node > 0; node--) {
+            tree[node] = Math.max(tree[2 * node], tree[2 * node + 1]);
+        }
+        dirty = false;
+    }
+
+    /**
+     * Returns the position of the first activity costing at least the given amount.
+     *
+     * @param costCents The cost in cents
+     * @return A position between 0 and the number of activities
+     */
+    private int firstCostingAtLeast(long costCents) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid].getCostCents() < costCents) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Finds the first position in {@code [from, to)} whose activity has at least {@code minSeats} free seats,
+     * searching the subtree of {@code node}, which covers positions {@code [low, high)}.
+     *
+     * @return The position, or -1 if there is none
+     */
+    private int firstWithSeats(int node, int low, int high, int from, int to, int minSeats) {
+        if (high <= from || low >= to || tree[node] < minSeats) {
+            return -1;
+        }
+        if (high - low == 1) {
+            return low;
+        }
+        int mid = (low + high) >>> 1;
+        int found = firstWithSeats(2 * node, low, mid, from, to, minSeats);
+        return found >= 0 ? found : firstWithSeats(2 * node + 1, mid, high, from, to, minSeats);
+    }
+
+    /**
+     * An indexed activity, and the listener that marks it stale when its seat count changes.
+     */
+    private final class Entry implements CapacityListener {
+
+        /**
+         * The activity.
+         */
+        final Activity activity;
+
+        /**
+         * Whether the entry is on the stale stack. Keeps it there at most once, so the stack stays bounded
+         * however many changes happen between queries.
+         */
+        final AtomicBoolean marked = new AtomicBoolean();
+
+        /**
+         * The next entry on the stale stack. Written before the entry is pushed and read after it is popped.
+         */
+        Entry nextStale;
+
+        /**
+         * The activity's position in {@link #sorted}, or -1 until the next rebuild. Guarded by the index.
+         */
+        int position = -1;
+
+        /**
+         * Constructs the entry of an activity not yet placed in the tree.
+         *
+         * @param activity The activity
+         */
+        Entry(Activity activity) {
+            this.activity = activity;
+        }
+
+        /**
+         * Pushes the entry on the stale stack unless it is already there. Takes no lock.
+         */
+        @Override
+        public void capacityChanged(Activity changed) {
+            if (marked.get() || !marked.compareAndSet(false, true)) {
+                return;
+            }
+            Entry head;
+            do {
+                head = stale.get();
+                nextStale = head;
+            } while (!stale.compareAndSet(head, this));
+        }
+    }
+}
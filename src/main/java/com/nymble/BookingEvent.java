@@ -0,0 +1,328 @@
+/**
+ * Represents a state change in the booking system, published to a {@link BookingEventSink}.
+ *
+ * @author Parth Ahuja
+ * @version 1.0
+ * @since 2024-01-01
+ */
+package com.nymble;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable, structured record of a booking outcome. Events carry references to the objects involved
+ * rather than formatted text, so publishing one on the booking path costs a single small allocation.
+ */
+public final class BookingEvent {
+
+    /**
+     * Enumerates the kinds of booking events.
+     */
+    public enum Type {
+        /**
+         * A passenger signed up for an activity and paid {@link BookingEvent#getAmountCents()}.
+         */
+        SIGNED_UP,
+
+        /**
+         * A passenger could not sign up for an activity.
+         */
+        SIGN_UP_REJECTED,
+
+        /**
+         * A passenger was enrolled in a travel package.
+         */
+        ENROLLED,
+
+        /**
+         * A passenger could not be enrolled in a travel package; see {@link BookingEvent#getReason()}.
+         */
+        ENROLLMENT_REJECTED,
+
+        /**
+         * A passenger gave up a seat on an activity and was refunded {@link BookingEvent#getAmountCents()}.
+         */
+        CANCELLED,
+
+        /**
+         * A passenger left a travel package.
+         */
+        WITHDRAWN,
+
+        /**
+         * A batch of passengers was offered to a travel package at once. {@link BookingEvent#getPassengers()}
+         * lists those who were enrolled and {@link BookingEvent#getBatchSize()} how many were offered; there
+         * is no single {@link BookingEvent#getPassenger() passenger}.
+         */
+        BATCH_ENROLLED
+    }
+
+    /**
+     * The kind of event.
+     */
+    private final Type type;
+
+    /**
+     * The passenger the event is about, or null for batch enrollment events.
+     */
+    private final Passenger passenger;
+
+    /**
+     * The activity involved, or null for package enrollment events.
+     */
+    private final Activity activity;
+
+    /**
+     * The travel package involved, or null for activity sign-up events.
+     */
+    private final TravelPackage travelPackage;
+
+    /**
+     * The amount charged to the passenger, in cents.
+     */
+    private final long amountCents;
+
+    /**
+     * The enrollment outcome, or null for activity sign-up events.
+     */
+    private final EnrollmentResult reason;
+
+    /**
+     * The passengers enrolled by a batch, in batch order, or empty for other events.
+     */
+    private final List<Passenger> passengers;
+
+    /**
+     * The number of passengers offered in a batch, or 1 for other events.
+     */
+    private final int batchSize;
+
+    /**
+     * The number of activity seats the passenger held right after a sign-up or cancellation, or 0 for other
+     * events.
+     */
+    private final int seatCount;
+
+    /**
+     * The passenger's balance in cents right after a sign-up or cancellation, or 0 for other events.
+     */
+    private final long balanceCents;
+
+    /**
+     * The wall-clock time the event was created, in milliseconds since the epoch.
+     */
+    private final long timestamp;
+
+    private BookingEvent(Type type, Passenger passenger, Activity activity, TravelPackage travelPackage,
+                         long amountCents, EnrollmentResult reason) {
+        this(type, passenger, activity, travelPackage, amountCents, reason, Collections.<Passenger>emptyList(), 1,
+                0, 0);
+    }
+
+    private BookingEvent(Type type, Passenger passenger, Activity activity, TravelPackage travelPackage,
+                         long amountCents, EnrollmentResult reason, List<Passenger> passengers, int batchSize,
+                         int seatCount, long balanceCents) {
+        this.type = type;
+        this.passenger = passenger;
+        this.activity = activity;
+        this.travelPackage = travelPackage;
+        this.amountCents = amountCents;
+        this.reason = reason;
+        this.passengers = passengers;
+        this.batchSize = batchSize;
+        this.seatCount = seatCount;
+        this.balanceCents = balanceCents;
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    /**
+     * Creates an event for a successful activity sign-up.
+     *
+     * @param passenger The passenger who signed up
+     * @param activity The activity
+     * @param amountCents The amount charged, in cents
+     * @param seatCount The number of activity seats the passenger holds after the sign-up
+     * @param balanceCents The passenger's balance after the charge, in cents
+     * @return The event
+     */
+    static BookingEvent signedUp(Passenger passenger, Activity activity, long amountCents, int seatCount,
+                                 long balanceCents) {
+        return new BookingEvent(Type.SIGNED_UP, passenger, activity, null, amountCents, null,
+                Collections.<Passenger>emptyList(), 1, seatCount, balanceCents);
+    }
+
+    /**
+     * Creates an event for a rejected activity sign-up.
+     *
+     * @param passenger The passenger who tried to sign up
+     * @param activity The activity
+     * @return The event
+     */
+    static BookingEvent signUpRejected(Passenger passenger, Activity activity) {
+        return new BookingEvent(Type.SIGN_UP_REJECTED, passenger, activity, null, 0, null);
+    }
+
+    /**
+     * Creates an event for a cancelled activity seat.
+     *
+     * @param passenger The passenger who cancelled
+     * @param activity The activity
+     * @param refundCents The amount refunded, in cents
+     * @param seatCount The number of activity seats the passenger holds after the cancellation
+     * @param balanceCents The passenger's balance after the refund, in cents
+     * @return The event
+     */
+    static BookingEvent cancelled(Passenger passenger, Activity activity, long refundCents, int seatCount,
+                                  long balanceCents) {
+        return new BookingEvent(Type.CANCELLED, passenger, activity, null, refundCents, null,
+                Collections.<Passenger>emptyList(), 1, seatCount, balanceCents);
+    }
+
+    /**
+     * Creates an event for a passenger leaving a travel package.
+     *
+     * @param passenger The passenger
+     * @param travelPackage The travel package
+     * @return The event
+     */
+    static BookingEvent withdrawn(Passenger passenger, TravelPackage travelPackage) {
+        return new BookingEvent(Type.WITHDRAWN, passenger, null, travelPackage, 0, null);
+    }
+
+    /**
+     * Creates an event for a package enrollment attempt.
+     *
+     * @param passenger The passenger
+     * @param travelPackage The travel package
+     * @param result The outcome of the enrollment
+     * @return The event
+     */
+    static BookingEvent enrollment(Passenger passenger, TravelPackage travelPackage, EnrollmentResult result) {
+        Type type = result == EnrollmentResult.ENROLLED ? Type.ENROLLED : Type.ENROLLMENT_REJECTED;
+        return new BookingEvent(type, passenger, null, travelPackage, 0, result);
+    }
+
+    /**
+     * Creates the single event for a batch enrollment.
+     *
+     * @param travelPackage The travel package
+     * @param enrolled The passengers who were enrolled, in batch order; the array is not copied
+     * @param batchSize The number of passengers offered
+     * @return The event
+     */
+    static BookingEvent batchEnrollment(TravelPackage travelPackage, Passenger[] enrolled, int batchSize) {
+        return new BookingEvent(Type.BATCH_ENROLLED, null, null, travelPackage, 0, null,
+                Collections.unmodifiableList(Arrays.asList(enrolled)), batchSize, 0, 0);
+    }
+
+    /**
+     * Returns the kind of event.
+     *
+     * @return The event type
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns the passenger the event is about.
+     *
+     * @return The passenger, or null for batch enrollment events
+     */
+    public Passenger getPassenger() {
+        return passenger;
+    }
+
+    /**
+     * Returns the activity involved.
+     *
+     * @return The activity, or null for package enrollment events
+     */
+    public Activity getActivity() {
+        return activity;
+    }
+
+    /**
+     * Returns the travel package involved.
+     *
+     * @return The travel package, or null for activity sign-up events
+     */
+    public TravelPackage getTravelPackage() {
+        return travelPackage;
+    }
+
+    /**
+     * Returns the amount charged to the passenger.
+     *
+     * @return The amount charged
+     */
+    public double getAmount() {
+        return Money.toMajor(amountCents);
+    }
+
+    /**
+     * Returns the amount charged to the passenger in cents.
+     *
+     * @return The amount charged in cents
+     */
+    public long getAmountCents() {
+        return amountCents;
+    }
+
+    /**
+     * Returns the enrollment outcome.
+     *
+     * @return The enrollment result, or null for activity sign-up events
+     */
+    public EnrollmentResult getReason() {
+        return reason;
+    }
+
+    /**
+     * Returns the passengers a batch enrolled.
+     *
+     * @return The enrolled passengers in batch order, or an empty list for other events
+     */
+    public List<Passenger> getPassengers() {
+        return passengers;
+    }
+
+    /**
+     * Returns the number of passengers offered in a batch.
+     *
+     * @return The batch size, or 1 for other events
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Returns the number of activity seats the passenger held right after the change, as seen while the change
+     * was made.
+     *
+     * @return The seat count, or 0 for events other than sign-ups and cancellations
+     */
+    public int getSeatCount() {
+        return seatCount;
+    }
+
+    /**
+     * Returns the passenger's balance right after the change, as seen while the change was made.
+     *
+     * @return The balance in cents, or 0 for events other than sign-ups and cancellations
+     */
+    public long getBalanceCents() {
+        return balanceCents;
+    }
+
+    /**
+     * Returns the time the event was created.
+     *
+     * @return Milliseconds since the epoch
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+}
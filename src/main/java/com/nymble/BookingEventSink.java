@@ -0,0 +1,32 @@
+/**
+ * Receives booking events from the sign-up and enrollment paths.
+ *
+ * @author Parth Ahuja
+ * @version 1.0
+ * @since 2024-01-01
+ */
+package com.nymble;
+
+/**
+ * A destination for {@link BookingEvent}s. Implementations are called on the booking thread and
+ * should return quickly; slow work belongs behind an {@link AsyncEventSink}.
+ */
+@FunctionalInterface
+public interface BookingEventSink {
+
+    /**
+     * Accepts an event.
+     *
+     * @param event The event
+     */
+    void publish(BookingEvent event);
+
+    /**
+     * Waits until every event accepted so far has been fully handled. The default does nothing,
+     * which is correct for sinks that handle events synchronously.
+     *
+     * @throws InterruptedException If interrupted while waiting
+     */
+    default void flush() throws InterruptedException {
+    }
+}
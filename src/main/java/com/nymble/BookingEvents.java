@@ -0,0 +1,76 @@
+/**
+ * Holds the sink that the booking paths publish to.
+ *
+ * @author Parth Ahuja
+ * @version 1.0
+ * @since 2024-01-01
+ */
+package com.nymble;
+
+/**
+ * Static access point for the active {@link BookingEventSink}. By default events are printed to the
+ * console from a background thread through an {@link AsyncEventSink} that drops events rather than
+ * slowing down bookings when the console cannot keep up.
+ */
+public final class BookingEvents {
+
+    /**
+     * The number of events the default sink can buffer.
+     */
+    private static final int DEFAULT_CAPACITY = 8192;
+
+    /**
+     * The sink installed at class initialization.
+     */
+    private static final AsyncEventSink DEFAULT_SINK =
+            new AsyncEventSink(new ConsoleEventSink(), DEFAULT_CAPACITY, AsyncEventSink.OverflowPolicy.DROP);
+
+    /**
+     * The sink events are currently published to.
+     */
+    private static volatile BookingEventSink sink = DEFAULT_SINK;
+
+    static {
+        // Deliver anything still buffered when the JVM exits normally.
+        Runtime.getRuntime().addShutdownHook(new Thread(DEFAULT_SINK::close, "booking-event-shutdown"));
+    }
+
+    private BookingEvents() {
+    }
+
+    /**
+     * Returns the sink events are currently published to.
+     *
+     * @return The active sink
+     */
+    public static BookingEventSink getSink() {
+        return sink;
+    }
+
+    /**
+     * Replaces the sink events are published to.
+     *
+     * @param newSink The sink to use from now on
+     */
+    public static void setSink(BookingEventSink newSink) {
+        sink = newSink;
+    }
+
+    /**
+     * Publishes an event to the active sink.
+     *
+     * @param event The event
+     */
+    static void publish(BookingEvent event) {
+        sink.publish(event);
+    }
+
+    /**
+     * Waits until every event published so far has been handled by the active sink.
+     *
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public static void flush() throws InterruptedException {
+        sink.flush();
+    }
+}
@@ -0,0 +1,702 @@
+/**
+ * Makes travel package bookings durable with a write-ahead journal and snapshots.
+ *
+ * @author Parth Ahuja
+ * @version 1.0
+ * @since 2024-01-01
+ */
+package com.nymble;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * A {@link BookingEventSink} that appends every enrollment, sign-up and balance change of one
+ * {@link TravelPackage} to a sequential journal in a directory, and periodically replaces the journal
+ * with a compact snapshot. {@link #recover(Path)} rebuilds the package from the latest snapshot plus the
+ * journal written after it.
+ *
+ * <p>Commits are grouped: publishing threads encode their records into a shared buffer, and a single
+ * committer thread writes and forces whatever has accumulated while the previous write was in flight. Under
+ * load many bookings therefore share one {@code fsync}. By default {@link #publish(BookingEvent)} returns
+ * only once its records are durable.</p>
+ *
+ * <p>Durability covers what the booking paths publish: enrollments in and withdrawals from this package,
+ * and sign-ups and cancellations by its passengers, including the seat and balance change. For a sign-up by someone who is not enrolled, only
+ * the seat is restored, and it may be counted twice if the sign-up raced a snapshot. Changes to the itinerary are captured by the next snapshot, so call {@link #checkpoint()}
+ * after editing destinations or activities. Passenger numbers of recovered passengers are reused, so the
+ * passenger number file of {@link PassengerIdAllocator} should be configured to keep new numbers unique.</p>
+ *
+ * <p>To journal bookings, install the journal with {@link BookingEvents#setSink(BookingEventSink)}.</p>
+ */
+public class BookingJournal implements BookingEventSink, AutoCloseable {
+
+    /**
+     * The default number of records between automatic snapshots.
+     */
+    public static final long DEFAULT_CHECKPOINT_INTERVAL = 1_000_000;
+
+    /**
+     * The name of the snapshot file inside the journal directory.
+     */
+    static final String SNAPSHOT_FILE = "snapshot.bin";
+
+    /**
+     * The prefix of journal segment files, which are named after the first sequence number they hold.
+     */
+    private static final String SEGMENT_PREFIX = "journal-";
+
+    /**
+     * The suffix of journal segment files.
+     */
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    /**
+     * The size of each of the two commit buffers, in bytes.
+     */
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    /**
+     * The directory each package was recovered from or last journaled to. Opening a journal on a directory
+     * that already holds one is only allowed for the package this maps to it, so that a fresh package cannot
+     * overwrite the durable history. Weak, so that it keeps no package alive.
+     */
+    private static final Map<TravelPackage, Path> origins = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * The package being journaled.
+     */
+    private final TravelPackage travelPackage;
+
+    /**
+     * The directory holding the snapshot and the segments.
+     */
+    private final Path directory;
+
+    /**
+     * Whether {@link #publish(BookingEvent)} waits until its records are durable.
+     */
+    private final boolean waitForCommit;
+
+    /**
+     * The number of records after which a snapshot is taken automatically, or 0 for never.
+     */
+    private final long checkpointInterval;
+
+    /**
+     * Guards the buffers and sequence numbers, and is the monitor threads wait on.
+     */
+    private final Object lock = new Object();
+
+    /**
+     * The buffer publishing threads are encoding into.
+     */
+    private ByteBuffer active;
+
+    /**
+     * The buffer not in use by the committer, or null while the committer is writing it.
+     */
+    private ByteBuffer spare;
+
+    /**
+     * The sequence number of the last record encoded.
+     */
+    private long lastSeq;
+
+    /**
+     * The sequence number of the last record forced to disk.
+     */
+    private long durableSeq;
+
+    /**
+     * The sequence number covered by the latest snapshot. Only used by the committer.
+     */
+    private long checkpointSeq;
+
+    /**
+     * Whether a snapshot has been asked for by {@link #checkpoint()}.
+     */
+    private boolean checkpointRequested;
+
+    /**
+     * The number of snapshots written so far.
+     */
+    private long checkpointsCompleted;
+
+    /**
+     * Whether {@link #close()} has been called.
+     */
+    private boolean closed;
+
+    /**
+     * The error that stopped the committer, if any.
+     */
+    private IOException failure;
+
+    /**
+     * The segment being appended to. Only used by the committer after construction.
+     */
+    private FileChannel segment;
+
+    /**
+     * The first sequence number of {@link #segment}.
+     */
+    private long segmentFirstSeq;
+
+    /**
+     * The thread that writes and forces the buffers.
+     */
+    private final Thread committer;
+
+    /**
+     * Opens a journal that waits for durability on every publish and snapshots every
+     * {@link #DEFAULT_CHECKPOINT_INTERVAL} records.
+     *
+     * @param travelPackage The package to journal
+     * @param directory The directory for the journal, created if missing
+     * @throws IOException If the directory cannot be prepared
+     */
+    public BookingJournal(TravelPackage travelPackage, Path directory) throws IOException {
+        this(travelPackage, directory, true, DEFAULT_CHECKPOINT_INTERVAL);
+    }
+
+    /**
+     * Opens a journal. The package's current state is snapshotted first, so the directory always describes
+     * the package from the moment the journal is opened; anything previously in the directory is replaced.
+     * A directory that already holds a journal can therefore only be opened with the package
+     * {@link #recover(Path)} returned for it, or the package that was last journaled there.
+     *
+     * @param travelPackage The package to journal, either fresh or returned by {@link #recover(Path)}
+     * @param directory The directory for the journal, created if missing
+     * @param waitForCommit Whether {@link #publish(BookingEvent)} waits until its records are on disk;
+     *                      if false, only {@link #flush()} and {@link #close()} wait
+     * @param checkpointInterval The number of records after which a snapshot is taken, or 0 for never
+     * @throws IOException If the directory cannot be prepared, or already holds the journal of another package
+     */
+    public BookingJournal(TravelPackage travelPackage, Path directory, boolean waitForCommit, long checkpointInterval)
+            throws IOException {
+        this.travelPackage = travelPackage;
+        this.directory = Files.createDirectories(directory);
+        Path origin = directory.toAbsolutePath().normalize();
+        if (holdsJournal(directory) && !origin.equals(origins.get(travelPackage))) {
+            throw new IOException("Directory " + directory + " already holds a journal; open it with the package"
+                    + " returned by BookingJournal.recover");
+        }
+        this.waitForCommit = waitForCommit;
+        this.checkpointInterval = checkpointInterval;
+        this.active = ByteBuffer.allocate(BUFFER_SIZE);
+        this.spare = ByteBuffer.allocate(BUFFER_SIZE);
+        this.lastSeq = findLastSeq(directory);
+        this.durableSeq = lastSeq;
+        this.segmentFirstSeq = -1;
+        writeCheckpoint(lastSeq);
+        origins.put(travelPackage, origin);
+        this.committer = new Thread(this::commitLoop, "booking-journal");
+        this.committer.setDaemon(true);
+        this.committer.start();
+    }
+
+    /**
+     * Rebuilds a package from a journal directory: the snapshot is loaded, then every intact record written
+     * after it is replayed in order. No events are published while recovering.
+     *
+     * @param directory A directory written by a {@link BookingJournal}
+     * @return The rebuilt package
+     * @throws IOException If the directory holds no snapshot, or cannot be read
+     */
+    public static TravelPackage recover(Path directory) throws IOException {
+        PackageSnapshot snapshot = PackageSnapshot.read(directory.resolve(SNAPSHOT_FILE));
+        JournalRecord record = new JournalRecord();
+        List<Passenger> enrollments = new ArrayList<>();
+        try (JournalReader reader = new JournalReader(listSegments(directory))) {
+            while (reader.next(record)) {
+                if (record.seq > snapshot.lastSeq) {
+                    apply(snapshot, record, enrollments);
+                }
+            }
+        }
+        flushEnrollments(snapshot, enrollments);
+        origins.put(snapshot.travelPackage, directory.toAbsolutePath().normalize());
+        return snapshot.travelPackage;
+    }
+
+    /**
+     * Folds a journal directory into a read model without rebuilding the package: the visitor receives the
+     * snapshot as a checkpoint, then every intact record written after it, in order. Nothing in the directory
+     * is changed, so a journal that is still being written can be folded for an audit.
+     *
+     * @param directory A directory written by a {@link BookingJournal}
+     * @param visitor The visitor that builds the read model
+     * @param <V> The visitor's type
+     * @return The visitor
+     * @throws IOException If the directory holds no snapshot, or cannot be read
+     */
+    public static <V extends BookingLogVisitor> V fold(Path directory, V visitor) throws IOException {
+        long checkpointSeq = PackageSnapshot.fold(directory.resolve(SNAPSHOT_FILE), visitor);
+        JournalRecord record = new JournalRecord();
+        try (JournalReader reader = new JournalReader(listSegments(directory))) {
+            while (reader.next(record)) {
+                if (record.seq > checkpointSeq) {
+                    record.accept(visitor);
+                }
+            }
+        }
+        return visitor;
+    }
+
+    /**
+     * Collapses a closed journal directory into a single checkpoint: the package is recovered, snapshotted as
+     * of the last intact record, and every segment is deleted. A torn tail is discarded in the process.
+     *
+     * @param directory A directory written by a {@link BookingJournal} that is no longer open
+     * @return The recovered package, which the new snapshot describes
+     * @throws IOException If the directory cannot be read or rewritten
+     */
+    public static TravelPackage compact(Path directory) throws IOException {
+        TravelPackage travelPackage = recover(directory);
+        // Opening a journal snapshots the package at the last sequence number and drops the older segments.
+        new BookingJournal(travelPackage, directory, false, 0).close();
+        return travelPackage;
+    }
+
+    /**
+     * Replays one record onto a package being recovered. Records whose effect is already present are
+     * skipped, since a snapshot may include changes made after the sequence number it covers. Runs of
+     * enrollments are collected and replayed together, so the rosters grow a batch at a time; any other record
+     * replays the pending enrollments first.
+     */
+    private static void apply(PackageSnapshot state, JournalRecord record, List<Passenger> enrollments) {
+        if (record.type != JournalRecord.ENROLLED) {
+            flushEnrollments(state, enrollments);
+        }
+        Passenger passenger = state.passengers.get(record.passengerNumber);
+        switch (record.type) {
+            case JournalRecord.ENROLLED:
+                if (passenger == null) {
+                    passenger = Passenger.restore(record.passengerType, record.name, record.amountCents,
+                            record.passengerNumber);
+                    state.passengers.put(record.passengerNumber, passenger);
+                }
+                if (state.enrolled.add(record.passengerNumber)) {
+                    enrollments.add(passenger);
+                }
+                break;
+            case JournalRecord.SIGNED_UP:
+                Activity activity = state.activities.get(record.activityId);
+                if (activity == null) {
+                    break;
+                }
+                if (passenger == null) {
+                    // A passenger outside the package: only the seat they took can be restored.
+                    activity.tryReserveSeat();
+                } else if (passenger.getSignedUpActivityCount() < record.activityCount) {
+                    activity.tryReserveSeat();
+                    passenger.addPaidSignUpActivity(activity, record.amountCents);
+                    activity.addToRoster(passenger);
+                }
+                break;
+            case JournalRecord.CANCELLED:
+                Activity cancelled = state.activities.get(record.activityId);
+                if (cancelled == null) {
+                    break;
+                }
+                if (passenger == null) {
+                    cancelled.releaseSeat();
+                } else if (passenger.getSignedUpActivityCount() > record.activityCount
+                        && passenger.removeFromSignUpActivities(cancelled) >= 0) {
+                    if (!passenger.holdsActivity(cancelled)) {
+                        cancelled.removeFromRoster(passenger);
+                    }
+                    cancelled.releaseSeat();
+                }
+                break;
+            case JournalRecord.WITHDRAWN:
+                if (passenger != null && state.enrolled.remove(record.passengerNumber)) {
+                    state.travelPackage.replayWithdrawal(passenger);
+                }
+                break;
+            case JournalRecord.BALANCE_CHANGED:
+                if (passenger != null) {
+                    passenger.setBalanceCents(record.amountCents);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Replays the enrollments collected by {@link #apply(PackageSnapshot, JournalRecord, List)}.
+     */
+    private static void flushEnrollments(PackageSnapshot state, List<Passenger> enrollments) {
+        if (!enrollments.isEmpty()) {
+            state.travelPackage.replayEnrollments(enrollments);
+            enrollments.clear();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Appends the records for an enrollment in or withdrawal from this package, one record per passenger a
+     * batch enrolled, or a sign-up or cancellation, and by default waits until they are durable. Other events are ignored.
+     *
+     * @throws UncheckedIOException If the journal can no longer be written
+     */
+    @Override
+    public void publish(BookingEvent event) {
+        long seq;
+        synchronized (lock) {
+            if (!reserveSpace()) {
+                return;
+            }
+            Passenger passenger = event.getPassenger();
+            switch (event.getType()) {
+                case BATCH_ENROLLED:
+                    if (event.getTravelPackage() != travelPackage) {
+                        return;
+                    }
+                    for (Passenger enrolled : event.getPassengers()) {
+                        if (!reserveSpace()) {
+                            return;
+                        }
+                        JournalRecord.encodeEnrolled(active, ++lastSeq, enrolled);
+                        lock.notifyAll();
+                    }
+                    break;
+                case ENROLLED:
+                    if (event.getTravelPackage() != travelPackage) {
+                        return;
+                    }
+                    JournalRecord.encodeEnrolled(active, ++lastSeq, passenger);
+                    break;
+                case SIGNED_UP:
+                    JournalRecord.encodeSignedUp(active, ++lastSeq, passenger.getPassengerNumber(),
+                            event.getActivity().getId(), event.getAmountCents(),
+                            event.getSeatCount());
+                    JournalRecord.encodeBalanceChanged(active, ++lastSeq, passenger.getPassengerNumber(),
+                            event.getBalanceCents());
+                    break;
+                case CANCELLED:
+                    JournalRecord.encodeCancelled(active, ++lastSeq, passenger.getPassengerNumber(),
+                            event.getActivity().getId(), event.getAmountCents(),
+                            event.getSeatCount());
+                    JournalRecord.encodeBalanceChanged(active, ++lastSeq, passenger.getPassengerNumber(),
+                            event.getBalanceCents());
+                    break;
+                case WITHDRAWN:
+                    if (event.getTravelPackage() != travelPackage) {
+                        return;
+                    }
+                    JournalRecord.encodeWithdrawn(active, ++lastSeq, passenger.getPassengerNumber());
+                    break;
+                default:
+                    return;
+            }
+            seq = lastSeq;
+            lock.notifyAll();
+        }
+        if (waitForCommit) {
+            awaitDurable(seq);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Waits until every record appended so far is on disk.
+     *
+     * @throws UncheckedIOException If the journal can no longer be written
+     */
+    @Override
+    public void flush() {
+        long seq;
+        synchronized (lock) {
+            seq = lastSeq;
+        }
+        awaitDurable(seq);
+    }
+
+    /**
+     * Writes a snapshot of the package and discards the journal it makes redundant, waiting until done.
+     *
+     * @throws UncheckedIOException If the snapshot cannot be written
+     */
+    public void checkpoint() {
+        synchronized (lock) {
+            long target = checkpointsCompleted + 1;
+            checkpointRequested = true;
+            lock.notifyAll();
+            boolean interrupted = false;
+            while (checkpointsCompleted < target && failure == null && committer.isAlive()) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            throwIfFailed();
+        }
+    }
+
+    /**
+     * Returns the sequence number of the last record known to be on disk.
+     *
+     * @return The durable sequence number
+     */
+    public long getDurableSeq() {
+        synchronized (lock) {
+            return durableSeq;
+        }
+    }
+
+    /**
+     * Commits everything appended so far and stops the committer. Events published afterwards are ignored.
+     *
+     * @throws IOException If the last commit failed or the segment cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        boolean interrupted = false;
+        while (committer.isAlive()) {
+            try {
+                committer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        segment.close();
+        synchronized (lock) {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Waits, holding {@link #lock}, until the active buffer has room for the largest event.
+     *
+     * @return false if the journal is closed
+     */
+    private boolean reserveSpace() {
+        boolean interrupted = false;
+        try {
+            while (!closed && failure == null && active.remaining() < 2 * JournalRecord.MAX_FRAMED_SIZE) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        throwIfFailed();
+        return !closed;
+    }
+
+    /**
+     * Waits until the record with the given sequence number is on disk.
+     */
+    private void awaitDurable(long seq) {
+        synchronized (lock) {
+            boolean interrupted = false;
+            while (durableSeq < seq && failure == null && committer.isAlive()) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            throwIfFailed();
+        }
+    }
+
+    /**
+     * Rethrows the committer's error, if any. Must hold {@link #lock}.
+     */
+    private void throwIfFailed() {
+        if (failure != null) {
+            throw new UncheckedIOException("Booking journal in " + directory + " failed", failure);
+        }
+    }
+
+    /**
+     * The committer: repeatedly swaps the active buffer out, writes and forces it, then publishes the
+     * new durable sequence number and takes a snapshot when one is due.
+     */
+    private void commitLoop() {
+        try {
+            while (true) {
+                ByteBuffer batch;
+                long upTo;
+                synchronized (lock) {
+                    while (active.position() == 0 && !checkpointRequested && !closed) {
+                        lock.wait();
+                    }
+                    if (active.position() == 0 && closed) {
+                        return;
+                    }
+                    batch = active;
+                    active = spare;
+                    spare = null;
+                    upTo = lastSeq;
+                    lock.notifyAll();
+                }
+
+                batch.flip();
+                while (batch.hasRemaining()) {
+                    segment.write(batch);
+                }
+                segment.force(false);
+
+                boolean checkpointDue;
+                synchronized (lock) {
+                    batch.clear();
+                    spare = batch;
+                    durableSeq = upTo;
+                    checkpointDue = checkpointRequested
+                            || checkpointInterval > 0 && upTo - checkpointSeq >= checkpointInterval;
+                    checkpointRequested = false;
+                    lock.notifyAll();
+                }
+                if (checkpointDue) {
+                    writeCheckpoint(upTo);
+                    synchronized (lock) {
+                        checkpointsCompleted++;
+                        lock.notifyAll();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            fail(e);
+        } catch (RuntimeException e) {
+            fail(new IOException(e));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            synchronized (lock) {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Records the error that stopped the committer and wakes every waiting thread.
+     */
+    private void fail(IOException e) {
+        synchronized (lock) {
+            failure = e;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Snapshots the package as of {@code seq}, starts a new segment for the records after it, and deletes
+     * the segments the snapshot replaces. The snapshot is written to a temporary file and renamed into
+     * place, so a crash at any point leaves either the old snapshot and its journal or the new one.
+     */
+    private void writeCheckpoint(long seq) throws IOException {
+        Path temp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        PackageSnapshot.write(travelPackage, seq, temp);
+        Files.move(temp, directory.resolve(SNAPSHOT_FILE),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        if (segmentFirstSeq != seq + 1) {
+            FileChannel previous = segment;
+            segment = FileChannel.open(segmentPath(directory, seq + 1),
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            segmentFirstSeq = seq + 1;
+            if (previous != null) {
+                previous.close();
+            }
+        }
+        for (Path old : listSegments(directory)) {
+            if (firstSeqOf(old) < segmentFirstSeq) {
+                Files.deleteIfExists(old);
+            }
+        }
+        checkpointSeq = seq;
+    }
+
+    /**
+     * Finds the highest sequence number recorded in a directory, from its snapshot and segments.
+     */
+    private static long findLastSeq(Path directory) throws IOException {
+        long last = 0;
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        if (Files.exists(snapshot)) {
+            last = PackageSnapshot.readLastSeq(snapshot);
+        }
+        JournalRecord record = new JournalRecord();
+        try (JournalReader reader = new JournalReader(listSegments(directory))) {
+            while (reader.next(record)) {
+                last = Math.max(last, record.seq);
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Checks whether a directory holds a snapshot or any segment.
+     */
+    private static boolean holdsJournal(Path directory) throws IOException {
+        return Files.exists(directory.resolve(SNAPSHOT_FILE)) || !listSegments(directory).isEmpty();
+    }
+
+    /**
+     * Lists the segment files of a directory, oldest first.
+     */
+    private static List<Path> listSegments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                segments.add(file);
+            }
+        }
+        Collections.sort(segments, (a, b) -> Long.compare(firstSeqOf(a), firstSeqOf(b)));
+        return segments;
+    }
+
+    /**
+     * Returns the path of the segment starting at a sequence number.
+     */
+    private static Path segmentPath(Path directory, long firstSeq) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSeq, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * Parses the first sequence number from a segment file name.
+     */
+    private static long firstSeqOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,375 @@
+/**
+ * A read model of a booking journal for audits.
+ *
+ * @author Parth Ahuja
+ * @version 1.0
+ * @since 2024-01-01
+ */
+package com.nymble;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The money and enrollment state of a package, folded from its journal with
+ * {@link BookingJournal#fold(java.nio.file.Path, BookingLogVisitor)}. It keeps one small account per
+ * passenger and a revenue total per activity, never touches live packages, passengers or activities, and can
+ * be compared with them or checked on its own.
+ *
+ * <p>{@link #findUnreconciled()} is the audit: for every passenger whose starting balance is known, the
+ * starting balance less what was charged plus what was refunded must equal the last recorded balance.</p>
+ */
+public final class BookingLedger implements BookingLogVisitor {
+
+    /**
+     * Seat count of an account whose seats are not known, because the passenger was enrolled after the
+     * checkpoint and took package seats that have no records of their own.
+     */
+    private static final int UNKNOWN_SEATS = -1;
+
+    /**
+     * The accounts by passenger number.
+     */
+    private final Map<Integer, Account> accounts = new HashMap<>();
+
+    /**
+     * The net amount paid for each activity, by activity id, in cents.
+     */
+    private final Map<Integer, long[]> revenueByActivity = new HashMap<>();
+
+    /**
+     * The number of enrolled passengers of each type, indexed by {@link PassengerType#ordinal()}.
+     */
+    private final int[] enrolledByType = new int[PassengerType.values().length];
+
+    /**
+     * The last sequence number the checkpoint includes.
+     */
+    private long checkpointSeq;
+
+    /**
+     * The highest sequence number folded so far.
+     */
+    private long lastSeq;
+
+    /**
+     * The number of journal records folded after the checkpoint, including those skipped as already applied.
+     */
+    private long recordCount;
+
+    @Override
+    public void passenger(int passengerNumber, PassengerType type, String name, long balanceCents,
+                          boolean enrolled) {
+        Account account = new Account(type, balanceCents);
+        accounts.put(passengerNumber, account);
+        if (enrolled) {
+            enroll(account);
+        }
+    }
+
+    @Override
+    public void holding(int passengerNumber, int activityId, long paidCents) {
+        Account account = accounts.get(passengerNumber);
+        if (account != null) {
+            account.seats++;
+        }
+        revenue(activityId)[0] += paidCents;
+    }
+
+    @Override
+    public void checkpoint(long seq) {
+        checkpointSeq = seq;
+        lastSeq = seq;
+    }
+
+    @Override
+    public void enrolled(long seq, int passengerNumber, PassengerType type, String name, long balanceCents) {
+        record(seq);
+        Account account = accounts.get(passengerNumber);
+        if (account == null) {
+            account = new Account(type, balanceCents);
+            accounts.put(passengerNumber, account);
+        } else if (account.enrolled) {
+            return;
+        } else if (account.type == null) {
+            account.type = type;
+        }
+        enroll(account);
+        account.seats = UNKNOWN_SEATS;
+    }
+
+    @Override
+    public void signedUp(long seq, int passengerNumber, int activityId, long chargedCents, int activityCount) {
+        record(seq);
+        Account account = account(passengerNumber);
+        if (account.seats != UNKNOWN_SEATS && activityCount <= account.seats) {
+            return;
+        }
+        account.seats = activityCount;
+        account.chargedCents += chargedCents;
+        revenue(activityId)[0] += chargedCents;
+    }
+
+    @Override
+    public void cancelled(long seq, int passengerNumber, int activityId, long refundCents, int activityCount) {
+        record(seq);
+        Account account = account(passengerNumber);
+        if (account.seats != UNKNOWN_SEATS && activityCount >= account.seats) {
+            return;
+        }
+        account.seats = activityCount;
+        account.refundedCents += refundCents;
+        revenue(activityId)[0] -= refundCents;
+    }
+
+    @Override
+    public void balanceChanged(long seq, int passengerNumber, long balanceCents) {
+        record(seq);
+        Account account = account(passengerNumber);
+        if (!account.openingKnown) {
+            // First sight of a passenger outside the package: start the books so that they balance now.
+            account.openingCents = balanceCents + account.chargedCents - account.refundedCents;
+            account.openingKnown = true;
+        }
+        account.balanceCents = balanceCents;
+    }
+
+    @Override
+    public void withdrawn(long seq, int passengerNumber) {
+        record(seq);
+        Account account = accounts.get(passengerNumber);
+        if (account != null && account.enrolled) {
+            account.enrolled = false;
+            enrolledByType[account.type.ordinal()]--;
+        }
+    }
+
+    /**
+     * Returns the last sequence number the checkpoint includes.
+     *
+     * @return The checkpoint's sequence number
+     */
+    public long getCheckpointSeq() {
+        return checkpointSeq;
+    }
+
+    /**
+     * Returns the highest sequence number folded.
+     *
+     * @return The sequence number
+     */
+    public long getLastSeq() {
+        return lastSeq;
+    }
+
+    /**
+     * Returns the number of journal records folded after the checkpoint.
+     *
+     * @return The record count
+     */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Returns the number of passengers the ledger knows of, enrolled or not.
+     *
+     * @return The passenger count
+     */
+    public int getPassengerCount() {
+        return accounts.size();
+    }
+
+    /**
+     * Returns the number of enrolled passengers.
+     *
+     * @return The enrolled passenger count
+     */
+    public int getEnrolledCount() {
+        int total = 0;
+        for (int count : enrolledByType) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Returns the number of enrolled passengers of a type.
+     *
+     * @param type The passenger type
+     * @return The enrolled passenger count
+     */
+    public int getEnrolledCount(PassengerType type) {
+        return enrolledByType[type.ordinal()];
+    }
+
+    /**
+     * Checks whether a passenger is enrolled.
+     *
+     * @param passengerNumber The passenger number
+     * @return true if the passenger is enrolled
+     */
+    public boolean isEnrolled(int passengerNumber) {
+        Account account = accounts.get(passengerNumber);
+        return account != null && account.enrolled;
+    }
+
+    /**
+     * Returns a passenger's last recorded balance.
+     *
+     * @param passengerNumber The passenger number
+     * @return The balance in cents
+     * @throws IllegalArgumentException If the ledger does not know the passenger
+     */
+    public long getBalanceCents(int passengerNumber) {
+        Account account = accounts.get(passengerNumber);
+        if (account == null) {
+            throw new IllegalArgumentException("Unknown passenger " + passengerNumber);
+        }
+        return account.balanceCents;
+    }
+
+    /**
+     * Returns the net amount paid for an activity, checkpointed payments included.
+     *
+     * @param activityId The activity id
+     * @return The revenue in cents, 0 for an activity nobody paid for
+     */
+    public long getRevenueCents(int activityId) {
+        long[] revenue = revenueByActivity.get(activityId);
+        return revenue == null ? 0 : revenue[0];
+    }
+
+    /**
+     * Returns the net amount paid for all activities.
+     *
+     * @return The revenue in cents
+     */
+    public long getRevenueCents() {
+        long total = 0;
+        for (long[] revenue : revenueByActivity.values()) {
+            total += revenue[0];
+        }
+        return total;
+    }
+
+    /**
+     * Finds the passengers whose recorded balance does not follow from their starting balance and the
+     * charges and refunds recorded since.
+     *
+     * @return The passenger numbers, empty if the books balance
+     */
+    public List<Integer> findUnreconciled() {
+        List<Integer> unreconciled = new ArrayList<>();
+        for (Map.Entry<Integer, Account> entry : accounts.entrySet()) {
+            Account account = entry.getValue();
+            if (account.openingKnown && account.openingCents - account.chargedCents + account.refundedCents
+                    != account.balanceCents) {
+                unreconciled.add(entry.getKey());
+            }
+        }
+        return unreconciled;
+    }
+
+    /**
+     * Notes that a journal record was folded.
+     *
+     * @param seq Its sequence number
+     */
+    private void record(long seq) {
+        recordCount++;
+        lastSeq = Math.max(lastSeq, seq);
+    }
+
+    /**
+     * Marks an account enrolled.
+     *
+     * @param account The account
+     */
+    private void enroll(Account account) {
+        account.enrolled = true;
+        enrolledByType[account.type.ordinal()]++;
+    }
+
+    /**
+     * Returns a passenger's account, opening one with an unknown starting balance for a passenger first seen
+     * in a sign-up or cancellation.
+     *
+     * @param passengerNumber The passenger number
+     * @return The account
+     */
+    private Account account(int passengerNumber) {
+        Account account = accounts.get(passengerNumber);
+        if (account == null) {
+            account = new Account(null, 0);
+            account.openingKnown = false;
+            account.seats = UNKNOWN_SEATS;
+            accounts.put(passengerNumber, account);
+        }
+        return account;
+    }
+
+    /**
+     * Returns the revenue cell of an activity, creating it on first use.
+     *
+     * @param activityId The activity id
+     * @return A one-element array holding the revenue in cents
+     */
+    private long[] revenue(int activityId) {
+        return revenueByActivity.computeIfAbsent(activityId, id -> new long[1]);
+    }
+
+    /**
+     * What the ledger knows about one passenger.
+     */
+    private static final class Account {
+
+        /**
+         * The passenger's tier, or null for a passenger only seen in sign-ups so far.
+         */
+        PassengerType type;
+
+        /**
+         * Whether the passenger is enrolled.
+         */
+        boolean enrolled;
+
+        /**
+         * Whether {@link #openingCents} is known.
+         */
+        boolean openingKnown = true;
+
+        /**
+         * The balance at the checkpoint or at enrollment, in cents.
+         */
+        long openingCents;
+
+        /**
+         * The last recorded balance, in cents.
+         */
+        long balanceCents;
+
+        /**
+         * The total charged since the opening balance, in cents.
+         */
+        long chargedCents;
+
+        /**
+         * The total refunded since the opening balance, in cents.
+         */
+        long refundedCents;
+
+        /**
+         * The number of seats the passenger holds, or {@link #UNKNOWN_SEATS}.
+         */
+        int seats;
+
+        Account(PassengerType type, long balanceCents) {
+            this.type = type;
+            this.openingCents = balanceCents;
+            this.balanceCents = balanceCents;
+        }
+    }
+}
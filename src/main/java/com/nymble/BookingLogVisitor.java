@@ -0,0 +1,114 @@
+/**
+ * Receives the contents of a booking journal as a stream of facts.
+ *
+ * @author Parth Ahuja
+ * @version 1.0
+ * @since 2024-01-01
+ */
+package com.nymble;
+
+/**
+ * Folds a {@link BookingJournal} directory into a read model without rebuilding live packages, passengers
+ * or activities. {@link BookingJournal#fold(java.nio.file.Path, BookingLogVisitor)} first hands over the
+ * checkpoint, the compacted state of everything up to the snapshot, as {@link #passenger} and
+ * {@link #holding} calls followed by {@link #checkpoint(long)}, and then every journal record written after
+ * it, in sequence order.
+ *
+ * <p>A checkpoint taken while bookings were in flight may already include the first few records after it.
+ * Enrollments and withdrawals show this by the passenger's enrollment, and balance changes carry the new
+ * balance, so replaying them again is harmless; sign-ups and cancellations carry the number of seats the
+ * passenger held afterwards, so a visitor that counts seats can skip the ones it has already seen.</p>
+ *
+ * <p>Each call describes one immutable fact by value. Nothing is allocated per call apart from the name of
+ * an enrolled passenger, so a visitor that keeps primitives can fold millions of records cheaply. Every
+ * method does nothing by default.</p>
+ */
+public interface BookingLogVisitor {
+
+    /**
+     * A passenger as of the checkpoint.
+     *
+     * @param passengerNumber The passenger number
+     * @param type The passenger's tier
+     * @param name The passenger's name
+     * @param balanceCents The balance at the checkpoint, in cents
+     * @param enrolled Whether the passenger was enrolled in the package
+     */
+    default void passenger(int passengerNumber, PassengerType type, String name, long balanceCents,
+                           boolean enrolled) {
+    }
+
+    /**
+     * A seat a passenger held at the checkpoint. A passenger holding several seats on one activity is
+     * reported once per seat, with the whole amount paid on the first.
+     *
+     * @param passengerNumber The passenger number
+     * @param activityId The activity
+     * @param paidCents What the passenger paid for the activity and was not refunded, in cents
+     */
+    default void holding(int passengerNumber, int activityId, long paidCents) {
+    }
+
+    /**
+     * Marks the end of the checkpoint. Journal records follow.
+     *
+     * @param seq The last sequence number the checkpoint includes
+     */
+    default void checkpoint(long seq) {
+    }
+
+    /**
+     * A passenger was enrolled in the package.
+     *
+     * @param seq The sequence number
+     * @param passengerNumber The passenger number
+     * @param type The passenger's tier
+     * @param name The passenger's name
+     * @param balanceCents The balance at enrollment, in cents
+     */
+    default void enrolled(long seq, int passengerNumber, PassengerType type, String name, long balanceCents) {
+    }
+
+    /**
+     * A passenger signed up for an activity.
+     *
+     * @param seq The sequence number
+     * @param passengerNumber The passenger number
+     * @param activityId The activity
+     * @param chargedCents The amount charged, in cents
+     * @param activityCount The number of seats the passenger held afterwards
+     */
+    default void signedUp(long seq, int passengerNumber, int activityId, long chargedCents, int activityCount) {
+    }
+
+    /**
+     * A passenger cancelled a seat on an activity.
+     *
+     * @param seq The sequence number
+     * @param passengerNumber The passenger number
+     * @param activityId The activity
+     * @param refundCents The amount refunded, in cents
+     * @param activityCount The number of seats the passenger held afterwards
+     */
+    default void cancelled(long seq, int passengerNumber, int activityId, long refundCents, int activityCount) {
+    }
+
+    /**
+     * A passenger's balance changed.
+     *
+     * @param seq The sequence number
+     * @param passengerNumber The passenger number
+     * @param balanceCents The new balance, in cents
+     */
+    default void balanceChanged(long seq, int passengerNumber, long balanceCents) {
+    }
+
+    /**
+     * A passenger left the package.
+     *
+     * @param seq The sequence number
+     * @param passengerNumber The passenger number
+     */
+    default void withdrawn(long seq, int passengerNumber) {
+    }
+}
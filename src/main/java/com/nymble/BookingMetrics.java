@@ -0,0 +1,244 @@
+/**
+ * Counters and latency histograms for the booking paths.
+ *
+ * @author Parth Ahuja
+ * @version 1.0
+ * @since 2024-01-01
+ */
+package com.nymble;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Static access point for booking metrics: accepted and rejected sign-ups with their latency, overall and per
+ * activity, and enrollment outcomes with the latency of {@link TravelPackage#addPassenger(Passenger)}.
+ * Counters are {@link LongAdder}s and latencies go into {@link LatencyHistogram}s, so recording never takes a
+ * lock. Call {@link #snapshot()} to read everything at once.
+ *
+ * <p>Metrics are on unless the system property {@value #ENABLED_PROPERTY} is {@code false}, and can be
+ * switched at runtime. When off, the booking paths do a single volatile read and skip the clock entirely.</p>
+ */
+public final class BookingMetrics {
+
+    /**
+     * The system property that turns metrics off at startup when set to {@code false}.
+     */
+    public static final String ENABLED_PROPERTY = "nymble.metrics.enabled";
+
+    /**
+     * The metrics being recorded into, or null while metrics are off.
+     */
+    private static volatile BookingMetrics active =
+            Boolean.parseBoolean(System.getProperty(ENABLED_PROPERTY, "true")) ? new BookingMetrics() : null;
+
+    /**
+     * The metrics set aside while metrics are off, guarded by the class monitor.
+     */
+    private static BookingMetrics paused;
+
+    /**
+     * The number of sign-ups that went through.
+     */
+    private final LongAdder signUpsAccepted = new LongAdder();
+
+    /**
+     * The number of sign-ups turned down.
+     */
+    private final LongAdder signUpsRejected = new LongAdder();
+
+    /**
+     * The latency of sign-ups, accepted or not.
+     */
+    private final LatencyHistogram signUpLatency = new LatencyHistogram();
+
+    /**
+     * The number of enrollments with each outcome.
+     */
+    private final LongAdder[] enrollments = new LongAdder[EnrollmentResult.values().length];
+
+    /**
+     * The latency of single enrollments, successful or not.
+     */
+    private final LatencyHistogram enrollmentLatency = new LatencyHistogram();
+
+    /**
+     * The sign-up metrics of each activity, by activity id, created on its first sign-up.
+     */
+    private final Map<Integer, ActivityMetrics> activities = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs an empty set of metrics.
+     */
+    private BookingMetrics() {
+        for (int i = 0; i < enrollments.length; i++) {
+            enrollments[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Returns whether metrics are being recorded.
+     *
+     * @return true if metrics are on
+     */
+    public static boolean isEnabled() {
+        return active != null;
+    }
+
+    /**
+     * Turns metrics on or off. Turning them on again continues from the values recorded before.
+     *
+     * @param enabled Whether to record metrics
+     */
+    public static synchronized void setEnabled(boolean enabled) {
+        if (enabled && active == null) {
+            active = paused != null ? paused : new BookingMetrics();
+            paused = null;
+        } else if (!enabled && active != null) {
+            paused = active;
+            active = null;
+        }
+    }
+
+    /**
+     * Discards everything recorded so far.
+     */
+    public static synchronized void reset() {
+        if (active != null) {
+            active = new BookingMetrics();
+        } else {
+            paused = null;
+        }
+    }
+
+    /**
+     * Copies the current values. Recording carries on while the copy is taken, so counters read at slightly
+     * different moments.
+     *
+     * @return The snapshot, empty if nothing has been recorded
+     */
+    public static MetricsSnapshot snapshot() {
+        BookingMetrics metrics = active;
+        if (metrics == null) {
+            synchronized (BookingMetrics.class) {
+                metrics = paused;
+            }
+        }
+        if (metrics == null) {
+            metrics = new BookingMetrics();
+        }
+        Map<EnrollmentResult, Long> enrollmentCounts = new EnumMap<>(EnrollmentResult.class);
+        for (EnrollmentResult result : EnrollmentResult.values()) {
+            enrollmentCounts.put(result, metrics.enrollments[result.ordinal()].sum());
+        }
+        Map<Integer, MetricsSnapshot.ActivityStats> activityStats = new TreeMap<>();
+        for (Map.Entry<Integer, ActivityMetrics> entry : metrics.activities.entrySet()) {
+            ActivityMetrics m = entry.getValue();
+            activityStats.put(entry.getKey(), new MetricsSnapshot.ActivityStats(entry.getKey(), m.name,
+                    m.accepted.sum(), m.rejected.sum(), m.latency.snapshot()));
+        }
+        return new MetricsSnapshot(metrics.signUpsAccepted.sum(), metrics.signUpsRejected.sum(),
+                metrics.signUpLatency.snapshot(), enrollmentCounts, metrics.enrollmentLatency.snapshot(),
+                activityStats);
+    }
+
+    /**
+     * Reads the clock if metrics are on.
+     *
+     * @return The start time to pass to a {@code record} method, or 0 if metrics are off
+     */
+    static long startTimer() {
+        return active == null ? 0 : System.nanoTime();
+    }
+
+    /**
+     * Records the outcome of a sign-up.
+     *
+     * @param activity The activity
+     * @param accepted Whether the passenger was signed up
+     * @param startNanos The value of {@link #startTimer()} when the sign-up began, or 0 to count it without a
+     *                   latency
+     */
+    static void recordSignUp(Activity activity, boolean accepted, long startNanos) {
+        BookingMetrics metrics = active;
+        if (metrics == null) {
+            return;
+        }
+        long elapsed = startNanos == 0 ? -1 : System.nanoTime() - startNanos;
+        ActivityMetrics perActivity = activity.metrics;
+        if (perActivity == null || perActivity.owner != metrics) {
+            perActivity = metrics.activities.computeIfAbsent(activity.getId(),
+                    id -> new ActivityMetrics(metrics, activity.getName()));
+            activity.metrics = perActivity;
+        }
+        (accepted ? metrics.signUpsAccepted : metrics.signUpsRejected).increment();
+        (accepted ? perActivity.accepted : perActivity.rejected).increment();
+        if (elapsed >= 0) {
+            metrics.signUpLatency.record(elapsed);
+            perActivity.latency.record(elapsed);
+        }
+    }
+
+    /**
+     * Records the outcome of an enrollment.
+     *
+     * @param result The outcome
+     * @param startNanos The value of {@link #startTimer()} when the enrollment began, or 0 to count it without a
+     *                   latency
+     */
+    static void recordEnrollment(EnrollmentResult result, long startNanos) {
+        BookingMetrics metrics = active;
+        if (metrics == null) {
+            return;
+        }
+        metrics.enrollments[result.ordinal()].increment();
+        if (startNanos != 0) {
+            metrics.enrollmentLatency.record(System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * The sign-up metrics of one activity.
+     */
+    static final class ActivityMetrics {
+
+        /**
+         * The metrics these belong to, so that a cached reference from before a reset is recognized.
+         */
+        final BookingMetrics owner;
+
+        /**
+         * The activity's name, for reporting.
+         */
+        final String name;
+
+        /**
+         * The number of sign-ups that went through.
+         */
+        final LongAdder accepted = new LongAdder();
+
+        /**
+         * The number of sign-ups turned down.
+         */
+        final LongAdder rejected = new LongAdder();
+
+        /**
+         * The latency of sign-ups, accepted or not.
+         */
+        final LatencyHistogram latency = new LatencyHistogram();
+
+        /**
+         * Constructs empty metrics.
+         *
+         * @param owner The metrics these belong to
+         * @param name The activity's name
+         */
+        ActivityMetrics(BookingMetrics owner, String name) {
+            this.owner = owner;
+            this.name = name;
+        }
+    }
+}
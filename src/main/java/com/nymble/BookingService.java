@@ -0,0 +1,208 @@
+/**
+ * Asynchronous front-end for bookings.
+ *
+ * @author Parth Ahuja
+ * @version 1.0
+ * @since 2024-01-01
+ */
+package com.nymble;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Accepts enrollment and sign-up requests and runs each one on its own virtual thread, completing a
+ * {@link CompletableFuture} with the outcome. Virtual threads cost a few hundred bytes while parked, so a
+ * service can hold very large numbers of concurrent requests without a thread pool to size.
+ *
+ * <p>Each travel package admits at most a fixed number of requests in flight. A caller submitting beyond
+ * that limit waits until an earlier request for the same package finishes, which keeps a burst of clients
+ * from queueing unbounded work. Callers that are themselves virtual threads wait without tying up an OS
+ * thread.</p>
+ */
+public class BookingService implements AutoCloseable {
+
+    /**
+     * The default number of requests per package that may run at once.
+     */
+    public static final int DEFAULT_MAX_IN_FLIGHT_PER_PACKAGE = 10_000;
+
+    /**
+     * Runs every request on a new virtual thread.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * The number of requests per package that may run at once.
+     */
+    private final int maxInFlightPerPackage;
+
+    /**
+     * The admission permits of each package with requests waiting or running. An entry is created by the
+     * first such request and dropped when the last one finishes, so the service keeps no idle package alive.
+     */
+    private final Map<TravelPackage, Admission> admissions = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a service admitting {@link #DEFAULT_MAX_IN_FLIGHT_PER_PACKAGE} requests per package.
+     */
+    public BookingService() {
+        this(DEFAULT_MAX_IN_FLIGHT_PER_PACKAGE);
+    }
+
+    /**
+     * Constructs a service.
+     *
+     * @param maxInFlightPerPackage The number of requests per package that may run at once
+     */
+    public BookingService(int maxInFlightPerPackage) {
+        if (maxInFlightPerPackage <= 0) {
+            throw new IllegalArgumentException("maxInFlightPerPackage must be positive: " + maxInFlightPerPackage);
+        }
+        this.maxInFlightPerPackage = maxInFlightPerPackage;
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    /**
+     * Enrolls a passenger in a package, as {@link TravelPackage#addPassenger(Passenger)} does.
+     *
+     * @param travelPackage The package
+     * @param passenger The passenger to enroll
+     * @return A future completed with true if the passenger was enrolled
+     */
+    public CompletableFuture<Boolean> enroll(TravelPackage travelPackage, Passenger passenger) {
+        return submit(travelPackage, () -> travelPackage.addPassenger(passenger));
+    }
+
+    /**
+     * Signs a passenger up for an activity, as {@link Passenger#signUpForActivity(Activity)} does. The request
+     * counts against the in-flight limit of the given package.
+     *
+     * @param travelPackage The package the activity is booked through
+     * @param passenger The passenger
+     * @param activity The activity to sign up for
+     * @return A future completed with true if the passenger was signed up
+     */
+    public CompletableFuture<Boolean> signUp(TravelPackage travelPackage, Passenger passenger, Activity activity) {
+        return submit(travelPackage, () -> passenger.trySignUpForActivity(activity));
+    }
+
+    /**
+     * Signs a passenger up for an activity, joining the activity's waitlist if it is full. Waiters are promoted
+     * by tier, then in joining order, as seats are given back. Only the initial attempt counts against the
+     * in-flight limit of the package; time spent on the waitlist does not.
+     *
+     * @param travelPackage The package the activity is booked through
+     * @param passenger The passenger
+     * @param activity The activity to sign up for
+     * @return A future completed with true once the passenger is signed up
+     */
+    public CompletableFuture<Boolean> signUpOrWait(TravelPackage travelPackage, Passenger passenger, Activity activity) {
+        return submit(travelPackage, () -> passenger.signUpOrWait(activity)).thenCompose(outcome -> outcome);
+    }
+
+    /**
+     * Returns the number of requests for a package that are currently running.
+     *
+     * @param travelPackage The package
+     * @return The in-flight request count
+     */
+    public int getInFlight(TravelPackage travelPackage) {
+        Admission admission = admissions.get(travelPackage);
+        return admission == null ? 0 : maxInFlightPerPackage - admission.permits.availablePermits();
+    }
+
+    /**
+     * Returns the number of packages with requests waiting or running, whose permits the service holds.
+     *
+     * @return The package count
+     */
+    int getActivePackageCount() {
+        return admissions.size();
+    }
+
+    /**
+     * Stops accepting requests and waits for the ones already submitted to finish.
+     */
+    @Override
+    public void close() {
+        executor.close();
+    }
+
+    /**
+     * Waits for a permit of the package, then runs the request on a virtual thread.
+     */
+    private <T> CompletableFuture<T> submit(TravelPackage travelPackage, Supplier<T> request) {
+        Admission admission = admissions.compute(travelPackage, (p, current) -> {
+            Admission entered = current == null ? new Admission(maxInFlightPerPackage) : current;
+            entered.users++;
+            return entered;
+        });
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            admission.permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            leave(travelPackage);
+            result.completeExceptionally(e);
+            return result;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    result.complete(request.get());
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                } finally {
+                    admission.permits.release();
+                    leave(travelPackage);
+                }
+            });
+        } catch (RuntimeException e) {
+            admission.permits.release();
+            leave(travelPackage);
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * Counts a request of a package as finished, dropping the package's permits once none is left.
+     *
+     * @param travelPackage The package
+     */
+    private void leave(TravelPackage travelPackage) {
+        admissions.computeIfPresent(travelPackage, (p, admission) -> --admission.users == 0 ? null : admission);
+    }
+
+    /**
+     * The permits of one package, together with the number of requests holding or waiting for one.
+     */
+    private static final class Admission {
+
+        /**
+         * The permits, one per request allowed to run at once.
+         */
+        final Semaphore permits;
+
+        /**
+         * The number of requests that entered and have not finished. Only changed inside the map's
+         * per-key compute functions, which run one at a time for a package.
+         */
+        int users;
+
+        /**
+         * Constructs the permits of a package.
+         *
+         * @param maxInFlight The number of requests that may run at once
+         */
+        Admission(int maxInFlight) {
+            this.permits = new Semaphore(maxInFlight);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+/**
+ * Observes seat counts of activities.
+ *
+ * @author Parth Ahuja
+ * @version 1.0
+ * @since 2024-01-01
+ */
+package com.nymble;
+
+/**
+ * Notified whenever seats of an activity are claimed or given back. Called on the booking thread right after
+ * the change, so implementations should return quickly; they read the current count from the activity.
+ */
+@FunctionalInterface
+interface CapacityListener {
+
+    /**
+     * Called after the number of free seats of an activity changed.
+     *
+     * @param activity The activity
+     */
+    void capacityChanged(Activity activity);
+}
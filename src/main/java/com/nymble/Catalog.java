@@ -0,0 +1,481 @@
+/**
+ * Loads destinations and activities from a memory-mapped binary catalog.
+ *
+ * @author Parth Ahuja
+ * @version 1.0
+ * @since 2024-01-01
+ */
+package com.nymble;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A read-only catalog of destinations and activities in a compact binary file, accessed through a
+ * {@link MappedByteBuffer}. Opening a catalog only maps the file and checks its header; a
+ * {@link Destination} is built the first time it is asked for, and each of its activities the first time
+ * that activity is read. Startup cost and heap use therefore depend on what is used, not on catalog size.
+ *
+ * <p>Layout, big-endian, all offsets from the start of the file:</p>
+ * <ul>
+ *     <li>Header: magic, version, destination count, activity count, highest activity id, and the offsets
+ *     of the four sections below.</li>
+ *     <li>Destinations: fixed-size records of name (string offset and length), total cost in cents,
+ *     index of the first activity and number of activities.</li>
+ *     <li>Activities: fixed-size records of id, name, description, cost in cents and available seats,
+ *     grouped by destination.</li>
+ *     <li>Id index: for each destination's range of activities, {@code (id, position)} pairs sorted by id,
+ *     so an activity can be found by id with a binary search of the mapped file.</li>
+ *     <li>Strings: UTF-8 bytes referenced by the records.</li>
+ * </ul>
+ *
+ * <p>Destinations and activities handed out are ordinary mutable objects: seats taken and activities added
+ * live on the heap, and the file is never written. A catalog is limited to 2 GiB.</p>
+ */
+public final class Catalog {
+
+    /**
+     * Identifies a catalog file ("NYMC").
+     */
+    private static final int MAGIC = 0x4E594D43;
+
+    /**
+     * The format version written by this class.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * The size of the header, in bytes.
+     */
+    private static final int HEADER_SIZE = 9 * Integer.BYTES;
+
+    /**
+     * The size of a destination record, in bytes.
+     */
+    private static final int DESTINATION_SIZE = 4 * Integer.BYTES + Long.BYTES;
+
+    /**
+     * The size of an activity record, in bytes.
+     */
+    private static final int ACTIVITY_SIZE = 6 * Integer.BYTES + Long.BYTES;
+
+    /**
+     * The size of an id index entry, in bytes.
+     */
+    private static final int INDEX_ENTRY_SIZE = 2 * Integer.BYTES;
+
+    /**
+     * The mapped file.
+     */
+    private final ByteBuffer data;
+
+    /**
+     * The number of destinations in the catalog.
+     */
+    private final int destinationCount;
+
+    /**
+     * The number of activities in the catalog.
+     */
+    private final int activityCount;
+
+    /**
+     * The offset of the destination records.
+     */
+    private final int destinationsOffset;
+
+    /**
+     * The offset of the activity records.
+     */
+    private final int activitiesOffset;
+
+    /**
+     * The offset of the id index.
+     */
+    private final int indexOffset;
+
+    /**
+     * The offset of the string section.
+     */
+    private final int stringsOffset;
+
+    /**
+     * The destinations built so far, by position.
+     */
+    private final AtomicReferenceArray<Destination> destinations;
+
+    /**
+     * The number of activities built so far, across all destinations.
+     */
+    private final AtomicInteger materializedActivities = new AtomicInteger();
+
+    private Catalog(ByteBuffer data) throws IOException {
+        this.data = data;
+        if (data.capacity() < HEADER_SIZE || data.getInt(0) != MAGIC) {
+            throw new IOException("Not a catalog file");
+        }
+        if (data.getInt(4) != VERSION) {
+            throw new IOException("Unsupported catalog version " + data.getInt(4));
+        }
+        this.destinationCount = data.getInt(8);
+        this.activityCount = data.getInt(12);
+        int highestActivityId = data.getInt(16);
+        this.destinationsOffset = data.getInt(20);
+        this.activitiesOffset = data.getInt(24);
+        this.indexOffset = data.getInt(28);
+        this.stringsOffset = data.getInt(32);
+        if (destinationCount < 0 || activityCount < 0) {
+            throw new IOException("Catalog header is corrupt");
+        }
+        checkSection("destination", destinationsOffset, destinationCount, DESTINATION_SIZE, data.capacity());
+        checkSection("activity", activitiesOffset, activityCount, ACTIVITY_SIZE, data.capacity());
+        checkSection("id index", indexOffset, activityCount, INDEX_ENTRY_SIZE, stringsOffset);
+        checkSection("string", stringsOffset, 0, 0, data.capacity());
+        this.destinations = new AtomicReferenceArray<>(destinationCount);
+        if (activityCount > 0) {
+            Activity.reserveIdsThrough(highestActivityId);
+        }
+    }
+
+    /**
+     * Checks that a section of fixed-size records starts after the header and ends within a limit.
+     *
+     * @param name The section's name, for the message
+     * @param offset The offset of the section
+     * @param count The number of records
+     * @param recordSize The size of a record, in bytes
+     * @param limit The offset the section must end by
+     * @throws IOException If the section lies outside the limits
+     */
+    private static void checkSection(String name, int offset, int count, int recordSize, int limit)
+            throws IOException {
+        if (offset < HEADER_SIZE || offset + (long) count * recordSize > limit) {
+            throw new IOException("Catalog " + name + " section lies outside the file");
+        }
+    }
+
+    /**
+     * Maps a catalog file. The file must not be modified while the catalog is in use.
+     *
+     * @param file The catalog file
+     * @return The catalog
+     * @throws IOException If the file cannot be mapped or is not a catalog
+     */
+    public static Catalog open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Catalog " + file + " is larger than 2 GiB");
+            }
+            return new Catalog(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes destinations and their activities as a catalog file. Activities keep their ids and are
+     * stored with their current available seats.
+     *
+     * @param destinations The destinations to write, in order
+     * @param file The file to write, replaced if it exists
+     * @throws IOException If the file cannot be written
+     */
+    public static void write(List<Destination> destinations, Path file) throws IOException {
+        List<byte[]> strings = new ArrayList<>();
+        int[] stringOffset = {0};
+        int activityCount = 0;
+        for (Destination d : destinations) {
+            activityCount += d.getActivities().size();
+        }
+        int destinationsOffset = HEADER_SIZE;
+        int activitiesOffset = destinationsOffset + destinations.size() * DESTINATION_SIZE;
+        int indexOffset = activitiesOffset + activityCount * ACTIVITY_SIZE;
+        int stringsOffset = indexOffset + activityCount * INDEX_ENTRY_SIZE;
+
+        ByteBuffer destinationRecords = ByteBuffer.allocate(destinations.size() * DESTINATION_SIZE);
+        ByteBuffer activityRecords = ByteBuffer.allocate(activityCount * ACTIVITY_SIZE);
+        ByteBuffer index = ByteBuffer.allocate(activityCount * INDEX_ENTRY_SIZE);
+        int highestId = 0;
+        int first = 0;
+        for (Destination d : destinations) {
+            List<Activity> activities = new ArrayList<>(d.getActivities());
+            putString(destinationRecords, strings, stringOffset, d.getName());
+            destinationRecords.putLong(d.getCostCents());
+            destinationRecords.putInt(first);
+            destinationRecords.putInt(activities.size());
+
+            long[] byId = new long[activities.size()];
+            for (int i = 0; i < activities.size(); i++) {
+                Activity a = activities.get(i);
+                activityRecords.putInt(a.getId());
+                putString(activityRecords, strings, stringOffset, a.getName());
+                putString(activityRecords, strings, stringOffset, a.getDescription());
+                activityRecords.putLong(a.getCostCents());
+                activityRecords.putInt(a.getCapacity());
+                byId[i] = (long) a.getId() << 32 | i;
+                highestId = Math.max(highestId, a.getId());
+            }
+            Arrays.sort(byId);
+            for (long entry : byId) {
+                index.putInt((int) (entry >>> 32));
+                index.putInt((int) entry);
+            }
+            first += activities.size();
+        }
+        if ((long) stringsOffset + stringOffset[0] > Integer.MAX_VALUE) {
+            throw new IOException("Catalog would be larger than 2 GiB");
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(destinations.size());
+            out.writeInt(activityCount);
+            out.writeInt(highestId);
+            out.writeInt(destinationsOffset);
+            out.writeInt(activitiesOffset);
+            out.writeInt(indexOffset);
+            out.writeInt(stringsOffset);
+            out.write(destinationRecords.array());
+            out.write(activityRecords.array());
+            out.write(index.array());
+            for (byte[] s : strings) {
+                out.write(s);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of destinations in the catalog.
+     *
+     * @return The destination count
+     */
+    public int getDestinationCount() {
+        return destinationCount;
+    }
+
+    /**
+     * Returns the number of activities stored in the catalog.
+     *
+     * @return The activity count
+     */
+    public int getActivityCount() {
+        return activityCount;
+    }
+
+    /**
+     * Returns a destination, building it on first access. Every call for the same position returns the
+     * same object.
+     *
+     * @param position The destination's position in the catalog, from 0 to {@link #getDestinationCount()} - 1
+     * @return The destination
+     */
+    public Destination getDestination(int position) {
+        if (position < 0 || position >= destinationCount) {
+            throw new IndexOutOfBoundsException("Destination " + position + " of " + destinationCount);
+        }
+        Destination d = destinations.get(position);
+        if (d == null) {
+            int record = destinationsOffset + position * DESTINATION_SIZE;
+            Destination built = new CatalogDestination(
+                    readString(record), data.getLong(record + 8), data.getInt(record + 16), data.getInt(record + 20));
+            d = destinations.compareAndSet(position, null, built) ? built : destinations.get(position);
+        }
+        return d;
+    }
+
+    /**
+     * Returns a view of all destinations that builds each one on first access.
+     *
+     * @return The destinations, in catalog order
+     */
+    public List<Destination> getDestinations() {
+        return new AbstractList<Destination>() {
+            @Override
+            public Destination get(int index) {
+                return getDestination(index);
+            }
+
+            @Override
+            public int size() {
+                return destinationCount;
+            }
+        };
+    }
+
+    /**
+     * Returns how many activities have been built so far, for tests and diagnostics.
+     *
+     * @return The number of materialized activities
+     */
+    int getMaterializedActivityCount() {
+        return materializedActivities.get();
+    }
+
+    /**
+     * Appends a string to the string section and writes its offset and length to a record.
+     */
+    private static void putString(ByteBuffer record, List<byte[]> strings, int[] nextOffset, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        record.putInt(nextOffset[0]);
+        record.putInt(bytes.length);
+        strings.add(bytes);
+        nextOffset[0] += bytes.length;
+    }
+
+    /**
+     * Decodes the string referenced at a record offset.
+     */
+    private String readString(int reference) {
+        byte[] bytes = new byte[data.getInt(reference + 4)];
+        ByteBuffer view = data.duplicate();
+        view.position(stringsOffset + data.getInt(reference));
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A destination whose activities are built from the catalog as they are read.
+     */
+    private final class CatalogDestination extends Destination {
+
+        /**
+         * The activities stored in the catalog.
+         */
+        private final StoredActivities stored;
+
+        CatalogDestination(String name, long costCents, int first, int count) {
+            super(name);
+            // The stored cost already includes the activities held in the catalog.
+            restoreCostCents(costCents);
+            this.stored = new StoredActivities(first, count, this);
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * The stored activities come first, built on first access, followed by any added since the catalog
+         * was opened. Taking the view is O(1), as the stored part never changes.
+         */
+        @Override
+        public List<Activity> getActivities() {
+            List<Activity> added = super.getActivities();
+            return new AbstractList<Activity>() {
+                @Override
+                public Activity get(int index) {
+                    return index >= stored.count ? added.get(index - stored.count) : stored.get(index);
+                }
+
+                @Override
+                public int size() {
+                    return stored.count + added.size();
+                }
+            };
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * Activities stored in the catalog are found with a binary search of the id index, and built if needed.
+         */
+        @Override
+        public Activity getActivity(int id) {
+            Activity added = super.getActivity(id);
+            return added != null ? added : stored.find(id);
+        }
+    }
+
+    /**
+     * The activities of a {@link CatalogDestination} stored in the catalog, each built on first access.
+     */
+    private final class StoredActivities {
+
+        /**
+         * The catalog position of the destination's first activity.
+         */
+        private final int first;
+
+        /**
+         * The number of stored activities.
+         */
+        private final int count;
+
+        /**
+         * The stored activities built so far.
+         */
+        private final AtomicReferenceArray<Activity> built;
+
+        /**
+         * The destination owning the activities.
+         */
+        private final Destination destination;
+
+        StoredActivities(int first, int count, Destination destination) {
+            this.first = first;
+            this.count = count;
+            this.built = new AtomicReferenceArray<>(count);
+            this.destination = destination;
+        }
+
+        /**
+         * Returns a stored activity, building it if needed.
+         *
+         * @param index The activity's position within the destination
+         * @return The activity
+         */
+        Activity get(int index) {
+            if (index < 0 || index >= count) {
+                throw new IndexOutOfBoundsException("Index " + index);
+            }
+            Activity a = built.get(index);
+            if (a == null) {
+                int record = activitiesOffset + (first + index) * ACTIVITY_SIZE;
+                Activity created = new Activity(data.getInt(record), readString(record + 4), readString(record + 12),
+                        data.getLong(record + 20), data.getInt(record + 28), destination);
+                if (built.compareAndSet(index, null, created)) {
+                    materializedActivities.incrementAndGet();
+                    a = created;
+                } else {
+                    a = built.get(index);
+                }
+            }
+            return a;
+        }
+
+        /**
+         * Finds a stored activity by id.
+         *
+         * @param id The activity id
+         * @return The activity, or null if none of the stored activities has the id
+         */
+        Activity find(int id) {
+            int low = 0;
+            int high = count - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int entry = indexOffset + (first + mid) * INDEX_ENTRY_SIZE;
+                int midId = data.getInt(entry);
+                if (midId < id) {
+                    low = mid + 1;
+                } else if (midId > id) {
+                    high = mid - 1;
+                } else {
+                    return get(data.getInt(entry + 4));
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * Formats booking events as human-readable lines.
+ *
+ * @author Parth Ahuja
+ * @version 1.0
+ * @since 2024-01-01
+ */
+package com.nymble;
+
+import java.io.PrintStream;
+
+/**
+ * Prints each booking event as one line, using the messages the booking paths used to print directly.
+ */
+public class ConsoleEventSink implements BookingEventSink {
+
+    /**
+     * The stream to print to, or null to use whatever {@link System#out} is at the time of printing.
+     */
+    private final PrintStream out;
+
+    /**
+     * Constructs a sink that prints to {@link System#out}.
+     */
+    public ConsoleEventSink() {
+        this(null);
+    }
+
+    /**
+     * Constructs a sink that prints to the given stream.
+     *
+     * @param out The stream to print to
+     */
+    public ConsoleEventSink(PrintStream out) {
+        this.out = out;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void publish(BookingEvent event) {
+        (out != null ? out : System.out).println(format(event));
+    }
+
+    /**
+     * Renders an event as a single line of text.
+     *
+     * @param event The event
+     * @return The formatted line
+     */
+    static String format(BookingEvent event) {
+        if (event.getType() == BookingEvent.Type.BATCH_ENROLLED) {
+            return event.getPassengers().size() + " of " + event.getBatchSize() + " passengers added to " +
+                    event.getTravelPackage().getName() + ".";
+        }
+        Passenger passenger = event.getPassenger();
+        Activity activity = event.getActivity();
+        boolean gold = passenger.getType() == PassengerType.GOLD;
+        switch (event.getType()) {
+            case SIGNED_UP:
+                return passenger.getName() + " (" + passenger.getType() + ") signed up for " + activity.getName() +
+                        " at " + activity.getDestination().getName() +
+                        (gold ? " for a discounted cost of 0" : " for a cost of " + event.getAmount());
+            case SIGN_UP_REJECTED:
+                return gold ? "Unable to sign up for activity. Activity is full."
+                        : "Unable to sign up for activity. Insufficient balance or activity is full.";
+            case ENROLLED:
+                return passenger.getName() + " added to " + event.getTravelPackage().getName() + ".";
+            case CANCELLED:
+                return passenger.getName() + " cancelled " + activity.getName() + " at " +
+                        activity.getDestination().getName() + " and was refunded " + event.getAmount();
+            case WITHDRAWN:
+                return passenger.getName() + " removed from " + event.getTravelPackage().getName() + ".";
+            default:
+                switch (event.getReason()) {
+                    case PACKAGE_FULL:
+                        return "Travel package is at full capacity. Cannot add more passengers.";
+                    case INSUFFICIENT_BALANCE:
+                        return "Insufficient balance for " + passenger.getName() + ". Cannot add to package.";
+                    case ALREADY_ENROLLED:
+                        return passenger.getName() + " is already enrolled in " + event.getTravelPackage().getName() + ".";
+                    default:
+                        return "An activity in " + event.getTravelPackage().getName() + " is full. Cannot add " +
+                                passenger.getName() + ".";
+                }
+        }
+    }
+}
@@ -8,8 +8,9 @@
 
 package com.nymble;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Represents a specific destination within a travel package.
@@ -26,14 +27,20 @@ public class Destination {
     private String name;
 
     /**
-     * A list of activities offered at this destination.
+     * The activities offered at this destination. Activities are added rarely but read by every enrollment;
+     * each addition publishes a new version sharing structure with the last, so readers never lock or copy.
      */
-    private List<Activity> activities;
+    private volatile PersistentList<Activity> activities = PersistentList.empty();
 
     /**
-     * The total cost of the destination, including activities.
+     * The activities offered at this destination, indexed by activity id.
      */
-    private int cost;
+    private final Map<Integer, Activity> activitiesById = new ConcurrentHashMap<>();
+
+    /**
+     * The total cost of the destination, including activities, in cents.
+     */
+    private long costCents;
 
     /**
      * Constructs a new Destination object with the specified name.
@@ -42,7 +49,6 @@ public class Destination {
      */
     public Destination(String name) {
         this.name = name;
-        this.activities = new ArrayList<>();
     }
 
     /**
@@ -53,17 +59,34 @@ public class Destination {
      */
     public Destination(String name, int cost) {
         this.name = name;
-        this.activities = new ArrayList<>();
-        this.cost = cost;
+        this.costCents = cost * (long) Money.CENTS_PER_UNIT;
     }
 
     /**
-     * Returns the total cost of the destination, including activities.
+     * Returns the total cost of the destination, including activities, in whole units.
      *
-     * @return The total cost of the destination
+     * @return The total cost of the destination, with any cents truncated
      */
     public int getCost() {
-        return cost;
+        return (int) Money.toWholeUnits(costCents);
+    }
+
+    /**
+     * Returns the exact total cost of the destination, including activities.
+     *
+     * @return The total cost of the destination in cents
+     */
+    public long getCostCents() {
+        return costCents;
+    }
+
+    /**
+     * Overwrites the total cost, for example when loading a snapshot.
+     *
+     * @param costCents The total cost in cents
+     */
+    void restoreCostCents(long costCents) {
+        this.costCents = costCents;
     }
 
     /**
@@ -71,22 +94,31 @@ public class Destination {
      *
      * @param activity The activity to add
      */
-    public void addActivity(Activity activity) {
-        activities.add(activity);
-        cost += activity.getCost();
+    public synchronized void addActivity(Activity activity) {
+        activities = activities.append(activity);
+        activitiesById.put(activity.getId(), activity);
+        costCents += activity.getCostCents();
     }
 
     /**
      * Decreases the capacity of a specific activity at this destination.
      *
      * @param activity The activity to decrease capacity for
+     * @return true if a seat was taken, false if the activity is full or not offered here
      */
-    public void decreaseActivityCapacity(Activity activity) {
-        for (Activity a : activities) {
-            if (a.equals(activity)) {
-                a.decreaseCapacity();
-            }
-        }
+    public boolean decreaseActivityCapacity(Activity activity) {
+        Activity a = getActivity(activity.getId());
+        return a != null && a.equals(activity) && a.decreaseCapacity();
+    }
+
+    /**
+     * Looks up an activity offered at this destination by its id.
+     *
+     * @param id The activity id
+     * @return The activity, or null if this destination does not offer it
+     */
+    public Activity getActivity(int id) {
+        return activitiesById.get(id);
     }
 
     /**
@@ -101,7 +133,7 @@ public class Destination {
     /**
      * Returns a list of activities offered at this destination.
      *
-     * @return The list of activities
+     * @return An immutable snapshot of the activities, in the order they were added
      */
     public List<Activity> getActivities() {
         return activities;
@@ -114,7 +146,7 @@ public class Destination {
      */
     public String getActivityDetails() {
         StringBuilder details = new StringBuilder();
-        for (Activity activity : activities) {
+        for (Activity activity : getActivities()) {
             details.append("- ")
                     .append(activity.getName())
                     .append(" at ")
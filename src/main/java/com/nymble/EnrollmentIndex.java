@@ -0,0 +1,166 @@
+/**
+ * Set queries over the rosters of many activities.
+ *
+ * @author Parth Ahuja
+ * @version 1.0
+ * @since 2024-01-01
+ */
+package com.nymble;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Answers questions such as "which passengers are signed up for A and B but not C" with bitmap algebra
+ * instead of nested roster scans. Every activity's roster keeps the numbers of its passengers in an
+ * {@link IdBitmap}, brought up to date whenever the roster is read; this index maps activity ids to those
+ * activities and combines copies of their bitmaps, so it never goes stale and needs no maintenance of its own.
+ *
+ * <p>A query copies each bitmap it reads under the roster's fold lock, which sign-ups never wait for, and
+ * combines the copies without locks, so it sees each roster at one moment but different rosters at slightly
+ * different moments while bookings go on. Results are passenger numbers.</p>
+ */
+public final class EnrollmentIndex {
+
+    /**
+     * The indexed activities by id.
+     */
+    private final Map<Integer, Activity> activities = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs an index over every activity currently offered at the given destinations, for example a
+     * package's itinerary.
+     *
+     * @param destinations The destinations whose activities to index
+     */
+    public EnrollmentIndex(Collection<Destination> destinations) {
+        for (Destination destination : destinations) {
+            for (Activity activity : destination.getActivities()) {
+                add(activity);
+            }
+        }
+    }
+
+    /**
+     * Adds an activity to the index. Adding an activity already indexed has no effect.
+     *
+     * @param activity The activity to index
+     */
+    public void add(Activity activity) {
+        activities.putIfAbsent(activity.getId(), activity);
+    }
+
+    /**
+     * Returns the number of indexed activities.
+     *
+     * @return The activity count
+     */
+    public int size() {
+        return activities.size();
+    }
+
+    /**
+     * Checks whether a passenger is on an activity's roster.
+     *
+     * @param passengerNumber The passenger number
+     * @param activityId The activity id
+     * @return true if the passenger is listed
+     * @throws IllegalArgumentException If the activity is not indexed
+     */
+    public boolean isSignedUp(int passengerNumber, int activityId) {
+        return activity(activityId).isSignedUp(passengerNumber);
+    }
+
+    /**
+     * Returns the passengers on an activity's roster.
+     *
+     * @param activityId The activity id
+     * @return The passenger numbers
+     * @throws IllegalArgumentException If the activity is not indexed
+     */
+    public IdBitmap getPassengers(int activityId) {
+        return activity(activityId).getSignedUpNumbers();
+    }
+
+    /**
+     * Returns the indexed activities whose roster lists a passenger. Takes one bit test per indexed activity.
+     *
+     * @param passengerNumber The passenger number
+     * @return The activity ids
+     */
+    public IdBitmap getActivities(int passengerNumber) {
+        IdBitmap result = new IdBitmap();
+        for (Activity activity : activities.values()) {
+            if (activity.isSignedUp(passengerNumber)) {
+                result.add(activity.getId());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the passengers signed up for every activity in {@code inAll} and none in {@code inNone}.
+     *
+     * @param inAll The ids of the activities the passengers must be signed up for; at least one
+     * @param inNone The ids of the activities the passengers must not be signed up for
+     * @return The passenger numbers
+     * @throws IllegalArgumentException If {@code inAll} is empty or an activity is not indexed
+     */
+    public IdBitmap findPassengers(int[] inAll, int[] inNone) {
+        if (inAll.length == 0) {
+            throw new IllegalArgumentException("At least one activity is required");
+        }
+        IdBitmap result = getPassengers(inAll[0]);
+        for (int i = 1; i < inAll.length && !result.isEmpty(); i++) {
+            result = IdBitmap.and(result, getPassengers(inAll[i]));
+        }
+        for (int i = 0; i < inNone.length && !result.isEmpty(); i++) {
+            result = IdBitmap.andNot(result, getPassengers(inNone[i]));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the passengers signed up for at least one of the given activities.
+     *
+     * @param activityIds The activity ids
+     * @return The passenger numbers
+     * @throws IllegalArgumentException If an activity is not indexed
+     */
+    public IdBitmap findPassengersInAny(int... activityIds) {
+        IdBitmap result = new IdBitmap();
+        for (int id : activityIds) {
+            result = IdBitmap.or(result, getPassengers(id));
+        }
+        return result;
+    }
+
+    /**
+     * Estimates the heap held by the indexed activities' bitmaps.
+     *
+     * @return The size in bytes
+     */
+    public long getSizeInBytes() {
+        long bytes = 0;
+        for (Activity activity : activities.values()) {
+            bytes += activity.getSignedUpNumbers().getSizeInBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Looks up an indexed activity.
+     *
+     * @param activityId The activity id
+     * @return The activity
+     * @throws IllegalArgumentException If the activity is not indexed
+     */
+    private Activity activity(int activityId) {
+        Activity activity = activities.get(activityId);
+        if (activity == null) {
+            throw new IllegalArgumentException("Activity " + activityId + " is not indexed");
+        }
+        return activity;
+    }
+}
@@ -0,0 +1,38 @@
+/**
+ * Represents the outcome of enrolling a passenger in a travel package.
+ *
+ * @author Parth Ahuja
+ * @version 1.0
+ * @since 2024-01-01
+ */
+package com.nymble;
+
+/**
+ * Enumerates the possible outcomes of a package enrollment.
+ */
+public enum EnrollmentResult {
+    /**
+     * The passenger was enrolled and holds a seat on every activity in the itinerary.
+     */
+    ENROLLED,
+
+    /**
+     * The passenger's balance does not cover the package cost for their tier.
+     */
+    INSUFFICIENT_BALANCE,
+
+    /**
+     * The package has no passenger seats left.
+     */
+    PACKAGE_FULL,
+
+    /**
+     * At least one activity in the itinerary has no seats left.
+     */
+    ACTIVITY_FULL,
+
+    /**
+     * The passenger is already enrolled in the package.
+     */
+    ALREADY_ENROLLED
+}
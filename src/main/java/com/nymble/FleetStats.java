@@ -0,0 +1,223 @@
+/**
+ * Aggregate figures across many travel packages.
+ *
+ * @author Parth Ahuja
+ * @version 1.0
+ * @since 2024-01-01
+ */
+package com.nymble;
+
+/**
+ * Fleet-wide totals computed by {@link PackageCatalog#aggregate()}: enrollment and revenue overall and per
+ * tier, package occupancy and activity fill. Each package's figures come from its running aggregates at the
+ * moment it was visited, so a fleet that is taking bookings yields totals from slightly different moments.
+ *
+ * <p>Activity figures are summed over each package's itinerary; an activity offered by several packages counts
+ * once for each. Seats taken are the passengers signed up, so several seats held by one passenger count once.</p>
+ */
+public final class FleetStats {
+
+    /**
+     * The number of packages.
+     */
+    private int packageCount;
+
+    /**
+     * The number of package seats.
+     */
+    private long passengerCapacity;
+
+    /**
+     * The number of enrolled passengers of each type, indexed by {@link PassengerType#ordinal()}.
+     */
+    private final long[] passengersByType = new long[PassengerType.values().length];
+
+    /**
+     * The revenue from enrolled passengers of each type in cents, indexed by {@link PassengerType#ordinal()}.
+     */
+    private final long[] revenueByType = new long[PassengerType.values().length];
+
+    /**
+     * The number of activities on the packages' itineraries.
+     */
+    private long activityCount;
+
+    /**
+     * The number of passengers signed up for those activities.
+     */
+    private long activitySeatsTaken;
+
+    /**
+     * The number of seats still free on those activities.
+     */
+    private long activitySeatsFree;
+
+    /**
+     * Constructs empty totals.
+     */
+    FleetStats() {
+    }
+
+    /**
+     * Adds one package's figures.
+     *
+     * @param travelPackage The package
+     */
+    void add(TravelPackage travelPackage) {
+        packageCount++;
+        passengerCapacity += travelPackage.getPassengerCapacity();
+        for (PassengerType type : PassengerType.values()) {
+            passengersByType[type.ordinal()] += travelPackage.getPassengerCount(type);
+            revenueByType[type.ordinal()] += travelPackage.calculateTotalCostForTypeCents(type);
+        }
+        for (Destination destination : travelPackage.getItinerary()) {
+            for (Activity activity : destination.getActivities()) {
+                activityCount++;
+                activitySeatsTaken += activity.getSignedUpPassengers().size();
+                activitySeatsFree += activity.getCapacity();
+            }
+        }
+    }
+
+    /**
+     * Adds the totals of another set of packages.
+     *
+     * @param other The other totals
+     * @return These totals
+     */
+    FleetStats merge(FleetStats other) {
+        packageCount += other.packageCount;
+        passengerCapacity += other.passengerCapacity;
+        for (int i = 0; i < passengersByType.length; i++) {
+            passengersByType[i] += other.passengersByType[i];
+            revenueByType[i] += other.revenueByType[i];
+        }
+        activityCount += other.activityCount;
+        activitySeatsTaken += other.activitySeatsTaken;
+        activitySeatsFree += other.activitySeatsFree;
+        return this;
+    }
+
+    /**
+     * Returns the number of packages.
+     *
+     * @return The package count
+     */
+    public int getPackageCount() {
+        return packageCount;
+    }
+
+    /**
+     * Returns the number of package seats across the fleet.
+     *
+     * @return The total passenger capacity
+     */
+    public long getPassengerCapacity() {
+        return passengerCapacity;
+    }
+
+    /**
+     * Returns the number of enrolled passengers.
+     *
+     * @return The passenger count
+     */
+    public long getPassengerCount() {
+        long count = 0;
+        for (long c : passengersByType) {
+            count += c;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of enrolled passengers of one type.
+     *
+     * @param type The passenger type
+     * @return The passenger count for that type
+     */
+    public long getPassengerCount(PassengerType type) {
+        return passengersByType[type.ordinal()];
+    }
+
+    /**
+     * Returns the share of package seats taken.
+     *
+     * @return The occupancy between 0 and 1, or 0 if the fleet has no seats
+     */
+    public double getOccupancyRate() {
+        return passengerCapacity == 0 ? 0 : (double) getPassengerCount() / passengerCapacity;
+    }
+
+    /**
+     * Returns what enrolled passengers pay for their packages, as in
+     * {@link TravelPackage#calculateTotalCostForAllPassengersCents()}.
+     *
+     * @return The revenue in cents
+     */
+    public long getRevenueCents() {
+        long revenue = 0;
+        for (long r : revenueByType) {
+            revenue += r;
+        }
+        return revenue;
+    }
+
+    /**
+     * Returns what enrolled passengers of one type pay for their packages.
+     *
+     * @param type The passenger type
+     * @return The revenue in cents
+     */
+    public long getRevenueCents(PassengerType type) {
+        return revenueByType[type.ordinal()];
+    }
+
+    /**
+     * Returns the number of activities on the packages' itineraries.
+     *
+     * @return The activity count
+     */
+    public long getActivityCount() {
+        return activityCount;
+    }
+
+    /**
+     * Returns the number of passengers signed up for the packages' activities.
+     *
+     * @return The seats taken
+     */
+    public long getActivitySeatsTaken() {
+        return activitySeatsTaken;
+    }
+
+    /**
+     * Returns the number of seats still free on the packages' activities.
+     *
+     * @return The seats free
+     */
+    public long getActivitySeatsFree() {
+        return activitySeatsFree;
+    }
+
+    /**
+     * Returns the share of activity seats taken.
+     *
+     * @return The fill rate between 0 and 1, or 0 if the activities have no seats
+     */
+    public double getActivityFillRate() {
+        long seats = activitySeatsTaken + activitySeatsFree;
+        return seats == 0 ? 0 : (double) activitySeatsTaken / seats;
+    }
+
+    /**
+     * Summarizes the totals on one line.
+     *
+     * @return The package, passenger, revenue and fill figures
+     */
+    @Override
+    public String toString() {
+        return "packages=" + packageCount + " passengers=" + getPassengerCount() + "/" + passengerCapacity
+                + " revenue=" + Money.format(getRevenueCents()) + " activities=" + activityCount
+                + " activitySeats=" + activitySeatsTaken + "/" + (activitySeatsTaken + activitySeatsFree);
+    }
+}
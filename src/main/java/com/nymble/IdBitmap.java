@@ -0,0 +1,500 @@
+/**
+ * Compressed set of integer ids.
+ *
+ * @author Parth Ahuja
+ * @version 1.0
+ * @since 2024-01-01
+ */
+package com.nymble;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A set of ints stored the way Roaring bitmaps store them: values are grouped by their upper 16 bits, and each
+ * group of lower 16 bits is a sorted {@code char} array while it has at most {@value #ARRAY_MAX} values and a
+ * 65536-bit bitmap once it has more. Sparse ids cost two bytes each, dense ones one bit, and membership is a
+ * binary search over at most 65536 groups followed by one array search or bit test.
+ *
+ * <p>{@link #and}, {@link #or} and {@link #andNot} combine sets group by group, using word-wide operations
+ * where both groups are bitmaps. Values are ordered as unsigned ints. The class is not thread-safe.</p>
+ */
+public final class IdBitmap {
+
+    /**
+     * The most values a group stores as a sorted array before switching to a bitmap.
+     */
+    static final int ARRAY_MAX = 4096;
+
+    /**
+     * The number of 64-bit words in a group bitmap.
+     */
+    private static final int WORDS = 1 << 10;
+
+    /**
+     * The upper 16 bits of each group, ascending.
+     */
+    private char[] keys = new char[4];
+
+    /**
+     * The lower 16 bits of the values in each group.
+     */
+    private Container[] containers = new Container[4];
+
+    /**
+     * The number of groups.
+     */
+    private int groups;
+
+    /**
+     * Adds a value.
+     *
+     * @param value The value
+     * @return true if the value was not already present
+     */
+    public boolean add(int value) {
+        char key = (char) (value >>> 16);
+        int i = findGroup(key);
+        if (i < 0) {
+            i = -i - 1;
+            insertGroup(i, key, new Container());
+        }
+        return containers[i].add((char) value);
+    }
+
+    /**
+     * Removes a value.
+     *
+     * @param value The value
+     * @return true if the value was present
+     */
+    public boolean remove(int value) {
+        int i = findGroup((char) (value >>> 16));
+        if (i < 0 || !containers[i].remove((char) value)) {
+            return false;
+        }
+        if (containers[i].cardinality == 0) {
+            removeGroup(i);
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether a value is present.
+     *
+     * @param value The value
+     * @return true if the set contains it
+     */
+    public boolean contains(int value) {
+        int i = findGroup((char) (value >>> 16));
+        return i >= 0 && containers[i].contains((char) value);
+    }
+
+    /**
+     * Returns the number of values.
+     *
+     * @return The cardinality
+     */
+    public int getCardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < groups; i++) {
+            cardinality += containers[i].cardinality;
+        }
+        return cardinality;
+    }
+
+    /**
+     * Checks whether the set is empty.
+     *
+     * @return true if it has no values
+     */
+    public boolean isEmpty() {
+        return groups == 0;
+    }
+
+    /**
+     * Calls an action for every value, in ascending unsigned order.
+     *
+     * @param action The action
+     */
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < groups; i++) {
+            containers[i].forEach(keys[i] << 16, action);
+        }
+    }
+
+    /**
+     * Returns the values in ascending unsigned order.
+     *
+     * @return A new array
+     */
+    public int[] toArray() {
+        int[] values = new int[getCardinality()];
+        int[] next = new int[1];
+        forEach(value -> values[next[0]++] = value);
+        return values;
+    }
+
+    /**
+     * Returns an independent copy.
+     *
+     * @return The copy
+     */
+    public IdBitmap copy() {
+        IdBitmap copy = new IdBitmap();
+        copy.keys = Arrays.copyOf(keys, Math.max(4, groups));
+        copy.containers = new Container[copy.keys.length];
+        for (int i = 0; i < groups; i++) {
+            copy.containers[i] = containers[i].copy();
+        }
+        copy.groups = groups;
+        return copy;
+    }
+
+    /**
+     * Estimates the heap the set occupies, including array headers.
+     *
+     * @return The size in bytes
+     */
+    public long getSizeInBytes() {
+        long bytes = 16 + 16 + 2L * keys.length + 16 + 4L * containers.length;
+        for (int i = 0; i < groups; i++) {
+            bytes += containers[i].sizeInBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the values present in both sets.
+     *
+     * @param a One set
+     * @param b The other set
+     * @return A new set
+     */
+    public static IdBitmap and(IdBitmap a, IdBitmap b) {
+        IdBitmap result = new IdBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < a.groups && j < b.groups) {
+            if (a.keys[i] < b.keys[j]) {
+                i++;
+            } else if (a.keys[i] > b.keys[j]) {
+                j++;
+            } else {
+                Container c = a.containers[i].and(b.containers[j]);
+                if (c.cardinality > 0) {
+                    result.appendGroup(a.keys[i], c);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the values present in either set.
+     *
+     * @param a One set
+     * @param b The other set
+     * @return A new set
+     */
+    public static IdBitmap or(IdBitmap a, IdBitmap b) {
+        IdBitmap result = new IdBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < a.groups || j < b.groups) {
+            if (j == b.groups || (i < a.groups && a.keys[i] < b.keys[j])) {
+                result.appendGroup(a.keys[i], a.containers[i++].copy());
+            } else if (i == a.groups || a.keys[i] > b.keys[j]) {
+                result.appendGroup(b.keys[j], b.containers[j++].copy());
+            } else {
+                result.appendGroup(a.keys[i], a.containers[i++].or(b.containers[j++]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the values present in the first set but not the second.
+     *
+     * @param a The set to take values from
+     * @param b The set of values to leave out
+     * @return A new set
+     */
+    public static IdBitmap andNot(IdBitmap a, IdBitmap b) {
+        IdBitmap result = new IdBitmap();
+        int j = 0;
+        for (int i = 0; i < a.groups; i++) {
+            while (j < b.groups && b.keys[j] < a.keys[i]) {
+                j++;
+            }
+            Container c = j < b.groups && b.keys[j] == a.keys[i]
+                    ? a.containers[i].andNot(b.containers[j])
+                    : a.containers[i].copy();
+            if (c.cardinality > 0) {
+                result.appendGroup(a.keys[i], c);
+            }
+        }
+        return result;
+    }
+
+    private int findGroup(char key) {
+        int low = 0;
+        int high = groups - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] < key) {
+                low = mid + 1;
+            } else if (keys[mid] > key) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private void insertGroup(int i, char key, Container container) {
+        if (groups == keys.length) {
+            keys = Arrays.copyOf(keys, groups * 2);
+            containers = Arrays.copyOf(containers, groups * 2);
+        }
+        System.arraycopy(keys, i, keys, i + 1, groups - i);
+        System.arraycopy(containers, i, containers, i + 1, groups - i);
+        keys[i] = key;
+        containers[i] = container;
+        groups++;
+    }
+
+    private void appendGroup(char key, Container container) {
+        insertGroup(groups, key, container);
+    }
+
+    private void removeGroup(int i) {
+        System.arraycopy(keys, i + 1, keys, i, groups - i - 1);
+        System.arraycopy(containers, i + 1, containers, i, groups - i - 1);
+        containers[--groups] = null;
+    }
+
+    /**
+     * The lower 16 bits of one group's values: a sorted array while small, a bitmap once large.
+     */
+    private static final class Container {
+
+        /**
+         * The sorted values while in array form, otherwise null.
+         */
+        char[] values;
+
+        /**
+         * The bits while in bitmap form, otherwise null.
+         */
+        long[] words;
+
+        /**
+         * The number of values.
+         */
+        int cardinality;
+
+        Container() {
+            values = new char[4];
+        }
+
+        Container(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        Container(long[] words) {
+            this.words = words;
+            for (long word : words) {
+                cardinality += Long.bitCount(word);
+            }
+            if (cardinality <= ARRAY_MAX) {
+                toArrayForm();
+            }
+        }
+
+        boolean contains(char low) {
+            if (words != null) {
+                return (words[low >>> 6] & (1L << low)) != 0;
+            }
+            return Arrays.binarySearch(values, 0, cardinality, low) >= 0;
+        }
+
+        boolean add(char low) {
+            if (words != null) {
+                long before = words[low >>> 6];
+                words[low >>> 6] = before | (1L << low);
+                if (before == words[low >>> 6]) {
+                    return false;
+                }
+                cardinality++;
+                return true;
+            }
+            int i = Arrays.binarySearch(values, 0, cardinality, low);
+            if (i >= 0) {
+                return false;
+            }
+            if (cardinality == ARRAY_MAX) {
+                toBitmapForm();
+                return add(low);
+            }
+            i = -i - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, Math.max(4, cardinality * 2)));
+            }
+            System.arraycopy(values, i, values, i + 1, cardinality - i);
+            values[i] = low;
+            cardinality++;
+            return true;
+        }
+
+        boolean remove(char low) {
+            if (words != null) {
+                long before = words[low >>> 6];
+                words[low >>> 6] = before & ~(1L << low);
+                if (before == words[low >>> 6]) {
+                    return false;
+                }
+                if (--cardinality <= ARRAY_MAX) {
+                    toArrayForm();
+                }
+                return true;
+            }
+            int i = Arrays.binarySearch(values, 0, cardinality, low);
+            if (i < 0) {
+                return false;
+            }
+            System.arraycopy(values, i + 1, values, i, cardinality - i - 1);
+            cardinality--;
+            return true;
+        }
+
+        void forEach(int high, IntConsumer action) {
+            if (words != null) {
+                for (int w = 0; w < WORDS; w++) {
+                    for (long word = words[w]; word != 0; word &= word - 1) {
+                        action.accept(high | (w << 6) | Long.numberOfTrailingZeros(word));
+                    }
+                }
+            } else {
+                for (int i = 0; i < cardinality; i++) {
+                    action.accept(high | values[i]);
+                }
+            }
+        }
+
+        Container copy() {
+            return words != null ? new Container(words.clone()) : new Container(Arrays.copyOf(values, cardinality), cardinality);
+        }
+
+        Container and(Container other) {
+            if (words != null && other.words != null) {
+                long[] result = new long[WORDS];
+                for (int w = 0; w < WORDS; w++) {
+                    result[w] = words[w] & other.words[w];
+                }
+                return new Container(result);
+            }
+            Container small = words == null ? this : other;
+            Container large = small == this ? other : this;
+            char[] result = new char[small.cardinality];
+            int n = 0;
+            for (int i = 0; i < small.cardinality; i++) {
+                if (large.contains(small.values[i])) {
+                    result[n++] = small.values[i];
+                }
+            }
+            return new Container(result, n);
+        }
+
+        Container or(Container other) {
+            if (words == null && other.words == null && cardinality + other.cardinality <= ARRAY_MAX) {
+                char[] result = new char[cardinality + other.cardinality];
+                int i = 0;
+                int j = 0;
+                int n = 0;
+                while (i < cardinality || j < other.cardinality) {
+                    if (j == other.cardinality || (i < cardinality && values[i] < other.values[j])) {
+                        result[n++] = values[i++];
+                    } else if (i == cardinality || values[i] > other.values[j]) {
+                        result[n++] = other.values[j++];
+                    } else {
+                        result[n++] = values[i++];
+                        j++;
+                    }
+                }
+                return new Container(result, n);
+            }
+            long[] result = toWords();
+            if (other.words != null) {
+                for (int w = 0; w < WORDS; w++) {
+                    result[w] |= other.words[w];
+                }
+            } else {
+                for (int i = 0; i < other.cardinality; i++) {
+                    result[other.values[i] >>> 6] |= 1L << other.values[i];
+                }
+            }
+            return new Container(result);
+        }
+
+        Container andNot(Container other) {
+            if (words == null) {
+                char[] result = new char[cardinality];
+                int n = 0;
+                for (int i = 0; i < cardinality; i++) {
+                    if (!other.contains(values[i])) {
+                        result[n++] = values[i];
+                    }
+                }
+                return new Container(result, n);
+            }
+            long[] result = words.clone();
+            if (other.words != null) {
+                for (int w = 0; w < WORDS; w++) {
+                    result[w] &= ~other.words[w];
+                }
+            } else {
+                for (int i = 0; i < other.cardinality; i++) {
+                    result[other.values[i] >>> 6] &= ~(1L << other.values[i]);
+                }
+            }
+            return new Container(result);
+        }
+
+        long sizeInBytes() {
+            return 24 + (words != null ? 16 + 8L * WORDS : 16 + 2L * values.length);
+        }
+
+        private long[] toWords() {
+            if (words != null) {
+                return words.clone();
+            }
+            long[] result = new long[WORDS];
+            for (int i = 0; i < cardinality; i++) {
+                result[values[i] >>> 6] |= 1L << values[i];
+            }
+            return result;
+        }
+
+        private void toBitmapForm() {
+            words = toWords();
+            values = null;
+        }
+
+        private void toArrayForm() {
+            char[] array = new char[Math.max(4, cardinality)];
+            int n = 0;
+            for (int w = 0; w < WORDS; w++) {
+                for (long word = words[w]; word != 0; word &= word - 1) {
+                    array[n++] = (char) ((w << 6) | Long.numberOfTrailingZeros(word));
+                }
+            }
+            values = array;
+            words = null;
+        }
+    }
+}
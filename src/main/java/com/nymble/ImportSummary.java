@@ -0,0 +1,161 @@
+/**
+ * Totals from a bulk import.
+ *
+ * @author Parth Ahuja
+ * @version 1.0
+ * @since 2024-01-01
+ */
+package com.nymble;
+
+/**
+ * What a {@link PackageImporter} run read and what became of it: the records of each kind and, for passengers,
+ * how many enrollments ended in each {@link EnrollmentResult}.
+ */
+public final class ImportSummary {
+
+    /**
+     * The number of lines read, including blank and comment lines.
+     */
+    private long lineCount;
+
+    /**
+     * The number of bytes read.
+     */
+    private long byteCount;
+
+    /**
+     * The number of destinations added to the package.
+     */
+    private int destinationCount;
+
+    /**
+     * The number of activities added to destinations.
+     */
+    private int activityCount;
+
+    /**
+     * The number of passenger records read.
+     */
+    private long passengerCount;
+
+    /**
+     * The number of enrollments with each outcome, indexed by {@link EnrollmentResult#ordinal()}.
+     */
+    private final long[] enrollments = new long[EnrollmentResult.values().length];
+
+    /**
+     * Constructs empty totals.
+     */
+    ImportSummary() {
+    }
+
+    /**
+     * Counts the lines and bytes of one parsed chunk.
+     *
+     * @param lines The number of lines
+     * @param bytes The number of bytes
+     */
+    void addInput(int lines, int bytes) {
+        lineCount += lines;
+        byteCount += bytes;
+    }
+
+    /**
+     * Counts a destination added to the package.
+     */
+    void addDestination() {
+        destinationCount++;
+    }
+
+    /**
+     * Counts an activity added to a destination.
+     */
+    void addActivity() {
+        activityCount++;
+    }
+
+    /**
+     * Counts the outcomes of one batch of enrollments.
+     *
+     * @param results The outcome of each passenger in the batch
+     */
+    void addEnrollments(EnrollmentResult[] results) {
+        passengerCount += results.length;
+        for (EnrollmentResult result : results) {
+            enrollments[result.ordinal()]++;
+        }
+    }
+
+    /**
+     * Returns the number of lines read, including blank and comment lines.
+     *
+     * @return The line count
+     */
+    public long getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Returns the number of bytes read.
+     *
+     * @return The byte count
+     */
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    /**
+     * Returns the number of destinations added to the package.
+     *
+     * @return The destination count
+     */
+    public int getDestinationCount() {
+        return destinationCount;
+    }
+
+    /**
+     * Returns the number of activities added to destinations.
+     *
+     * @return The activity count
+     */
+    public int getActivityCount() {
+        return activityCount;
+    }
+
+    /**
+     * Returns the number of passenger records read, enrolled or not.
+     *
+     * @return The passenger count
+     */
+    public long getPassengerCount() {
+        return passengerCount;
+    }
+
+    /**
+     * Returns the number of passengers whose enrollment had an outcome.
+     *
+     * @param result The outcome
+     * @return The passenger count
+     */
+    public long getEnrollmentCount(EnrollmentResult result) {
+        return enrollments[result.ordinal()];
+    }
+
+    /**
+     * Returns the totals on one line, for logs.
+     *
+     * @return The totals
+     */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("lines=").append(lineCount)
+                .append(" bytes=").append(byteCount)
+                .append(" destinations=").append(destinationCount)
+                .append(" activities=").append(activityCount)
+                .append(" passengers=").append(passengerCount);
+        for (EnrollmentResult result : EnrollmentResult.values()) {
+            text.append(' ').append(result.name().toLowerCase()).append('=').append(enrollments[result.ordinal()]);
+        }
+        return text.toString();
+    }
+}
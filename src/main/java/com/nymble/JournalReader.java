@@ -0,0 +1,140 @@
+/**
+ * Reads booking journal segments back in order.
+ *
+ * @author Parth Ahuja
+ * @version 1.0
+ * @since 2024-01-01
+ */
+package com.nymble;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Sequential reader over a list of journal segment files. Segments are read in large chunks and records
+ * are decoded in place, so replay costs one buffer for the whole journal rather than an object per record.
+ *
+ * <p>Reading stops at the first record that is incomplete or fails its checksum, which is where the
+ * last write before a crash was torn. Anything after that point is ignored.</p>
+ */
+final class JournalReader implements Closeable {
+
+    /**
+     * The size of the read buffer, in bytes.
+     */
+    private static final int CHUNK_SIZE = 1 << 20;
+
+    /**
+     * The segments to read, oldest first.
+     */
+    private final List<Path> segments;
+
+    /**
+     * The buffer holding the unread part of the current chunk.
+     */
+    private final ByteBuffer buffer = ByteBuffer.allocate(Math.max(CHUNK_SIZE, 2 * JournalRecord.MAX_FRAMED_SIZE));
+
+    /**
+     * The index of the next segment to open.
+     */
+    private int nextSegment;
+
+    /**
+     * The segment being read, or null before the first and after the last.
+     */
+    private FileChannel channel;
+
+    /**
+     * Whether the current segment has been read to its end.
+     */
+    private boolean endOfSegment;
+
+    /**
+     * Whether a torn or corrupt record has been found.
+     */
+    private boolean torn;
+
+    /**
+     * Constructs a reader.
+     *
+     * @param segments The segments to read, oldest first
+     */
+    JournalReader(List<Path> segments) {
+        this.segments = segments;
+        this.buffer.limit(0);
+    }
+
+    /**
+     * Reads the next record.
+     *
+     * @param record The record to decode into
+     * @return true if a record was read, false at the end of the readable journal
+     * @throws IOException If a segment cannot be read
+     */
+    boolean next(JournalRecord record) throws IOException {
+        while (!torn) {
+            if (record.decode(buffer)) {
+                return true;
+            }
+            if (channel != null && !endOfSegment) {
+                fill();
+            } else if (buffer.hasRemaining()) {
+                torn = true;
+            } else if (!openNextSegment()) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether reading stopped at a torn or corrupt record rather than the clean end of the journal.
+     *
+     * @return true if the journal has a damaged tail
+     */
+    boolean isTorn() {
+        return torn;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * Moves the unread bytes to the front of the buffer and reads more from the current segment.
+     */
+    private void fill() throws IOException {
+        buffer.compact();
+        int read = channel.read(buffer);
+        if (read < 0 || !buffer.hasRemaining() && read == 0) {
+            endOfSegment = true;
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Closes the current segment and opens the next one.
+     *
+     * @return false if there are no more segments
+     */
+    private boolean openNextSegment() throws IOException {
+        close();
+        if (nextSegment == segments.size()) {
+            return false;
+        }
+        channel = FileChannel.open(segments.get(nextSegment++), StandardOpenOption.READ);
+        endOfSegment = false;
+        buffer.clear();
+        buffer.limit(0);
+        return true;
+    }
+}
@@ -0,0 +1,332 @@
+/**
+ * Binary encoding of booking journal records.
+ *
+ * @author Parth Ahuja
+ * @version 1.0
+ * @since 2024-01-01
+ */
+package com.nymble;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * One record of the booking journal, and the codec for its on-disk form.
+ *
+ * <p>Each record is framed as {@code [int payload length][payload][int CRC-32 of payload]}. The payload starts
+ * with a type byte and a sequence number, followed by the fields of that type. A record whose frame is
+ * incomplete or whose checksum does not match marks the end of the readable journal.</p>
+ *
+ * <p>Instances are mutable cursors: {@link #decode(ByteBuffer)} overwrites the fields in place, so a reader
+ * can walk millions of records with a single instance. Checksums are computed directly over heap buffers and
+ * names are decoded through a reused scratch array, so the only allocation per record is the name of an
+ * {@link #ENROLLED} passenger.</p>
+ */
+final class JournalRecord {
+
+    /**
+     * A passenger was enrolled in the package: passenger number, type, balance and name.
+     */
+    static final byte ENROLLED = 1;
+
+    /**
+     * A passenger signed up for an activity: passenger number, activity id, amount charged, and the
+     * number of activities the passenger held afterwards.
+     */
+    static final byte SIGNED_UP = 2;
+
+    /**
+     * A passenger's balance changed: passenger number and new balance.
+     */
+    static final byte BALANCE_CHANGED = 3;
+
+    /**
+     * A passenger cancelled a seat on an activity: passenger number, activity id, amount refunded, and the
+     * number of activities the passenger held afterwards.
+     */
+    static final byte CANCELLED = 4;
+
+    /**
+     * A passenger left the package: passenger number.
+     */
+    static final byte WITHDRAWN = 5;
+
+    /**
+     * The longest name that is stored in full, in UTF-8 bytes. Longer names are truncated.
+     */
+    static final int MAX_NAME_BYTES = 0xFFFF;
+
+    /**
+     * An upper bound on the framed size of any record.
+     */
+    static final int MAX_FRAMED_SIZE = Integer.BYTES + 1 + Long.BYTES + Integer.BYTES + 1 + Long.BYTES
+            + Short.BYTES + MAX_NAME_BYTES + Integer.BYTES;
+
+    /**
+     * All passenger types, indexed by the type code stored in records.
+     */
+    private static final PassengerType[] TYPES = PassengerType.values();
+
+    /**
+     * The record type, one of the constants above.
+     */
+    byte type;
+
+    /**
+     * The journal sequence number of the record.
+     */
+    long seq;
+
+    /**
+     * The passenger the record is about.
+     */
+    int passengerNumber;
+
+    /**
+     * The activity, for {@link #SIGNED_UP} and {@link #CANCELLED} records.
+     */
+    int activityId;
+
+    /**
+     * The amount charged for {@link #SIGNED_UP}, the amount refunded for {@link #CANCELLED}, or the new
+     * balance for {@link #ENROLLED} and {@link #BALANCE_CHANGED}, in cents.
+     */
+    long amountCents;
+
+    /**
+     * The number of activities the passenger held after a {@link #SIGNED_UP} or {@link #CANCELLED}, which
+     * tells replay whether a snapshot already includes the change.
+     */
+    int activityCount;
+
+    /**
+     * The passenger's type, for {@link #ENROLLED} records.
+     */
+    PassengerType passengerType;
+
+    /**
+     * The passenger's name, for {@link #ENROLLED} records.
+     */
+    String name;
+
+    /**
+     * The checksum used while decoding.
+     */
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * Scratch space for the UTF-8 bytes of a name while decoding, grown as needed.
+     */
+    private byte[] nameBytes = new byte[64];
+
+    /**
+     * Appends an {@link #ENROLLED} record.
+     *
+     * @param out The buffer, with at least {@link #MAX_FRAMED_SIZE} bytes remaining
+     * @param seq The sequence number
+     * @param passenger The enrolled passenger
+     */
+    static void encodeEnrolled(ByteBuffer out, long seq, Passenger passenger) {
+        byte[] name = passenger.getName().getBytes(StandardCharsets.UTF_8);
+        int nameLength = Math.min(name.length, MAX_NAME_BYTES);
+        int start = begin(out, ENROLLED, seq);
+        out.putInt(passenger.getPassengerNumber());
+        out.put((byte) passenger.getType().ordinal());
+        out.putLong(passenger.getBalanceCents());
+        out.putShort((short) nameLength);
+        out.put(name, 0, nameLength);
+        end(out, start);
+    }
+
+    /**
+     * Appends a {@link #SIGNED_UP} record.
+     *
+     * @param out The buffer, with at least {@link #MAX_FRAMED_SIZE} bytes remaining
+     * @param seq The sequence number
+     * @param passengerNumber The passenger
+     * @param activityId The activity
+     * @param amountCents The amount charged
+     * @param activityCount The number of activities the passenger holds after signing up
+     */
+    static void encodeSignedUp(ByteBuffer out, long seq, int passengerNumber, int activityId, long amountCents,
+                               int activityCount) {
+        encodeActivityChange(out, SIGNED_UP, seq, passengerNumber, activityId, amountCents, activityCount);
+    }
+
+    /**
+     * Appends a {@link #CANCELLED} record.
+     *
+     * @param out The buffer, with at least {@link #MAX_FRAMED_SIZE} bytes remaining
+     * @param seq The sequence number
+     * @param passengerNumber The passenger
+     * @param activityId The activity
+     * @param refundCents The amount refunded
+     * @param activityCount The number of activities the passenger holds after cancelling
+     */
+    static void encodeCancelled(ByteBuffer out, long seq, int passengerNumber, int activityId, long refundCents,
+                                int activityCount) {
+        encodeActivityChange(out, CANCELLED, seq, passengerNumber, activityId, refundCents, activityCount);
+    }
+
+    /**
+     * Appends a {@link #WITHDRAWN} record.
+     *
+     * @param out The buffer, with at least {@link #MAX_FRAMED_SIZE} bytes remaining
+     * @param seq The sequence number
+     * @param passengerNumber The passenger
+     */
+    static void encodeWithdrawn(ByteBuffer out, long seq, int passengerNumber) {
+        int start = begin(out, WITHDRAWN, seq);
+        out.putInt(passengerNumber);
+        end(out, start);
+    }
+
+    /**
+     * Appends a {@link #BALANCE_CHANGED} record.
+     *
+     * @param out The buffer, with at least {@link #MAX_FRAMED_SIZE} bytes remaining
+     * @param seq The sequence number
+     * @param passengerNumber The passenger
+     * @param balanceCents The new balance
+     */
+    static void encodeBalanceChanged(ByteBuffer out, long seq, int passengerNumber, long balanceCents) {
+        int start = begin(out, BALANCE_CHANGED, seq);
+        out.putInt(passengerNumber);
+        out.putLong(balanceCents);
+        end(out, start);
+    }
+
+    /**
+     * Reads the record at the buffer's position into this instance and advances past it.
+     *
+     * @param in The buffer to read from
+     * @return true if a complete, intact record was read; false if the buffer holds only part of a record
+     *         or the record is corrupt, in which case the position is unchanged
+     */
+    boolean decode(ByteBuffer in) {
+        int start = in.position();
+        if (in.remaining() < Integer.BYTES) {
+            return false;
+        }
+        int length = in.getInt(start);
+        if (length <= 0 || length > MAX_FRAMED_SIZE || in.remaining() < Integer.BYTES + length + Integer.BYTES) {
+            return false;
+        }
+        int payload = start + Integer.BYTES;
+        crc.reset();
+        if (in.hasArray()) {
+            crc.update(in.array(), in.arrayOffset() + payload, length);
+        } else {
+            ByteBuffer view = in.duplicate();
+            view.position(payload).limit(payload + length);
+            crc.update(view);
+        }
+        if ((int) crc.getValue() != in.getInt(payload + length)) {
+            return false;
+        }
+
+        in.position(payload);
+        type = in.get();
+        seq = in.getLong();
+        passengerNumber = in.getInt();
+        switch (type) {
+            case ENROLLED:
+                passengerType = TYPES[in.get()];
+                amountCents = in.getLong();
+                int nameLength = in.getShort() & 0xFFFF;
+                if (nameBytes.length < nameLength) {
+                    nameBytes = new byte[Math.max(nameLength, 2 * nameBytes.length)];
+                }
+                in.get(nameBytes, 0, nameLength);
+                name = new String(nameBytes, 0, nameLength, StandardCharsets.UTF_8);
+                break;
+            case SIGNED_UP:
+            case CANCELLED:
+                activityId = in.getInt();
+                amountCents = in.getLong();
+                activityCount = in.getInt();
+                break;
+            case BALANCE_CHANGED:
+                amountCents = in.getLong();
+                break;
+            case WITHDRAWN:
+                break;
+            default:
+                in.position(start);
+                return false;
+        }
+        in.position(payload + length + Integer.BYTES);
+        return true;
+    }
+
+    /**
+     * Hands the decoded record to a visitor.
+     *
+     * @param visitor The visitor
+     */
+    void accept(BookingLogVisitor visitor) {
+        switch (type) {
+            case ENROLLED:
+                visitor.enrolled(seq, passengerNumber, passengerType, name, amountCents);
+                break;
+            case SIGNED_UP:
+                visitor.signedUp(seq, passengerNumber, activityId, amountCents, activityCount);
+                break;
+            case CANCELLED:
+                visitor.cancelled(seq, passengerNumber, activityId, amountCents, activityCount);
+                break;
+            case BALANCE_CHANGED:
+                visitor.balanceChanged(seq, passengerNumber, amountCents);
+                break;
+            case WITHDRAWN:
+                visitor.withdrawn(seq, passengerNumber);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Appends a record about one passenger and one activity, the layout shared by {@link #SIGNED_UP} and
+     * {@link #CANCELLED}.
+     */
+    private static void encodeActivityChange(ByteBuffer out, byte type, long seq, int passengerNumber,
+                                             int activityId, long amountCents, int activityCount) {
+        int start = begin(out, type, seq);
+        out.putInt(passengerNumber);
+        out.putInt(activityId);
+        out.putLong(amountCents);
+        out.putInt(activityCount);
+        end(out, start);
+    }
+
+    /**
+     * Writes the frame header and the common payload fields.
+     *
+     * @return The position of the frame
+     */
+    private static int begin(ByteBuffer out, byte type, long seq) {
+        int start = out.position();
+        out.putInt(0); // patched by end()
+        out.put(type);
+        out.putLong(seq);
+        return start;
+    }
+
+    /**
+     * Patches the payload length and appends the checksum.
+     *
+     * @param start The position returned by {@link #begin(ByteBuffer, byte, long)}
+     */
+    private static void end(ByteBuffer out, int start) {
+        int payload = start + Integer.BYTES;
+        int length = out.position() - payload;
+        out.putInt(start, length);
+        ByteBuffer view = out.duplicate();
+        view.position(payload).limit(payload + length);
+        CRC32 crc = new CRC32();
+        crc.update(view);
+        out.putInt((int) crc.getValue());
+    }
+}
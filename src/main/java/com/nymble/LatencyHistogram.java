@@ -0,0 +1,200 @@
+/**
+ * Distribution of operation latencies.
+ *
+ * @author Parth Ahuja
+ * @version 1.0
+ * @since 2024-01-01
+ */
+package com.nymble;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts latencies in fixed power-of-two buckets: bucket 0 holds zero, and bucket {@code i} holds values from
+ * {@code 2^(i-1)} to {@code 2^i - 1} nanoseconds. Recording is a few atomic increments with no allocation and
+ * no lock, and percentiles are reported as the upper bound of the bucket they fall in, so they overstate by
+ * less than a factor of two.
+ */
+public final class LatencyHistogram {
+
+    /**
+     * The number of buckets; the last one also holds everything above about 18 minutes.
+     */
+    public static final int BUCKETS = 41;
+
+    /**
+     * The number of recorded values in each bucket.
+     */
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * The sum of all recorded values.
+     */
+    private final LongAdder totalNanos = new LongAdder();
+
+    /**
+     * The largest recorded value.
+     */
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Records one latency.
+     *
+     * @param nanos The latency in nanoseconds; negative values count as zero
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(value));
+        totalNanos.add(value);
+        if (value > maxNanos.get()) {
+            maxNanos.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    /**
+     * Copies the current counts. Concurrent recordings may be partly included.
+     *
+     * @return The snapshot
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+        }
+        return new Snapshot(copy, totalNanos.sum(), maxNanos.get());
+    }
+
+    /**
+     * Returns the bucket a latency falls in.
+     *
+     * @param nanos The latency in nanoseconds, not negative
+     * @return The bucket index
+     */
+    static int bucketOf(long nanos) {
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos));
+    }
+
+    /**
+     * Returns the largest latency a bucket holds.
+     *
+     * @param bucket The bucket index
+     * @return The upper bound in nanoseconds, or {@link Long#MAX_VALUE} for the last bucket
+     */
+    public static long bucketUpperBoundNanos(int bucket) {
+        return bucket == BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+
+    /**
+     * An immutable copy of a histogram's counts.
+     */
+    public static final class Snapshot {
+
+        /**
+         * The number of values in each bucket.
+         */
+        private final long[] counts;
+
+        /**
+         * The number of values recorded.
+         */
+        private final long count;
+
+        /**
+         * The sum of the values recorded.
+         */
+        private final long totalNanos;
+
+        /**
+         * The largest value recorded.
+         */
+        private final long maxNanos;
+
+        /**
+         * Constructs a snapshot.
+         *
+         * @param counts The number of values in each bucket
+         * @param totalNanos The sum of the values
+         * @param maxNanos The largest value
+         */
+        Snapshot(long[] counts, long totalNanos, long maxNanos) {
+            this.counts = counts;
+            long sum = 0;
+            for (long c : counts) {
+                sum += c;
+            }
+            this.count = sum;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        /**
+         * Returns the number of values recorded.
+         *
+         * @return The count
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the mean of the values recorded.
+         *
+         * @return The mean in nanoseconds, or 0 if nothing was recorded
+         */
+        public long getMeanNanos() {
+            return count == 0 ? 0 : totalNanos / count;
+        }
+
+        /**
+         * Returns the largest value recorded.
+         *
+         * @return The maximum in nanoseconds
+         */
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        /**
+         * Returns an upper bound for a percentile: the top of the bucket it falls in, capped at the maximum.
+         *
+         * @param percentile The percentile, between 0 and 100
+         * @return The bound in nanoseconds, or 0 if nothing was recorded
+         */
+        public long getPercentileNanos(double percentile) {
+            if (percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException("percentile must be between 0 and 100: " + percentile);
+            }
+            long rank = (long) Math.ceil(count * percentile / 100);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank && seen > 0) {
+                    return Math.min(bucketUpperBoundNanos(i), maxNanos);
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * Returns the number of values in each bucket.
+         *
+         * @return A copy of the bucket counts
+         */
+        public long[] getBucketCounts() {
+            return counts.clone();
+        }
+
+        /**
+         * Summarizes the distribution on one line.
+         *
+         * @return The count, mean, median, 99th percentile and maximum
+         */
+        @Override
+        public String toString() {
+            return "count=" + count + " mean=" + getMeanNanos() + "ns p50<=" + getPercentileNanos(50)
+                    + "ns p99<=" + getPercentileNanos(99) + "ns max=" + maxNanos + "ns";
+        }
+    }
+}
@@ -1,7 +1,7 @@
 package com.nymble;
 
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws InterruptedException {
         // Creating destinations
         Destination paris = new Destination("Paris");
         Destination newYork = new Destination("New York");
@@ -29,6 +29,9 @@ public class Main {
         europeTour.addPassenger(johnDoe);
         europeTour.addPassenger(janeDoe);
 
+        // Booking messages are printed asynchronously; let them catch up before printing reports
+        BookingEvents.flush();
+
         // Printing itinerary
         europeTour.printItinerary();
 
@@ -0,0 +1,269 @@
+/**
+ * Point-in-time copy of the booking metrics.
+ *
+ * @author Parth Ahuja
+ * @version 1.0
+ * @since 2024-01-01
+ */
+package com.nymble;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The values of {@link BookingMetrics} at the moment {@link BookingMetrics#snapshot()} was called. Besides the
+ * getters, {@link #writeTo(Appendable)} exports everything as {@code name value} lines for logs or a scraper.
+ */
+public final class MetricsSnapshot {
+
+    /**
+     * The number of sign-ups that went through.
+     */
+    private final long signUpsAccepted;
+
+    /**
+     * The number of sign-ups turned down.
+     */
+    private final long signUpsRejected;
+
+    /**
+     * The latency of sign-ups.
+     */
+    private final LatencyHistogram.Snapshot signUpLatency;
+
+    /**
+     * The number of enrollments with each outcome.
+     */
+    private final Map<EnrollmentResult, Long> enrollments;
+
+    /**
+     * The latency of single enrollments.
+     */
+    private final LatencyHistogram.Snapshot enrollmentLatency;
+
+    /**
+     * The sign-up metrics of each activity, by activity id in ascending order.
+     */
+    private final Map<Integer, ActivityStats> activities;
+
+    /**
+     * Constructs a snapshot.
+     *
+     * @param signUpsAccepted The number of sign-ups that went through
+     * @param signUpsRejected The number of sign-ups turned down
+     * @param signUpLatency The latency of sign-ups
+     * @param enrollments The number of enrollments with each outcome
+     * @param enrollmentLatency The latency of single enrollments
+     * @param activities The sign-up metrics of each activity, by id
+     */
+    MetricsSnapshot(long signUpsAccepted, long signUpsRejected, LatencyHistogram.Snapshot signUpLatency,
+                    Map<EnrollmentResult, Long> enrollments, LatencyHistogram.Snapshot enrollmentLatency,
+                    Map<Integer, ActivityStats> activities) {
+        this.signUpsAccepted = signUpsAccepted;
+        this.signUpsRejected = signUpsRejected;
+        this.signUpLatency = signUpLatency;
+        this.enrollments = Collections.unmodifiableMap(enrollments);
+        this.enrollmentLatency = enrollmentLatency;
+        this.activities = Collections.unmodifiableMap(activities);
+    }
+
+    /**
+     * Returns the number of sign-ups that went through.
+     *
+     * @return The count
+     */
+    public long getSignUpsAccepted() {
+        return signUpsAccepted;
+    }
+
+    /**
+     * Returns the number of sign-ups turned down.
+     *
+     * @return The count
+     */
+    public long getSignUpsRejected() {
+        return signUpsRejected;
+    }
+
+    /**
+     * Returns the latency distribution of sign-ups.
+     *
+     * @return The histogram snapshot
+     */
+    public LatencyHistogram.Snapshot getSignUpLatency() {
+        return signUpLatency;
+    }
+
+    /**
+     * Returns the number of enrollments with an outcome, from single and batch enrollments alike.
+     *
+     * @param result The outcome
+     * @return The count
+     */
+    public long getEnrollments(EnrollmentResult result) {
+        return enrollments.get(result);
+    }
+
+    /**
+     * Returns the latency distribution of single enrollments.
+     *
+     * @return The histogram snapshot
+     */
+    public LatencyHistogram.Snapshot getEnrollmentLatency() {
+        return enrollmentLatency;
+    }
+
+    /**
+     * Returns the sign-up metrics of one activity.
+     *
+     * @param activityId The activity id
+     * @return The metrics, or null if nobody has tried to sign up for the activity
+     */
+    public ActivityStats getActivity(int activityId) {
+        return activities.get(activityId);
+    }
+
+    /**
+     * Returns the sign-up metrics of every activity someone has tried to sign up for.
+     *
+     * @return The metrics by activity id, in ascending order
+     */
+    public Map<Integer, ActivityStats> getActivities() {
+        return activities;
+    }
+
+    /**
+     * Writes every value as a {@code name value} line.
+     *
+     * @param out Where to write
+     * @throws IOException If writing fails
+     */
+    public void writeTo(Appendable out) throws IOException {
+        out.append("signups.accepted ").append(Long.toString(signUpsAccepted)).append('\n');
+        out.append("signups.rejected ").append(Long.toString(signUpsRejected)).append('\n');
+        out.append("signups.latency ").append(signUpLatency.toString()).append('\n');
+        for (Map.Entry<EnrollmentResult, Long> entry : enrollments.entrySet()) {
+            out.append("enrollments.").append(entry.getKey().name().toLowerCase()).append(' ')
+                    .append(Long.toString(entry.getValue())).append('\n');
+        }
+        out.append("enrollments.latency ").append(enrollmentLatency.toString()).append('\n');
+        for (ActivityStats stats : activities.values()) {
+            String prefix = "activity." + stats.getActivityId() + ".";
+            out.append(prefix).append("name ").append(stats.getName()).append('\n');
+            out.append(prefix).append("signups.accepted ").append(Long.toString(stats.getAccepted())).append('\n');
+            out.append(prefix).append("signups.rejected ").append(Long.toString(stats.getRejected())).append('\n');
+            out.append(prefix).append("signups.latency ").append(stats.getLatency().toString()).append('\n');
+        }
+    }
+
+    /**
+     * Returns the same lines as {@link #writeTo(Appendable)}.
+     *
+     * @return The exported metrics
+     */
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        try {
+            writeTo(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    /**
+     * The sign-up metrics of one activity.
+     */
+    public static final class ActivityStats {
+
+        /**
+         * The activity id.
+         */
+        private final int activityId;
+
+        /**
+         * The activity name.
+         */
+        private final String name;
+
+        /**
+         * The number of sign-ups that went through.
+         */
+        private final long accepted;
+
+        /**
+         * The number of sign-ups turned down.
+         */
+        private final long rejected;
+
+        /**
+         * The latency of sign-ups.
+         */
+        private final LatencyHistogram.Snapshot latency;
+
+        /**
+         * Constructs the metrics of one activity.
+         *
+         * @param activityId The activity id
+         * @param name The activity name
+         * @param accepted The number of sign-ups that went through
+         * @param rejected The number of sign-ups turned down
+         * @param latency The latency of sign-ups
+         */
+        ActivityStats(int activityId, String name, long accepted, long rejected, LatencyHistogram.Snapshot latency) {
+            this.activityId = activityId;
+            this.name = name;
+            this.accepted = accepted;
+            this.rejected = rejected;
+            this.latency = latency;
+        }
+
+        /**
+         * Returns the activity id.
+         *
+         * @return The id
+         */
+        public int getActivityId() {
+            return activityId;
+        }
+
+        /**
+         * Returns the activity name.
+         *
+         * @return The name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the number of sign-ups that went through.
+         *
+         * @return The count
+         */
+        public long getAccepted() {
+            return accepted;
+        }
+
+        /**
+         * Returns the number of sign-ups turned down.
+         *
+         * @return The count
+         */
+        public long getRejected() {
+            return rejected;
+        }
+
+        /**
+         * Returns the latency distribution of sign-ups.
+         *
+         * @return The histogram snapshot
+         */
+        public LatencyHistogram.Snapshot getLatency() {
+            return latency;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * Fixed-point money arithmetic shared by pricing and balances.
+ *
+ * @author Parth Ahuja
+ * @version 1.0
+ * @since 2024-01-01
+ */
+package com.nymble;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Static helpers for amounts held as a {@code long} count of minor units (cents). Every pricing and
+ * balance path keeps money in this form, so sums are exact and no objects are allocated on the hot path.
+ *
+ * <p>Rounding rules:</p>
+ * <ul>
+ *     <li>Amounts given in major units (e.g. {@code 12.345}) are converted with {@link RoundingMode#HALF_EVEN},
+ *     using the shortest decimal representation of the double.</li>
+ *     <li>Percentages of an amount, and therefore discounted prices, are rounded half up to the nearest cent.</li>
+ *     <li>Whole-unit views of an amount ({@link #toWholeUnits(long)}) truncate toward zero, matching the
+ *     historical {@code int} cost fields.</li>
+ * </ul>
+ */
+public final class Money {
+
+    /**
+     * The number of minor units per major unit.
+     */
+    public static final int CENTS_PER_UNIT = 100;
+
+    private Money() {
+    }
+
+    /**
+     * Converts an amount in major units to cents.
+     *
+     * @param amount The amount, e.g. {@code 12.5}
+     * @return The amount in cents, e.g. {@code 1250}
+     */
+    public static long ofMajor(double amount) {
+        return BigDecimal.valueOf(amount).movePointRight(2).setScale(0, RoundingMode.HALF_EVEN).longValueExact();
+    }
+
+    /**
+     * Converts an amount in cents to major units, for display and legacy accessors.
+     *
+     * @param cents The amount in cents
+     * @return The amount in major units
+     */
+    public static double toMajor(long cents) {
+        return (double) cents / CENTS_PER_UNIT;
+    }
+
+    /**
+     * Returns the whole major units in an amount, truncating any cents.
+     *
+     * @param cents The amount in cents
+     * @return The whole units
+     */
+    public static long toWholeUnits(long cents) {
+        return cents / CENTS_PER_UNIT;
+    }
+
+    /**
+     * Computes a percentage of an amount, rounded half up to the nearest cent.
+     *
+     * @param cents The amount in cents, not negative
+     * @param percent The percentage, e.g. {@code 90}
+     * @return {@code cents * percent / 100}, rounded
+     */
+    public static long percentOf(long cents, int percent) {
+        return Math.addExact(Math.multiplyExact(cents, percent), 50) / 100;
+    }
+
+    /**
+     * Applies a percentage discount to an amount, rounded half up to the nearest cent.
+     *
+     * @param cents The undiscounted amount in cents, not negative
+     * @param discountPercent The discount, e.g. {@code 10} for 10% off
+     * @return The discounted amount in cents
+     */
+    public static long discount(long cents, int discountPercent) {
+        return percentOf(cents, 100 - discountPercent);
+    }
+
+    /**
+     * Formats an amount with exactly two decimals, e.g. {@code 1250} as {@code "12.50"}.
+     *
+     * @param cents The amount in cents
+     * @return The formatted amount
+     */
+    public static String format(long cents) {
+        StringBuilder text = new StringBuilder(24);
+        if (cents < 0) {
+            text.append('-');
+        }
+        long magnitude = Math.abs(cents);
+        long fraction = magnitude % CENTS_PER_UNIT;
+        text.append(magnitude / CENTS_PER_UNIT).append('.');
+        if (fraction < 10) {
+            text.append('0');
+        }
+        return text.append(fraction).toString();
+    }
+}
@@ -0,0 +1,174 @@
+/**
+ * Registry of travel packages with fleet-wide aggregation.
+ *
+ * @author Parth Ahuja
+ * @version 1.0
+ * @since 2024-01-01
+ */
+package com.nymble;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Holds any number of travel packages by name and computes {@link FleetStats} across all of them. Lookups,
+ * additions and removals go through a {@link ConcurrentHashMap} and never block one another.
+ *
+ * <p>{@link #aggregate()} splits the packages into ranges on a {@link ForkJoinPool}, sums each range
+ * sequentially from the packages' running aggregates and merges the partial totals, so it scales with the
+ * pool's parallelism. Packages keep taking bookings meanwhile.</p>
+ */
+public final class PackageCatalog {
+
+    /**
+     * The number of ranges per worker thread that {@link #aggregate()} aims for, so that idle workers have
+     * ranges to steal when some packages take longer to visit than others.
+     */
+    private static final int RANGES_PER_THREAD = 8;
+
+    /**
+     * The fewest packages worth summing in a separate task.
+     */
+    private static final int MIN_RANGE = 16;
+
+    /**
+     * The packages by name.
+     */
+    private final Map<String, TravelPackage> packages = new ConcurrentHashMap<>();
+
+    /**
+     * The pool aggregation runs on.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs an empty catalog that aggregates on the common fork-join pool.
+     */
+    public PackageCatalog() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs an empty catalog that aggregates on the given pool.
+     *
+     * @param pool The pool to aggregate on
+     */
+    public PackageCatalog(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Adds a package, unless one with the same name is already in the catalog.
+     *
+     * @param travelPackage The package
+     * @return true if the package was added
+     */
+    public boolean add(TravelPackage travelPackage) {
+        return packages.putIfAbsent(travelPackage.getName(), travelPackage) == null;
+    }
+
+    /**
+     * Looks up a package by name.
+     *
+     * @param name The package name
+     * @return The package, or null if the catalog has none by that name
+     */
+    public TravelPackage get(String name) {
+        return packages.get(name);
+    }
+
+    /**
+     * Removes a package by name.
+     *
+     * @param name The package name
+     * @return The removed package, or null if the catalog had none by that name
+     */
+    public TravelPackage remove(String name) {
+        return packages.remove(name);
+    }
+
+    /**
+     * Returns the number of packages.
+     *
+     * @return The package count
+     */
+    public int size() {
+        return packages.size();
+    }
+
+    /**
+     * Returns a live, unmodifiable view of the packages, in no particular order.
+     *
+     * @return The packages
+     */
+    public Collection<TravelPackage> getPackages() {
+        return Collections.unmodifiableCollection(packages.values());
+    }
+
+    /**
+     * Computes fleet-wide totals over every package in the catalog, in parallel.
+     *
+     * @return The totals
+     */
+    public FleetStats aggregate() {
+        TravelPackage[] all = packages.values().toArray(new TravelPackage[0]);
+        int threshold = Math.max(MIN_RANGE, all.length / (pool.getParallelism() * RANGES_PER_THREAD));
+        return pool.invoke(new AggregateTask(all, 0, all.length, threshold));
+    }
+
+    /**
+     * Sums a range of packages, splitting it in half while it is above the threshold.
+     */
+    private static final class AggregateTask extends RecursiveTask<FleetStats> {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The packages being aggregated. Transient because tasks only ever run in-process on the pool; the
+         * {@code Serializable} inherited from {@link java.util.concurrent.ForkJoinTask} is never used.
+         */
+        private final transient TravelPackage[] packages;
+
+        /**
+         * The first package of the range.
+         */
+        private final int from;
+
+        /**
+         * The end of the range, exclusive.
+         */
+        private final int to;
+
+        /**
+         * The largest range summed without splitting.
+         */
+        private final int threshold;
+
+        AggregateTask(TravelPackage[] packages, int from, int to, int threshold) {
+            this.packages = packages;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected FleetStats compute() {
+            if (to - from <= threshold) {
+                FleetStats stats = new FleetStats();
+                for (int i = from; i < to; i++) {
+                    stats.add(packages[i]);
+                }
+                return stats;
+            }
+            int mid = (from + to) >>> 1;
+            AggregateTask right = new AggregateTask(packages, mid, to, threshold);
+            right.fork();
+            FleetStats left = new AggregateTask(packages, from, mid, threshold).compute();
+            return left.merge(right.join());
+        }
+    }
+}
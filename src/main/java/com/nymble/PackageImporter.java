@@ -0,0 +1,941 @@
+/**
+ * Loads destinations, activities and passengers into a travel package from CSV or JSON-lines files.
+ *
+ * @author Parth Ahuja
+ * @version 1.0
+ * @since 2024-01-01
+ */
+package com.nymble;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * A streaming bulk importer. The input is read in chunks of whole lines, each chunk is parsed on a
+ * {@link ForkJoinPool}, and the parsed records are applied to the package on the calling thread in file
+ * order, passengers through {@link TravelPackage#addPassengers(java.util.Collection)} in batches. At most a
+ * few chunks per pool thread are in flight at once, so memory stays bounded however large the file is.
+ *
+ * <p>Every line holds one record, of one of three kinds. In CSV the first field names the kind and the rest
+ * are positional; fields may be quoted, with {@code ""} for a quote, but may not span lines. Blank lines and
+ * lines starting with {@code #} are skipped.</p>
+ * <pre>
+ * destination,&lt;name&gt;
+ * activity,&lt;destination&gt;,&lt;name&gt;,&lt;description&gt;,&lt;cost&gt;,&lt;capacity&gt;
+ * passenger,&lt;tier&gt;,&lt;name&gt;,&lt;balance&gt;
+ * </pre>
+ * <p>In JSON lines each line is a flat object with the same names as keys and a {@code kind} key, for
+ * example {@code {"kind":"passenger","tier":"gold","name":"Ada","balance":500}}. Blank lines are skipped and
+ * unknown keys are ignored.</p>
+ *
+ * <p>Costs and balances are decimal amounts in major units. Tiers are {@code normal}, {@code silver} and
+ * {@code gold}, read as {@link NormalPassenger}, {@link GoldPassenger} and {@link PremiumPassenger}. An
+ * activity names a destination from an earlier line or already on the itinerary. New destinations join the
+ * itinerary once their activities have been read, just before the next passenger is enrolled or at the end
+ * of the file, so the package's base cost includes those activities.</p>
+ *
+ * <p>Records take effect in file order: a passenger is offered seats on the activities listed above it. A
+ * malformed line stops the import with an {@link IOException} naming the line; the records before it stay
+ * imported.</p>
+ *
+ * <p>Each batch publishes a single {@link BookingEvent.Type#BATCH_ENROLLED} event rather than one event per
+ * passenger, so even a very large import puts only a few events through the {@link BookingEvents} sink. The
+ * outcome of every enrollment is counted in the returned {@link ImportSummary} instead.</p>
+ */
+public final class PackageImporter {
+
+    /**
+     * The input formats.
+     */
+    public enum Format {
+        /**
+         * Comma-separated values, one record per line.
+         */
+        CSV,
+
+        /**
+         * One flat JSON object per line.
+         */
+        JSON_LINES
+    }
+
+    /**
+     * The number of bytes read before a chunk is handed to the parser, unless a single line is longer.
+     */
+    static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    /**
+     * The number of passengers enrolled with one {@link TravelPackage#addPassengers(java.util.Collection)}.
+     */
+    static final int DEFAULT_BATCH_SIZE = 4096;
+
+    /**
+     * Record kind of a destination line.
+     */
+    private static final byte DESTINATION = 1;
+
+    /**
+     * Record kind of an activity line.
+     */
+    private static final byte ACTIVITY = 2;
+
+    /**
+     * Record kind of a passenger line.
+     */
+    private static final byte PASSENGER = 3;
+
+    /**
+     * The longest amount, in digits, that is parsed without {@link BigDecimal}.
+     */
+    private static final int MAX_FAST_DIGITS = 15;
+
+    /**
+     * The package records are loaded into.
+     */
+    private final TravelPackage travelPackage;
+
+    /**
+     * The pool chunks are parsed on.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * The chunk size in bytes.
+     */
+    private final int chunkSize;
+
+    /**
+     * The enrollment batch size.
+     */
+    private final int batchSize;
+
+    /**
+     * Constructs an importer that parses on the common fork-join pool.
+     *
+     * @param travelPackage The package to load into
+     */
+    public PackageImporter(TravelPackage travelPackage) {
+        this(travelPackage, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs an importer that parses on the given pool.
+     *
+     * @param travelPackage The package to load into
+     * @param pool The pool to parse on
+     */
+    public PackageImporter(TravelPackage travelPackage, ForkJoinPool pool) {
+        this(travelPackage, pool, DEFAULT_CHUNK_SIZE, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Constructs an importer with explicit chunk and batch sizes.
+     *
+     * @param travelPackage The package to load into
+     * @param pool The pool to parse on
+     * @param chunkSize The chunk size in bytes
+     * @param batchSize The enrollment batch size
+     */
+    PackageImporter(TravelPackage travelPackage, ForkJoinPool pool, int chunkSize, int batchSize) {
+        if (chunkSize <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Chunk and batch sizes must be positive");
+        }
+        this.travelPackage = travelPackage;
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Imports a file, choosing the format by extension: {@code .csv} for CSV, {@code .jsonl},
+     * {@code .ndjson} or {@code .json} for JSON lines.
+     *
+     * @param file The file
+     * @return What was imported
+     * @throws IOException If the file cannot be read or holds a malformed line
+     * @throws IllegalArgumentException If the extension is not recognized
+     */
+    public ImportSummary importFile(Path file) throws IOException {
+        Format format = formatOf(file);
+        try (InputStream in = Files.newInputStream(file)) {
+            return importFrom(in, format);
+        }
+    }
+
+    /**
+     * Imports a stream of UTF-8 records. The stream is read to the end but not closed.
+     *
+     * @param in The stream
+     * @param format The format of the records
+     * @return What was imported
+     * @throws IOException If the stream cannot be read or holds a malformed line
+     */
+    public ImportSummary importFrom(InputStream in, Format format) throws IOException {
+        Loader loader = new Loader();
+        Deque<ForkJoinTask<Chunk>> parsing = new ArrayDeque<>();
+        int maxInFlight = Math.max(2, 2 * pool.getParallelism());
+        try {
+            byte[] buffer = new byte[chunkSize];
+            int filled = 0;
+            boolean first = true;
+            while (true) {
+                int read = in.read(buffer, filled, buffer.length - filled);
+                if (read < 0) {
+                    break;
+                }
+                filled += read;
+                if (filled < buffer.length) {
+                    continue;
+                }
+                int end = lastLineEnd(buffer, filled);
+                if (end == 0) {
+                    // A single line longer than the buffer: keep reading until it ends.
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    continue;
+                }
+                byte[] rest = new byte[Math.max(chunkSize, filled - end)];
+                System.arraycopy(buffer, end, rest, 0, filled - end);
+                parsing.add(submit(format, buffer, end, first));
+                first = false;
+                buffer = rest;
+                filled -= end;
+                while (parsing.size() >= maxInFlight) {
+                    loader.apply(parsing.poll().join());
+                }
+            }
+            if (filled > 0) {
+                parsing.add(submit(format, buffer, filled, first));
+            }
+            while (!parsing.isEmpty()) {
+                loader.apply(parsing.poll().join());
+            }
+            loader.finish();
+        } finally {
+            for (ForkJoinTask<Chunk> task : parsing) {
+                task.cancel(false);
+            }
+        }
+        return loader.summary;
+    }
+
+    /**
+     * Picks a format by file extension.
+     *
+     * @param file The file
+     * @return The format
+     * @throws IllegalArgumentException If the extension is not recognized
+     */
+    private static Format formatOf(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) {
+            return Format.CSV;
+        }
+        if (name.endsWith(".jsonl") || name.endsWith(".ndjson") || name.endsWith(".json")) {
+            return Format.JSON_LINES;
+        }
+        throw new IllegalArgumentException("Unknown import format: " + file);
+    }
+
+    /**
+     * Returns the position just past the last newline in a buffer, or 0 if there is none.
+     */
+    private static int lastLineEnd(byte[] buffer, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (buffer[i] == '\n') {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Hands a chunk of whole lines to the pool for parsing.
+     */
+    private ForkJoinTask<Chunk> submit(Format format, byte[] data, int length, boolean first) {
+        return pool.submit(() -> parse(format, data, length, first));
+    }
+
+    /**
+     * Parses a chunk of whole lines, stopping at the first malformed one.
+     *
+     * @param format The format
+     * @param data The bytes
+     * @param length The number of bytes in use
+     * @param first Whether this is the start of the input, which may begin with a byte order mark
+     * @return The parsed records
+     */
+    private static Chunk parse(Format format, byte[] data, int length, boolean first) {
+        Chunk chunk = new Chunk(length);
+        int start = first && length >= 3 && data[0] == (byte) 0xEF && data[1] == (byte) 0xBB
+                && data[2] == (byte) 0xBF ? 3 : 0;
+        List<String> fields = new ArrayList<>();
+        Map<String, String> members = new HashMap<>();
+        while (start < length) {
+            int newline = start;
+            while (newline < length && data[newline] != '\n') {
+                newline++;
+            }
+            int end = newline;
+            if (end > start && data[end - 1] == '\r') {
+                end--;
+            }
+            int line = chunk.lineCount++;
+            try {
+                Row row = format == Format.CSV
+                        ? parseCsv(data, start, end, fields)
+                        : parseJson(data, start, end, members);
+                if (row != null) {
+                    row.line = line;
+                    chunk.rows.add(row);
+                }
+            } catch (IllegalArgumentException e) {
+                chunk.errorLine = line;
+                chunk.error = e.getMessage();
+                return chunk;
+            }
+            start = newline + 1;
+        }
+        return chunk;
+    }
+
+    /**
+     * Parses one CSV line.
+     *
+     * @return The record, or null for a blank or comment line
+     */
+    private static Row parseCsv(byte[] data, int from, int to, List<String> fields) {
+        if (isBlank(data, from, to) || data[from] == '#') {
+            return null;
+        }
+        fields.clear();
+        int i = from;
+        while (true) {
+            if (i < to && data[i] == '"') {
+                int start = ++i;
+                boolean doubled = false;
+                while (true) {
+                    if (i >= to) {
+                        throw new IllegalArgumentException("Unterminated quoted field");
+                    }
+                    if (data[i] == '"') {
+                        if (i + 1 < to && data[i + 1] == '"') {
+                            doubled = true;
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    i++;
+                }
+                String value = new String(data, start, i - start, StandardCharsets.UTF_8);
+                fields.add(doubled ? value.replace("\"\"", "\"") : value);
+                i++;
+                if (i < to && data[i] != ',') {
+                    throw new IllegalArgumentException("Unexpected text after quoted field");
+                }
+            } else {
+                int start = i;
+                while (i < to && data[i] != ',') {
+                    i++;
+                }
+                fields.add(new String(data, start, i - start, StandardCharsets.UTF_8));
+            }
+            if (i >= to) {
+                break;
+            }
+            i++;
+        }
+        String kind = fields.get(0).trim().toLowerCase(Locale.ROOT);
+        switch (kind) {
+            case "destination":
+                checkFieldCount(fields, 2, kind);
+                return row(kind, null, fields.get(1), null, null, null, null, null);
+            case "activity":
+                checkFieldCount(fields, 6, kind);
+                return row(kind, fields.get(1), fields.get(2), fields.get(3), fields.get(4), fields.get(5), null, null);
+            case "passenger":
+                checkFieldCount(fields, 4, kind);
+                return row(kind, null, fields.get(2), null, null, null, fields.get(1), fields.get(3));
+            default:
+                throw new IllegalArgumentException("Unknown record kind: " + fields.get(0));
+        }
+    }
+
+    /**
+     * Checks that a CSV record has the number of fields its kind calls for.
+     */
+    private static void checkFieldCount(List<String> fields, int expected, String kind) {
+        if (fields.size() != expected) {
+            throw new IllegalArgumentException("A " + kind + " record has " + expected + " fields, not "
+                    + fields.size());
+        }
+    }
+
+    /**
+     * Parses one JSON line.
+     *
+     * @return The record, or null for a blank line
+     */
+    private static Row parseJson(byte[] data, int from, int to, Map<String, String> members) {
+        if (isBlank(data, from, to)) {
+            return null;
+        }
+        members.clear();
+        JsonCursor cursor = new JsonCursor(data, from, to);
+        cursor.expect('{');
+        if (!cursor.consume('}')) {
+            do {
+                String key = cursor.string();
+                cursor.expect(':');
+                members.put(key, cursor.value());
+            } while (cursor.consume(','));
+            cursor.expect('}');
+        }
+        cursor.end();
+        String kind = members.get("kind");
+        if (kind == null) {
+            throw new IllegalArgumentException("Missing kind");
+        }
+        return row(kind.trim().toLowerCase(Locale.ROOT), members.get("destination"), members.get("name"),
+                members.get("description"), members.get("cost"), members.get("capacity"), members.get("tier"),
+                members.get("balance"));
+    }
+
+    /**
+     * Checks whether a line holds nothing but spaces and tabs.
+     */
+    private static boolean isBlank(byte[] data, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (data[i] != ' ' && data[i] != '\t') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Validates the fields of a record and converts them, whichever format they came from.
+     *
+     * @param kind The record kind, in lower case
+     * @return The record
+     */
+    private static Row row(String kind, String destination, String name, String description, String cost,
+                           String capacity, String tier, String balance) {
+        Row row = new Row();
+        switch (kind) {
+            case "destination":
+                row.kind = DESTINATION;
+                row.name = required(name, "name");
+                break;
+            case "activity":
+                row.kind = ACTIVITY;
+                row.destination = required(destination, "destination");
+                row.name = required(name, "name");
+                row.description = description == null ? "" : description;
+                row.cents = parseCents(required(cost, "cost"), "cost");
+                row.capacity = parseCapacity(required(capacity, "capacity"));
+                break;
+            case "passenger":
+                row.kind = PASSENGER;
+                row.type = parseTier(required(tier, "tier"));
+                row.name = required(name, "name");
+                row.cents = parseCents(required(balance, "balance"), "balance");
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown record kind: " + kind);
+        }
+        return row;
+    }
+
+    /**
+     * Returns a field's value, rejecting a missing one.
+     */
+    private static String required(String value, String field) {
+        if (value == null) {
+            throw new IllegalArgumentException("Missing " + field);
+        }
+        return value;
+    }
+
+    /**
+     * Parses a non-negative decimal amount in major units to cents, rounding half even past two decimals as
+     * {@link Money#ofMajor(double)} does. Plain amounts with at most two decimals skip {@link BigDecimal}.
+     */
+    private static long parseCents(String text, String field) {
+        String amount = text.trim();
+        int length = amount.length();
+        int point = amount.indexOf('.');
+        int integerDigits = point < 0 ? length : point;
+        int fractionDigits = point < 0 ? 0 : length - point - 1;
+        if (integerDigits > 0 && integerDigits <= MAX_FAST_DIGITS && fractionDigits <= 2
+                && (point < 0 || fractionDigits > 0)) {
+            long cents = 0;
+            boolean plain = true;
+            for (int i = 0; i < length && plain; i++) {
+                char c = amount.charAt(i);
+                if (c >= '0' && c <= '9') {
+                    cents = cents * 10 + (c - '0');
+                } else {
+                    plain = i == point;
+                }
+            }
+            if (plain) {
+                for (int i = fractionDigits; i < 2; i++) {
+                    cents *= 10;
+                }
+                return cents;
+            }
+        }
+        try {
+            BigDecimal value = new BigDecimal(amount);
+            if (value.signum() < 0) {
+                throw new IllegalArgumentException("Negative " + field + ": " + text);
+            }
+            return value.movePointRight(2).setScale(0, RoundingMode.HALF_EVEN).longValueExact();
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new IllegalArgumentException("Invalid " + field + ": " + text);
+        }
+    }
+
+    /**
+     * Parses an activity capacity.
+     */
+    private static int parseCapacity(String text) {
+        try {
+            int capacity = Integer.parseInt(text.trim());
+            if (capacity < 0) {
+                throw new IllegalArgumentException("Negative capacity: " + text);
+            }
+            return capacity;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid capacity: " + text);
+        }
+    }
+
+    /**
+     * Maps a tier name to a passenger type.
+     */
+    private static PassengerType parseTier(String text) {
+        switch (text.trim().toLowerCase(Locale.ROOT)) {
+            case "normal":
+                return PassengerType.NORMAL;
+            case "silver":
+                return PassengerType.SILVER;
+            case "gold":
+                return PassengerType.GOLD;
+            default:
+                throw new IllegalArgumentException("Unknown tier: " + text);
+        }
+    }
+
+    /**
+     * Applies parsed chunks to the package, in order, on the importing thread.
+     */
+    private final class Loader {
+
+        /**
+         * The running totals.
+         */
+        final ImportSummary summary = new ImportSummary();
+
+        /**
+         * The destinations activities can name: those on the itinerary and those read so far.
+         */
+        private final Map<String, Destination> destinations = new HashMap<>();
+
+        /**
+         * Destinations read but not yet added to the itinerary, in file order.
+         */
+        private final Set<Destination> unattached = new LinkedHashSet<>();
+
+        /**
+         * Passengers read but not yet enrolled.
+         */
+        private final List<Passenger> batch = new ArrayList<>();
+
+        /**
+         * The number of lines in the chunks applied so far.
+         */
+        private long linesBefore;
+
+        /**
+         * Constructs a loader that knows the destinations already on the itinerary.
+         */
+        Loader() {
+            for (Destination destination : travelPackage.getItinerary()) {
+                destinations.putIfAbsent(destination.getName(), destination);
+            }
+        }
+
+        /**
+         * Applies the records of one chunk.
+         *
+         * @param chunk The parsed chunk
+         * @throws IOException If a record is malformed or names an unknown destination
+         */
+        void apply(Chunk chunk) throws IOException {
+            for (Row row : chunk.rows) {
+                switch (row.kind) {
+                    case DESTINATION:
+                        if (!destinations.containsKey(row.name)) {
+                            Destination destination = new Destination(row.name);
+                            destinations.put(row.name, destination);
+                            unattached.add(destination);
+                            summary.addDestination();
+                        }
+                        break;
+                    case ACTIVITY:
+                        Destination destination = destinations.get(row.destination);
+                        if (destination == null) {
+                            finish();
+                            throw new IOException("Line " + (linesBefore + row.line + 1) + ": unknown destination "
+                                    + row.destination);
+                        }
+                        if (!unattached.contains(destination)) {
+                            // The activity changes the itinerary, so passengers listed above it go first.
+                            enroll();
+                        }
+                        destination.addActivity(Activity.ofCents(row.name, row.description, row.cents,
+                                row.capacity, destination));
+                        summary.addActivity();
+                        break;
+                    default:
+                        attach();
+                        batch.add(Passenger.create(row.type, row.name, row.cents));
+                        if (batch.size() >= batchSize) {
+                            enroll();
+                        }
+                        break;
+                }
+            }
+            summary.addInput(chunk.lineCount, chunk.byteCount);
+            if (chunk.error != null) {
+                finish();
+                throw new IOException("Line " + (linesBefore + chunk.errorLine + 1) + ": " + chunk.error);
+            }
+            linesBefore += chunk.lineCount;
+        }
+
+        /**
+         * Adds the pending destinations to the itinerary and enrolls the pending passengers.
+         */
+        void finish() {
+            attach();
+            enroll();
+        }
+
+        /**
+         * Adds the destinations read so far to the itinerary, after enrolling the passengers listed before
+         * them.
+         */
+        private void attach() {
+            if (!unattached.isEmpty()) {
+                enroll();
+                for (Destination destination : unattached) {
+                    travelPackage.addDestination(destination);
+                }
+                unattached.clear();
+            }
+        }
+
+        /**
+         * Enrolls the pending passengers as one batch.
+         */
+        private void enroll() {
+            if (!batch.isEmpty()) {
+                summary.addEnrollments(travelPackage.addPassengers(batch));
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * The records parsed from one chunk of lines.
+     */
+    private static final class Chunk {
+
+        /**
+         * The records, in line order.
+         */
+        final List<Row> rows = new ArrayList<>();
+
+        /**
+         * The number of bytes in the chunk.
+         */
+        final int byteCount;
+
+        /**
+         * The number of lines parsed, including a malformed last one.
+         */
+        int lineCount;
+
+        /**
+         * The index within the chunk of the malformed line, if any.
+         */
+        int errorLine = -1;
+
+        /**
+         * What is wrong with the malformed line, or null if every line parsed.
+         */
+        String error;
+
+        /**
+         * Constructs an empty chunk.
+         *
+         * @param byteCount The number of bytes in the chunk
+         */
+        Chunk(int byteCount) {
+            this.byteCount = byteCount;
+        }
+    }
+
+    /**
+     * One parsed record.
+     */
+    private static final class Row {
+
+        /**
+         * {@link #DESTINATION}, {@link #ACTIVITY} or {@link #PASSENGER}.
+         */
+        byte kind;
+
+        /**
+         * The index of the record's line within its chunk.
+         */
+        int line;
+
+        /**
+         * The destination an activity belongs to.
+         */
+        String destination;
+
+        /**
+         * The name of the destination, activity or passenger.
+         */
+        String name;
+
+        /**
+         * The description of an activity.
+         */
+        String description;
+
+        /**
+         * The cost of an activity or the balance of a passenger, in cents.
+         */
+        long cents;
+
+        /**
+         * The capacity of an activity.
+         */
+        int capacity;
+
+        /**
+         * The tier of a passenger.
+         */
+        PassengerType type;
+    }
+
+    /**
+     * Reads the tokens of one flat JSON object from a line.
+     */
+    private static final class JsonCursor {
+
+        /**
+         * The bytes of the input.
+         */
+        private final byte[] data;
+
+        /**
+         * The end of the line.
+         */
+        private final int to;
+
+        /**
+         * The current position.
+         */
+        private int position;
+
+        /**
+         * Constructs a cursor over a line.
+         *
+         * @param data The bytes of the input
+         * @param from The start of the line
+         * @param to The end of the line
+         */
+        JsonCursor(byte[] data, int from, int to) {
+            this.data = data;
+            this.position = from;
+            this.to = to;
+        }
+
+        /**
+         * Skips whitespace and consumes a character if it comes next.
+         *
+         * @param c The character
+         * @return true if it was consumed
+         */
+        boolean consume(char c) {
+            skipWhitespace();
+            if (position < to && data[position] == c) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Skips whitespace and consumes a character that must come next.
+         *
+         * @param c The character
+         */
+        void expect(char c) {
+            if (!consume(c)) {
+                throw new IllegalArgumentException("Expected '" + c + "' at column " + column());
+            }
+        }
+
+        /**
+         * Checks that nothing but whitespace is left on the line.
+         */
+        void end() {
+            skipWhitespace();
+            if (position < to) {
+                throw new IllegalArgumentException("Unexpected text at column " + column());
+            }
+        }
+
+        /**
+         * Reads a value: a string, or a number or literal as written. Nested objects and arrays are rejected.
+         *
+         * @return The value, or null for {@code null}
+         */
+        String value() {
+            skipWhitespace();
+            if (position < to && data[position] == '"') {
+                return string();
+            }
+            int start = position;
+            while (position < to && data[position] != ',' && data[position] != '}'
+                    && data[position] != ' ' && data[position] != '\t') {
+                if (data[position] == '{' || data[position] == '[') {
+                    throw new IllegalArgumentException("Nested values are not supported, at column " + column());
+                }
+                position++;
+            }
+            if (position == start) {
+                throw new IllegalArgumentException("Expected a value at column " + column());
+            }
+            String literal = new String(data, start, position - start, StandardCharsets.US_ASCII);
+            return literal.equals("null") ? null : literal;
+        }
+
+        /**
+         * Reads a string, decoding escapes.
+         *
+         * @return The string
+         */
+        String string() {
+            expect('"');
+            int start = position;
+            StringBuilder decoded = null;
+            while (true) {
+                if (position >= to) {
+                    throw new IllegalArgumentException("Unterminated string");
+                }
+                byte b = data[position];
+                if (b == '"') {
+                    String tail = new String(data, start, position - start, StandardCharsets.UTF_8);
+                    position++;
+                    return decoded == null ? tail : decoded.append(tail).toString();
+                }
+                if (b != '\\') {
+                    position++;
+                    continue;
+                }
+                if (decoded == null) {
+                    decoded = new StringBuilder();
+                }
+                decoded.append(new String(data, start, position - start, StandardCharsets.UTF_8));
+                if (position + 1 >= to) {
+                    throw new IllegalArgumentException("Unterminated string");
+                }
+                byte escape = data[position + 1];
+                position += 2;
+                switch (escape) {
+                    case '"':
+                    case '\\':
+                    case '/':
+                        decoded.append((char) escape);
+                        break;
+                    case 'b':
+                        decoded.append('\b');
+                        break;
+                    case 'f':
+                        decoded.append('\f');
+                        break;
+                    case 'n':
+                        decoded.append('\n');
+                        break;
+                    case 'r':
+                        decoded.append('\r');
+                        break;
+                    case 't':
+                        decoded.append('\t');
+                        break;
+                    case 'u':
+                        if (position + 4 > to) {
+                            throw new IllegalArgumentException("Truncated \\u escape");
+                        }
+                        try {
+                            decoded.append((char) Integer.parseInt(
+                                    new String(data, position, 4, StandardCharsets.US_ASCII), 16));
+                        } catch (NumberFormatException e) {
+                            throw new IllegalArgumentException("Invalid \\u escape at column " + column());
+                        }
+                        position += 4;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Invalid escape at column " + column());
+                }
+                start = position;
+            }
+        }
+
+        /**
+         * Skips spaces and tabs.
+         */
+        private void skipWhitespace() {
+            while (position < to && (data[position] == ' ' || data[position] == '\t')) {
+                position++;
+            }
+        }
+
+        /**
+         * Returns the current position as a column, counting bytes from 1 at the start of the line.
+         */
+        private int column() {
+            int start = position;
+            while (start > 0 && data[start - 1] != '\n') {
+                start--;
+            }
+            return position - start + 1;
+        }
+    }
+}
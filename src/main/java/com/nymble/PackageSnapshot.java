@@ -0,0 +1,374 @@
+/**
+ * Compact binary snapshots of a travel package.
+ *
+ * @author Parth Ahuja
+ * @version 1.0
+ * @since 2024-01-01
+ */
+package com.nymble;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.CRC32;
+
+/**
+ * A point-in-time image of a {@link TravelPackage}: its itinerary with every activity's remaining seats
+ * and roster, and every passenger with their balance and activities, including what they paid for each. Passengers and activities are
+ * written once and referenced by number and id, so a snapshot is a flat sequence of primitives.
+ *
+ * <p>Layout: magic, version, the journal sequence number the snapshot covers, the package fields, the
+ * destinations with their activities, the passengers, and a CRC-32 of everything before it.</p>
+ */
+final class PackageSnapshot {
+
+    /**
+     * Identifies a snapshot file ("NYMB").
+     */
+    private static final int MAGIC = 0x4E594D42;
+
+    /**
+     * The format version written by this class. Version 1 lacked the amount paid for each activity.
+     */
+    private static final int VERSION = 2;
+
+    /**
+     * The oldest format version this class reads.
+     */
+    private static final int MIN_VERSION = 1;
+
+    /**
+     * The buffer size used for snapshot streams.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * All passenger types, indexed by the type code stored in snapshots.
+     */
+    private static final PassengerType[] TYPES = PassengerType.values();
+
+    /**
+     * The rebuilt package.
+     */
+    final TravelPackage travelPackage;
+
+    /**
+     * The last journal sequence number whose effect the snapshot includes.
+     */
+    final long lastSeq;
+
+    /**
+     * Every passenger in the snapshot, by passenger number.
+     */
+    final Map<Integer, Passenger> passengers;
+
+    /**
+     * The numbers of the passengers enrolled in the package.
+     */
+    final Set<Integer> enrolled;
+
+    /**
+     * Every activity in the itinerary, by id.
+     */
+    final Map<Integer, Activity> activities;
+
+    private PackageSnapshot(TravelPackage travelPackage, long lastSeq, Map<Integer, Passenger> passengers,
+                            Set<Integer> enrolled, Map<Integer, Activity> activities) {
+        this.travelPackage = travelPackage;
+        this.lastSeq = lastSeq;
+        this.passengers = passengers;
+        this.enrolled = enrolled;
+        this.activities = activities;
+    }
+
+    /**
+     * Writes a snapshot of a package and forces it to disk.
+     *
+     * @param travelPackage The package
+     * @param lastSeq The journal sequence number the snapshot covers
+     * @param file The file to write, replaced if it exists
+     * @throws IOException If the file cannot be written
+     */
+    static void write(TravelPackage travelPackage, long lastSeq, Path file) throws IOException {
+        List<Passenger> enrolledPassengers = travelPackage.getPassengers();
+        Map<Integer, Passenger> everyone = new LinkedHashMap<>();
+        for (Passenger p : enrolledPassengers) {
+            everyone.put(p.getPassengerNumber(), p);
+        }
+        for (Destination d : travelPackage.getItinerary()) {
+            for (Activity a : d.getActivities()) {
+                for (Passenger p : a.getSignedUpPassengers()) {
+                    everyone.putIfAbsent(p.getPassengerNumber(), p);
+                }
+            }
+        }
+
+        try (FileOutputStream fileOut = new FileOutputStream(file.toFile())) {
+            CRC32 crc = new CRC32();
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new CheckedOutputStream(fileOut, crc), BUFFER_SIZE));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(lastSeq);
+            out.writeUTF(travelPackage.getName());
+            out.writeInt(travelPackage.getPassengerCapacity());
+            out.writeLong(travelPackage.getBaseCostCents());
+
+            List<Destination> itinerary = travelPackage.getItinerary();
+            out.writeInt(itinerary.size());
+            for (Destination d : itinerary) {
+                out.writeUTF(d.getName());
+                out.writeLong(d.getCostCents());
+                List<Activity> activities = d.getActivities();
+                out.writeInt(activities.size());
+                for (Activity a : activities) {
+                    out.writeInt(a.getId());
+                    out.writeUTF(a.getName());
+                    out.writeUTF(a.getDescription());
+                    out.writeLong(a.getCostCents());
+                    out.writeInt(a.getCapacity());
+                    List<Passenger> roster = a.getSignedUpPassengers();
+                    out.writeInt(roster.size());
+                    for (Passenger p : roster) {
+                        out.writeInt(p.getPassengerNumber());
+                    }
+                }
+            }
+
+            out.writeInt(everyone.size());
+            int enrolledCount = enrolledPassengers.size();
+            int index = 0;
+            for (Passenger p : everyone.values()) {
+                out.writeInt(p.getPassengerNumber());
+                out.writeByte(p.getType().ordinal());
+                out.writeBoolean(index++ < enrolledCount);
+                out.writeUTF(p.getName());
+                out.writeLong(p.getBalanceCents());
+                // Indexed so that a sign-up racing with the snapshot cannot fail the iteration.
+                List<Activity> activities = p.getSignedUpActivities();
+                int activityCount = activities.size();
+                out.writeInt(activityCount);
+                for (int i = 0; i < activityCount; i++) {
+                    Activity a = activities.get(i);
+                    out.writeInt(a.getId());
+                    // The whole amount paid for an activity goes with its first entry.
+                    out.writeLong(i == activities.indexOf(a) ? p.getPaidCents(a) : 0);
+                }
+            }
+            out.flush();
+            fileOut.write(intBytes((int) crc.getValue()));
+            fileOut.getFD().sync();
+        }
+    }
+
+    /**
+     * Reads a snapshot and rebuilds the package it describes.
+     *
+     * @param file The snapshot file
+     * @return The rebuilt package and its lookup tables
+     * @throws IOException If the file cannot be read, or is damaged
+     */
+    static PackageSnapshot read(Path file) throws IOException {
+        verifyChecksum(file);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE))) {
+            int version = readHeader(in, file);
+            long lastSeq = in.readLong();
+            TravelPackage travelPackage = new TravelPackage(in.readUTF(), in.readInt());
+            long baseCostCents = in.readLong();
+
+            Map<Integer, Activity> activities = new HashMap<>();
+            List<Activity> rosterOwners = new ArrayList<>();
+            List<int[]> rosters = new ArrayList<>();
+            int destinationCount = in.readInt();
+            for (int i = 0; i < destinationCount; i++) {
+                Destination d = new Destination(in.readUTF());
+                long costCents = in.readLong();
+                int activityCount = in.readInt();
+                for (int j = 0; j < activityCount; j++) {
+                    Activity a = new Activity(in.readInt(), in.readUTF(), in.readUTF(), in.readLong(), in.readInt(), d);
+                    d.addActivity(a);
+                    activities.put(a.getId(), a);
+                    int[] roster = new int[in.readInt()];
+                    for (int k = 0; k < roster.length; k++) {
+                        roster[k] = in.readInt();
+                    }
+                    rosterOwners.add(a);
+                    rosters.add(roster);
+                }
+                d.restoreCostCents(costCents);
+                travelPackage.addDestination(d);
+            }
+            travelPackage.restoreBaseCostCents(baseCostCents);
+
+            int passengerCount = in.readInt();
+            Map<Integer, Passenger> passengers = new HashMap<>(passengerCount * 2);
+            Set<Integer> enrolled = new HashSet<>(passengerCount * 2);
+            for (int i = 0; i < passengerCount; i++) {
+                int number = in.readInt();
+                PassengerType type = TYPES[in.readByte()];
+                boolean isEnrolled = in.readBoolean();
+                Passenger p = Passenger.restore(type, in.readUTF(), in.readLong(), number);
+                int activityCount = in.readInt();
+                for (int j = 0; j < activityCount; j++) {
+                    Activity a = activities.get(in.readInt());
+                    long paidCents = version >= 2 ? in.readLong() : 0;
+                    if (a != null) {
+                        p.addPaidSignUpActivity(a, paidCents);
+                    }
+                }
+                passengers.put(number, p);
+                if (isEnrolled) {
+                    enrolled.add(number);
+                    travelPackage.restoreEnrollment(p);
+                }
+            }
+
+            for (int i = 0; i < rosterOwners.size(); i++) {
+                Activity a = rosterOwners.get(i);
+                for (int number : rosters.get(i)) {
+                    Passenger p = passengers.get(number);
+                    if (p != null) {
+                        a.addToRoster(p);
+                    }
+                }
+            }
+            return new PackageSnapshot(travelPackage, lastSeq, passengers, enrolled, activities);
+        }
+    }
+
+    /**
+     * Streams a snapshot's passengers and their seats to a visitor without rebuilding the package, and ends
+     * with {@link BookingLogVisitor#checkpoint(long)}.
+     *
+     * @param file The snapshot file
+     * @param visitor The visitor
+     * @return The last journal sequence number the snapshot includes
+     * @throws IOException If the file cannot be read, or is damaged
+     */
+    static long fold(Path file, BookingLogVisitor visitor) throws IOException {
+        verifyChecksum(file);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE))) {
+            int version = readHeader(in, file);
+            long lastSeq = in.readLong();
+            in.readUTF();
+            in.readInt();
+            in.readLong();
+
+            int destinationCount = in.readInt();
+            for (int i = 0; i < destinationCount; i++) {
+                in.readUTF();
+                in.readLong();
+                int activityCount = in.readInt();
+                for (int j = 0; j < activityCount; j++) {
+                    in.readInt();
+                    in.readUTF();
+                    in.readUTF();
+                    in.readLong();
+                    in.readInt();
+                    in.skipNBytes((long) in.readInt() * Integer.BYTES);
+                }
+            }
+
+            int passengerCount = in.readInt();
+            for (int i = 0; i < passengerCount; i++) {
+                int number = in.readInt();
+                PassengerType type = TYPES[in.readByte()];
+                boolean isEnrolled = in.readBoolean();
+                visitor.passenger(number, type, in.readUTF(), in.readLong(), isEnrolled);
+                int activityCount = in.readInt();
+                for (int j = 0; j < activityCount; j++) {
+                    int activityId = in.readInt();
+                    visitor.holding(number, activityId, version >= 2 ? in.readLong() : 0);
+                }
+            }
+            visitor.checkpoint(lastSeq);
+            return lastSeq;
+        }
+    }
+
+    /**
+     * Checks the trailing CRC-32 against the rest of the file in one sequential pass.
+     */
+    private static void verifyChecksum(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long body = channel.size() - Integer.BYTES;
+            if (body < 0) {
+                throw new IOException("Snapshot " + file + " is truncated");
+            }
+            CRC32 crc = new CRC32();
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            long position = 0;
+            while (position < body) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), body - position));
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    throw new IOException("Snapshot " + file + " is truncated");
+                }
+                position += read;
+                buffer.flip();
+                crc.update(buffer);
+            }
+            buffer.clear();
+            buffer.limit(Integer.BYTES);
+            while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) >= 0) {
+                // keep reading until the trailer is complete
+            }
+            buffer.flip();
+            if (buffer.remaining() != Integer.BYTES || buffer.getInt() != (int) crc.getValue()) {
+                throw new IOException("Snapshot " + file + " is damaged: checksum mismatch");
+            }
+        }
+    }
+
+    /**
+     * Reads only the journal sequence number a snapshot covers.
+     *
+     * @param file The snapshot file
+     * @return The sequence number
+     * @throws IOException If the file cannot be read or is not a snapshot
+     */
+    static long readLastSeq(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            readHeader(in, file);
+            return in.readLong();
+        }
+    }
+
+    /**
+     * Checks the magic number and version and returns the version. The sequence number follows.
+     */
+    private static int readHeader(DataInputStream in, Path file) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException(file + " is not a package snapshot");
+        }
+        int version = in.readInt();
+        if (version < MIN_VERSION || version > VERSION) {
+            throw new IOException("Unsupported snapshot version " + version + " in " + file);
+        }
+        return version;
+    }
+
+    /**
+     * Encodes an int big-endian, as {@link DataOutputStream#writeInt(int)} does.
+     */
+    private static byte[] intBytes(int value) {
+        return new byte[] {(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+    }
+}
@@ -8,7 +8,10 @@
 package com.nymble;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Enumerates the available passenger types.
@@ -35,9 +38,9 @@ enum PassengerType {
  */
 abstract class Passenger {
     /**
-     * A counter to generate unique passenger numbers.
+     * Generates unique passenger numbers, also across threads and restarts when configured to persist.
      */
-    static int idCount = 0;
+    private static final PassengerIdAllocator idAllocator = PassengerIdAllocator.fromSystemProperties();
 
     /**
      * The passenger's name.
@@ -50,14 +53,35 @@ abstract class Passenger {
     private int passengerNumber;
 
     /**
-     * The passenger's current balance.
+     * Guards the balance and holdings. A passenger can be booked from several threads at once: booking
+     * service workers, a waitlist promotion running on whichever thread freed a seat, and the seat-hold
+     * expiry thread.
      */
-    private double balance;
+    private final Object lock = new Object();
 
     /**
-     * A list of activities the passenger has signed up for.
+     * Held while a sign-up or cancellation is made and published, so that event sinks receive one passenger's
+     * changes in the order they were made. Taken before {@link #lock}, which is released before publishing so
+     * that readers, such as a journal taking a snapshot, never wait on a sink.
      */
-    private List<Activity> signedUpActivities;
+    private final Object publishLock = new Object();
+
+    /**
+     * The passenger's current balance, in cents. Written under {@link #lock}; volatile so that reads need
+     * not take it.
+     */
+    private volatile long balanceCents;
+
+    /**
+     * The activities the passenger holds seats on, in the order first signed up, with what was paid. A map so
+     * that a cancellation finds its activity in constant time. Guarded by {@link #lock}.
+     */
+    private Map<Activity, Holding> holdings;
+
+    /**
+     * The number of seats held across all activities. Guarded by {@link #lock}.
+     */
+    private int heldSeats;
 
     /**
      * The passenger's type (normal, silver, or gold).
@@ -73,26 +97,154 @@ abstract class Passenger {
      */
     public Passenger(String name, double balance, PassengerType type) {
         this.name = name;
-        this.passengerNumber = idCount++;
-        this.balance = balance;
-        this.signedUpActivities = new ArrayList<>();
+        this.passengerNumber = nextPassengerNumber();
+        this.balanceCents = Money.ofMajor(balance);
+        this.holdings = new LinkedHashMap<>();
+        this.type = type;
+    }
+
+    /**
+     * Reconstructs a passenger with a known passenger number, for example when recovering from a journal.
+     *
+     * @param name The passenger's name
+     * @param balanceCents The passenger's balance in cents
+     * @param type The passenger's type
+     * @param passengerNumber The passenger's existing number
+     */
+    Passenger(String name, long balanceCents, PassengerType type, int passengerNumber) {
+        this.name = name;
+        this.passengerNumber = passengerNumber;
+        this.balanceCents = balanceCents;
+        this.holdings = new LinkedHashMap<>();
+        this.type = type;
+    }
+
+    /**
+     * Constructs a passenger whose state lives elsewhere, such as a view onto a {@link PassengerStore} row.
+     * Subclasses using this constructor must override every accessor that reads passenger state.
+     *
+     * @param type The passenger's type
+     */
+    Passenger(PassengerType type) {
         this.type = type;
     }
 
     /**
-     * Signs the passenger up for an activity, handling different behaviors based on passenger type.
+     * Reconstructs a passenger of the subclass matching its type, keeping its existing passenger number.
+     * Passengers created afterwards get numbers above it.
+     *
+     * @param type The passenger's type
+     * @param name The passenger's name
+     * @param balanceCents The passenger's balance in cents
+     * @param passengerNumber The passenger's existing number
+     * @return The passenger
+     */
+    static Passenger restore(PassengerType type, String name, long balanceCents, int passengerNumber) {
+        idAllocator.reserveThrough(passengerNumber);
+        return of(type, name, balanceCents, passengerNumber);
+    }
+
+    /**
+     * Creates a passenger of the subclass matching its type, with a new passenger number and a balance
+     * already known in cents.
+     *
+     * @param type The passenger's type
+     * @param name The passenger's name
+     * @param balanceCents The passenger's balance in cents
+     * @return The passenger
+     */
+    static Passenger create(PassengerType type, String name, long balanceCents) {
+        return of(type, name, balanceCents, nextPassengerNumber());
+    }
+
+    /**
+     * Instantiates the subclass matching a passenger type.
+     */
+    private static Passenger of(PassengerType type, String name, long balanceCents, int passengerNumber) {
+        switch (type) {
+            case GOLD:
+                return new PremiumPassenger(name, balanceCents, passengerNumber);
+            case SILVER:
+                return new GoldPassenger(name, balanceCents, passengerNumber);
+            default:
+                return new NormalPassenger(name, balanceCents, passengerNumber);
+        }
+    }
+
+    /**
+     * Hands out the next unique passenger number.
+     *
+     * @return A passenger number not used before in this JVM
+     */
+    static int nextPassengerNumber() {
+        return idAllocator.next();
+    }
+
+    /**
+     * Signs the passenger up for an activity at the price of their tier, if they can afford it, a seat is
+     * free and they do not hold one already.
      *
      * @param activity The activity to sign up for
      */
-    public abstract void signUpForActivity(Activity activity);
+    public void signUpForActivity(Activity activity) {
+        signUp(activity, activityCostCents(activity));
+    }
 
     /**
      * Checks if the passenger can sign up for an activity based on their balance and the activity's cost.
      *
-     * @param cost The cost of the activity
-     * @return true if the passenger can sign up, false otherwise
+     * @param cost The list price of the activity
+     * @return true if the passenger's balance covers their tier's price for it, false otherwise
      */
-    public abstract boolean canSignUp(int cost);
+    public boolean canSignUp(int cost) {
+        return canAfford(PricingEngine.getDefault().activityPriceCents(cost * (long) Money.CENTS_PER_UNIT, type));
+    }
+
+    /**
+     * Returns what this passenger pays for an activity, from the activity's price table under the default
+     * {@link PricingEngine}.
+     *
+     * @param activity The activity
+     * @return The price in cents after any discount
+     */
+    long activityCostCents(Activity activity) {
+        return PricingEngine.getDefault().activityPriceCents(activity, type);
+    }
+
+    /**
+     * Signs the passenger up for an activity like {@link #signUpForActivity(Activity)}, and reports the outcome.
+     *
+     * @param activity The activity to sign up for
+     * @return true if the passenger was signed up
+     */
+    boolean trySignUpForActivity(Activity activity) {
+        return signUp(activity, activityCostCents(activity));
+    }
+
+    /**
+     * Signs the passenger up for an activity, joining its waitlist if it is full or others are already waiting.
+     * The price is charged when a seat is handed over; a passenger who can no longer pay by then, or who got
+     * a seat on the activity in the meantime, is passed over and the future completes with false.
+     *
+     * @param activity The activity to sign up for
+     * @return A future completed with true once the passenger is signed up
+     */
+    CompletableFuture<Boolean> signUpOrWait(Activity activity) {
+        long costCents = activityCostCents(activity);
+        if (!canAfford(costCents) || holdsSeatOn(activity)
+                || (activity.getWaitlistSize() == 0 && activity.getCapacity() > 0)) {
+            return CompletableFuture.completedFuture(signUp(activity, costCents));
+        }
+        return activity.awaitSeat(getType(), () -> {
+            if (!take(activity, activityCostCents(activity))) {
+                BookingEvents.publish(BookingEvent.signUpRejected(this, activity));
+                BookingMetrics.recordSignUp(activity, false, 0);
+                return false;
+            }
+            BookingMetrics.recordSignUp(activity, true, 0);
+            return true;
+        });
+    }
 
     /**
      * Returns the passenger's name.
@@ -118,16 +270,106 @@ abstract class Passenger {
      * @return The passenger's balance
      */
     public double getBalance() {
-        return balance;
+        return Money.toMajor(getBalanceCents());
+    }
+
+    /**
+     * Returns the passenger's current balance in cents.
+     *
+     * @return The passenger's balance in cents
+     */
+    public long getBalanceCents() {
+        return balanceCents;
     }
 
     /**
      * Returns a list of activities the passenger has signed up for.
      *
-     * @return The list of signed-up activities
+     * @return A copy of the signed-up activities, in the order first signed up, with an activity repeated for
+     *         each seat held on it
      */
     public List<Activity> getSignedUpActivities() {
-        return signedUpActivities;
+        synchronized (lock) {
+            List<Activity> activities = new ArrayList<>(heldSeats);
+            for (Map.Entry<Activity, Holding> entry : holdings.entrySet()) {
+                for (int i = 0; i < entry.getValue().seats; i++) {
+                    activities.add(entry.getKey());
+                }
+            }
+            return activities;
+        }
+    }
+
+    /**
+     * Returns the number of seats the passenger holds across all activities.
+     *
+     * @return The seat count, the size of {@link #getSignedUpActivities()}
+     */
+    int getSignedUpActivityCount() {
+        synchronized (lock) {
+            return heldSeats;
+        }
+    }
+
+    /**
+     * Checks whether the passenger holds a seat on an activity.
+     *
+     * @param activity The activity
+     * @return true if the passenger has signed up for it
+     */
+    public boolean holdsActivity(Activity activity) {
+        synchronized (lock) {
+            return holdings.containsKey(activity);
+        }
+    }
+
+    /**
+     * Returns what the passenger has paid, and not had refunded, for an activity.
+     *
+     * @param activity The activity
+     * @return The amount in cents
+     */
+    long getPaidCents(Activity activity) {
+        synchronized (lock) {
+            Holding holding = holdings.get(activity);
+            return holding == null ? 0 : holding.paidCents;
+        }
+    }
+
+    /**
+     * Cancels one of the passenger's seats on an activity: the seat goes back to the activity, where it may be
+     * handed to the waitlist, and what the passenger paid for it is refunded. Seats that came with a package
+     * enrollment were not paid for separately and refund nothing. Also cancels a place taken through
+     * {@link Activity#signUpPassenger(Passenger)}, which involves no payment.
+     *
+     * @param activity The activity
+     * @return true if the passenger held a seat on it
+     */
+    public boolean cancelActivity(Activity activity) {
+        BookingEvent cancelled = null;
+        synchronized (publishLock) {
+            synchronized (lock) {
+                long refundCents = removeFromSignUpActivities(activity);
+                if (refundCents >= 0) {
+                    credit(refundCents);
+                    cancelled = BookingEvent.cancelled(this, activity, refundCents, getSignedUpActivityCount(),
+                            getBalanceCents());
+                }
+            }
+            if (cancelled != null) {
+                BookingEvents.publish(cancelled);
+            }
+        }
+        if (cancelled != null) {
+            // A passenger restored with several seats on the activity stays listed until the last one goes.
+            if (!holdsActivity(activity)) {
+                activity.removeFromRoster(this);
+            }
+        } else if (!activity.removeFromRoster(this)) {
+            return false;
+        }
+        activity.releaseSeat();
+        return true;
     }
 
     /**
@@ -145,7 +387,159 @@ abstract class Passenger {
      * @param a The activity to add
      */
     protected void addToSignUpActivities(Activity a) {
-        this.signedUpActivities.add(a);
+        addPaidSignUpActivity(a, 0);
+    }
+
+    /**
+     * Adds several activities to the passenger's list of signed-up activities.
+     *
+     * @param activities The activities to add
+     */
+    protected void addAllToSignUpActivities(List<Activity> activities) {
+        for (Activity a : activities) {
+            addPaidSignUpActivity(a, 0);
+        }
+    }
+
+    /**
+     * Adds a seat on an activity to the passenger's list, together with what was paid for it.
+     *
+     * @param a The activity to add
+     * @param paidCents The amount paid in cents
+     */
+    protected void addPaidSignUpActivity(Activity a, long paidCents) {
+        synchronized (lock) {
+            Holding holding = holdings.computeIfAbsent(a, activity -> new Holding());
+            holding.seats++;
+            holding.paidCents += paidCents;
+            heldSeats++;
+        }
+    }
+
+    /**
+     * Removes one seat on an activity from the passenger's list. When several seats are held on the activity,
+     * each refunds an equal share of what was paid for them.
+     *
+     * @param a The activity
+     * @return The amount paid for the seat in cents, or -1 if the passenger holds no seat on the activity
+     */
+    protected long removeFromSignUpActivities(Activity a) {
+        synchronized (lock) {
+            Holding holding = holdings.get(a);
+            if (holding == null) {
+                return -1;
+            }
+            long refundCents = holding.paidCents / holding.seats;
+            holding.paidCents -= refundCents;
+            if (--holding.seats == 0) {
+                holdings.remove(a);
+            }
+            heldSeats--;
+            return refundCents;
+        }
+    }
+
+    /**
+     * Signs the passenger up for an activity at the given price if they can afford it, a seat is free and
+     * they do not hold one already, and publishes the outcome. The seat is claimed first and the passenger
+     * charged only once they hold it; if the balance no longer covers the price by then, the seat is given
+     * back.
+     *
+     * @param activity The activity to sign up for
+     * @param costCents The price this passenger pays for the activity, in cents
+     * @return true if the passenger was signed up
+     */
+    protected boolean signUp(Activity activity, long costCents) {
+        long start = BookingMetrics.startTimer();
+        if (canAfford(costCents) && !holdsSeatOn(activity)
+                && activity.getDestination().decreaseActivityCapacity(activity)) {
+            if (take(activity, costCents)) {
+                BookingMetrics.recordSignUp(activity, true, start);
+                return true;
+            }
+            activity.releaseSeat();
+        }
+        BookingEvents.publish(BookingEvent.signUpRejected(this, activity));
+        BookingMetrics.recordSignUp(activity, false, start);
+        return false;
+    }
+
+    /**
+     * Checks whether the passenger's balance covers a price.
+     *
+     * @param costCents The price in cents
+     * @return true if the price is free or within the balance
+     */
+    private boolean canAfford(long costCents) {
+        return costCents <= 0 || getBalanceCents() >= costCents;
+    }
+
+    /**
+     * Checks whether the passenger holds a seat on an activity, paid for or listed on its roster.
+     *
+     * @param activity The activity
+     * @return true if the passenger holds a seat on it
+     */
+    private boolean holdsSeatOn(Activity activity) {
+        return holdsActivity(activity) || activity.isSignedUp(this);
+    }
+
+    /**
+     * Lists the passenger on the roster of an activity whose seat they have claimed, and charges them for it.
+     * Listing is what makes a second seat on the same activity impossible: a passenger already listed is
+     * turned away before being charged. The caller gives the seat back if this fails.
+     *
+     * @param activity The activity
+     * @param costCents The price in cents
+     * @return true if the passenger was listed and charged
+     */
+    private boolean take(Activity activity, long costCents) {
+        if (!activity.addToRoster(this)) {
+            return false;
+        }
+        if (!charge(activity, costCents)) {
+            activity.removeFromRoster(this);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Charges the passenger for an activity whose seat is already taken care of, records it and publishes
+     * the sign-up, unless the balance does not cover the price or the passenger already holds the activity.
+     * The event carries the seat count and balance
+     * as they stood right after the charge.
+     *
+     * @param activity The activity
+     * @param costCents The price in cents
+     * @return true if the passenger was charged, false if their balance was short or they held the activity
+     */
+    private boolean charge(Activity activity, long costCents) {
+        synchronized (publishLock) {
+            BookingEvent signedUp;
+            synchronized (lock) {
+                if (!canAfford(costCents) || holdsActivity(activity)) {
+                    return false;
+                }
+                setBalanceCents(getBalanceCents() - costCents);
+                addPaidSignUpActivity(activity, costCents);
+                signedUp = BookingEvent.signedUp(this, activity, costCents, getSignedUpActivityCount(),
+                        getBalanceCents());
+            }
+            BookingEvents.publish(signedUp);
+        }
+        return true;
+    }
+
+    /**
+     * Adds a refund to the passenger's balance.
+     *
+     * @param amountCents The amount in cents
+     */
+    private void credit(long amountCents) {
+        synchronized (lock) {
+            setBalanceCents(getBalanceCents() + amountCents);
+        }
     }
 
     /**
@@ -154,7 +548,32 @@ abstract class Passenger {
      * @param balance The new balance
      */
     protected void setBalance(double balance) {
-    this.balance = balance;
+        setBalanceCents(Money.ofMajor(balance));
+    }
+
+    /**
+     * Sets the passenger's current balance in cents.
+     *
+     * @param balanceCents The new balance in cents
+     */
+    protected void setBalanceCents(long balanceCents) {
+        this.balanceCents = balanceCents;
+    }
+
+    /**
+     * The seats a passenger holds on one activity.
+     */
+    private static final class Holding {
+
+        /**
+         * The number of seats held.
+         */
+        int seats;
+
+        /**
+         * What was paid for them and not yet refunded, in cents.
+         */
+        long paidCents;
     }
 }
 
@@ -171,32 +590,14 @@ class PremiumPassenger extends Passenger {
     }
 
     /**
-     * {@inheritDoc}
+     * Reconstructs a passenger with a known passenger number.
      *
-     * Always returns true for gold passengers, as they have unlimited access to activities.
-     */
-    @Override
-    public boolean canSignUp(int cost) {
-        return true;
-    }
-
-    /**
-     * {@inheritDoc}
-     *
-     * Signs up the gold passenger for the activity without deducting any cost,
-     * and decreases the activity's capacity if available.
+     * @param name The passenger's name
+     * @param balanceCents The passenger's balance in cents
+     * @param passengerNumber The passenger's existing number
      */
-    @Override
-    public void signUpForActivity(Activity activity) {
-        if (activity.getCapacity() > 0) {
-            activity.getDestination().decreaseActivityCapacity(activity);
-            addToSignUpActivities(activity);
-            System.out.println(getName() + " (" + getType() + ") signed up for " + activity.getName() +
-                    " at " + activity.getDestination().getName() +
-                    " for a discounted cost of " + 0);
-        } else {
-            System.out.println("Unable to sign up for activity. Activity is full.");
-        }
+    PremiumPassenger(String name, long balanceCents, int passengerNumber) {
+        super(name, balanceCents, PassengerType.GOLD, passengerNumber);
     }
 }
 
@@ -213,36 +614,14 @@ class GoldPassenger extends Passenger {
     }
 
     /**
-     * {@inheritDoc}
-     *
-     * Checks if the silver passenger can sign up for an activity based on their balance and
-     * the discounted cost (10% off).
-     */
-    @Override
-    public boolean canSignUp(int cost) {
-        return cost * 0.9 >= this.getBalance();
-    }
-
-    /**
-     * {@inheritDoc}
+     * Reconstructs a passenger with a known passenger number.
      *
-     * Signs up the silver passenger for the activity, deducting the discounted cost from their balance,
-     * and decreases the activity's capacity if available.
+     * @param name The passenger's name
+     * @param balanceCents The passenger's balance in cents
+     * @param passengerNumber The passenger's existing number
      */
-    @Override
-    public void signUpForActivity(Activity activity) {
-        double cost = 0.9 * activity.getCost();
-
-        if (getBalance() >= cost && activity.getCapacity() > 0) {
-            setBalance(getBalance() - cost);
-            activity.getDestination().decreaseActivityCapacity(activity);
-            addToSignUpActivities(activity);
-            System.out.println(getName() + " (" + getType() + ") signed up for " + activity.getName() +
-                    " at " + activity.getDestination().getName() +
-                    " for a cost of " + cost);
-        } else {
-            System.out.println("Unable to sign up for activity. Insufficient balance or activity is full.");
-        }
+    GoldPassenger(String name, long balanceCents, int passengerNumber) {
+        super(name, balanceCents, PassengerType.SILVER, passengerNumber);
     }
 }
 
@@ -259,32 +638,13 @@ class NormalPassenger extends Passenger {
     }
 
     /**
-     * {@inheritDoc}
+     * Reconstructs a passenger with a known passenger number.
      *
-     * Checks if the normal passenger can sign up for an activity based on their balance and the full cost.
+     * @param name The passenger's name
+     * @param balanceCents The passenger's balance in cents
+     * @param passengerNumber The passenger's existing number
      */
-    @Override
-    public boolean canSignUp(int cost) {
-        return cost >= this.getBalance();
-    }
-
-    /**
-     * {@inheritDoc}
-     *
-     * Signs up the normal passenger for the activity, deducting the full cost from their balance,
-    * and decreases the activity's capacity if available.
-    */
-    @Override
-    public void signUpForActivity(Activity activity) {
-        if (getBalance() >= activity.getCost() && activity.getCapacity() > 0) {
-            setBalance(getBalance() - activity.getCost());
-            activity.getDestination().decreaseActivityCapacity(activity);
-            addToSignUpActivities(activity);
-            System.out.println(getName() + " (" + getType() + ") signed up for " + activity.getName() +
-                    " at " + activity.getDestination().getName() +
-                    " for a cost of " + activity.getCost());
-        } else {
-            System.out.println("Unable to sign up for activity. Insufficient balance or activity is full.");
-        }
+    NormalPassenger(String name, long balanceCents, int passengerNumber) {
+        super(name, balanceCents, PassengerType.NORMAL, passengerNumber);
     }
 }
@@ -0,0 +1,248 @@
+/**
+ * Hands out passenger numbers.
+ *
+ * @author Parth Ahuja
+ * @version 1.0
+ * @since 2024-01-01
+ */
+package com.nymble;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Allocates unique passenger numbers without a shared counter on the hot path. Each thread takes a
+ * block of consecutive numbers from a global atomic cursor and then hands them out locally, so threads
+ * only meet once per block. Virtual threads, which are usually short-lived, take single numbers from the
+ * cursor instead. Numbers are unique but, across threads, not in creation order.
+ *
+ * <p>When given a high-water-mark file, the allocator leases ranges of blocks ahead of use and records
+ * the end of each lease durably before handing out any number in it. A restarted allocator resumes at the
+ * recorded mark, so numbers stay unique across restarts; at most one unused lease is skipped per restart.</p>
+ */
+public final class PassengerIdAllocator {
+
+    /**
+     * The system property naming the high-water-mark file used by {@link #fromSystemProperties()}.
+     */
+    public static final String FILE_PROPERTY = "nymble.passengerIds.file";
+
+    /**
+     * The number of passenger numbers a thread takes at a time, unless configured otherwise.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 1024;
+
+    /**
+     * The number of blocks covered by one durable lease.
+     */
+    private static final int BLOCKS_PER_LEASE = 64;
+
+    /**
+     * The number of passenger numbers a thread takes at a time.
+     */
+    private final int blockSize;
+
+    /**
+     * Where the high-water mark is persisted, or null for an in-memory allocator.
+     */
+    private final Path highWaterFile;
+
+    /**
+     * The first number of the next unclaimed block.
+     */
+    private final AtomicLong nextBlockStart;
+
+    /**
+     * The highest number reserved by {@link #reserveThrough(int)}, or -1. A thread whose block has not yet
+     * got past it takes a fresh block.
+     */
+    private volatile long reservedThrough = -1;
+
+    /**
+     * The end (exclusive) of the range already recorded in the high-water-mark file.
+     */
+    private volatile long leasedUpTo;
+
+    /**
+     * The block each thread is currently handing out numbers from.
+     */
+    private final ThreadLocal<Block> blocks = ThreadLocal.withInitial(Block::new);
+
+    /**
+     * Constructs an in-memory allocator starting at 0.
+     *
+     * @param blockSize The number of passenger numbers a thread takes at a time
+     */
+    public PassengerIdAllocator(int blockSize) {
+        this.blockSize = blockSize;
+        this.highWaterFile = null;
+        this.nextBlockStart = new AtomicLong();
+    }
+
+    /**
+     * Constructs an allocator that persists its high-water mark, resuming from the mark in the file if
+     * one exists.
+     *
+     * @param blockSize The number of passenger numbers a thread takes at a time
+     * @param highWaterFile The file holding the high-water mark
+     */
+    public PassengerIdAllocator(int blockSize, Path highWaterFile) {
+        this.blockSize = blockSize;
+        this.highWaterFile = highWaterFile;
+        long mark = readHighWaterMark(highWaterFile);
+        this.nextBlockStart = new AtomicLong(mark);
+        this.leasedUpTo = mark;
+    }
+
+    /**
+     * Creates the allocator used for passenger construction. It persists to the file named by the
+     * {@value #FILE_PROPERTY} system property, or keeps everything in memory if the property is unset.
+     *
+     * @return The allocator
+     */
+    static PassengerIdAllocator fromSystemProperties() {
+        String file = System.getProperty(FILE_PROPERTY);
+        return file == null
+                ? new PassengerIdAllocator(DEFAULT_BLOCK_SIZE)
+                : new PassengerIdAllocator(DEFAULT_BLOCK_SIZE, Paths.get(file));
+    }
+
+    /**
+     * Returns a passenger number that has not been returned before.
+     *
+     * @return The passenger number
+     * @throws IllegalStateException If all passenger numbers have been used
+     */
+    public int next() {
+        if (Thread.currentThread().isVirtual()) {
+            // Virtual threads are typically one per request, so a block each would waste almost all of it.
+            return claim(1);
+        }
+        Block block = blocks.get();
+        if (block.next == block.end || block.next <= reservedThrough) {
+            refill(block);
+        }
+        return (int) block.next++;
+    }
+
+    /**
+     * Makes sure numbers handed out from now on are above {@code number}, for example because passengers
+     * with numbers up to it were restored from a journal written by an earlier run. Blocks threads already
+     * hold below it are abandoned.
+     *
+     * @param number The highest passenger number already taken
+     */
+    public void reserveThrough(int number) {
+        if (number <= reservedThrough) {
+            return;
+        }
+        long end = nextBlockStart.accumulateAndGet(number + 1L, Math::max);
+        if (highWaterFile != null && end > leasedUpTo) {
+            extendLease(end);
+        }
+        synchronized (this) {
+            if (number > reservedThrough) {
+                reservedThrough = number;
+            }
+        }
+    }
+
+    /**
+     * Claims a fresh block for the calling thread, extending the durable lease first if needed.
+     *
+     * @param block The calling thread's block
+     */
+    private void refill(Block block) {
+        long start = claim(blockSize);
+        block.next = start;
+        block.end = start + blockSize;
+    }
+
+    /**
+     * Claims a range of numbers from the global cursor, extending the durable lease first if needed.
+     *
+     * @param count The number of numbers to claim
+     * @return The first number of the range
+     */
+    private int claim(int count) {
+        long start = nextBlockStart.getAndAdd(count);
+        long end = start + count;
+        if (end - 1 > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Passenger numbers exhausted");
+        }
+        if (highWaterFile != null && end > leasedUpTo) {
+            extendLease(end);
+        }
+        return (int) start;
+    }
+
+    /**
+     * Records a new high-water mark covering at least {@code end}.
+     *
+     * @param end The end (exclusive) of the block about to be handed out
+     */
+    private synchronized void extendLease(long end) {
+        if (end <= leasedUpTo) {
+            return;
+        }
+        long mark = Math.min(end + (long) blockSize * (BLOCKS_PER_LEASE - 1), Integer.MAX_VALUE + 1L);
+        writeHighWaterMark(highWaterFile, mark);
+        leasedUpTo = mark;
+    }
+
+    /**
+     * Reads a high-water mark, treating a missing file as 0.
+     *
+     * @param file The file
+     * @return The mark
+     */
+    private static long readHighWaterMark(Path file) {
+        try {
+            if (!Files.exists(file)) {
+                return 0;
+            }
+            return ByteBuffer.wrap(Files.readAllBytes(file)).getLong();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read passenger id high-water mark from " + file, e);
+        }
+    }
+
+    /**
+     * Durably replaces the high-water mark: writes and syncs a temporary file, then renames it over the old one.
+     *
+     * @param file The file
+     * @param mark The new mark
+     */
+    private static void writeHighWaterMark(Path file, long mark) {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES).putLong(0, mark);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot persist passenger id high-water mark to " + file, e);
+        }
+    }
+
+    /**
+     * A range of passenger numbers owned by one thread.
+     */
+    private static final class Block {
+        long next;
+        long end;
+    }
+}
@@ -0,0 +1,388 @@
+/**
+ * Stores very large rosters in a columnar layout.
+ *
+ * @author Parth Ahuja
+ * @version 1.0
+ * @since 2024-01-01
+ */
+package com.nymble;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A struct-of-arrays passenger store. Each passenger is a row across parallel primitive arrays
+ * (id, balance in minor units, type code, activity ids) instead of a separate object graph, so a roster
+ * of millions costs a few dozen bytes per passenger and scans walk contiguous memory.
+ *
+ * <p>Rows are exposed through the regular {@link Passenger} API by flyweight views from {@link #get(int)}.
+ * Views hold nothing but their row index; every read and write goes straight to the arrays, and a view
+ * can be discarded and recreated at any time. The store is not thread-safe.</p>
+ */
+public class PassengerStore {
+
+    /**
+     * All passenger types, indexed by their type code.
+     */
+    private static final PassengerType[] TYPES = PassengerType.values();
+
+    /**
+     * The number of rows in use.
+     */
+    private int size;
+
+    /**
+     * The passenger number of each row.
+     */
+    private int[] ids;
+
+    /**
+     * The name of each row.
+     */
+    private String[] names;
+
+    /**
+     * The balance of each row, in minor units.
+     */
+    private long[] balances;
+
+    /**
+     * The {@link PassengerType} ordinal of each row.
+     */
+    private byte[] types;
+
+    /**
+     * The ids of the activities each row has signed up for, or null for none. Only the first
+     * {@code activityCounts[row]} entries are in use.
+     */
+    private int[][] activityIds;
+
+    /**
+     * What each row paid for each of its activities, parallel to {@link #activityIds}, in minor units. Null
+     * until the row holds an activity.
+     */
+    private long[][] activityPaid;
+
+    /**
+     * The number of activity ids in use for each row.
+     */
+    private int[] activityCounts;
+
+    /**
+     * The activities referenced by any row, by id, so that views can hand out {@link Activity} objects.
+     */
+    private final Map<Integer, Activity> activitiesById = new HashMap<>();
+
+    /**
+     * Constructs an empty store.
+     *
+     * @param initialCapacity The number of rows to allocate up front
+     */
+    public PassengerStore(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        this.ids = new int[capacity];
+        this.names = new String[capacity];
+        this.balances = new long[capacity];
+        this.types = new byte[capacity];
+        this.activityIds = new int[capacity][];
+        this.activityPaid = new long[capacity][];
+        this.activityCounts = new int[capacity];
+    }
+
+    /**
+     * Adds a passenger row.
+     *
+     * @param name The passenger's name
+     * @param balance The passenger's initial balance
+     * @param type The passenger's type
+     * @return A view onto the new row
+     */
+    public Passenger add(String name, double balance, PassengerType type) {
+        if (size == ids.length) {
+            grow();
+        }
+        int row = size++;
+        ids[row] = Passenger.nextPassengerNumber();
+        names[row] = name;
+        balances[row] = Money.ofMajor(balance);
+        types[row] = (byte) type.ordinal();
+        return new StoredPassenger(row);
+    }
+
+    /**
+     * Returns a view onto a row.
+     *
+     * @param row The row index, from 0 to {@link #size()} - 1
+     * @return A passenger backed by the row
+     */
+    public Passenger get(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        }
+        return new StoredPassenger(row);
+    }
+
+    /**
+     * Returns the number of passengers in the store.
+     *
+     * @return The row count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Counts the passengers of each type in one pass over the type column.
+     *
+     * @return The counts, indexed by {@link PassengerType#ordinal()}
+     */
+    public int[] countByType() {
+        int[] counts = new int[TYPES.length];
+        for (int row = 0; row < size; row++) {
+            counts[types[row]]++;
+        }
+        return counts;
+    }
+
+    /**
+     * Calculates what every stored passenger would pay for a travel package, scanning only the type column.
+     *
+     * @param travelPackage The package to price
+     * @return The sum of {@link TravelPackage#calculateTotalCostCents(Passenger)} over all rows
+     */
+    public long calculateTotalCostCents(TravelPackage travelPackage) {
+        int[] counts = countByType();
+        long total = 0;
+        for (PassengerType type : TYPES) {
+            total += counts[type.ordinal()] * travelPackage.calculateTotalCostCents(type);
+        }
+        return total;
+    }
+
+    /**
+     * Sums all balances in one pass over the balance column.
+     *
+     * @return The total balance in cents
+     */
+    public long totalBalanceCents() {
+        long total = 0;
+        for (int row = 0; row < size; row++) {
+            total += balances[row];
+        }
+        return total;
+    }
+
+    /**
+     * Writes one passenger line per row in the same format as the passenger section of
+     * {@link TravelPackage#writeReport(Appendable)}.
+     *
+     * @param travelPackage The package used to price each passenger
+     * @param out The destination for the lines
+     * @throws IOException If the destination cannot be written
+     */
+    public void writeRoster(TravelPackage travelPackage, Appendable out) throws IOException {
+        String[] costByType = new String[TYPES.length];
+        for (PassengerType type : TYPES) {
+            costByType[type.ordinal()] = Money.format(travelPackage.calculateTotalCostCents(type));
+        }
+        for (int row = 0; row < size; row++) {
+            out.append("    - ").append(names[row])
+                    .append(" (").append(TYPES[types[row]].name())
+                    .append(", Balance: ").append(Money.format(balances[row]))
+                    .append(", Total Cost: ").append(costByType[types[row]])
+                    .append(")\n");
+        }
+    }
+
+    /**
+     * Doubles the capacity of every column.
+     */
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        names = Arrays.copyOf(names, capacity);
+        balances = Arrays.copyOf(balances, capacity);
+        types = Arrays.copyOf(types, capacity);
+        activityIds = Arrays.copyOf(activityIds, capacity);
+        activityPaid = Arrays.copyOf(activityPaid, capacity);
+        activityCounts = Arrays.copyOf(activityCounts, capacity);
+    }
+
+    /**
+     * Appends an activity id to a row's membership array.
+     *
+     * @param row The row
+     * @param activity The activity
+     * @param paidCents What was paid for the activity, in minor units
+     */
+    private void addActivity(int row, Activity activity, long paidCents) {
+        activitiesById.putIfAbsent(activity.getId(), activity);
+        int[] memberships = activityIds[row];
+        int count = activityCounts[row];
+        if (memberships == null) {
+            memberships = activityIds[row] = new int[4];
+            activityPaid[row] = new long[4];
+        } else if (count == memberships.length) {
+            memberships = activityIds[row] = Arrays.copyOf(memberships, count * 2);
+            activityPaid[row] = Arrays.copyOf(activityPaid[row], count * 2);
+        }
+        memberships[count] = activity.getId();
+        activityPaid[row][count] = paidCents;
+        activityCounts[row] = count + 1;
+    }
+
+    /**
+     * Finds the last entry of an activity in a row's membership array. Rows hold a handful of activities, so
+     * a scan is as quick as any index.
+     *
+     * @param row The row
+     * @param activity The activity
+     * @return The position, or -1 if the row does not hold the activity
+     */
+    private int findActivity(int row, Activity activity) {
+        int[] memberships = activityIds[row];
+        for (int i = activityCounts[row] - 1; i >= 0; i--) {
+            if (memberships[i] == activity.getId()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Removes the last entry of an activity from a row's membership array, keeping the others in order.
+     *
+     * @param row The row
+     * @param activity The activity
+     * @return What was paid for the removed entry, or -1 if the row does not hold the activity
+     */
+    private long removeActivity(int row, Activity activity) {
+        int position = findActivity(row, activity);
+        if (position < 0) {
+            return -1;
+        }
+        long paidCents = activityPaid[row][position];
+        int tail = activityCounts[row] - position - 1;
+        System.arraycopy(activityIds[row], position + 1, activityIds[row], position, tail);
+        System.arraycopy(activityPaid[row], position + 1, activityPaid[row], position, tail);
+        activityCounts[row]--;
+        return paidCents;
+    }
+
+    /**
+     * A flyweight {@link Passenger} that reads and writes one row of the store.
+     */
+    private final class StoredPassenger extends Passenger {
+
+        /**
+         * The row this view is backed by.
+         */
+        private final int row;
+
+        StoredPassenger(int row) {
+            super(TYPES[types[row]]);
+            this.row = row;
+        }
+
+        @Override
+        public String getName() {
+            return names[row];
+        }
+
+        @Override
+        public int getPassengerNumber() {
+            return ids[row];
+        }
+
+        @Override
+        public long getBalanceCents() {
+            return balances[row];
+        }
+
+        @Override
+        protected void setBalanceCents(long balanceCents) {
+            balances[row] = balanceCents;
+        }
+
+        @Override
+        public List<Activity> getSignedUpActivities() {
+            final int[] memberships = activityIds[row];
+            final int count = activityCounts[row];
+            return new AbstractList<Activity>() {
+                @Override
+                public Activity get(int index) {
+                    if (index < 0 || index >= count) {
+                        throw new IndexOutOfBoundsException("Index " + index + " of " + count);
+                    }
+                    return activitiesById.get(memberships[index]);
+                }
+
+                @Override
+                public int size() {
+                    return count;
+                }
+            };
+        }
+
+        @Override
+        protected void addToSignUpActivities(Activity a) {
+            addActivity(row, a, 0);
+        }
+
+        @Override
+        protected void addAllToSignUpActivities(List<Activity> activities) {
+            for (Activity a : activities) {
+                addActivity(row, a, 0);
+            }
+        }
+
+        @Override
+        protected void addPaidSignUpActivity(Activity a, long paidCents) {
+            addActivity(row, a, paidCents);
+        }
+
+        @Override
+        protected long removeFromSignUpActivities(Activity a) {
+            return removeActivity(row, a);
+        }
+
+        @Override
+        int getSignedUpActivityCount() {
+            return activityCounts[row];
+        }
+
+        @Override
+        public boolean holdsActivity(Activity activity) {
+            return findActivity(row, activity) >= 0;
+        }
+
+        @Override
+        long getPaidCents(Activity activity) {
+            long paidCents = 0;
+            for (int i = 0; i < activityCounts[row]; i++) {
+                if (activityIds[row][i] == activity.getId()) {
+                    paidCents += activityPaid[row][i];
+                }
+            }
+            return paidCents;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof StoredPassenger && ((StoredPassenger) o).row == row && ((StoredPassenger) o).store() == store();
+        }
+
+        @Override
+        public int hashCode() {
+            return ids[row];
+        }
+
+        private PassengerStore store() {
+            return PassengerStore.this;
+        }
+    }
+}
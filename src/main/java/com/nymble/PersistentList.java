@@ -0,0 +1,344 @@
+/**
+ * Immutable list with structural sharing.
+ *
+ * @author Parth Ahuja
+ * @version 1.0
+ * @since 2024-01-01
+ */
+package com.nymble;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable list, backed by a balanced binary tree, that is updated by making a new version. Each element
+ * has a key that increases in list order. {@link #append(Object)} and {@link #removeKey(long)} copy only the
+ * O(log n) nodes on the path they change and share the rest with the old version, so every version stays valid
+ * and can be handed to readers as a snapshot: they iterate it without locks or copies while writers move on to
+ * newer versions.
+ *
+ * <p>{@link #get(int)} walks the tree by subtree sizes and takes O(log n); iterate rather than index when
+ * visiting every element. The list rejects every mutator inherited from {@link java.util.List}.</p>
+ *
+ * @param <E> The element type
+ */
+final class PersistentList<E> extends AbstractList<E> {
+
+    /**
+     * The list with no elements.
+     */
+    private static final PersistentList<Object> EMPTY = new PersistentList<>(null);
+
+    /**
+     * One element and the subtrees of elements before and after it.
+     */
+    private static final class Node<E> {
+
+        /**
+         * The element's key.
+         */
+        final long key;
+
+        /**
+         * The element.
+         */
+        final E value;
+
+        /**
+         * The elements with smaller keys, or null.
+         */
+        final Node<E> left;
+
+        /**
+         * The elements with larger keys, or null.
+         */
+        final Node<E> right;
+
+        /**
+         * The height of this subtree, 1 for a leaf.
+         */
+        final int height;
+
+        /**
+         * The number of elements in this subtree.
+         */
+        final int size;
+
+        /**
+         * Constructs a node.
+         *
+         * @param key The element's key
+         * @param value The element
+         * @param left The elements with smaller keys
+         * @param right The elements with larger keys
+         */
+        Node(long key, E value, Node<E> left, Node<E> right) {
+            this.key = key;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(height(left), height(right)) + 1;
+            this.size = size(left) + size(right) + 1;
+        }
+    }
+
+    /**
+     * The root of the tree, or null if the list is empty.
+     */
+    private final Node<E> root;
+
+    /**
+     * Constructs a list over a tree.
+     *
+     * @param root The root, or null
+     */
+    private PersistentList(Node<E> root) {
+        this.root = root;
+    }
+
+    /**
+     * Returns the empty list.
+     *
+     * @param <E> The element type
+     * @return The empty list
+     */
+    @SuppressWarnings("unchecked")
+    static <E> PersistentList<E> empty() {
+        return (PersistentList<E>) EMPTY;
+    }
+
+    /**
+     * Returns a new version with an element added at the end, keyed one above the current last key.
+     *
+     * @param element The element
+     * @return The new version
+     */
+    PersistentList<E> append(E element) {
+        return new PersistentList<>(insert(root, root == null ? 0 : lastKey() + 1, element));
+    }
+
+    /**
+     * Returns a new version with several elements added at the end, in iteration order. The new elements are
+     * built into a balanced tree in O(k) and joined to the existing one in O(log n), rather than appended one
+     * path copy at a time.
+     *
+     * @param elements The elements
+     * @return The new version, or this list if there are no elements
+     */
+    @SuppressWarnings("unchecked")
+    PersistentList<E> appendAll(Collection<? extends E> elements) {
+        Object[] added = elements.toArray();
+        if (added.length == 0) {
+            return this;
+        }
+        long firstKey = root == null ? 0 : lastKey() + 1;
+        if (root == null) {
+            return new PersistentList<>(build(added, 0, added.length, firstKey));
+        }
+        return new PersistentList<>(join(root, firstKey, (E) added[0], build(added, 1, added.length, firstKey)));
+    }
+
+    /**
+     * Returns a new version without the element with a key.
+     *
+     * @param key The key
+     * @return The new version, or this list if no element has the key
+     */
+    PersistentList<E> removeKey(long key) {
+        Node<E> updated = delete(root, key);
+        return updated == root ? this : new PersistentList<>(updated);
+    }
+
+    /**
+     * Returns the key of the last element.
+     *
+     * @return The largest key
+     * @throws NoSuchElementException If the list is empty
+     */
+    long lastKey() {
+        if (root == null) {
+            throw new NoSuchElementException();
+        }
+        Node<E> node = root;
+        while (node.right != null) {
+            node = node.right;
+        }
+        return node.key;
+    }
+
+    @Override
+    public E get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index " + index + " of " + size());
+        }
+        Node<E> node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index == leftSize) {
+                return node.value;
+            } else {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return size(root);
+    }
+
+    /**
+     * Returns an iterator that walks the tree in order, O(1) amortized per element.
+     *
+     * @return The iterator
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+            private final Deque<Node<E>> path = new ArrayDeque<>();
+
+            {
+                pushLeft(root);
+            }
+
+            private void pushLeft(Node<E> node) {
+                for (; node != null; node = node.left) {
+                    path.push(node);
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return !path.isEmpty();
+            }
+
+            @Override
+            public E next() {
+                if (path.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                Node<E> node = path.pop();
+                pushLeft(node.right);
+                return node.value;
+            }
+        };
+    }
+
+    private static int height(Node<?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static int size(Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    /**
+     * Returns a copy of a subtree with an element added.
+     */
+    private static <E> Node<E> insert(Node<E> node, long key, E value) {
+        if (node == null) {
+            return new Node<>(key, value, null, null);
+        }
+        if (key < node.key) {
+            return balance(node.key, node.value, insert(node.left, key, value), node.right);
+        }
+        return balance(node.key, node.value, node.left, insert(node.right, key, value));
+    }
+
+    /**
+     * Builds a perfectly balanced tree over a range of elements, keying each by {@code firstKey} plus its
+     * index.
+     */
+    @SuppressWarnings("unchecked")
+    private static <E> Node<E> build(Object[] elements, int from, int to, long firstKey) {
+        if (from >= to) {
+            return null;
+        }
+        int mid = (from + to) >>> 1;
+        return new Node<>(firstKey + mid, (E) elements[mid], build(elements, from, mid, firstKey),
+                build(elements, mid + 1, to, firstKey));
+    }
+
+    /**
+     * Joins two trees and an element whose key lies between theirs, descending the taller tree until the
+     * heights match and rebalancing on the way back up.
+     */
+    private static <E> Node<E> join(Node<E> left, long key, E value, Node<E> right) {
+        if (height(left) > height(right) + 1) {
+            return balance(left.key, left.value, left.left, join(left.right, key, value, right));
+        }
+        if (height(right) > height(left) + 1) {
+            return balance(right.key, right.value, join(left, key, value, right.left), right.right);
+        }
+        return new Node<>(key, value, left, right);
+    }
+
+    /**
+     * Returns a copy of a subtree without the element with a key, or the same subtree if there is none.
+     */
+    private static <E> Node<E> delete(Node<E> node, long key) {
+        if (node == null) {
+            return null;
+        }
+        if (key < node.key) {
+            Node<E> left = delete(node.left, key);
+            return left == node.left ? node : balance(node.key, node.value, left, node.right);
+        }
+        if (key > node.key) {
+            Node<E> right = delete(node.right, key);
+            return right == node.right ? node : balance(node.key, node.value, node.left, right);
+        }
+        if (node.left == null) {
+            return node.right;
+        }
+        if (node.right == null) {
+            return node.left;
+        }
+        Node<E> successor = node.right;
+        while (successor.left != null) {
+            successor = successor.left;
+        }
+        return balance(successor.key, successor.value, node.left, deleteFirst(node.right));
+    }
+
+    /**
+     * Returns a copy of a subtree without its first element.
+     */
+    private static <E> Node<E> deleteFirst(Node<E> node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        return balance(node.key, node.value, deleteFirst(node.left), node.right);
+    }
+
+    /**
+     * Builds a node, rotating once or twice if its subtrees' heights differ by more than one.
+     */
+    private static <E> Node<E> balance(long key, E value, Node<E> left, Node<E> right) {
+        int difference = height(left) - height(right);
+        if (difference > 1) {
+            if (height(left.left) >= height(left.right)) {
+                return new Node<>(left.key, left.value, left.left, new Node<>(key, value, left.right, right));
+            }
+            Node<E> pivot = left.right;
+            return new Node<>(pivot.key, pivot.value, new Node<>(left.key, left.value, left.left, pivot.left),
+                    new Node<>(key, value, pivot.right, right));
+        }
+        if (difference < -1) {
+            if (height(right.right) >= height(right.left)) {
+                return new Node<>(right.key, right.value, new Node<>(key, value, left, right.left), right.right);
+            }
+            Node<E> pivot = right.left;
+            return new Node<>(pivot.key, pivot.value, new Node<>(key, value, left, pivot.left),
+                    new Node<>(right.key, right.value, pivot.right, right.right));
+        }
+        return new Node<>(key, value, left, right);
+    }
+}
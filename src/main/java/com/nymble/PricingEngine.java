@@ -0,0 +1,178 @@
+/**
+ * Prices activities and packages for each passenger tier.
+ *
+ * @author Parth Ahuja
+ * @version 1.0
+ * @since 2024-01-01
+ */
+package com.nymble;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The single place prices are decided. An engine holds one {@link TierRule} per {@link PassengerType} and
+ * applies them to every tier at once, producing a price table that is cached on the priced object: activities
+ * keep their table for good, as their cost never changes, and packages keep theirs as a quote cache until
+ * {@link TravelPackage#addDestination(Destination)} changes the base cost. Pricing a passenger is then an
+ * array lookup.
+ *
+ * <p>Passengers and packages price through {@link #getDefault()}. Installing another engine with
+ * {@link #setDefault(PricingEngine)} makes every cached table stale at once, since tables remember the
+ * engine that built them.</p>
+ */
+public final class PricingEngine {
+
+    /**
+     * The discount silver-tier passengers get under the standard rules, in percent.
+     */
+    public static final int SILVER_DISCOUNT_PERCENT = 10;
+
+    /**
+     * The engine passengers and packages price through.
+     */
+    private static volatile PricingEngine current = standard();
+
+    /**
+     * The rule of each tier, indexed by {@link PassengerType#ordinal()}.
+     */
+    private final TierRule[] rules;
+
+    /**
+     * Constructs an engine.
+     *
+     * @param rules A rule for every passenger tier
+     * @throws IllegalArgumentException If a tier has no rule
+     */
+    public PricingEngine(Map<PassengerType, TierRule> rules) {
+        this.rules = new TierRule[PassengerType.values().length];
+        for (PassengerType type : PassengerType.values()) {
+            TierRule rule = rules.get(type);
+            if (rule == null) {
+                throw new IllegalArgumentException("No pricing rule for " + type);
+            }
+            this.rules[type.ordinal()] = rule;
+        }
+    }
+
+    /**
+     * Builds an engine with the standard rules. Normal passengers pay activities in full, silver passengers
+     * get {@value #SILVER_DISCOUNT_PERCENT}% off activities and packages, and gold passengers pay nothing for
+     * activities and the full package price. Normal passengers are not charged for packages.
+     *
+     * @return The engine
+     */
+    public static PricingEngine standard() {
+        Map<PassengerType, TierRule> rules = new EnumMap<>(PassengerType.class);
+        rules.put(PassengerType.NORMAL, TierRule.of(cost -> cost, base -> 0));
+        rules.put(PassengerType.SILVER, TierRule.of(cost -> Money.discount(cost, SILVER_DISCOUNT_PERCENT),
+                base -> Money.discount(base, SILVER_DISCOUNT_PERCENT)));
+        rules.put(PassengerType.GOLD, TierRule.of(cost -> 0, base -> base));
+        return new PricingEngine(rules);
+    }
+
+    /**
+     * Returns the engine passengers and packages price through.
+     *
+     * @return The engine
+     */
+    public static PricingEngine getDefault() {
+        return current;
+    }
+
+    /**
+     * Replaces the engine passengers and packages price through. Bookings already made keep what they paid.
+     *
+     * @param engine The new engine
+     */
+    public static void setDefault(PricingEngine engine) {
+        if (engine == null) {
+            throw new IllegalArgumentException("engine must not be null");
+        }
+        current = engine;
+    }
+
+    /**
+     * Returns what a passenger of a tier pays for an activity, from the activity's price table.
+     *
+     * @param activity The activity
+     * @param type The passenger's tier
+     * @return The price in cents
+     */
+    public long activityPriceCents(Activity activity, PassengerType type) {
+        PriceTable table = activity.prices;
+        if (table == null || table.engine != this) {
+            table = new PriceTable(this, activity.getCostCents(), true);
+            activity.prices = table;
+        }
+        return table.prices[type.ordinal()];
+    }
+
+    /**
+     * Returns what a passenger of a tier pays for an activity with a given list price, without caching.
+     *
+     * @param costCents The list price in cents
+     * @param type The passenger's tier
+     * @return The price in cents
+     */
+    public long activityPriceCents(long costCents, PassengerType type) {
+        return rules[type.ordinal()].activityPriceCents(costCents);
+    }
+
+    /**
+     * Returns what a passenger of a tier pays for a package, from the package's cached quotes.
+     *
+     * @param travelPackage The package
+     * @param type The passenger's tier
+     * @return The price in cents
+     */
+    public long packagePriceCents(TravelPackage travelPackage, PassengerType type) {
+        long baseCostCents = travelPackage.getBaseCostCents();
+        PriceTable table = travelPackage.prices;
+        // The basis check also catches a table computed from the old base by a reader racing addDestination.
+        if (table == null || table.engine != this || table.basisCents != baseCostCents) {
+            table = new PriceTable(this, baseCostCents, false);
+            travelPackage.prices = table;
+        }
+        return table.prices[type.ordinal()];
+    }
+
+    /**
+     * The price of one activity or package for every tier.
+     */
+    static final class PriceTable {
+
+        /**
+         * The engine that built the table.
+         */
+        final PricingEngine engine;
+
+        /**
+         * The list price or base cost the table was built from, in cents.
+         */
+        final long basisCents;
+
+        /**
+         * The price for each tier in cents, indexed by {@link PassengerType#ordinal()}.
+         */
+        final long[] prices;
+
+        /**
+         * Builds a table by applying every tier's rule.
+         *
+         * @param engine The engine whose rules to apply
+         * @param basisCents The list price or base cost in cents
+         * @param activity Whether to apply the activity rules rather than the package rules
+         */
+        PriceTable(PricingEngine engine, long basisCents, boolean activity) {
+            this.engine = engine;
+            this.basisCents = basisCents;
+            this.prices = new long[engine.rules.length];
+            for (int i = 0; i < prices.length; i++) {
+                prices[i] = activity
+                        ? engine.rules[i].activityPriceCents(basisCents)
+                        : engine.rules[i].packagePriceCents(basisCents);
+            }
+        }
+    }
+}
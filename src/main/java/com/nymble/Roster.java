@@ -0,0 +1,409 @@
+/**
+ * Concurrent, insertion-ordered set used for rosters.
+ *
+ * @author Parth Ahuja
+ * @version 1.0
+ * @since 2024-01-01
+ */
+package com.nymble;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntFunction;
+
+/**
+ * A thread-safe set that iterates in the order elements were added, with constant-time add, membership check
+ * and removal. A hash index maps each element to its node. Writers take no lock: adding puts the node in the
+ * index and queues it, and removing unlinks it from the index and marks it.
+ *
+ * <p>Readers get immutable snapshots from {@link #snapshot()}, backed by a {@link PersistentList} of nodes.
+ * When changes are pending, the next snapshot folds them into a new version first: O(log n) per change, or a
+ * rebuild in O(n) once changes outnumber members. A snapshot with nothing pending is O(1), and every
+ * snapshot stays valid whatever writers do afterwards. So that a roster nobody reads does not queue changes
+ * forever, a writer that finds more changes pending than members folds them with a rebuild, unless another
+ * thread is folding already; writes therefore stay O(1) amortized.</p>
+ *
+ * <p>A roster can instead be keyed by an integer id, such as the passenger number: two elements with the same
+ * id are then the same member, {@link #containsId(int)} checks an id in constant time, and {@link #ids()}
+ * returns the ids of a snapshot as an {@link IdBitmap}. The bitmap is only written while folding, so it has a
+ * single writer at a time and needs no lock of its own.</p>
+ *
+ * @param <E> The element type; elements are compared with {@code equals}
+ */
+final class Roster<E> implements Iterable<E> {
+
+    /**
+     * The number of pending changes tolerated regardless of roster size, so that writers to small rosters do
+     * not fold on every change.
+     */
+    private static final int MIN_FOLD = 32;
+
+    /**
+     * One element's place in iteration order.
+     */
+    private static final class Node<E> {
+
+        /**
+         * The element.
+         */
+        final E element;
+
+        /**
+         * Whether the element has been removed.
+         */
+        volatile boolean removed;
+
+        /**
+         * The node's key in the current {@link PersistentList}, or -1 while not folded into it. Guarded by
+         * {@link Roster#foldLock}.
+         */
+        long key = -1;
+
+        /**
+         * Constructs a node.
+         *
+         * @param element The element
+         */
+        Node(E element) {
+            this.element = element;
+        }
+    }
+
+    /**
+     * Maps an element to its id, or null if elements are their own keys.
+     */
+    private final ToIntFunction<? super E> idOf;
+
+    /**
+     * The node of each element currently in the roster, keyed by the element or by its id.
+     */
+    private final Map<Object, Node<E>> index = new ConcurrentHashMap<>();
+
+    /**
+     * The ids of the elements in {@link #members}, or null if elements are their own keys. Guarded by
+     * {@link #foldLock}.
+     */
+    private IdBitmap ids;
+
+    /**
+     * Nodes added since the last fold, in the order added.
+     */
+    private final Queue<Node<E>> added = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Nodes removed since the last fold.
+     */
+    private final Queue<Node<E>> removed = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The number of changes queued in {@link #added} and {@link #removed}.
+     */
+    private final AtomicInteger pending = new AtomicInteger();
+
+    /**
+     * Held while folding pending changes into {@link #members}. Writers only try it, so they never wait.
+     */
+    private final ReentrantLock foldLock = new ReentrantLock();
+
+    /**
+     * The members as of the last fold, in insertion order.
+     */
+    private volatile Snapshot<E> members = new Snapshot<>(PersistentList.<Node<E>>empty());
+
+    /**
+     * Constructs an empty roster whose elements are their own keys.
+     */
+    Roster() {
+        this.idOf = null;
+    }
+
+    /**
+     * Constructs an empty roster keyed by an integer id.
+     *
+     * @param idOf Maps an element to its id
+     */
+    Roster(ToIntFunction<? super E> idOf) {
+        this.idOf = idOf;
+        this.ids = new IdBitmap();
+    }
+
+    /**
+     * Adds an element at the end, unless it is already present.
+     *
+     * @param element The element
+     * @return true if the element was added
+     */
+    boolean add(E element) {
+        Node<E> node = new Node<>(element);
+        if (index.putIfAbsent(key(element), node) != null) {
+            return false;
+        }
+        added.add(node);
+        changed();
+        return true;
+    }
+
+    /**
+     * Adds each element not already present, in iteration order.
+     *
+     * @param elements The elements
+     */
+    void addAll(Collection<? extends E> elements) {
+        for (E element : elements) {
+            add(element);
+        }
+    }
+
+    /**
+     * Checks whether an element is present.
+     *
+     * @param element The element
+     * @return true if the roster contains it
+     */
+    boolean contains(E element) {
+        return index.containsKey(key(element));
+    }
+
+    /**
+     * Checks whether an element with an id is present, in a roster keyed by id.
+     *
+     * @param id The id
+     * @return true if the roster contains an element with the id
+     */
+    boolean containsId(int id) {
+        return idOf != null && index.containsKey(id);
+    }
+
+    /**
+     * Removes an element.
+     *
+     * @param element The element
+     * @return true if the element was present
+     */
+    boolean remove(E element) {
+        Node<E> node = index.remove(key(element));
+        if (node == null) {
+            return false;
+        }
+        node.removed = true;
+        removed.add(node);
+        changed();
+        return true;
+    }
+
+    /**
+     * Returns the number of elements.
+     *
+     * @return The size
+     */
+    int size() {
+        return index.size();
+    }
+
+    /**
+     * Returns the current version of the roster, folding in pending changes first. The list is immutable and
+     * never changes afterwards, whatever writers do.
+     *
+     * @return The elements in insertion order
+     */
+    List<E> snapshot() {
+        if (pending.get() > 0) {
+            foldLock.lock();
+            try {
+                fold(false);
+            } finally {
+                foldLock.unlock();
+            }
+        }
+        return members;
+    }
+
+    /**
+     * Returns the ids of the current version of a roster keyed by id, folding in pending changes first.
+     *
+     * @return A new bitmap
+     * @throws IllegalStateException If the elements are their own keys
+     */
+    IdBitmap ids() {
+        if (idOf == null) {
+            throw new IllegalStateException("Roster is not keyed by id");
+        }
+        foldLock.lock();
+        try {
+            if (pending.get() > 0) {
+                fold(false);
+            }
+            return ids.copy();
+        } finally {
+            foldLock.unlock();
+        }
+    }
+
+    /**
+     * Returns an iterator over a snapshot of the elements in insertion order. The iterator does not support
+     * removal.
+     *
+     * @return The iterator
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return snapshot().iterator();
+    }
+
+    /**
+     * Returns the index key of an element.
+     */
+    private Object key(E element) {
+        return idOf == null ? element : Integer.valueOf(idOf.applyAsInt(element));
+    }
+
+    /**
+     * Counts a queued change, and folds the pending changes once they outnumber the members, unless another
+     * thread is folding already.
+     */
+    private void changed() {
+        if (pending.incrementAndGet() > Math.max(MIN_FOLD, index.size()) && foldLock.tryLock()) {
+            try {
+                fold(true);
+            } finally {
+                foldLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Applies the pending changes to {@link #members}, one path copy at a time or, when asked to or when they
+     * outnumber the members, by rebuilding the list. Called with {@link #foldLock} held.
+     *
+     * @param rebuild Whether to rebuild the list regardless of the number of changes
+     */
+    private void fold(boolean rebuild) {
+        int changes = pending.getAndSet(0);
+        PersistentList<Node<E>> list = members.nodes;
+        if (rebuild || changes > list.size()) {
+            // Nodes removed from here on are either dropped by the scan below or found by the next fold.
+            for (Node<E> node; (node = removed.poll()) != null; ) {
+                node.key = -1;
+            }
+            List<Node<E>> live = new ArrayList<>(index.size());
+            for (Node<E> node : list) {
+                if (node.removed) {
+                    node.key = -1;
+                } else {
+                    live.add(node);
+                }
+            }
+            for (Node<E> node; (node = added.poll()) != null; ) {
+                if (!node.removed) {
+                    live.add(node);
+                }
+            }
+            list = PersistentList.<Node<E>>empty().appendAll(live);
+            if (idOf != null) {
+                ids = new IdBitmap();
+            }
+            for (int i = 0; i < live.size(); i++) {
+                live.get(i).key = i;
+                if (idOf != null) {
+                    ids.add(idOf.applyAsInt(live.get(i).element));
+                }
+            }
+        } else {
+            List<Node<E>> fresh = new ArrayList<>();
+            for (Node<E> node; (node = added.poll()) != null; ) {
+                if (!node.removed) {
+                    fresh.add(node);
+                }
+            }
+            long firstKey = list.isEmpty() ? 0 : list.lastKey() + 1;
+            list = list.appendAll(fresh);
+            for (int i = 0; i < fresh.size(); i++) {
+                fresh.get(i).key = firstKey + i;
+                if (idOf != null) {
+                    ids.add(idOf.applyAsInt(fresh.get(i).element));
+                }
+            }
+            for (Node<E> node; (node = removed.poll()) != null; ) {
+                if (node.key >= 0) {
+                    list = list.removeKey(node.key);
+                    node.key = -1;
+                    if (idOf != null) {
+                        forgetId(idOf.applyAsInt(node.element));
+                    }
+                }
+            }
+        }
+        if (list != members.nodes) {
+            members = new Snapshot<>(list);
+        }
+    }
+
+    /**
+     * Clears an id from {@link #ids} after its node left the list, unless a node that replaced it under the
+     * same id is already in the list. Called with {@link #foldLock} held.
+     *
+     * @param id The id
+     */
+    private void forgetId(int id) {
+        ids.remove(id);
+        Node<E> current = index.get(id);
+        if (current != null && current.key >= 0 && !current.removed) {
+            ids.add(id);
+        }
+    }
+
+    /**
+     * An immutable view of the elements of one version of the node list.
+     */
+    private static final class Snapshot<E> extends AbstractList<E> {
+
+        /**
+         * The nodes, in insertion order.
+         */
+        final PersistentList<Node<E>> nodes;
+
+        /**
+         * Constructs a view.
+         *
+         * @param nodes The nodes
+         */
+        Snapshot(PersistentList<Node<E>> nodes) {
+            this.nodes = nodes;
+        }
+
+        @Override
+        public E get(int index) {
+            return nodes.get(index).element;
+        }
+
+        @Override
+        public int size() {
+            return nodes.size();
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            Iterator<Node<E>> it = nodes.iterator();
+            return new Iterator<E>() {
+                @Override
+                public boolean hasNext() {
+                    return it.hasNext();
+                }
+
+                @Override
+                public E next() {
+                    return it.next().element;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/**
+ * A seat on an activity set aside for a limited time.
+ *
+ * @author Parth Ahuja
+ * @version 1.0
+ * @since 2024-01-01
+ */
+package com.nymble;
+
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * A seat taken out of an activity's capacity while a checkout is in progress. The hold ends exactly once:
+ * {@link Activity#confirmHold(SeatHold, Passenger)} turns it into a place on the roster,
+ * {@link Activity#releaseHold(SeatHold)} gives the seat back, and otherwise its {@link SeatHoldScheduler}
+ * gives the seat back once the hold's time is up. Whichever comes first wins; the others return false.
+ *
+ * <p>Holds are also the entries of the scheduler's timer wheel, linked into its buckets directly, so an
+ * outstanding hold costs one small object and nothing else.</p>
+ */
+public final class SeatHold {
+
+    /**
+     * The stages of a hold.
+     */
+    public enum State {
+        /**
+         * The seat is set aside and the hold can still be confirmed.
+         */
+        HELD,
+
+        /**
+         * The hold was turned into a place on the roster.
+         */
+        CONFIRMED,
+
+        /**
+         * The seat was given back by the caller.
+         */
+        RELEASED,
+
+        /**
+         * The seat was given back because the hold ran out of time.
+         */
+        EXPIRED
+    }
+
+    /**
+     * Moves {@link #state} out of {@link State#HELD}.
+     */
+    private static final AtomicReferenceFieldUpdater<SeatHold, State> STATE =
+            AtomicReferenceFieldUpdater.newUpdater(SeatHold.class, State.class, "state");
+
+    /**
+     * The activity the seat belongs to.
+     */
+    private final Activity activity;
+
+    /**
+     * The {@link System#nanoTime()} reading, on the scheduler's clock, after which the hold expires.
+     */
+    private final long deadlineNanos;
+
+    /**
+     * The current stage.
+     */
+    private volatile State state = State.HELD;
+
+    /**
+     * The full turns of the timer wheel left before the hold's bucket comes up for the last time. Only
+     * touched by the thread advancing the wheel.
+     */
+    long remainingRounds;
+
+    /**
+     * The next hold in the same wheel bucket, or in the stack of holds not yet placed in a bucket. Set by the
+     * scheduling thread before the hold is published, and only by the thread advancing the wheel after that.
+     */
+    SeatHold next;
+
+    /**
+     * Constructs a hold on a seat that has already been taken out of the activity's capacity.
+     *
+     * @param activity The activity
+     * @param deadlineNanos The clock reading after which the hold expires
+     */
+    SeatHold(Activity activity, long deadlineNanos) {
+        this.activity = activity;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * Returns the activity the seat belongs to.
+     *
+     * @return The activity
+     */
+    public Activity getActivity() {
+        return activity;
+    }
+
+    /**
+     * Returns the current stage of the hold.
+     *
+     * @return The state
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Checks whether the seat is still set aside for this hold.
+     *
+     * @return true while the hold can be confirmed
+     */
+    public boolean isHeld() {
+        return state == State.HELD;
+    }
+
+    /**
+     * Returns the clock reading after which the hold expires.
+     *
+     * @return The deadline in nanoseconds
+     */
+    long getDeadlineNanos() {
+        return deadlineNanos;
+    }
+
+    /**
+     * Ends the hold, unless it has already ended.
+     *
+     * @param outcome How the hold ends
+     * @return true if this call ended the hold
+     */
+    boolean finish(State outcome) {
+        return STATE.compareAndSet(this, State.HELD, outcome);
+    }
+}
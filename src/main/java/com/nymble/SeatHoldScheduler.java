@@ -0,0 +1,332 @@
+/**
+ * Expires seat holds that were neither confirmed nor released in time.
+ *
+ * @author Parth Ahuja
+ * @version 1.0
+ * @since 2024-01-01
+ */
+package com.nymble;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * A hashed timer wheel for {@link SeatHold}s. Time is cut into ticks, and the wheel is a ring of buckets,
+ * one per tick; a hold due in {@code n} ticks goes into bucket {@code (now + n) mod size} with
+ * {@code n / size} full turns still to wait. One background thread advances the wheel a tick at a time and
+ * gives back the seat of every hold in the bucket that has no turns left and is still held.
+ *
+ * <p>Scheduling a hold pushes it onto a lock-free stack that the wheel thread moves into the buckets on its
+ * next tick, so booking threads never wait for the wheel, and each hold costs O(1) to schedule and O(1) to
+ * expire however many are outstanding. Confirming or releasing a hold does not touch the wheel at all: the
+ * hold is dropped from its bucket the next time the wheel passes it. Holds expire at most one tick late,
+ * never early.</p>
+ */
+public final class SeatHoldScheduler implements AutoCloseable {
+
+    /**
+     * The tick length of the default scheduler, in milliseconds.
+     */
+    private static final long DEFAULT_TICK_MILLIS = 100;
+
+    /**
+     * The number of buckets of the default scheduler. One turn takes about thirteen minutes, longer than a
+     * checkout usually runs, so most holds are visited by the wheel only when they are due.
+     */
+    private static final int DEFAULT_WHEEL_SIZE = 8192;
+
+    /**
+     * The clock holds are timed against, in nanoseconds.
+     */
+    private final LongSupplier clock;
+
+    /**
+     * The length of a tick in nanoseconds.
+     */
+    private final long tickNanos;
+
+    /**
+     * The clock reading at which tick 0 began.
+     */
+    private final long startNanos;
+
+    /**
+     * The buckets, each the head of a singly linked list of holds. Only touched by the thread advancing
+     * the wheel.
+     */
+    private final SeatHold[] wheel;
+
+    /**
+     * {@code wheel.length - 1}; the wheel size is a power of two.
+     */
+    private final int mask;
+
+    /**
+     * Holds scheduled since the last tick, linked newest first.
+     */
+    private final AtomicReference<SeatHold> incoming = new AtomicReference<>();
+
+    /**
+     * The number of holds that ran out of time.
+     */
+    private final AtomicLong expired = new AtomicLong();
+
+    /**
+     * The next tick to process. Guarded by this scheduler.
+     */
+    private long tick;
+
+    /**
+     * The thread advancing the wheel, or null if the owner advances it by hand.
+     */
+    private final Thread ticker;
+
+    /**
+     * Set once {@link #close()} has been called.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Constructs a scheduler and starts its wheel thread.
+     *
+     * @param tick The length of a tick, which bounds how late a hold may expire
+     * @param unit The unit of {@code tick}
+     * @param wheelSize The number of buckets, rounded up to a power of two
+     */
+    public SeatHoldScheduler(long tick, TimeUnit unit, int wheelSize) {
+        this(System::nanoTime, unit.toNanos(tick), wheelSize, true);
+    }
+
+    /**
+     * Constructs a scheduler.
+     *
+     * @param clock The clock holds are timed against, in nanoseconds
+     * @param tickNanos The length of a tick in nanoseconds
+     * @param wheelSize The number of buckets, rounded up to a power of two
+     * @param start Whether to start a thread advancing the wheel; if not, the owner calls
+     *              {@link #advance()}
+     */
+    SeatHoldScheduler(LongSupplier clock, long tickNanos, int wheelSize, boolean start) {
+        if (tickNanos <= 0 || wheelSize <= 0 || wheelSize > 1 << 30) {
+            throw new IllegalArgumentException("Invalid tick " + tickNanos + " or wheel size " + wheelSize);
+        }
+        this.clock = clock;
+        this.tickNanos = tickNanos;
+        this.startNanos = clock.getAsLong();
+        this.wheel = new SeatHold[Integer.bitCount(wheelSize) == 1 ? wheelSize : Integer.highestOneBit(wheelSize) << 1];
+        this.mask = wheel.length - 1;
+        if (start) {
+            this.ticker = new Thread(this::run, "seat-hold-expiry");
+            this.ticker.setDaemon(true);
+            this.ticker.start();
+        } else {
+            this.ticker = null;
+        }
+    }
+
+    /**
+     * Returns the scheduler {@link Activity#holdSeat(long, TimeUnit)} uses, starting it on first use.
+     *
+     * @return The shared scheduler
+     */
+    public static SeatHoldScheduler getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * Places a seat that has already been taken out of an activity's capacity under a hold.
+     *
+     * @param activity The activity
+     * @param ttlNanos How long the hold lasts, in nanoseconds
+     * @return The hold
+     * @throws IllegalStateException If the scheduler has been closed
+     */
+    SeatHold schedule(Activity activity, long ttlNanos) {
+        if (closed) {
+            throw new IllegalStateException("Seat hold scheduler is closed");
+        }
+        SeatHold hold = new SeatHold(activity, clock.getAsLong() + Math.max(0, ttlNanos));
+        SeatHold head;
+        do {
+            head = incoming.get();
+            hold.next = head;
+        } while (!incoming.compareAndSet(head, hold));
+        if (closed && hold.finish(SeatHold.State.EXPIRED)) {
+            // Closed while scheduling, and the final sweep may have missed this hold: refuse it instead.
+            throw new IllegalStateException("Seat hold scheduler is closed");
+        }
+        return hold;
+    }
+
+    /**
+     * Returns the number of holds that ran out of time.
+     *
+     * @return The expired hold count
+     */
+    public long getExpiredCount() {
+        return expired.get();
+    }
+
+    /**
+     * Processes every tick that has ended by now, expiring the holds due in them.
+     */
+    synchronized void advance() {
+        long now = clock.getAsLong();
+        long target = Math.floorDiv(now - startNanos, tickNanos);
+        while (tick < target) {
+            placeIncoming();
+            expireBucket();
+            tick++;
+        }
+    }
+
+    /**
+     * Stops the wheel thread and expires every hold still outstanding, giving its seat back, so no seat stays
+     * out of capacity once nothing is left to time it. If interrupted while waiting for the wheel thread, the
+     * wait carries on and the interrupt status is restored afterwards.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (ticker != null) {
+            LockSupport.unpark(ticker);
+            boolean interrupted = false;
+            while (ticker.isAlive()) {
+                try {
+                    ticker.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        expireAll();
+    }
+
+    /**
+     * Expires every hold in the wheel and in the incoming stack.
+     */
+    private synchronized void expireAll() {
+        expireChain(incoming.getAndSet(null));
+        for (int bucket = 0; bucket < wheel.length; bucket++) {
+            SeatHold head = wheel[bucket];
+            wheel[bucket] = null;
+            expireChain(head);
+        }
+    }
+
+    /**
+     * Unlinks a chain of holds, expiring those still held.
+     *
+     * @param hold The first hold of the chain, or null
+     */
+    private void expireChain(SeatHold hold) {
+        while (hold != null) {
+            SeatHold following = hold.next;
+            hold.next = null;
+            if (hold.finish(SeatHold.State.EXPIRED)) {
+                expired.incrementAndGet();
+                giveBack(hold);
+            }
+            hold = following;
+        }
+    }
+
+    /**
+     * Moves the holds scheduled since the last tick into their buckets.
+     */
+    private void placeIncoming() {
+        SeatHold hold = incoming.getAndSet(null);
+        while (hold != null) {
+            SeatHold following = hold.next;
+            long due = Math.max(tick, Math.floorDiv(hold.getDeadlineNanos() - startNanos, tickNanos));
+            int bucket = (int) (due & mask);
+            hold.remainingRounds = (due - tick) / wheel.length;
+            hold.next = wheel[bucket];
+            wheel[bucket] = hold;
+            hold = following;
+        }
+    }
+
+    /**
+     * Walks the current tick's bucket: holds that have ended are unlinked, holds with full turns left wait
+     * one turn less, and the rest expire.
+     */
+    private void expireBucket() {
+        int bucket = (int) (tick & mask);
+        SeatHold previous = null;
+        SeatHold hold = wheel[bucket];
+        while (hold != null) {
+            SeatHold following = hold.next;
+            boolean keep = hold.isHeld() && hold.remainingRounds-- > 0;
+            if (keep) {
+                previous = hold;
+            } else {
+                if (previous == null) {
+                    wheel[bucket] = following;
+                } else {
+                    previous.next = following;
+                }
+                hold.next = null;
+                if (hold.finish(SeatHold.State.EXPIRED)) {
+                    expired.incrementAndGet();
+                    giveBack(hold);
+                }
+            }
+            hold = following;
+        }
+    }
+
+    /**
+     * Returns an expired hold's seat to its activity, isolating the wheel thread from listener failures.
+     *
+     * @param hold The expired hold
+     */
+    private static void giveBack(SeatHold hold) {
+        try {
+            hold.getActivity().releaseSeat();
+        } catch (RuntimeException e) {
+            // a misbehaving capacity listener must not stop expiry
+        }
+    }
+
+    /**
+     * Returns how long until the next tick ends.
+     *
+     * @return The delay in nanoseconds
+     */
+    private synchronized long nanosUntilNextTick() {
+        return startNanos + (tick + 1) * tickNanos - clock.getAsLong();
+    }
+
+    /**
+     * Body of the wheel thread: sleeps until each tick has ended and then processes it, until closed.
+     */
+    private void run() {
+        while (!closed) {
+            long delay = nanosUntilNextTick();
+            if (delay > 0) {
+                LockSupport.parkNanos(this, delay);
+            } else {
+                advance();
+            }
+        }
+    }
+
+    /**
+     * Creates the default scheduler when it is first asked for.
+     */
+    private static final class DefaultHolder {
+
+        /**
+         * The shared scheduler.
+         */
+        static final SeatHoldScheduler INSTANCE =
+                new SeatHoldScheduler(DEFAULT_TICK_MILLIS, TimeUnit.MILLISECONDS, DEFAULT_WHEEL_SIZE);
+    }
+}
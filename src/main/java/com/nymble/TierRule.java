@@ -0,0 +1,55 @@
+/**
+ * Pricing rule for one passenger tier.
+ *
+ * @author Parth Ahuja
+ * @version 1.0
+ * @since 2024-01-01
+ */
+package com.nymble;
+
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Turns list prices into what a passenger of one tier pays. A {@link PricingEngine} holds one rule per
+ * {@link PassengerType} and only calls a rule when it builds a price table, so rules may be arbitrarily
+ * elaborate but must be pure: the same list price always gives the same result.
+ */
+public interface TierRule {
+
+    /**
+     * Returns what the tier pays for an activity.
+     *
+     * @param costCents The activity's list price in cents
+     * @return The price in cents
+     */
+    long activityPriceCents(long costCents);
+
+    /**
+     * Returns what the tier pays for a travel package.
+     *
+     * @param baseCostCents The package's base cost in cents
+     * @return The price in cents
+     */
+    long packagePriceCents(long baseCostCents);
+
+    /**
+     * Builds a rule from two functions.
+     *
+     * @param activityPrice Maps an activity's list price to the tier's price
+     * @param packagePrice Maps a package's base cost to the tier's price
+     * @return The rule
+     */
+    static TierRule of(LongUnaryOperator activityPrice, LongUnaryOperator packagePrice) {
+        return new TierRule() {
+            @Override
+            public long activityPriceCents(long costCents) {
+                return activityPrice.applyAsLong(costCents);
+            }
+
+            @Override
+            public long packagePriceCents(long baseCostCents) {
+                return packagePrice.applyAsLong(baseCostCents);
+            }
+        };
+    }
+}
@@ -7,11 +7,28 @@
  */
 package com.nymble;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 public class TravelPackage {
 
+    /**
+     * The size, in bytes, of the chunks written when streaming a report to a channel.
+     */
+    private static final int REPORT_CHUNK_SIZE = 8192;
+
     /**
      * The name of the travel package.
      */
@@ -23,19 +40,45 @@ public class TravelPackage {
     private int passengerCapacity;
 
     /**
-     * A list of destinations included in the itinerary.
+     * The destinations included in the itinerary. Each added destination publishes a new version that shares
+     * structure with the last, so enrollments and readers walk it without locking.
+     */
+    private volatile PersistentList<Destination> itinerary;
+
+    /**
+     * The passengers enrolled in the package, in enrollment order. Found and removed in constant time.
+     */
+    private final Roster<Passenger> passengers;
+
+    /**
+     * The numbers of the passengers enrolled or being enrolled, guarded by itself. An enrollment claims the
+     * passenger's number before reserving any seat, so the same passenger is turned away with a bit test
+     * instead of taking a second package seat and a second seat on every activity.
+     */
+    private final IdBitmap enrolledNumbers = new IdBitmap();
+
+    /**
+     * The number of package seats claimed so far, including seats held by enrollments that are
+     * still reserving their activities.
+     */
+    private final AtomicInteger reservedSeats;
+
+    /**
+     * The number of enrolled passengers of each type, indexed by {@link PassengerType#ordinal()}.
+     * Kept up to date on every enrollment so that revenue figures never have to walk the roster.
      */
-    private List<Destination> itinerary;
+    private final AtomicIntegerArray passengersByType;
 
     /**
-     * A list of passengers enrolled in the package.
+     * The base cost of the travel package without activities, in cents.
      */
-    private List<Passenger> passengers;
+    private long baseCostCents;
 
     /**
-     * The base cost of the travel package without activities.
+     * The package price for every tier under the engine that built it, dropped whenever the base cost changes.
+     * Written racily by {@link PricingEngine}, which checks the engine and base cost before trusting it.
      */
-    private int baseCost;
+    PricingEngine.PriceTable prices;
 
     /**
      * Constructs a new travel package with the specified name and capacity.
@@ -46,9 +89,29 @@ public class TravelPackage {
     public TravelPackage(String name, int passengerCapacity) {
         this.name = name;
         this.passengerCapacity = passengerCapacity;
-        this.itinerary = new ArrayList<>();
-        this.passengers = new ArrayList<>();
-        this.baseCost = 0;
+        this.itinerary = PersistentList.empty();
+        this.passengers = new Roster<>();
+        this.reservedSeats = new AtomicInteger();
+        this.passengersByType = new AtomicIntegerArray(PassengerType.values().length);
+        this.baseCostCents = 0;
+    }
+
+    /**
+     * Returns the name of the travel package.
+     *
+     * @return The package name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the maximum number of passengers allowed in the package.
+     *
+     * @return The passenger capacity.
+     */
+    public int getPassengerCapacity() {
+        return passengerCapacity;
     }
 
     /**
@@ -56,57 +119,459 @@ public class TravelPackage {
      *
      * @param destination The destination to add.
      */
-    public void addDestination(Destination destination) {
-        itinerary.add(destination);
-        baseCost += destination.getCost();
+    public synchronized void addDestination(Destination destination) {
+        itinerary = itinerary.append(destination);
+        baseCostCents += destination.getCostCents();
         for (Activity a : destination.getActivities()) {
-            baseCost += a.getCost();
+            baseCostCents += a.getCostCents();
         }
+        prices = null;
+    }
+
+    /**
+     * Returns the base cost of the travel package.
+     *
+     * @return The base cost in cents.
+     */
+    public long getBaseCostCents() {
+        return baseCostCents;
     }
 
     /**
      * Calculates the total cost of the travel package for a specific passenger based on their type and any applicable discounts.
      *
      * @param passenger The passenger to calculate the cost for.
-     * @return The total cost for the passenger.
+     * @return The total cost for the passenger, in whole units with any cents truncated.
      */
     public int calculateTotalCost(Passenger passenger) {
-        int totalCost = baseCost;
-        if (passenger.getType() == PassengerType.GOLD) {
-            return totalCost; // No discount for Gold passengers
-        } else if (passenger.getType() == PassengerType.SILVER) {
-            totalCost = (int) (baseCost * 0.9); // 10% discount for Silver passengers
-        }
+        return (int) Money.toWholeUnits(calculateTotalCostCents(passenger.getType()));
+    }
 
-        else{
-            return 0;
-        }
-        return totalCost;
+    /**
+     * Calculates the exact total cost of the travel package for a specific passenger.
+     *
+     * @param passenger The passenger to calculate the cost for.
+     * @return The total cost for the passenger in cents.
+     */
+    public long calculateTotalCostCents(Passenger passenger) {
+        return calculateTotalCostCents(passenger.getType());
+    }
+
+    /**
+     * Calculates the exact total cost of the travel package for any passenger of the given type. The price is
+     * looked up in the package's quotes under the default {@link PricingEngine}, built once per base cost.
+     *
+     * @param type The passenger type to calculate the cost for.
+     * @return The total cost for a passenger of that type, in cents.
+     */
+    public long calculateTotalCostCents(PassengerType type) {
+        return PricingEngine.getDefault().packagePriceCents(this, type);
     }
 
     /**
      * Adds a passenger to the travel package, checking for available capacity and applying discounts if applicable.
      *
+     * <p>Enrollment is all-or-nothing: a package seat and one seat on every activity in the itinerary are
+     * reserved optimistically, and everything reserved so far is given back if any of them is unavailable.
+     * No lock is held, so concurrent callers only contend on the individual seat counters. A passenger who is
+     * already enrolled is turned away, and activities the passenger already holds a seat on or is already listed
+     * on are skipped.</p>
+     *
      * @param passenger The passenger to add.
+     * @return true if the passenger was enrolled, false if nothing was changed.
      */
-    public void addPassenger(Passenger passenger) {
-        if (passengers.size() < passengerCapacity) {
-            if (passenger.getBalance() < calculateTotalCost(passenger)) {
-                System.out.println("Insufficient balance for " + passenger.getName() + ". Cannot add to package.");
-                return;
+    public boolean addPassenger(Passenger passenger) {
+        long start = BookingMetrics.startTimer();
+        if (!claim(passenger)) {
+            return finishEnrollment(passenger, EnrollmentResult.ALREADY_ENROLLED, start);
+        }
+        if (!tryReservePackageSeat()) {
+            release(passenger);
+            return finishEnrollment(passenger, EnrollmentResult.PACKAGE_FULL, start);
+        }
+        if (passenger.getBalanceCents() < calculateTotalCostCents(passenger)) {
+            reservedSeats.decrementAndGet();
+            release(passenger);
+            return finishEnrollment(passenger, EnrollmentResult.INSUFFICIENT_BALANCE, start);
+        }
+
+        List<Activity> reserved = reserveActivitySeats(passenger);
+        if (reserved == null) {
+            reservedSeats.decrementAndGet();
+            release(passenger);
+            return finishEnrollment(passenger, EnrollmentResult.ACTIVITY_FULL, start);
+        }
+
+        for (Activity a : reserved) {
+            if (a.addToRoster(passenger)) {
+                passenger.addToSignUpActivities(a);
+            } else {
+                a.releaseSeat(); // Listed meanwhile through Activity#signUpPassenger, which holds its own seat.
             }
+        }
+        passengers.add(passenger);
+        passengersByType.incrementAndGet(passenger.getType().ordinal());
+        return finishEnrollment(passenger, EnrollmentResult.ENROLLED, start);
+    }
 
-            passengers.add(passenger);
-            for (Destination d : itinerary) {
-                for (Activity a : d.getActivities()) {
-                    a.signUpPassenger(passenger);
+    /**
+     * Publishes and records the outcome of a single enrollment.
+     *
+     * @param passenger The passenger
+     * @param result The outcome
+     * @param start The value of {@link BookingMetrics#startTimer()} when the enrollment began
+     * @return true if the passenger was enrolled
+     */
+    private boolean finishEnrollment(Passenger passenger, EnrollmentResult result, long start) {
+        BookingEvents.publish(BookingEvent.enrollment(passenger, this, result));
+        BookingMetrics.recordEnrollment(result, start);
+        return result == EnrollmentResult.ENROLLED;
+    }
+
+    /**
+     * Enrolls a batch of passengers in one pass.
+     *
+     * <p>Package costs are computed once per passenger type, and seats are claimed in aggregate: one
+     * reservation for the package and one per activity, regardless of the batch size. Passengers are
+     * enrolled in iteration order until seats run out; passengers already enrolled, or listed twice in the
+     * batch, are turned away. The outcome for each passenger is reported in the
+     * returned array, at the same position as in the collection; a single {@link BookingEvent.Type#BATCH_ENROLLED}
+     * event lists the passengers who were enrolled.</p>
+     *
+     * @param batch The passengers to enroll.
+     * @return The enrollment result for each passenger, in iteration order.
+     */
+    public EnrollmentResult[] addPassengers(Collection<? extends Passenger> batch) {
+        Passenger[] candidates = batch.toArray(new Passenger[0]);
+        EnrollmentResult[] results = new EnrollmentResult[candidates.length];
+
+        PassengerType[] types = PassengerType.values();
+        long[] costByType = new long[types.length];
+        for (PassengerType type : types) {
+            costByType[type.ordinal()] = calculateTotalCostCents(type);
+        }
+
+        int[] eligible = new int[candidates.length];
+        int eligibleCount = 0;
+        synchronized (enrolledNumbers) {
+            for (int i = 0; i < candidates.length; i++) {
+                Passenger passenger = candidates[i];
+                if (passenger.getBalanceCents() < costByType[passenger.getType().ordinal()]) {
+                    results[i] = EnrollmentResult.INSUFFICIENT_BALANCE;
+                } else if (!enrolledNumbers.add(passenger.getPassengerNumber())) {
+                    results[i] = EnrollmentResult.ALREADY_ENROLLED;
+                } else {
+                    eligible[eligibleCount++] = i;
+                }
+            }
+        }
+
+        int packageSeats = tryReservePackageSeats(eligibleCount);
+        List<Activity> activities = new ArrayList<>();
+        for (Destination d : itinerary) {
+            activities.addAll(d.getActivities());
+        }
+        // Bit k of joining[j] is set if the k-th eligible passenger needs a seat on activity j: passengers who
+        // already hold one or are already listed keep theirs, and no seat is reserved for them.
+        BitSet[] joining = new BitSet[activities.size()];
+        for (int j = 0; j < joining.length; j++) {
+            Activity a = activities.get(j);
+            joining[j] = new BitSet(packageSeats);
+            for (int k = 0; k < packageSeats; k++) {
+                Passenger passenger = candidates[eligible[k]];
+                if (!passenger.holdsActivity(a) && !a.isSignedUp(passenger)) {
+                    joining[j].set(k);
+                }
+            }
+        }
+        int[] granted = new int[activities.size()];
+        int enrolled = packageSeats;
+        for (int j = 0; j < granted.length && enrolled > 0; j++) {
+            int needed = joining[j].get(0, enrolled).cardinality();
+            granted[j] = activities.get(j).tryReserveSeats(needed);
+            if (granted[j] < needed) {
+                // Admit passengers up to the first one whose seat was not granted.
+                int k = joining[j].nextSetBit(0);
+                for (int n = 0; n < granted[j]; n++) {
+                    k = joining[j].nextSetBit(k + 1);
+                }
+                enrolled = k;
+            }
+        }
+        for (int j = 0; j < granted.length; j++) {
+            joining[j].clear(enrolled, packageSeats);
+            activities.get(j).releaseSeats(granted[j] - joining[j].cardinality());
+        }
+        reservedSeats.addAndGet(enrolled - packageSeats);
+
+        Passenger[] admitted = new Passenger[enrolled];
+        int[] admittedByType = new int[types.length];
+        for (int k = 0; k < eligibleCount; k++) {
+            int i = eligible[k];
+            if (k < enrolled) {
+                admitted[k] = candidates[i];
+                admittedByType[candidates[i].getType().ordinal()]++;
+                results[i] = EnrollmentResult.ENROLLED;
+            } else {
+                results[i] = k < packageSeats ? EnrollmentResult.ACTIVITY_FULL : EnrollmentResult.PACKAGE_FULL;
+                release(candidates[i]);
+            }
+        }
+
+        List<Passenger> admittedList = Arrays.asList(admitted);
+        for (int j = 0; j < activities.size(); j++) {
+            if (joining[j].cardinality() == enrolled) {
+                activities.get(j).addAllToRoster(admittedList);
+            } else {
+                List<Passenger> newcomers = new ArrayList<>(joining[j].cardinality());
+                for (int k = joining[j].nextSetBit(0); k >= 0; k = joining[j].nextSetBit(k + 1)) {
+                    newcomers.add(admitted[k]);
+                }
+                activities.get(j).addAllToRoster(newcomers);
+            }
+        }
+        for (int k = 0; k < enrolled; k++) {
+            List<Activity> missing = activities;
+            for (int j = 0; j < activities.size(); j++) {
+                if (!joining[j].get(k)) {
+                    missing = new ArrayList<>(activities.size());
+                    for (int m = 0; m < activities.size(); m++) {
+                        if (joining[m].get(k)) {
+                            missing.add(activities.get(m));
+                        }
+                    }
+                    break;
+                }
+            }
+            admitted[k].addAllToSignUpActivities(missing);
+        }
+        passengers.addAll(admittedList);
+        for (int t = 0; t < admittedByType.length; t++) {
+            if (admittedByType[t] > 0) {
+                passengersByType.addAndGet(t, admittedByType[t]);
+            }
+        }
+        for (EnrollmentResult result : results) {
+            BookingMetrics.recordEnrollment(result, 0);
+        }
+        BookingEvents.publish(BookingEvent.batchEnrollment(this, admitted, candidates.length));
+        return results;
+    }
+
+    /**
+     * Re-applies the effect of successful {@link #addPassenger(Passenger)} calls without checks or events,
+     * for example when replaying a journal: each passenger in turn takes a seat on every itinerary activity
+     * that still has one, and joins the roster. Activities a passenger already holds are left alone, so an
+     * enrollment that a snapshot captured halfway is completed rather than applied twice. The seats of each
+     * activity are claimed in one step and each roster grows by the whole batch at once.
+     *
+     * @param batch The passengers to enroll, in journal order.
+     */
+    void replayEnrollments(List<Passenger> batch) {
+        for (Destination d : itinerary) {
+            for (Activity a : d.getActivities()) {
+                List<Passenger> takers = new ArrayList<>(batch.size());
+                for (Passenger passenger : batch) {
+                    if (!passenger.holdsActivity(a)) {
+                        takers.add(passenger);
+                    }
+                }
+                List<Passenger> seated = takers.subList(0, a.tryReserveSeats(takers.size()));
+                a.addAllToRoster(seated);
+                for (Passenger passenger : seated) {
                     passenger.addToSignUpActivities(a);
                 }
             }
-            System.out.println(passenger.getName() + " added to " + name + ".");
-        } else {
-            System.out.println("Travel package is at full capacity. Cannot add more passengers.");
         }
+        synchronized (enrolledNumbers) {
+            for (Passenger passenger : batch) {
+                enrolledNumbers.add(passenger.getPassengerNumber());
+            }
+        }
+        reservedSeats.addAndGet(batch.size());
+        passengers.addAll(batch);
+        for (Passenger passenger : batch) {
+            passengersByType.incrementAndGet(passenger.getType().ordinal());
+        }
+    }
+
+    /**
+     * Takes a passenger out of the package. Each itinerary activity seat the passenger holds is cancelled as
+     * {@link Passenger#cancelActivity(Activity)} does, which hands it to the activity's waitlist, and the
+     * package seat is freed. The package price itself is never charged by {@link #addPassenger(Passenger)},
+     * so there is nothing to refund for it.
+     *
+     * @param passenger The passenger to remove.
+     * @return true if the passenger was enrolled.
+     */
+    public boolean removePassenger(Passenger passenger) {
+        if (!passengers.remove(passenger)) {
+            return false;
+        }
+        release(passenger);
+        for (Destination d : itinerary) {
+            for (Activity a : d.getActivities()) {
+                if (passenger.holdsActivity(a)) {
+                    passenger.cancelActivity(a);
+                }
+            }
+        }
+        passengersByType.decrementAndGet(passenger.getType().ordinal());
+        reservedSeats.decrementAndGet();
+        BookingEvents.publish(BookingEvent.withdrawn(passenger, this));
+        return true;
+    }
+
+    /**
+     * Checks whether a passenger is enrolled in the package.
+     *
+     * @param passenger The passenger.
+     * @return true if the passenger is enrolled.
+     */
+    public boolean isEnrolled(Passenger passenger) {
+        return passengers.contains(passenger);
+    }
+
+    /**
+     * Re-applies the effect of {@link #removePassenger(Passenger)} on the package alone, without events, for
+     * example when replaying a journal whose cancellation records already freed the activity seats.
+     *
+     * @param passenger The passenger to remove.
+     */
+    void replayWithdrawal(Passenger passenger) {
+        if (passengers.remove(passenger)) {
+            release(passenger);
+            passengersByType.decrementAndGet(passenger.getType().ordinal());
+            reservedSeats.decrementAndGet();
+        }
+    }
+
+    /**
+     * Adds a passenger to the roster and the aggregates without touching any activity, for example
+     * when loading a snapshot that already holds the activity rosters.
+     *
+     * @param passenger The passenger to enroll.
+     */
+    void restoreEnrollment(Passenger passenger) {
+        claim(passenger);
+        reservedSeats.incrementAndGet();
+        passengers.add(passenger);
+        passengersByType.incrementAndGet(passenger.getType().ordinal());
+    }
+
+    /**
+     * Overwrites the base cost, for example when loading a snapshot.
+     *
+     * @param baseCostCents The base cost in cents.
+     */
+    void restoreBaseCostCents(long baseCostCents) {
+        this.baseCostCents = baseCostCents;
+        this.prices = null;
+    }
+
+    /**
+     * Claims one package seat if the package is not yet at capacity.
+     *
+     * @return true if a seat was claimed.
+     */
+    private boolean tryReservePackageSeat() {
+        int taken;
+        do {
+            taken = reservedSeats.get();
+            if (taken >= passengerCapacity) {
+                return false;
+            }
+        } while (!reservedSeats.compareAndSet(taken, taken + 1));
+        return true;
+    }
+
+    /**
+     * Claims up to {@code requested} package seats in a single compare-and-set.
+     *
+     * @param requested The number of seats wanted.
+     * @return The number of seats actually claimed.
+     */
+    private int tryReservePackageSeats(int requested) {
+        int taken;
+        int granted;
+        do {
+            taken = reservedSeats.get();
+            granted = Math.min(passengerCapacity - taken, requested);
+            if (granted <= 0) {
+                return 0;
+            }
+        } while (!reservedSeats.compareAndSet(taken, taken + granted));
+        return granted;
+    }
+
+    /**
+     * Checks whether a passenger number is enrolled or being enrolled in the package, in constant time.
+     *
+     * @param passengerNumber The passenger number.
+     * @return true if the number is claimed.
+     */
+    public boolean isEnrolled(int passengerNumber) {
+        synchronized (enrolledNumbers) {
+            return enrolledNumbers.contains(passengerNumber);
+        }
+    }
+
+    /**
+     * Returns an index for set queries over the rosters of the itinerary's activities.
+     *
+     * @return A new index over the activities offered now.
+     */
+    public EnrollmentIndex getEnrollmentIndex() {
+        return new EnrollmentIndex(itinerary);
+    }
+
+    /**
+     * Claims a passenger's number for an enrollment.
+     *
+     * @param passenger The passenger.
+     * @return true if the number was free.
+     */
+    private boolean claim(Passenger passenger) {
+        synchronized (enrolledNumbers) {
+            return enrolledNumbers.add(passenger.getPassengerNumber());
+        }
+    }
+
+    /**
+     * Gives back a passenger's number after a failed enrollment or a withdrawal.
+     *
+     * @param passenger The passenger.
+     */
+    private void release(Passenger passenger) {
+        synchronized (enrolledNumbers) {
+            enrolledNumbers.remove(passenger.getPassengerNumber());
+        }
+    }
+
+    /**
+     * Claims one seat on every activity in the itinerary that the passenger does not already hold or is not
+     * already listed on, releasing all of them again if any activity is full.
+     *
+     * @param passenger The passenger being enrolled.
+     * @return The activities that now hold a seat, or null if the reservation was rolled back.
+     */
+    private List<Activity> reserveActivitySeats(Passenger passenger) {
+        List<Activity> reserved = new ArrayList<>();
+        for (Destination d : itinerary) {
+            for (Activity a : d.getActivities()) {
+                if (passenger.holdsActivity(a) || a.isSignedUp(passenger)) {
+                    continue;
+                }
+                if (!a.tryReserveSeat()) {
+                    for (Activity r : reserved) {
+                        r.releaseSeat();
+                    }
+                    return null;
+                }
+                reserved.add(a);
+            }
+        }
+        return reserved;
     }
 
     /**
@@ -116,44 +581,166 @@ public class TravelPackage {
      */
     public String generateReport() {
         StringBuilder report = new StringBuilder();
-        report.append("Travel Package Report for " + name + "\n");
-        report.append("Itinerary:\n");
-        for (Destination destination : itinerary) {
-            report.append("  - " + destination.getName() + "\n");
+        try {
+            writeReport(report);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringBuilder never throws
+        }
+        return report.toString();
+    }
+
+    /**
+     * Writes the same report as {@link #generateReport()} to a byte channel as UTF-8. Output is encoded and
+     * written in fixed-size chunks, so memory use does not depend on the roster size. The channel is not closed.
+     *
+     * @param channel The channel to write to.
+     * @throws IOException If the channel cannot be written.
+     */
+    public void writeReport(WritableByteChannel channel) throws IOException {
+        Writer writer = new BufferedWriter(
+                Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), REPORT_CHUNK_SIZE), REPORT_CHUNK_SIZE);
+        writeReport(writer);
+        writer.flush();
+    }
+
+    /**
+     * Streams the same report as {@link #generateReport()} to any {@link Appendable}, making a single pass
+     * over the roster. Each field is appended separately, so no per-row strings are built.
+     *
+     * @param out The destination for the report.
+     * @throws IOException If the destination cannot be written.
+     */
+    public void writeReport(Appendable out) throws IOException {
+        List<Destination> destinations = itinerary; // Both sections list the same version.
+        out.append("Travel Package Report for ").append(name).append('\n');
+        out.append("Itinerary:\n");
+        for (Destination destination : destinations) {
+            out.append("  - ").append(destination.getName()).append('\n');
             for (Activity activity : destination.getActivities()) {
-                report.append("    - " + activity.getName() + " (Cost: " + activity.getCost() + ", Capacity: " + activity.getCapacity() + ")\n");
+                out.append("    - ").append(activity.getName())
+                        .append(" (Cost: ").append(Money.format(activity.getCostCents()))
+                        .append(", Capacity: ").append(String.valueOf(activity.getCapacity()))
+                        .append(")\n");
             }
         }
-        report.append("Passengers:\n");
-        report.append("  - Total Passengers: " + passengers.size() + "\n");
+
+        PassengerType[] types = PassengerType.values();
+        String[] costByType = new String[types.length];
+        for (PassengerType type : types) {
+            costByType[type.ordinal()] = Money.format(calculateTotalCostCents(type));
+        }
+        out.append("Passengers:\n");
+        out.append("  - Total Passengers: ").append(String.valueOf(getPassengerCount())).append('\n');
         for (Passenger passenger : passengers) {
-            report.append("    - " + passenger.getName() + " (" + passenger.getType() + ", Balance: " + passenger.getBalance() + 
-            ", Total Cost: " + calculateTotalCost(passenger) + ")\n");
+            out.append("    - ").append(passenger.getName())
+                    .append(" (").append(passenger.getType().name())
+                    .append(", Balance: ").append(Money.format(passenger.getBalanceCents()))
+                    .append(", Total Cost: ").append(costByType[passenger.getType().ordinal()])
+                    .append(")\n");
+        }
+
+        out.append("Cost Breakdown:\n");
+        out.append("  - Base Cost: ").append(Money.format(baseCostCents)).append('\n');
+        out.append("  - Total Cost for All Passengers: ").append(Money.format(calculateTotalCostForAllPassengersCents())).append('\n');
+        out.append("Activities:\n");
+        for (Destination destination : destinations) {
+            out.append("  - ").append(destination.getName()).append('\n');
+            for (Activity activity : destination.getActivities()) {
+                String available = String.valueOf(activity.getCapacity());
+                out.append("    - ").append(activity.getName())
+                        .append(" (Capacity: ").append(available)
+                        .append(", Available Spaces: ").append(available)
+                        .append(")\n");
+            }
+        }
+    }
+
+   /**
+    * Calculates the total cost of the travel package for all enrolled passengers.
+    * Runs in constant time from the per-type passenger counts.
+    *
+    * @return The total cost for all passengers, in whole units with any cents truncated.
+    */
+   public int calculateTotalCostForAllPassengers() {
+       return (int) Money.toWholeUnits(calculateTotalCostForAllPassengersCents());
+   }
+
+   /**
+    * Calculates the exact total cost of the travel package for all enrolled passengers.
+    * Runs in constant time from the per-type passenger counts.
+    *
+    * @return The total cost for all passengers in cents.
+    */
+   public long calculateTotalCostForAllPassengersCents() {
+       long totalCost = 0;
+       for (PassengerType type : PassengerType.values()) {
+           totalCost += calculateTotalCostForTypeCents(type);
        }
-       report.append("Cost Breakdown:\n");
-       report.append("  - Base Cost: " + baseCost + "\n");
-       report.append("  - Total Cost for All Passengers: " + calculateTotalCostForAllPassengers() + "\n");
-       report.append("Activities:\n");
-       for (Destination destination : itinerary) {
-           report.append("  - " + destination.getName() + "\n");
-           for (Activity activity : destination.getActivities()) {
-               report.append("    - " + activity.getName() + " (Capacity: " + activity.getCapacity() + ", Available Spaces: " + activity.getCapacity() + ")\n");
-           }
+       return totalCost;
+   }
+
+   /**
+    * Calculates the exact total cost of the travel package for all enrolled passengers of one type.
+    *
+    * @param type The passenger type.
+    * @return The total cost for all passengers of that type, in cents.
+    */
+   public long calculateTotalCostForTypeCents(PassengerType type) {
+       return passengersByType.get(type.ordinal()) * calculateTotalCostCents(type);
+   }
+
+   /**
+    * Calculates the average cost of the travel package per enrolled passenger.
+    *
+    * @return The average cost in cents, rounded down, or 0 if nobody is enrolled.
+    */
+   public long calculateAverageCostCents() {
+       int count = getPassengerCount();
+       return count == 0 ? 0 : calculateTotalCostForAllPassengersCents() / count;
+   }
+
+   /**
+    * Returns the number of enrolled passengers.
+    *
+    * @return The passenger count.
+    */
+   public int getPassengerCount() {
+       int count = 0;
+       for (PassengerType type : PassengerType.values()) {
+           count += passengersByType.get(type.ordinal());
        }
-       return report.toString();
+       return count;
    }
 
    /**
-    * Calculates the total cost of the travel package for all enrolled passengers.
+    * Returns the number of enrolled passengers of one type.
     *
-    * @return The total cost for all passengers.
+    * @param type The passenger type.
+    * @return The passenger count for that type.
     */
-   public int calculateTotalCostForAllPassengers() {
-       int totalCost = 0;
+   public int getPassengerCount(PassengerType type) {
+       return passengersByType.get(type.ordinal());
+   }
+
+   /**
+    * Checks the running per-type counts and totals against a full walk of the roster.
+    * Meant for tests and diagnostics; the result is only reliable while no enrollment is in progress.
+    *
+    * @return true if the aggregates match a full recompute.
+    */
+   boolean aggregatesConsistent() {
+       int[] counts = new int[PassengerType.values().length];
+       long totalCost = 0;
        for (Passenger passenger : passengers) {
-           totalCost += calculateTotalCost(passenger);
+           counts[passenger.getType().ordinal()]++;
+           totalCost += calculateTotalCostCents(passenger);
        }
-       return totalCost;
+       for (PassengerType type : PassengerType.values()) {
+           if (counts[type.ordinal()] != passengersByType.get(type.ordinal())) {
+               return false;
+           }
+       }
+       return totalCost == calculateTotalCostForAllPassengersCents();
    }
 
    /**
@@ -178,7 +765,7 @@ public class TravelPackage {
     public void printPassengerList() {
         System.out.println("Passenger List for Travel Package " + name + ":");
         System.out.println("Passenger Capacity: " + passengerCapacity);
-        System.out.println("Number of Passengers Enrolled: " + passengers.size());
+        System.out.println("Number of Passengers Enrolled: " + getPassengerCount());
         for (Passenger passenger : passengers) {
             System.out.println("- " + passenger.getName() +
                     " (Passenger Number: " + passenger.getPassengerNumber() +
@@ -204,7 +791,7 @@ public class TravelPackage {
 
     /**
      * Returns Acitvity details
-     * @return List<Destination> 
+     * @return An immutable snapshot of the itinerary, in the order destinations were added
      */
     public List<Destination> getItinerary() {
         return itinerary;
@@ -212,10 +799,10 @@ public class TravelPackage {
 
     /**
      * Returns Passenger details
-     * @return List<Passenger> 
+     * @return An immutable snapshot of the enrolled passengers, in enrollment order
      */
     public List<Passenger> getPassengers() {
-        return passengers;
+        return passengers.snapshot();
     }
 }
 
@@ -0,0 +1,135 @@
+/**
+ * Queue of passengers waiting for a seat on a full activity.
+ *
+ * @author Parth Ahuja
+ * @version 1.0
+ * @since 2024-01-01
+ */
+package com.nymble;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Holds the requests waiting for a seat on one activity, ordered by passenger tier (gold first, then silver,
+ * then normal) and, within a tier, by the order in which they joined. The queue is a binary heap, so joining
+ * and promoting the next waiter are both O(log n).
+ *
+ * <p>Each waiter comes with a claim that is run once a seat has been reserved for it. The claim returns
+ * false if the seat is not wanted after all, for example because the passenger can no longer pay, and the
+ * seat then passes to the next waiter. A waiter whose future has been cancelled is dropped without being
+ * offered a seat.</p>
+ */
+final class Waitlist {
+
+    /**
+     * A request waiting for a seat.
+     */
+    static final class Waiter implements Comparable<Waiter> {
+
+        /**
+         * The tier of the passenger; higher ordinals are served first.
+         */
+        private final PassengerType tier;
+
+        /**
+         * The position in joining order, to keep requests of the same tier first come, first served.
+         */
+        private final long sequence;
+
+        /**
+         * Takes up the seat reserved for this request, returning false if it was not used.
+         */
+        final BooleanSupplier claim;
+
+        /**
+         * Completed with the outcome once the request leaves the waitlist.
+         */
+        final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+        /**
+         * Constructs a waiter.
+         *
+         * @param tier The tier of the passenger
+         * @param sequence The position in joining order
+         * @param claim Takes up the seat reserved for this request
+         */
+        private Waiter(PassengerType tier, long sequence, BooleanSupplier claim) {
+            this.tier = tier;
+            this.sequence = sequence;
+            this.claim = claim;
+        }
+
+        /**
+         * Orders waiters by descending tier, then by joining order.
+         *
+         * @param other The waiter to compare with
+         * @return A negative number if this waiter is served first
+         */
+        @Override
+        public int compareTo(Waiter other) {
+            int byTier = Integer.compare(other.tier.ordinal(), tier.ordinal());
+            return byTier != 0 ? byTier : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    /**
+     * The waiting requests, guarded by this waitlist's monitor.
+     */
+    private final PriorityQueue<Waiter> waiters = new PriorityQueue<>();
+
+    /**
+     * The sequence number given to the next request, guarded by this waitlist's monitor.
+     */
+    private long nextSequence;
+
+    /**
+     * The number of waiting requests, readable without the lock.
+     */
+    private volatile int size;
+
+    /**
+     * Adds a request to the waitlist.
+     *
+     * @param tier The tier of the passenger
+     * @param claim Takes up the seat once one has been reserved for the request
+     * @return The waiter, whose future completes when the request leaves the waitlist
+     */
+    synchronized Waiter add(PassengerType tier, BooleanSupplier claim) {
+        Waiter waiter = new Waiter(tier, nextSequence++, claim);
+        waiters.add(waiter);
+        size = waiters.size();
+        return waiter;
+    }
+
+    /**
+     * Removes the first waiter that is still pending, provided a seat of the activity can be reserved for it.
+     * Cancelled waiters ahead of it are discarded.
+     *
+     * @param activity The activity the waitlist belongs to
+     * @return The waiter, holding a reserved seat, or null if nobody is waiting or the activity is full
+     */
+    synchronized Waiter pollWithSeat(Activity activity) {
+        Waiter next;
+        while ((next = waiters.peek()) != null && next.result.isDone()) {
+            waiters.poll();
+        }
+        if (next == null || !activity.tryReserveSeat()) {
+            size = waiters.size();
+            return null;
+        }
+        waiters.poll();
+        size = waiters.size();
+        return next;
+    }
+
+    /**
+     * Returns the number of requests waiting, including cancelled ones not yet discarded.
+     *
+     * @return The waitlist length
+     */
+    int size() {
+        return size;
+    }
+}
@@ -3,6 +3,12 @@ package com.nymble;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class ActivityTest {
 
     @Test
@@ -78,5 +84,119 @@ public class ActivityTest {
         assertEquals(expectedDetails, centralParkPicnic.getActivityDetails());
     }
 
+    @Test
+    public void testConcurrentSignUpDoesNotOversell() throws InterruptedException {
+        Destination paris = new Destination("Paris");
+        Activity eiffelTowerTour = new Activity("Eiffel Tower Tour", "Guided tour of the Eiffel Tower", 50.0, 100, paris);
+        int threads = 8;
+        int attemptsPerThread = 50;
+        AtomicInteger accepted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            pool.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < attemptsPerThread; i++) {
+                    if (eiffelTowerTour.signUpPassenger(new NormalPassenger("Passenger", 100.0))) {
+                        accepted.incrementAndGet();
+                    }
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(100, accepted.get());
+        assertEquals(0, eiffelTowerTour.getCapacity());
+        assertEquals(100, eiffelTowerTour.getSignedUpPassengers().size());
+    }
+
     // Add more test cases as needed...
+
+    @Test
+    public void testSignUpPassengerRejectsDuplicates() {
+        Destination paris = new Destination("Paris");
+        Activity eiffelTowerTour = new Activity("Eiffel Tower Tour", "Guided tour of the Eiffel Tower", 50.0, 3, paris);
+        Passenger johnDoe = new NormalPassenger("John Doe", 100.0);
+
+        assertTrue(eiffelTowerTour.signUpPassenger(johnDoe));
+        assertFalse(eiffelTowerTour.signUpPassenger(johnDoe));
+        assertEquals(2, eiffelTowerTour.getCapacity());
+        assertTrue(eiffelTowerTour.isSignedUp(johnDoe));
+    }
+
+    @Test
+    public void testCancelPassengerFreesSeatForWaitlist() {
+        Destination paris = new Destination("Paris");
+        Activity eiffelTowerTour = new Activity("Eiffel Tower Tour", "Guided tour of the Eiffel Tower", 50.0, 1, paris);
+        Passenger johnDoe = new NormalPassenger("John Doe", 100.0);
+        Passenger janeDoe = new NormalPassenger("Jane Doe", 100.0);
+        assertTrue(eiffelTowerTour.signUpPassenger(johnDoe));
+        java.util.concurrent.CompletableFuture<Boolean> waiting = eiffelTowerTour.signUpPassengerOrWait(janeDoe);
+
+        assertTrue(eiffelTowerTour.cancelPassenger(johnDoe));
+        assertFalse(eiffelTowerTour.cancelPassenger(johnDoe));
+        assertTrue(waiting.getNow(false));
+        assertEquals(1, eiffelTowerTour.getSignedUpPassengers().size());
+        assertEquals(janeDoe, eiffelTowerTour.getSignedUpPassengers().get(0));
+        assertEquals(0, eiffelTowerTour.getCapacity());
+    }
+
+    @Test
+    public void testSeatHoldConfirmAndRelease() throws InterruptedException {
+        Destination paris = new Destination("Paris");
+        Activity eiffelTowerTour = new Activity("Eiffel Tower Tour", "Guided tour of the Eiffel Tower", 50.0, 2, paris);
+        Activity louvreVisit = new Activity("Louvre Visit", "Visit the Louvre Museum", 30.0, 1, paris);
+        Passenger johnDoe = new NormalPassenger("John Doe", 100.0);
+        try (SeatHoldScheduler scheduler = new SeatHoldScheduler(10, TimeUnit.MILLISECONDS, 64)) {
+            SeatHold first = eiffelTowerTour.holdSeat(1, TimeUnit.HOURS, scheduler);
+            SeatHold second = eiffelTowerTour.holdSeat(1, TimeUnit.HOURS, scheduler);
+            assertNull(eiffelTowerTour.holdSeat(1, TimeUnit.HOURS, scheduler));
+            assertEquals(0, eiffelTowerTour.getCapacity());
+
+            assertTrue(eiffelTowerTour.confirmHold(first, johnDoe));
+            assertFalse(eiffelTowerTour.releaseHold(first));
+            assertEquals(SeatHold.State.CONFIRMED, first.getState());
+            assertTrue(eiffelTowerTour.isSignedUp(johnDoe));
+
+            assertFalse(eiffelTowerTour.confirmHold(second, johnDoe));
+            assertEquals(SeatHold.State.CONFIRMED, second.getState());
+            assertEquals(1, eiffelTowerTour.getCapacity());
+            assertEquals(1, eiffelTowerTour.getSignedUpPassengers().size());
+
+            SeatHold third = eiffelTowerTour.holdSeat(1, TimeUnit.HOURS, scheduler);
+            assertTrue(eiffelTowerTour.releaseHold(third));
+            assertFalse(eiffelTowerTour.confirmHold(third, new NormalPassenger("Jane Doe", 100.0)));
+            assertEquals(1, eiffelTowerTour.getCapacity());
+
+            try {
+                louvreVisit.releaseHold(eiffelTowerTour.holdSeat(1, TimeUnit.HOURS, scheduler));
+                fail("A hold on another activity must be rejected");
+            } catch (IllegalArgumentException expected) {
+                assertEquals(1, louvreVisit.getCapacity());
+            }
+        }
+    }
+
+    @Test
+    public void testExpiredSeatHoldGoesToWaitlist() throws Exception {
+        Destination paris = new Destination("Paris");
+        Activity eiffelTowerTour = new Activity("Eiffel Tower Tour", "Guided tour of the Eiffel Tower", 50.0, 1, paris);
+        Passenger janeDoe = new NormalPassenger("Jane Doe", 100.0);
+        try (SeatHoldScheduler scheduler = new SeatHoldScheduler(1, TimeUnit.MILLISECONDS, 16)) {
+            SeatHold hold = eiffelTowerTour.holdSeat(20, TimeUnit.MILLISECONDS, scheduler);
+            java.util.concurrent.CompletableFuture<Boolean> waiting = eiffelTowerTour.signUpPassengerOrWait(janeDoe);
+
+            assertTrue(waiting.get(5, TimeUnit.SECONDS));
+            assertEquals(SeatHold.State.EXPIRED, hold.getState());
+            assertTrue(eiffelTowerTour.isSignedUp(janeDoe));
+            assertEquals(1, scheduler.getExpiredCount());
+        }
+    }
 }
@@ -0,0 +1,116 @@
+package com.nymble;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public class AsyncEventSinkTest {
+
+    @Test
+    public void testEventsAreDeliveredInOrder() throws InterruptedException {
+        List<BookingEvent> received = new CopyOnWriteArrayList<>();
+        AsyncEventSink sink = new AsyncEventSink(received::add, 16, AsyncEventSink.OverflowPolicy.BLOCK);
+        Passenger johnDoe = new NormalPassenger("John Doe", 100.0);
+        Activity eiffelTowerTour = new Activity("Eiffel Tower Tour", "Guided tour of the Eiffel Tower", 50.0, 2, new Destination("Paris"));
+
+        for (int i = 0; i < 100; i++) {
+            sink.publish(BookingEvent.signedUp(johnDoe, eiffelTowerTour, i, 1, 0));
+        }
+        sink.flush();
+
+        assertEquals(100, received.size());
+        assertEquals(42, received.get(42).getAmountCents());
+        assertEquals(0, sink.getDroppedCount());
+        sink.close();
+    }
+
+    @Test
+    public void testFlushWaitsForEventsPublishedBeforeIt() throws Exception {
+        List<BookingEvent> received = new CopyOnWriteArrayList<>();
+        AsyncEventSink sink = new AsyncEventSink(received::add, 8, AsyncEventSink.OverflowPolicy.BLOCK);
+        Passenger johnDoe = new NormalPassenger("John Doe", 100.0);
+        Activity eiffelTowerTour = new Activity("Eiffel Tower Tour", "Guided tour of the Eiffel Tower", 50.0, 2, new Destination("Paris"));
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Future<Boolean>> checks = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int base = t * 1000;
+            checks.add(pool.submit(() -> {
+                for (int i = 0; i < 200; i++) {
+                    BookingEvent event = BookingEvent.signedUp(johnDoe, eiffelTowerTour, base + i, 1, 0);
+                    sink.publish(event);
+                    sink.flush();
+                    if (!received.contains(event)) {
+                        return false;
+                    }
+                }
+                return true;
+            }));
+        }
+        for (Future<Boolean> check : checks) {
+            assertTrue(check.get());
+        }
+        pool.shutdown();
+        sink.close();
+        assertEquals(800, sink.getDeliveredCount());
+    }
+
+    @Test
+    public void testDropPolicyCountsDroppedEvents() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        AsyncEventSink sink = new AsyncEventSink(event -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, 4, AsyncEventSink.OverflowPolicy.DROP);
+        Passenger johnDoe = new NormalPassenger("John Doe", 100.0);
+
+        for (int i = 0; i < 20; i++) {
+            sink.publish(BookingEvent.enrollment(johnDoe, null, EnrollmentResult.PACKAGE_FULL));
+        }
+        release.countDown();
+        sink.flush();
+
+        assertTrue(sink.getDroppedCount() > 0);
+        assertEquals(20, sink.getAcceptedCount() + sink.getDroppedCount());
+        assertEquals(sink.getAcceptedCount(), sink.getDeliveredCount());
+        sink.close();
+    }
+
+    @Test
+    public void testBookingPathsPublishStructuredEvents() throws InterruptedException {
+        List<BookingEvent> received = new CopyOnWriteArrayList<>();
+        BookingEventSink previous = BookingEvents.getSink();
+        BookingEvents.setSink(received::add);
+        try {
+            TravelPackage travelPackage = new TravelPackage("Europe Tour", 1);
+            Destination paris = new Destination("Paris");
+            Activity eiffelTowerTour = new Activity("Eiffel Tower Tour", "Guided tour of the Eiffel Tower", 50.0, 5, paris);
+            paris.addActivity(eiffelTowerTour);
+            Passenger johnDoe = new NormalPassenger("John Doe", 100.0);
+
+            travelPackage.addPassenger(johnDoe);
+            travelPackage.addPassenger(new NormalPassenger("Jane Doe", 100.0));
+            johnDoe.signUpForActivity(eiffelTowerTour);
+        } finally {
+            BookingEvents.setSink(previous);
+        }
+
+        assertEquals(3, received.size());
+        assertEquals(BookingEvent.Type.ENROLLED, received.get(0).getType());
+        assertEquals(EnrollmentResult.PACKAGE_FULL, received.get(1).getReason());
+        assertEquals(BookingEvent.Type.SIGNED_UP, received.get(2).getType());
+        assertEquals("John Doe (NORMAL) signed up for Eiffel Tower Tour at Paris for a cost of 50.0",
+                ConsoleEventSink.format(received.get(2)));
+    }
+}
@@ -0,0 +1,137 @@
+package com.nymble;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class AvailabilityIndexTest {
+
+    private static List<Destination> itinerary(Activity... activities) {
+        Destination destination = activities[0].getDestination();
+        for (Activity activity : activities) {
+            destination.addActivity(activity);
+        }
+        List<Destination> destinations = new ArrayList<>();
+        destinations.add(destination);
+        return destinations;
+    }
+
+    @Test
+    public void testFindsCheapestWithEnoughSeats() {
+        Destination rome = new Destination("Rome");
+        Activity cheapFull = new Activity("Walk", "Old town walk", 5, 1, rome);
+        Activity cheap = new Activity("Gelato", "Gelato tasting", 10, 3, rome);
+        Activity mid = new Activity("Museum", "Vatican museums", 30, 10, rome);
+        Activity pricey = new Activity("Dinner", "Rooftop dinner", 90, 2, rome);
+
+        try (AvailabilityIndex index = new AvailabilityIndex(itinerary(pricey, mid, cheap, cheapFull))) {
+            assertEquals(4, index.size());
+            assertEquals(Arrays.asList(cheapFull, cheap), index.findCheapest(1, 2));
+            assertEquals(Arrays.asList(cheap, mid, pricey), index.findCheapest(2, 10));
+            assertEquals(Arrays.asList(mid), index.findCheapest(4, 10));
+            assertEquals(Arrays.asList(cheap, mid), index.findCheapest(1000, 3000, 1, 10));
+            assertTrue(index.findCheapest(11, 10).isEmpty());
+        }
+    }
+
+    @Test
+    public void testFollowsCapacityChanges() {
+        Destination rome = new Destination("Rome");
+        Activity cheap = new Activity("Gelato", "Gelato tasting", 10, 1, rome);
+        Activity mid = new Activity("Museum", "Vatican museums", 30, 1, rome);
+
+        AvailabilityIndex index = new AvailabilityIndex(itinerary(cheap, mid));
+        assertEquals(Arrays.asList(cheap), index.findCheapest(1, 1));
+
+        assertTrue(cheap.signUpPassenger(new NormalPassenger("Ada", 0)));
+        assertEquals(Arrays.asList(mid), index.findCheapest(1, 1));
+
+        cheap.releaseSeats(2);
+        assertEquals(Arrays.asList(cheap), index.findCheapest(2, 5));
+
+        Activity late = new Activity("Vespa", "Vespa tour", 1, 4, rome);
+        index.add(late);
+        assertEquals(Arrays.asList(late, cheap), index.findCheapest(2, 5));
+
+        index.close();
+        late.decreaseCapacity();
+        late.decreaseCapacity();
+        late.decreaseCapacity();
+        assertEquals(Arrays.asList(late, cheap), index.findCheapest(2, 5));
+    }
+
+    @Test
+    public void testMatchesFullScanOnLargeItinerary() {
+        Destination destination = new Destination("Everywhere");
+        List<Activity> activities = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Activity activity = new Activity("Activity " + i, "Generated", (i * 37) % 200, (i * 13) % 9, destination);
+            destination.addActivity(activity);
+            activities.add(activity);
+        }
+        List<Destination> destinations = new ArrayList<>();
+        destinations.add(destination);
+
+        try (AvailabilityIndex index = new AvailabilityIndex(destinations)) {
+            for (int i = 0; i < activities.size(); i += 7) {
+                activities.get(i).decreaseCapacity();
+            }
+            List<Activity> expected = new ArrayList<>();
+            for (Activity activity : activities) {
+                if (activity.getCapacity() >= 5) {
+                    expected.add(activity);
+                }
+            }
+            expected.sort((a, b) -> a.getCostCents() != b.getCostCents()
+                    ? Long.compare(a.getCostCents(), b.getCostCents())
+                    : Integer.compare(a.getId(), b.getId()));
+            assertEquals(expected.subList(0, 25), index.findCheapest(5, 25));
+        }
+    }
+
+    @Test
+    public void testConcurrentSeatChangesReachQueries() throws InterruptedException {
+        Destination destination = new Destination("Everywhere");
+        List<Activity> activities = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            Activity activity = new Activity("Activity " + i, "Generated", i, 500, destination);
+            destination.addActivity(activity);
+            activities.add(activity);
+        }
+        List<Destination> destinations = new ArrayList<>();
+        destinations.add(destination);
+
+        try (AvailabilityIndex index = new AvailabilityIndex(destinations)) {
+            ExecutorService pool = Executors.newFixedThreadPool(4);
+            for (int t = 0; t < 4; t++) {
+                int offset = t;
+                pool.execute(() -> {
+                    for (int i = 0; i < 2000; i++) {
+                        activities.get((i * 7 + offset) % activities.size()).decreaseCapacity();
+                    }
+                });
+            }
+            while (!pool.isTerminated()) {
+                index.findCheapest(1, 10);
+                pool.shutdown();
+                pool.awaitTermination(1, TimeUnit.MILLISECONDS);
+            }
+
+            List<Activity> expected = new ArrayList<>();
+            for (Activity activity : activities) {
+                if (activity.getCapacity() >= 380) {
+                    expected.add(activity);
+                }
+            }
+            assertEquals(expected, index.findCheapest(380, activities.size()));
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package com.nymble;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BookingJournalTest {
+
+    private BookingEventSink previousSink;
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        previousSink = BookingEvents.getSink();
+        directory = Files.createTempDirectory("booking-journal");
+    }
+
+    @After
+    public void tearDown() {
+        BookingEvents.setSink(previousSink);
+    }
+
+    private static TravelPackage newPackage() {
+        TravelPackage travelPackage = new TravelPackage("Alps", 10);
+        Destination zermatt = new Destination("Zermatt");
+        zermatt.addActivity(new Activity("Hike", "Matterhorn trail", 40.5, 5, zermatt));
+        zermatt.addActivity(new Activity("Ski", "Glacier run", 60, 5, zermatt));
+        travelPackage.addDestination(zermatt);
+        return travelPackage;
+    }
+
+    @Test
+    public void testRecoverFromSnapshotAndJournalTail() throws IOException {
+        TravelPackage travelPackage = newPackage();
+        Activity ski = travelPackage.getItinerary().get(0).getActivities().get(1);
+        BookingJournal journal = new BookingJournal(travelPackage, directory);
+        BookingEvents.setSink(journal);
+
+        Passenger gold = new PremiumPassenger("Ada", 500);
+        Passenger silver = new GoldPassenger("Grace", 500);
+        assertTrue(travelPackage.addPassenger(gold));
+        journal.checkpoint();
+        assertTrue(travelPackage.addPassenger(silver));
+        Passenger walkIn = new NormalPassenger("Linus", 100);
+        walkIn.signUpForActivity(ski);
+        silver.signUpForActivity(ski);
+        journal.close();
+
+        TravelPackage recovered = BookingJournal.recover(directory);
+        assertEquals(travelPackage.generateReport(), recovered.generateReport());
+        assertEquals(2, recovered.getPassengerCount());
+        Passenger recoveredSilver = recovered.getPassengers().get(1);
+        assertEquals(silver.getPassengerNumber(), recoveredSilver.getPassengerNumber());
+        assertEquals(silver.getBalanceCents(), recoveredSilver.getBalanceCents());
+        assertEquals(silver.getSignedUpActivities().size(), recoveredSilver.getSignedUpActivities().size());
+        assertTrue(recovered.aggregatesConsistent());
+    }
+
+    @Test
+    public void testRecoveryStopsAtTornRecord() throws IOException {
+        TravelPackage travelPackage = newPackage();
+        BookingJournal journal = new BookingJournal(travelPackage, directory, true, 0);
+        BookingEvents.setSink(journal);
+        assertTrue(travelPackage.addPassenger(new PremiumPassenger("Ada", 500)));
+        assertTrue(travelPackage.addPassenger(new PremiumPassenger("Grace", 500)));
+        journal.close();
+
+        Path segment = onlySegment();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        TravelPackage recovered = BookingJournal.recover(directory);
+        assertEquals(1, recovered.getPassengerCount());
+        assertEquals("Ada", recovered.getPassengers().get(0).getName());
+        assertEquals(4, recovered.getItinerary().get(0).getActivities().get(0).getCapacity());
+    }
+
+    @Test
+    public void testReopenContinuesAfterRecovery() throws IOException {
+        TravelPackage travelPackage = newPackage();
+        BookingJournal journal = new BookingJournal(travelPackage, directory);
+        BookingEvents.setSink(journal);
+        assertTrue(travelPackage.addPassenger(new PremiumPassenger("Ada", 500)));
+        long seq = journal.getDurableSeq();
+        journal.close();
+
+        TravelPackage recovered = BookingJournal.recover(directory);
+        BookingJournal reopened = new BookingJournal(recovered, directory);
+        BookingEvents.setSink(reopened);
+        assertTrue(recovered.addPassenger(new PremiumPassenger("Grace", 500)));
+        assertTrue(reopened.getDurableSeq() > seq);
+        reopened.close();
+
+        TravelPackage again = BookingJournal.recover(directory);
+        assertEquals(recovered.generateReport(), again.generateReport());
+        assertEquals(2, again.getPassengerCount());
+    }
+
+    @Test
+    public void testOpeningExistingJournalWithNewPackageIsRefused() throws IOException {
+        TravelPackage travelPackage = newPackage();
+        BookingJournal journal = new BookingJournal(travelPackage, directory);
+        BookingEvents.setSink(journal);
+        assertTrue(travelPackage.addPassenger(new PremiumPassenger("Ada", 500)));
+        journal.close();
+
+        try {
+            new BookingJournal(newPackage(), directory).close();
+            fail("Expected the existing journal to be kept");
+        } catch (IOException expected) {
+            // The history is still there.
+        }
+        assertEquals(1, BookingJournal.recover(directory).getPassengerCount());
+    }
+
+    @Test
+    public void testRejectedEnrollmentIsNotJournaled() throws IOException {
+        TravelPackage travelPackage = newPackage();
+        BookingJournal journal = new BookingJournal(travelPackage, directory);
+        BookingEvents.setSink(journal);
+        long before = journal.getDurableSeq();
+        assertFalse(travelPackage.addPassenger(new GoldPassenger("Broke", 1)));
+        journal.close();
+
+        assertEquals(before, journal.getDurableSeq());
+        assertEquals(0, BookingJournal.recover(directory).getPassengerCount());
+    }
+
+    @Test
+    public void testBatchEnrollmentIsJournaledFromOneEvent() throws IOException {
+        TravelPackage travelPackage = newPackage();
+        BookingJournal journal = new BookingJournal(travelPackage, directory);
+        List<BookingEvent> events = new ArrayList<>();
+        BookingEvents.setSink(event -> {
+            events.add(event);
+            journal.publish(event);
+        });
+        EnrollmentResult[] results = travelPackage.addPassengers(Arrays.asList(
+                new PremiumPassenger("Ada", 500), new GoldPassenger("Broke", 1), new NormalPassenger("Linus", 500)));
+        journal.close();
+
+        assertEquals(EnrollmentResult.INSUFFICIENT_BALANCE, results[1]);
+        assertEquals(1, events.size());
+        assertEquals(BookingEvent.Type.BATCH_ENROLLED, events.get(0).getType());
+        assertEquals(3, events.get(0).getBatchSize());
+        assertEquals(2, events.get(0).getPassengers().size());
+        assertEquals("2 of 3 passengers added to Alps.", ConsoleEventSink.format(events.get(0)));
+        TravelPackage recovered = BookingJournal.recover(directory);
+        assertEquals(travelPackage.generateReport(), recovered.generateReport());
+        assertEquals("Linus", recovered.getPassengers().get(1).getName());
+    }
+
+    @Test
+    public void testNewPassengersEnrollAfterRestart() throws IOException {
+        TravelPackage travelPackage = newPackage();
+        BookingJournal journal = new BookingJournal(travelPackage, directory);
+        BookingEvents.setSink(journal);
+        // An earlier run handed out a number this run's allocator has not reached yet.
+        int number = Passenger.nextPassengerNumber() + 1;
+        assertTrue(travelPackage.addPassenger(new NormalPassenger("Alice", 50_000L, number)));
+        journal.close();
+
+        TravelPackage recovered = BookingJournal.recover(directory);
+        BookingJournal reopened = new BookingJournal(recovered, directory);
+        BookingEvents.setSink(reopened);
+        Passenger bob = new NormalPassenger("Bob", 500);
+        assertTrue(bob.getPassengerNumber() > number);
+        assertTrue(recovered.addPassenger(bob));
+        reopened.close();
+        assertEquals(2, BookingJournal.recover(directory).getPassengerCount());
+    }
+
+    private Path onlySegment() throws IOException {
+        Path found = null;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "journal-*.log")) {
+            for (Path file : files) {
+                assertEquals(null, found);
+                found = file;
+            }
+        }
+        return found;
+    }
+
+    @Test
+    public void testRecoverCancellationsAndWithdrawals() throws IOException {
+        TravelPackage travelPackage = newPackage();
+        Activity hike = travelPackage.getItinerary().get(0).getActivities().get(0);
+        BookingJournal journal = new BookingJournal(travelPackage, directory);
+        BookingEvents.setSink(journal);
+
+        Passenger silver = new GoldPassenger("Grace", 500);
+        Passenger gold = new PremiumPassenger("Ada", 500);
+        assertTrue(travelPackage.addPassenger(silver));
+        assertTrue(travelPackage.addPassenger(gold));
+        silver.signUpForActivity(hike);
+        journal.checkpoint();
+        silver.signUpForActivity(hike);
+        assertTrue(silver.cancelActivity(hike));
+        assertTrue(travelPackage.removePassenger(gold));
+        journal.close();
+
+        TravelPackage recovered = BookingJournal.recover(directory);
+        assertEquals(travelPackage.generateReport(), recovered.generateReport());
+        assertEquals(1, recovered.getPassengerCount());
+        Passenger recoveredSilver = recovered.getPassengers().get(0);
+        assertEquals(silver.getBalanceCents(), recoveredSilver.getBalanceCents());
+        assertEquals(silver.getSignedUpActivities().size(), recoveredSilver.getSignedUpActivities().size());
+        Activity recoveredHike = recovered.getItinerary().get(0).getActivities().get(0);
+        assertEquals(hike.getCapacity(), recoveredHike.getCapacity());
+        assertTrue(recovered.aggregatesConsistent());
+    }
+
+    @Test
+    public void testCompactFoldsJournalIntoCheckpoint() throws IOException {
+        TravelPackage travelPackage = newPackage();
+        Activity hike = travelPackage.getItinerary().get(0).getActivities().get(0);
+        BookingJournal journal = new BookingJournal(travelPackage, directory);
+        BookingEvents.setSink(journal);
+        Passenger silver = new GoldPassenger("Grace", 500);
+        assertTrue(travelPackage.addPassenger(silver));
+        assertTrue(travelPackage.addPassenger(new PremiumPassenger("Ada", 500)));
+        silver.signUpForActivity(hike);
+        long lastSeq = journal.getDurableSeq();
+        journal.close();
+
+        TravelPackage compacted = BookingJournal.compact(directory);
+        assertEquals(travelPackage.generateReport(), compacted.generateReport());
+        BookingLedger ledger = BookingJournal.fold(directory, new BookingLedger());
+        assertEquals(lastSeq, ledger.getCheckpointSeq());
+        assertEquals(0, ledger.getRecordCount());
+        assertEquals(2, ledger.getEnrolledCount());
+        assertEquals(silver.getBalanceCents(), ledger.getBalanceCents(silver.getPassengerNumber()));
+        assertEquals(travelPackage.generateReport(), BookingJournal.recover(directory).generateReport());
+    }
+
+    @Test
+    public void testRecoverReplaysRunOfEnrollmentsUntilActivitiesFill() throws IOException {
+        TravelPackage travelPackage = newPackage();
+        Activity hike = travelPackage.getItinerary().get(0).getActivities().get(0);
+        BookingJournal journal = new BookingJournal(travelPackage, directory, false, 0);
+        BookingEvents.setSink(journal);
+        Passenger early = new NormalPassenger("Early", 100);
+        early.signUpForActivity(hike);
+        for (int i = 0; i < 5; i++) {
+            travelPackage.addPassenger(new PremiumPassenger("P" + i, 500));
+        }
+        journal.close();
+
+        TravelPackage recovered = BookingJournal.recover(directory);
+        assertEquals(travelPackage.generateReport(), recovered.generateReport());
+        assertEquals(travelPackage.getPassengerCount(), recovered.getPassengerCount());
+        assertEquals(0, recovered.getItinerary().get(0).getActivities().get(0).getCapacity());
+        assertTrue(recovered.aggregatesConsistent());
+    }
+
+    @Test
+    public void testSignUpAndCancelEventsCarryStateAtTheChange() {
+        TravelPackage travelPackage = newPackage();
+        Activity hike = travelPackage.getItinerary().get(0).getActivities().get(0);
+        Activity ski = travelPackage.getItinerary().get(0).getActivities().get(1);
+        Passenger normal = new NormalPassenger("Lin", 200);
+        List<BookingEvent> events = new ArrayList<>();
+        BookingEvents.setSink(events::add);
+
+        normal.signUpForActivity(hike);
+        normal.signUpForActivity(ski);
+        assertTrue(normal.cancelActivity(hike));
+
+        assertEquals(3, events.size());
+        assertEquals(1, events.get(0).getSeatCount());
+        assertEquals(15950, events.get(0).getBalanceCents());
+        assertEquals(2, events.get(1).getSeatCount());
+        assertEquals(9950, events.get(1).getBalanceCents());
+        assertEquals(BookingEvent.Type.CANCELLED, events.get(2).getType());
+        assertEquals(1, events.get(2).getSeatCount());
+        assertEquals(normal.getBalanceCents(), events.get(2).getBalanceCents());
+    }
+}
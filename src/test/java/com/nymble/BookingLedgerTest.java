@@ -0,0 +1,112 @@
+package com.nymble;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BookingLedgerTest {
+
+    private BookingEventSink previousSink;
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        previousSink = BookingEvents.getSink();
+        directory = Files.createTempDirectory("booking-ledger");
+    }
+
+    @After
+    public void tearDown() {
+        BookingEvents.setSink(previousSink);
+    }
+
+    @Test
+    public void testFoldMatchesLivePackageAcrossCheckpoint() throws IOException {
+        TravelPackage travelPackage = new TravelPackage("Alps", 10);
+        Destination zermatt = new Destination("Zermatt");
+        Activity hike = new Activity("Hike", "Matterhorn trail", 40.5, 5, zermatt);
+        Activity ski = new Activity("Ski", "Glacier run", 60, 5, zermatt);
+        zermatt.addActivity(hike);
+        zermatt.addActivity(ski);
+        travelPackage.addDestination(zermatt);
+        BookingJournal journal = new BookingJournal(travelPackage, directory);
+        BookingEvents.setSink(journal);
+
+        Passenger silver = new GoldPassenger("Grace", 500);
+        Passenger gold = new PremiumPassenger("Ada", 500);
+        Passenger walkIn = new NormalPassenger("Linus", 100);
+        assertTrue(travelPackage.addPassenger(silver));
+        assertTrue(travelPackage.addPassenger(gold));
+        silver.signUpForActivity(hike);
+        journal.checkpoint();
+        silver.signUpForActivity(ski);
+        walkIn.signUpForActivity(ski);
+        assertTrue(silver.cancelActivity(hike));
+        assertTrue(travelPackage.removePassenger(gold));
+        journal.close();
+
+        BookingLedger ledger = BookingJournal.fold(directory, new BookingLedger());
+        assertEquals(journal.getDurableSeq(), ledger.getLastSeq());
+        assertTrue(ledger.getRecordCount() > 0);
+        assertEquals(travelPackage.getPassengerCount(), ledger.getEnrolledCount());
+        assertEquals(1, ledger.getEnrolledCount(PassengerType.SILVER));
+        assertEquals(0, ledger.getEnrolledCount(PassengerType.GOLD));
+        assertTrue(ledger.isEnrolled(silver.getPassengerNumber()));
+        assertFalse(ledger.isEnrolled(gold.getPassengerNumber()));
+        assertFalse(ledger.isEnrolled(walkIn.getPassengerNumber()));
+        for (Passenger passenger : new Passenger[] {silver, gold, walkIn}) {
+            assertEquals(passenger.getBalanceCents(), ledger.getBalanceCents(passenger.getPassengerNumber()));
+        }
+        long spent = 50_000 - silver.getBalanceCents() + 50_000 - gold.getBalanceCents()
+                + 10_000 - walkIn.getBalanceCents();
+        assertEquals(spent, ledger.getRevenueCents());
+        assertEquals(spent, ledger.getRevenueCents(hike.getId()) + ledger.getRevenueCents(ski.getId()));
+        assertEquals(Collections.emptyList(), ledger.findUnreconciled());
+    }
+
+    @Test
+    public void testSkipsRecordsTheCheckpointAlreadyHolds() {
+        BookingLedger ledger = new BookingLedger();
+        ledger.passenger(1, PassengerType.NORMAL, "Linus", 8_000, true);
+        ledger.holding(1, 7, 2_000);
+        ledger.checkpoint(10);
+        ledger.signedUp(10, 1, 7, 2_000, 1);
+        ledger.balanceChanged(11, 1, 8_000);
+        ledger.signedUp(12, 1, 8, 3_000, 2);
+        ledger.balanceChanged(13, 1, 5_000);
+
+        assertEquals(4, ledger.getRecordCount());
+        assertEquals(13, ledger.getLastSeq());
+        assertEquals(2_000, ledger.getRevenueCents(7));
+        assertEquals(5_000, ledger.getRevenueCents());
+        assertEquals(Collections.emptyList(), ledger.findUnreconciled());
+    }
+
+    @Test
+    public void testAuditFindsBalanceThatDoesNotFollowFromCharges() {
+        BookingLedger ledger = new BookingLedger();
+        ledger.passenger(1, PassengerType.NORMAL, "Linus", 10_000, true);
+        ledger.passenger(2, PassengerType.SILVER, "Grace", 10_000, true);
+        ledger.checkpoint(0);
+        ledger.signedUp(1, 1, 7, 2_000, 1);
+        ledger.balanceChanged(2, 1, 9_000);
+        ledger.signedUp(3, 2, 7, 1_800, 1);
+        ledger.balanceChanged(4, 2, 8_200);
+
+        assertEquals(Collections.singletonList(1), ledger.findUnreconciled());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownPassengerIsRejected() {
+        new BookingLedger().getBalanceCents(42);
+    }
+}
@@ -0,0 +1,107 @@
+package com.nymble;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BookingMetricsTest {
+
+    private BookingEventSink previousSink;
+
+    private boolean previouslyEnabled;
+
+    @Before
+    public void setUp() {
+        previousSink = BookingEvents.getSink();
+        BookingEvents.setSink(event -> { });
+        previouslyEnabled = BookingMetrics.isEnabled();
+        BookingMetrics.setEnabled(true);
+        BookingMetrics.reset();
+    }
+
+    @After
+    public void tearDown() {
+        BookingMetrics.reset();
+        BookingMetrics.setEnabled(previouslyEnabled);
+        BookingEvents.setSink(previousSink);
+    }
+
+    @Test
+    public void testCountsSignUpsPerActivity() {
+        Destination paris = new Destination("Paris");
+        Activity tour = new Activity("Tour", "Guided tour", 50, 1, paris);
+        Activity cruise = new Activity("Cruise", "River cruise", 20, 5, paris);
+        paris.addActivity(tour);
+        paris.addActivity(cruise);
+
+        new NormalPassenger("Rich", 100).signUpForActivity(tour);
+        new NormalPassenger("Late", 100).signUpForActivity(tour);
+        new PremiumPassenger("Gold", 0).signUpForActivity(cruise);
+
+        MetricsSnapshot snapshot = BookingMetrics.snapshot();
+        assertEquals(2, snapshot.getSignUpsAccepted());
+        assertEquals(1, snapshot.getSignUpsRejected());
+        assertEquals(3, snapshot.getSignUpLatency().getCount());
+        MetricsSnapshot.ActivityStats tourStats = snapshot.getActivity(tour.getId());
+        assertEquals("Tour", tourStats.getName());
+        assertEquals(1, tourStats.getAccepted());
+        assertEquals(1, tourStats.getRejected());
+        assertEquals(2, tourStats.getLatency().getCount());
+        assertEquals(1, snapshot.getActivity(cruise.getId()).getAccepted());
+        assertEquals(2, snapshot.getActivities().size());
+        assertTrue(snapshot.toString().contains("activity." + tour.getId() + ".signups.rejected 1\n"));
+    }
+
+    @Test
+    public void testCountsEnrollmentOutcomes() {
+        TravelPackage travelPackage = new TravelPackage("Weekend", 2);
+        Destination rome = new Destination("Rome", 100);
+        rome.addActivity(new Activity("Forum", "Walk", 10, 10, rome));
+        travelPackage.addDestination(rome);
+
+        assertTrue(travelPackage.addPassenger(new PremiumPassenger("Ada", 1000)));
+        assertFalse(travelPackage.addPassenger(new PremiumPassenger("Poor", 0)));
+        List<Passenger> batch = new ArrayList<>();
+        batch.add(new PremiumPassenger("Bo", 1000));
+        batch.add(new PremiumPassenger("Cy", 1000));
+        travelPackage.addPassengers(batch);
+
+        MetricsSnapshot snapshot = BookingMetrics.snapshot();
+        assertEquals(2, snapshot.getEnrollments(EnrollmentResult.ENROLLED));
+        assertEquals(1, snapshot.getEnrollments(EnrollmentResult.INSUFFICIENT_BALANCE));
+        assertEquals(1, snapshot.getEnrollments(EnrollmentResult.PACKAGE_FULL));
+        assertEquals(0, snapshot.getEnrollments(EnrollmentResult.ACTIVITY_FULL));
+        assertEquals(2, snapshot.getEnrollmentLatency().getCount());
+        assertTrue(snapshot.toString().contains("enrollments.enrolled 2\n"));
+    }
+
+    @Test
+    public void testDisabledRecordsNothingAndResumes() {
+        Destination paris = new Destination("Paris");
+        Activity tour = new Activity("Tour", "Guided tour", 50, 5, paris);
+        paris.addActivity(tour);
+        new NormalPassenger("First", 100).signUpForActivity(tour);
+
+        BookingMetrics.setEnabled(false);
+        assertFalse(BookingMetrics.isEnabled());
+        assertEquals(0, BookingMetrics.startTimer());
+        new NormalPassenger("Unseen", 100).signUpForActivity(tour);
+        assertEquals(1, BookingMetrics.snapshot().getSignUpsAccepted());
+
+        BookingMetrics.setEnabled(true);
+        new NormalPassenger("Second", 100).signUpForActivity(tour);
+        assertEquals(2, BookingMetrics.snapshot().getSignUpsAccepted());
+
+        BookingMetrics.reset();
+        assertEquals(0, BookingMetrics.snapshot().getSignUpsAccepted());
+        assertNull(BookingMetrics.snapshot().getActivity(tour.getId()));
+    }
+}
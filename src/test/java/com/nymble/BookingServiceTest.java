@@ -0,0 +1,205 @@
+package com.nymble;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BookingServiceTest {
+
+    private BookingEventSink previousSink;
+
+    @Before
+    public void setUp() {
+        previousSink = BookingEvents.getSink();
+        BookingEvents.setSink(event -> { });
+    }
+
+    @After
+    public void tearDown() {
+        BookingEvents.setSink(previousSink);
+    }
+
+    @Test
+    public void testConcurrentEnrollmentsRespectCapacity() {
+        TravelPackage travelPackage = new TravelPackage("Virtual Tour", 1000);
+        Destination destination = new Destination("Everywhere");
+        destination.addActivity(new Activity("Walk", "A walk", 1, 1500, destination));
+        travelPackage.addDestination(destination);
+
+        List<CompletableFuture<Boolean>> results = new ArrayList<>();
+        try (BookingService service = new BookingService(64)) {
+            for (int i = 0; i < 5000; i++) {
+                results.add(service.enroll(travelPackage, new PremiumPassenger("Passenger " + i, 100)));
+            }
+        }
+
+        int enrolled = 0;
+        for (CompletableFuture<Boolean> result : results) {
+            if (result.join()) {
+                enrolled++;
+            }
+        }
+        assertEquals(1000, enrolled);
+        assertEquals(1000, travelPackage.getPassengerCount());
+        assertEquals(500, destination.getActivities().get(0).getCapacity());
+    }
+
+    @Test
+    public void testSignUpReportsOutcome() {
+        Destination destination = new Destination("Paris");
+        Activity tour = new Activity("Tour", "Guided tour", 50, 5, destination);
+        destination.addActivity(tour);
+        TravelPackage travelPackage = new TravelPackage("Paris Trip", 5);
+
+        try (BookingService service = new BookingService()) {
+            assertTrue(service.signUp(travelPackage, new NormalPassenger("Rich", 100), tour).join());
+            assertFalse(service.signUp(travelPackage, new NormalPassenger("Broke", 10), tour).join());
+        }
+        assertEquals(4, tour.getCapacity());
+    }
+
+    @Test
+    public void testConcurrentSignUpsDoNotOversell() {
+        Destination destination = new Destination("Paris");
+        Activity tour = new Activity("Tour", "Guided tour", 50, 1, destination);
+        destination.addActivity(tour);
+        TravelPackage travelPackage = new TravelPackage("Paris Trip", 5);
+
+        List<Passenger> passengers = new ArrayList<>();
+        List<CompletableFuture<Boolean>> results = new ArrayList<>();
+        try (BookingService service = new BookingService()) {
+            for (int i = 0; i < 64; i++) {
+                Passenger passenger = new NormalPassenger("Passenger " + i, 100);
+                passengers.add(passenger);
+                results.add(service.signUp(travelPackage, passenger, tour));
+            }
+        }
+
+        int signedUp = 0;
+        long charged = 0;
+        for (int i = 0; i < results.size(); i++) {
+            if (results.get(i).join()) {
+                signedUp++;
+            }
+            charged += 10_000 - passengers.get(i).getBalanceCents();
+        }
+        assertEquals(1, signedUp);
+        assertEquals(5_000, charged);
+        assertEquals(0, tour.getCapacity());
+    }
+
+    @Test
+    public void testConcurrentSignUpsOfOnePassengerNeverOverdraw() {
+        Destination destination = new Destination("Paris");
+        List<Activity> tours = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            Activity tour = new Activity("Tour " + i, "Guided tour", 10, 1, destination);
+            destination.addActivity(tour);
+            tours.add(tour);
+        }
+        TravelPackage travelPackage = new TravelPackage("Paris Trip", 5);
+        Passenger passenger = new NormalPassenger("Budget", 100);
+
+        List<CompletableFuture<Boolean>> results = new ArrayList<>();
+        try (BookingService service = new BookingService()) {
+            for (Activity tour : tours) {
+                results.add(service.signUp(travelPackage, passenger, tour));
+            }
+        }
+
+        int signedUp = 0;
+        int seatsTaken = 0;
+        for (int i = 0; i < tours.size(); i++) {
+            if (results.get(i).join()) {
+                signedUp++;
+            }
+            seatsTaken += 1 - tours.get(i).getCapacity();
+        }
+        assertEquals(10, signedUp);
+        assertEquals(10, seatsTaken);
+        assertEquals(0, passenger.getBalanceCents());
+        assertEquals(10, passenger.getSignedUpActivities().size());
+    }
+
+    @Test
+    public void testSignUpOrWaitCompletesOnPromotion() throws Exception {
+        Destination destination = new Destination("Rome");
+        Activity colosseum = new Activity("Colosseum", "Night visit", 40, 1, destination);
+        destination.addActivity(colosseum);
+        TravelPackage travelPackage = new TravelPackage("Rome Trip", 5);
+
+        try (BookingService service = new BookingService()) {
+            assertTrue(service.signUpOrWait(travelPackage, new NormalPassenger("First", 100), colosseum).join());
+            CompletableFuture<Boolean> waiting =
+                    service.signUpOrWait(travelPackage, new PremiumPassenger("Second", 0), colosseum);
+            while (colosseum.getWaitlistSize() == 0) {
+                Thread.sleep(1);
+            }
+            assertFalse(waiting.isDone());
+            colosseum.releaseSeat();
+            assertTrue(waiting.get(5, TimeUnit.SECONDS));
+            assertEquals(0, service.getInFlight(travelPackage));
+        }
+        assertEquals(0, colosseum.getCapacity());
+    }
+
+    @Test
+    public void testSubmissionWaitsWhenPackageIsSaturated() throws InterruptedException {
+        TravelPackage travelPackage = new TravelPackage("Busy Tour", 10);
+        CountDownLatch release = new CountDownLatch(1);
+        BookingEvents.setSink(event -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        try (BookingService service = new BookingService(2)) {
+            service.enroll(travelPackage, new PremiumPassenger("First", 0));
+            service.enroll(travelPackage, new PremiumPassenger("Second", 0));
+            CountDownLatch submitted = new CountDownLatch(1);
+            Thread third = Thread.ofVirtual().start(() -> {
+                service.enroll(travelPackage, new PremiumPassenger("Third", 0));
+                submitted.countDown();
+            });
+
+            assertFalse(submitted.await(200, TimeUnit.MILLISECONDS));
+            assertEquals(2, service.getInFlight(travelPackage));
+            release.countDown();
+            assertTrue(submitted.await(5, TimeUnit.SECONDS));
+            third.join();
+        }
+        assertEquals(3, travelPackage.getPassengerCount());
+    }
+
+    @Test
+    public void testIdlePackagesAreNotRetained() {
+        BookingService service = new BookingService(4);
+        TravelPackage[] packages = new TravelPackage[50];
+        List<CompletableFuture<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < packages.length; i++) {
+            packages[i] = new TravelPackage("Tour " + i, 5);
+            for (int j = 0; j < 3; j++) {
+                results.add(service.enroll(packages[i], new PremiumPassenger("Passenger " + j, 0)));
+            }
+        }
+        service.close();
+
+        for (CompletableFuture<Boolean> result : results) {
+            assertTrue(result.join());
+        }
+        assertEquals(0, service.getActivePackageCount());
+        assertEquals(0, service.getInFlight(packages[0]));
+    }
+}
@@ -0,0 +1,123 @@
+package com.nymble;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class CatalogTest {
+
+    private static Path writeCatalog(int destinations, int activitiesEach) throws IOException {
+        List<Destination> source = new ArrayList<>();
+        for (int d = 0; d < destinations; d++) {
+            Destination destination = new Destination("Destination " + d, 100);
+            for (int a = 0; a < activitiesEach; a++) {
+                destination.addActivity(new Activity("Activity " + d + "." + a, "Café tour " + a, 10.25 + a, 5, destination));
+            }
+            source.add(destination);
+        }
+        Path file = Files.createTempFile("catalog", ".bin");
+        Catalog.write(source, file);
+        return file;
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        Destination paris = new Destination("Paris", 70);
+        Activity tour = new Activity("Eiffel Tower Tour", "Guided tour", 50.5, 20, paris);
+        paris.addActivity(tour);
+        Path file = Files.createTempFile("catalog", ".bin");
+        List<Destination> source = new ArrayList<>();
+        source.add(paris);
+        Catalog.write(source, file);
+
+        Catalog catalog = Catalog.open(file);
+        assertEquals(1, catalog.getDestinationCount());
+        assertEquals(1, catalog.getActivityCount());
+        Destination loaded = catalog.getDestination(0);
+        assertEquals("Paris", loaded.getName());
+        assertEquals(paris.getCostCents(), loaded.getCostCents());
+        Activity loadedTour = loaded.getActivities().get(0);
+        assertEquals(tour.getId(), loadedTour.getId());
+        assertEquals("Eiffel Tower Tour", loadedTour.getName());
+        assertEquals("Guided tour", loadedTour.getDescription());
+        assertEquals(5050, loadedTour.getCostCents());
+        assertEquals(20, loadedTour.getCapacity());
+        assertSame(loaded, loadedTour.getDestination());
+    }
+
+    @Test
+    public void testActivitiesAreBuiltOnFirstAccess() throws IOException {
+        Catalog catalog = Catalog.open(writeCatalog(100, 50));
+        assertEquals(5000, catalog.getActivityCount());
+        assertEquals(0, catalog.getMaterializedActivityCount());
+
+        Destination destination = catalog.getDestination(42);
+        assertSame(destination, catalog.getDestination(42));
+        assertEquals(50, destination.getActivities().size());
+        assertEquals(0, catalog.getMaterializedActivityCount());
+
+        Activity activity = destination.getActivities().get(7);
+        assertEquals("Activity 42.7", activity.getName());
+        assertEquals("Café tour 7", activity.getDescription());
+        assertSame(activity, destination.getActivities().get(7));
+        assertEquals(1, catalog.getMaterializedActivityCount());
+    }
+
+    @Test
+    public void testLookupByIdAndBooking() throws IOException {
+        Catalog catalog = Catalog.open(writeCatalog(3, 10));
+        Destination destination = catalog.getDestination(1);
+        Activity third = destination.getActivities().get(3);
+        assertSame(third, destination.getActivity(third.getId()));
+        assertNull(destination.getActivity(-1));
+
+        Activity added = new Activity("Late addition", "Added after loading", 5, 1, destination);
+        assertTrue(added.getId() > catalog.getDestination(2).getActivities().get(9).getId());
+        destination.addActivity(added);
+        assertEquals(11, destination.getActivities().size());
+        assertSame(added, destination.getActivity(added.getId()));
+
+        TravelPackage travelPackage = new TravelPackage("Catalog Tour", 5);
+        travelPackage.addDestination(destination);
+        assertTrue(travelPackage.addPassenger(new PremiumPassenger("Ada", 10_000)));
+        assertEquals(4, third.getCapacity());
+        assertEquals(0, added.getCapacity());
+    }
+
+    private static void assertCorruptHeaderRejected(Path file, int position, int value) throws IOException {
+        Path corrupt = Files.createTempFile("catalog", ".bin");
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file));
+        bytes.putInt(position, value);
+        Files.write(corrupt, bytes.array());
+        try {
+            Catalog.open(corrupt);
+            fail("Expected header field at " + position + " = " + value + " to be rejected");
+        } catch (IOException expected) {
+            // Rejected when opened rather than on first access.
+        }
+    }
+
+    @Test
+    public void testCorruptSectionBoundsAreRejectedOnOpen() throws IOException {
+        Path file = writeCatalog(3, 10);
+        long size = Files.size(file);
+        assertCorruptHeaderRejected(file, 8, -1);
+        assertCorruptHeaderRejected(file, 8, 1_000_000);
+        assertCorruptHeaderRejected(file, 12, -1);
+        assertCorruptHeaderRejected(file, 20, (int) size);
+        assertCorruptHeaderRejected(file, 20, -8);
+        assertCorruptHeaderRejected(file, 24, (int) size - 4);
+        assertCorruptHeaderRejected(file, 32, (int) size + 1);
+    }
+}
@@ -89,6 +89,34 @@ public class DestinationTest {
         assertEquals(expectedDetails, newYork.getActivityDetails());
     }
 
+    @Test
+    public void testGetActivityById() {
+        Destination paris = new Destination("Paris");
+        Activity eiffelTowerTour = new Activity("Eiffel Tower Tour", "Guided tour of the Eiffel Tower", 50.0, 2, paris);
+        Activity louvreVisit = new Activity("Louvre Visit", "Museum visit", 20.0, 2, paris);
+
+        paris.addActivity(eiffelTowerTour);
+
+        assertNotEquals(eiffelTowerTour.getId(), louvreVisit.getId());
+        assertSame(eiffelTowerTour, paris.getActivity(eiffelTowerTour.getId()));
+        assertNull(paris.getActivity(louvreVisit.getId()));
+    }
+
+    @Test
+    public void testDecreaseActivityCapacityIgnoresForeignActivity() {
+        Destination paris = new Destination("Paris");
+        Destination newYork = new Destination("New York");
+        Activity eiffelTowerTour = new Activity("Eiffel Tower Tour", "Guided tour of the Eiffel Tower", 50.0, 2, paris);
+        Activity centralParkPicnic = new Activity("Central Park Picnic", "Picnic in Central Park", 30.0, 2, newYork);
+        paris.addActivity(eiffelTowerTour);
+
+        paris.decreaseActivityCapacity(eiffelTowerTour);
+        paris.decreaseActivityCapacity(centralParkPicnic);
+
+        assertEquals(1, eiffelTowerTour.getCapacity());
+        assertEquals(2, centralParkPicnic.getCapacity());
+    }
+
     // Add more test cases as needed...
 }
 
@@ -0,0 +1,53 @@
+package com.nymble;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class EnrollmentIndexTest {
+
+    @Test
+    public void testFindPassengersInSomeActivitiesButNotOthers() {
+        Destination paris = new Destination("Paris");
+        Activity a = new Activity("Eiffel Tower Tour", "Guided tour of the Eiffel Tower", 0.0, 10, paris);
+        Activity b = new Activity("Louvre Visit", "Visit the Louvre Museum", 0.0, 10, paris);
+        Activity c = new Activity("Seine Cruise", "Boat ride on the Seine", 0.0, 10, paris);
+        paris.addActivity(a);
+        paris.addActivity(b);
+        paris.addActivity(c);
+        Passenger p1 = new NormalPassenger("One", 0.0);
+        Passenger p2 = new NormalPassenger("Two", 0.0);
+        Passenger p3 = new NormalPassenger("Three", 0.0);
+        for (Passenger p : Arrays.asList(p1, p2, p3)) {
+            assertTrue(a.signUpPassenger(p));
+            assertTrue(b.signUpPassenger(p));
+        }
+        assertTrue(c.signUpPassenger(p2));
+        assertFalse(a.signUpPassenger(p1));
+
+        EnrollmentIndex index = new EnrollmentIndex(Arrays.asList(paris));
+
+        assertEquals(3, index.size());
+        assertArrayEquals(new int[] {p1.getPassengerNumber(), p3.getPassengerNumber()},
+                index.findPassengers(new int[] {a.getId(), b.getId()}, new int[] {c.getId()}).toArray());
+        assertArrayEquals(new int[] {p2.getPassengerNumber()},
+                index.findPassengers(new int[] {c.getId()}, new int[0]).toArray());
+        assertEquals(3, index.findPassengersInAny(c.getId(), a.getId()).getCardinality());
+        assertArrayEquals(new int[] {a.getId(), b.getId(), c.getId()},
+                index.getActivities(p2.getPassengerNumber()).toArray());
+
+        assertTrue(a.removeFromRoster(p1));
+        assertFalse(index.isSignedUp(p1.getPassengerNumber(), a.getId()));
+        assertEquals(2, index.getPassengers(a.getId()).getCardinality());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownActivityIsRejected() {
+        new EnrollmentIndex(Arrays.asList(new Destination("Paris"))).getPassengers(42);
+    }
+}
@@ -0,0 +1,93 @@
+package com.nymble;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+public class IdBitmapTest {
+
+    @Test
+    public void testMatchesTreeSetUnderRandomUpdates() {
+        Random random = new Random(42);
+        IdBitmap bitmap = new IdBitmap();
+        TreeSet<Integer> expected = new TreeSet<>();
+        // Dense enough in the low chunk to switch containers back and forth, sparse across the others.
+        for (int step = 0; step < 50_000; step++) {
+            int value = random.nextInt(4) == 0 ? random.nextInt(1 << 20) : random.nextInt(2 * IdBitmap.ARRAY_MAX);
+            if (random.nextInt(3) > 0) {
+                assertEquals(expected.add(value), bitmap.add(value));
+            } else {
+                assertEquals(expected.remove(value), bitmap.remove(value));
+            }
+        }
+        assertEquals(expected.size(), bitmap.getCardinality());
+        assertArrayEquals(toArray(expected), bitmap.toArray());
+        for (int value = 0; value < 3 * IdBitmap.ARRAY_MAX; value++) {
+            assertEquals(expected.contains(value), bitmap.contains(value));
+        }
+    }
+
+    @Test
+    public void testSetAlgebraMatchesTreeSet() {
+        Random random = new Random(7);
+        IdBitmap a = new IdBitmap();
+        IdBitmap b = new IdBitmap();
+        TreeSet<Integer> setA = new TreeSet<>();
+        TreeSet<Integer> setB = new TreeSet<>();
+        for (int i = 0; i < 20_000; i++) {
+            int value = random.nextInt(1 << 18);
+            a.add(value);
+            setA.add(value);
+        }
+        for (int i = 0; i < 300; i++) {
+            int value = random.nextInt(1 << 18);
+            b.add(value);
+            setB.add(value);
+        }
+
+        TreeSet<Integer> and = new TreeSet<>(setA);
+        and.retainAll(setB);
+        TreeSet<Integer> or = new TreeSet<>(setA);
+        or.addAll(setB);
+        TreeSet<Integer> andNot = new TreeSet<>(setA);
+        andNot.removeAll(setB);
+        TreeSet<Integer> notAnd = new TreeSet<>(setB);
+        notAnd.removeAll(setA);
+
+        assertArrayEquals(toArray(and), IdBitmap.and(a, b).toArray());
+        assertArrayEquals(toArray(and), IdBitmap.and(b, a).toArray());
+        assertArrayEquals(toArray(or), IdBitmap.or(a, b).toArray());
+        assertArrayEquals(toArray(andNot), IdBitmap.andNot(a, b).toArray());
+        assertArrayEquals(toArray(notAnd), IdBitmap.andNot(b, a).toArray());
+        assertTrue(IdBitmap.andNot(a, a).isEmpty());
+    }
+
+    @Test
+    public void testCopyIsIndependent() {
+        IdBitmap bitmap = new IdBitmap();
+        for (int value = 0; value <= IdBitmap.ARRAY_MAX; value++) {
+            bitmap.add(value);
+        }
+        IdBitmap copy = bitmap.copy();
+        bitmap.remove(0);
+
+        assertTrue(copy.contains(0));
+        assertFalse(bitmap.contains(0));
+        assertEquals(IdBitmap.ARRAY_MAX + 1, copy.getCardinality());
+    }
+
+    private static int[] toArray(TreeSet<Integer> set) {
+        int[] values = new int[set.size()];
+        int i = 0;
+        for (int value : set) {
+            values[i++] = value;
+        }
+        return values;
+    }
+}
@@ -0,0 +1,39 @@
+package com.nymble;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBuckets() {
+        assertEquals(0, LatencyHistogram.bucketOf(0));
+        assertEquals(1, LatencyHistogram.bucketOf(1));
+        assertEquals(2, LatencyHistogram.bucketOf(3));
+        assertEquals(11, LatencyHistogram.bucketOf(1024));
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketOf(Long.MAX_VALUE));
+        assertEquals(2047, LatencyHistogram.bucketUpperBoundNanos(11));
+    }
+
+    @Test
+    public void testSnapshotStatistics() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(100);
+        }
+        histogram.record(5000);
+        histogram.record(-3);
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(101, snapshot.getCount());
+        assertEquals((99 * 100 + 5000) / 101, snapshot.getMeanNanos());
+        assertEquals(5000, snapshot.getMaxNanos());
+        assertEquals(127, snapshot.getPercentileNanos(50));
+        assertEquals(127, snapshot.getPercentileNanos(98));
+        assertEquals(5000, snapshot.getPercentileNanos(100));
+        assertEquals(0, snapshot.getPercentileNanos(0));
+        assertEquals(1, snapshot.getBucketCounts()[0]);
+        assertEquals(0, new LatencyHistogram().snapshot().getPercentileNanos(99));
+    }
+}
@@ -0,0 +1,34 @@
+package com.nymble;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class MoneyTest {
+
+    @Test
+    public void testOfMajorUsesDecimalValue() {
+        assertEquals(1005, Money.ofMajor(10.05));
+        assertEquals(100, Money.ofMajor(1.005)); // half-even
+        assertEquals(102, Money.ofMajor(1.015));
+        assertEquals(-250, Money.ofMajor(-2.5));
+        assertEquals(0, Money.ofMajor(0.0));
+    }
+
+    @Test
+    public void testDiscountRoundsHalfUp() {
+        assertEquals(4500, Money.discount(5000, 10));
+        assertEquals(14, Money.discount(15, 10)); // 13.5 cents
+        assertEquals(13, Money.discount(14, 10)); // 12.6 cents
+        assertEquals(1, Money.percentOf(1, 50)); // 0.5 cents
+        assertEquals(0, Money.percentOf(1, 49));
+    }
+
+    @Test
+    public void testFormat() {
+        assertEquals("12.50", Money.format(1250));
+        assertEquals("0.05", Money.format(5));
+        assertEquals("-3.07", Money.format(-307));
+        assertEquals(12, Money.toWholeUnits(1299));
+    }
+}
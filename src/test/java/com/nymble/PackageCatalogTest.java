@@ -0,0 +1,87 @@
+package com.nymble;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PackageCatalogTest {
+
+    private BookingEventSink previousSink;
+
+    @Before
+    public void setUp() {
+        previousSink = BookingEvents.getSink();
+        BookingEvents.setSink(event -> { });
+    }
+
+    @After
+    public void tearDown() {
+        BookingEvents.setSink(previousSink);
+    }
+
+    @Test
+    public void testLookupByName() {
+        PackageCatalog catalog = new PackageCatalog();
+        TravelPackage europe = new TravelPackage("Europe Tour", 2);
+
+        assertTrue(catalog.add(europe));
+        assertFalse(catalog.add(new TravelPackage("Europe Tour", 5)));
+        assertSame(europe, catalog.get("Europe Tour"));
+        assertEquals(1, catalog.size());
+        assertSame(europe, catalog.remove("Europe Tour"));
+        assertNull(catalog.get("Europe Tour"));
+        assertEquals(0, catalog.aggregate().getPackageCount());
+    }
+
+    @Test
+    public void testParallelAggregateMatchesSequentialSum() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            PackageCatalog catalog = new PackageCatalog(pool);
+            long expectedRevenue = 0;
+            long expectedPassengers = 0;
+            long expectedGold = 0;
+            long expectedCapacity = 0;
+            for (int p = 0; p < 500; p++) {
+                TravelPackage travelPackage = new TravelPackage("Package " + p, 10);
+                Destination destination = new Destination("Destination " + p, 100);
+                destination.addActivity(new Activity("Hike " + p, "Trail", 20.0, 4, destination));
+                travelPackage.addDestination(destination);
+                for (int i = 0; i < p % 5; i++) {
+                    Passenger passenger = i % 2 == 0
+                            ? new PremiumPassenger("Gold " + i, 1000.0)
+                            : new NormalPassenger("Normal " + i, 1000.0);
+                    assertTrue(travelPackage.addPassenger(passenger));
+                }
+                assertTrue(catalog.add(travelPackage));
+                expectedRevenue += travelPackage.calculateTotalCostForAllPassengersCents();
+                expectedPassengers += travelPackage.getPassengerCount();
+                expectedGold += travelPackage.getPassengerCount(PassengerType.GOLD);
+                expectedCapacity += travelPackage.getPassengerCapacity();
+            }
+
+            FleetStats stats = catalog.aggregate();
+
+            assertEquals(500, stats.getPackageCount());
+            assertEquals(expectedRevenue, stats.getRevenueCents());
+            assertEquals(expectedPassengers, stats.getPassengerCount());
+            assertEquals(expectedGold, stats.getPassengerCount(PassengerType.GOLD));
+            assertEquals(expectedCapacity, stats.getPassengerCapacity());
+            assertEquals(500, stats.getActivityCount());
+            assertEquals(expectedPassengers, stats.getActivitySeatsTaken());
+            assertEquals(2000, stats.getActivitySeatsTaken() + stats.getActivitySeatsFree());
+            assertEquals(expectedPassengers / 2000.0, stats.getActivityFillRate(), 1e-9);
+            assertEquals((double) expectedPassengers / expectedCapacity, stats.getOccupancyRate(), 1e-9);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
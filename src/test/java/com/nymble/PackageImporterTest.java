@@ -0,0 +1,157 @@
+package com.nymble;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PackageImporterTest {
+
+    private static final String CSV = "﻿# catalog\r\n"
+            + "destination,Paris\r\n"
+            + "activity,Paris,Eiffel Tower Tour,\"Guided tour, with \"\"summit\"\" access\",50.25,5\r\n"
+            + "\r\n"
+            + "destination,New York\n"
+            + "activity,New York,Central Park Picnic,Picnic in Central Park,30,15\n"
+            + "passenger,gold,Ada Lovelace,500\n"
+            + "passenger,silver,Grace Hopper,400.5\n"
+            + "passenger,normal,Linus,300.75\n";
+
+    private static final String JSON_LINES = "{\"kind\":\"destination\",\"name\":\"Paris\"}\n"
+            + "{\"kind\":\"activity\",\"destination\":\"Paris\",\"name\":\"Eiffel Tower Tour\","
+            + "\"description\":\"Guided tour, with \\\"summit\\\" access\",\"cost\":50.25,\"capacity\":5}\n"
+            + "\n"
+            + "{ \"kind\": \"destination\", \"name\": \"New York\", \"note\": \"ignored\" }\n"
+            + "{\"kind\":\"activity\",\"destination\":\"New York\",\"name\":\"Central Park Picnic\","
+            + "\"description\":\"Picnic in Central Park\",\"cost\":30,\"capacity\":15}\n"
+            + "{\"kind\":\"passenger\",\"tier\":\"gold\",\"name\":\"Ada Lovelace\",\"balance\":500}\n"
+            + "{\"kind\":\"passenger\",\"tier\":\"silver\",\"name\":\"Grace Hopper\",\"balance\":\"400.5\"}\n"
+            + "{\"kind\":\"passenger\",\"tier\":\"normal\",\"name\":\"Lin\\u0075s\",\"balance\":300.75}";
+
+    private ForkJoinPool pool;
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        pool = new ForkJoinPool(4);
+        directory = Files.createTempDirectory("package-import");
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    private Path write(String name, String content) throws IOException {
+        return Files.write(directory.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void assertImported(TravelPackage travelPackage, ImportSummary summary) {
+        assertEquals(2, summary.getDestinationCount());
+        assertEquals(2, summary.getActivityCount());
+        assertEquals(3, summary.getPassengerCount());
+        assertEquals(3, summary.getEnrollmentCount(EnrollmentResult.ENROLLED));
+
+        List<Destination> itinerary = travelPackage.getItinerary();
+        assertEquals(2, itinerary.size());
+        assertEquals("Paris", itinerary.get(0).getName());
+        Activity tour = itinerary.get(0).getActivities().get(0);
+        assertEquals("Guided tour, with \"summit\" access", tour.getDescription());
+        assertEquals(5025, tour.getCostCents());
+        assertEquals(2, tour.getCapacity());
+        assertEquals(12, itinerary.get(1).getActivities().get(0).getCapacity());
+        assertEquals(2 * (5025 + 3000), travelPackage.getBaseCostCents());
+
+        List<Passenger> passengers = travelPackage.getPassengers();
+        assertEquals(3, passengers.size());
+        assertTrue(passengers.get(0) instanceof PremiumPassenger);
+        assertTrue(passengers.get(1) instanceof GoldPassenger);
+        assertTrue(passengers.get(2) instanceof NormalPassenger);
+        assertEquals("Linus", passengers.get(2).getName());
+        assertEquals(2, passengers.get(2).getSignedUpActivities().size());
+        assertTrue(travelPackage.aggregatesConsistent());
+    }
+
+    @Test
+    public void testImportsCsvInSmallChunks() throws IOException {
+        TravelPackage travelPackage = new TravelPackage("Grand Tour", 10);
+        ImportSummary summary = new PackageImporter(travelPackage, pool, 16, 2).importFile(write("tour.csv", CSV));
+        assertImported(travelPackage, summary);
+        assertEquals(9, summary.getLineCount());
+        assertEquals(CSV.getBytes(StandardCharsets.UTF_8).length, summary.getByteCount());
+    }
+
+    @Test
+    public void testImportsJsonLines() throws IOException {
+        TravelPackage travelPackage = new TravelPackage("Grand Tour", 10);
+        ImportSummary summary = new PackageImporter(travelPackage, pool, 64, 4096)
+                .importFile(write("tour.jsonl", JSON_LINES));
+        assertImported(travelPackage, summary);
+    }
+
+    @Test
+    public void testMalformedLineStopsImport() throws IOException {
+        TravelPackage travelPackage = new TravelPackage("Grand Tour", 10);
+        Path file = write("bad.csv", "destination,Paris\n"
+                + "activity,Paris,Tour,Tour,10,5\n"
+                + "passenger,gold,Ada,500\n"
+                + "passenger,platinum,Grace,500\n"
+                + "passenger,gold,Linus,500\n");
+        try {
+            new PackageImporter(travelPackage, pool, 8, 10).importFile(file);
+            fail("Expected the unknown tier to be rejected");
+        } catch (IOException e) {
+            assertEquals("Line 4: Unknown tier: platinum", e.getMessage());
+        }
+        assertEquals(1, travelPackage.getItinerary().size());
+        assertEquals(1, travelPackage.getPassengerCount());
+        assertEquals("Ada", travelPackage.getPassengers().get(0).getName());
+    }
+
+    @Test
+    public void testUnknownDestinationIsReported() throws IOException {
+        TravelPackage travelPackage = new TravelPackage("Grand Tour", 10);
+        Path file = write("bad.jsonl", "{\"kind\":\"destination\",\"name\":\"Paris\"}\n"
+                + "{\"kind\":\"activity\",\"destination\":\"Rome\",\"name\":\"Tour\",\"cost\":1,\"capacity\":1}\n");
+        try {
+            new PackageImporter(travelPackage, pool).importFile(file);
+            fail("Expected the unknown destination to be rejected");
+        } catch (IOException e) {
+            assertEquals("Line 2: unknown destination Rome", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testCountsRejectedEnrollments() throws IOException {
+        TravelPackage travelPackage = new TravelPackage("Small Tour", 2);
+        StringBuilder csv = new StringBuilder("destination,Paris\nactivity,Paris,Tour,Tour,10,5\n");
+        for (int i = 0; i < 5; i++) {
+            csv.append("passenger,normal,P").append(i).append(",100\n");
+        }
+        ImportSummary summary = new PackageImporter(travelPackage, pool, 32, 3)
+                .importFile(write("small.csv", csv.toString()));
+        assertEquals(5, summary.getPassengerCount());
+        assertEquals(2, summary.getEnrollmentCount(EnrollmentResult.ENROLLED));
+        assertEquals(3, summary.getEnrollmentCount(EnrollmentResult.PACKAGE_FULL));
+        assertEquals(2, travelPackage.getPassengerCount());
+    }
+
+    @Test
+    public void testActivityCostKeepsParsedCents() throws IOException {
+        TravelPackage travelPackage = new TravelPackage("Grand Tour", 10);
+        new PackageImporter(travelPackage, pool).importFile(write("costly.csv",
+                "destination,Paris\nactivity,Paris,Tour,Tour,90071992547409.93,5\n"));
+        Activity tour = travelPackage.getItinerary().get(0).getActivities().get(0);
+        assertEquals(9007199254740993L, tour.getCostCents());
+    }
+}
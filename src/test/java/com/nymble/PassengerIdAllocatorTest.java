@@ -0,0 +1,85 @@
+package com.nymble;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class PassengerIdAllocatorTest {
+
+    @Test
+    public void testConcurrentAllocationIsUnique() throws InterruptedException {
+        PassengerIdAllocator allocator = new PassengerIdAllocator(16);
+        Set<Integer> seen = ConcurrentHashMap.newKeySet();
+        int threads = 8;
+        int perThread = 10_000;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            pool.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    seen.add(allocator.next());
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(threads * perThread, seen.size());
+    }
+
+    @Test
+    public void testHighWaterMarkSurvivesRestart() throws IOException {
+        Path file = Files.createTempDirectory("passenger-ids").resolve("high-water");
+        PassengerIdAllocator first = new PassengerIdAllocator(4, file);
+        int highest = -1;
+        for (int i = 0; i < 1000; i++) {
+            highest = Math.max(highest, first.next());
+        }
+
+        PassengerIdAllocator restarted = new PassengerIdAllocator(4, file);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(restarted.next() > highest);
+        }
+    }
+
+    @Test
+    public void testSingleThreadNumbersAreSequential() {
+        PassengerIdAllocator allocator = new PassengerIdAllocator(4);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, allocator.next());
+        }
+    }
+
+    @Test
+    public void testReserveThroughSkipsRestoredNumbers() throws IOException {
+        PassengerIdAllocator allocator = new PassengerIdAllocator(16);
+        assertEquals(0, allocator.next());
+        allocator.reserveThrough(5);
+        int next = allocator.next();
+        assertTrue(next > 5);
+        allocator.reserveThrough(3);
+        assertEquals(next + 1, allocator.next());
+
+        Path file = Files.createTempDirectory("passenger-ids").resolve("high-water");
+        new PassengerIdAllocator(4, file).reserveThrough(1000);
+        assertTrue(new PassengerIdAllocator(4, file).next() > 1000);
+    }
+}
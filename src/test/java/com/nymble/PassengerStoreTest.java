@@ -0,0 +1,64 @@
+package com.nymble;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class PassengerStoreTest {
+
+    @Test
+    public void testViewsReadAndWriteRows() {
+        PassengerStore store = new PassengerStore(1);
+        Passenger johnDoe = store.add("John Doe", 100.0, PassengerType.NORMAL);
+        Passenger goldMember = store.add("Gold Member", 200.5, PassengerType.SILVER);
+
+        assertEquals(2, store.size());
+        assertEquals("John Doe", store.get(0).getName());
+        assertEquals(PassengerType.SILVER, store.get(1).getType());
+        assertEquals(200.5, store.get(1).getBalance(), 0.001);
+        assertNotEquals(johnDoe.getPassengerNumber(), goldMember.getPassengerNumber());
+        assertEquals(johnDoe, store.get(0));
+    }
+
+    @Test
+    public void testSignUpThroughViewUpdatesStore() {
+        Destination paris = new Destination("Paris");
+        Activity eiffelTowerTour = new Activity("Eiffel Tower Tour", "Guided tour of the Eiffel Tower", 50.0, 20, paris);
+        paris.addActivity(eiffelTowerTour);
+        PassengerStore store = new PassengerStore(4);
+        store.add("Gold Member", 100.0, PassengerType.SILVER).signUpForActivity(eiffelTowerTour);
+
+        Passenger reloaded = store.get(0);
+        assertEquals(55.0, reloaded.getBalance(), 0.001);
+        assertTrue(reloaded.getSignedUpActivities().contains(eiffelTowerTour));
+        assertEquals(19, eiffelTowerTour.getCapacity());
+    }
+
+    @Test
+    public void testScansMatchObjectRoster() throws IOException {
+        TravelPackage travelPackage = new TravelPackage("Europe Tour", 10);
+        Destination paris = new Destination("Paris", 100);
+        travelPackage.addDestination(paris);
+        PassengerStore store = new PassengerStore(2);
+        TravelPackage objectRoster = new TravelPackage("Europe Tour", 10);
+        objectRoster.addDestination(paris);
+        PassengerType[] types = {PassengerType.NORMAL, PassengerType.SILVER, PassengerType.GOLD, PassengerType.SILVER};
+        for (int i = 0; i < types.length; i++) {
+            objectRoster.addPassenger(store.add("Passenger " + i, 500.0, types[i]));
+        }
+
+        assertArrayEquals(new int[] {1, 2, 1}, store.countByType());
+        assertEquals(objectRoster.calculateTotalCostForAllPassengersCents(), store.calculateTotalCostCents(travelPackage));
+        assertEquals(200000, store.totalBalanceCents());
+
+        StringBuilder rows = new StringBuilder();
+        store.writeRoster(travelPackage, rows);
+        String report = objectRoster.generateReport();
+        assertTrue(report.contains(rows.toString()));
+    }
+}
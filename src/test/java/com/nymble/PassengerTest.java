@@ -1,6 +1,7 @@
 package com.nymble;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
@@ -100,4 +101,45 @@ public class PassengerTest {
 
         assertEquals(200.0, goldPassenger.getBalance(), 0.001);
     }
+
+    @Test
+    public void testCancelActivityRefundsWhatWasPaid() {
+        Destination paris = new Destination("Paris");
+        Activity eiffelTowerTour = new Activity("Eiffel Tower Tour", "Guided tour of the Eiffel Tower", 50.0, 1, paris);
+        paris.addActivity(eiffelTowerTour);
+        Passenger silver = new GoldPassenger("Silver Member", 100.0);
+        silver.signUpForActivity(eiffelTowerTour);
+        assertEquals(55.0, silver.getBalance(), 0.001);
+        assertEquals(0, eiffelTowerTour.getCapacity());
+
+        assertTrue(silver.cancelActivity(eiffelTowerTour));
+        assertEquals(100.0, silver.getBalance(), 0.001);
+        assertEquals(1, eiffelTowerTour.getCapacity());
+        assertFalse(silver.holdsActivity(eiffelTowerTour));
+        assertTrue(silver.getSignedUpActivities().isEmpty());
+        assertFalse(silver.cancelActivity(eiffelTowerTour));
+        assertEquals(1, eiffelTowerTour.getCapacity());
+    }
+
+    @Test
+    public void testSecondSignUpForSameActivityIsRejected() {
+        Destination paris = new Destination("Paris");
+        Activity eiffelTowerTour = new Activity("Eiffel Tower Tour", "Guided tour of the Eiffel Tower", 50.0, 5, paris);
+        paris.addActivity(eiffelTowerTour);
+        Passenger johnDoe = new NormalPassenger("John Doe", 100.0);
+        johnDoe.signUpForActivity(eiffelTowerTour);
+        johnDoe.signUpForActivity(eiffelTowerTour);
+
+        assertEquals(50.0, johnDoe.getBalance(), 0.001);
+        assertEquals(1, johnDoe.getSignedUpActivities().size());
+        assertEquals(4, eiffelTowerTour.getCapacity());
+        assertTrue(eiffelTowerTour.isSignedUp(johnDoe));
+        assertFalse(eiffelTowerTour.signUpPassenger(johnDoe));
+
+        assertTrue(eiffelTowerTour.cancelPassenger(johnDoe));
+        assertEquals(100.0, johnDoe.getBalance(), 0.001);
+        assertTrue(johnDoe.getSignedUpActivities().isEmpty());
+        assertFalse(eiffelTowerTour.isSignedUp(johnDoe));
+        assertEquals(5, eiffelTowerTour.getCapacity());
+    }
 }
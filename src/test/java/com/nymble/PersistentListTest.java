@@ -0,0 +1,91 @@
+package com.nymble;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class PersistentListTest {
+
+    @Test
+    public void testMatchesArrayListUnderRandomUpdates() {
+        Random random = new Random(42);
+        PersistentList<Integer> list = PersistentList.empty();
+        List<Integer> expected = new ArrayList<>();
+        List<Long> keys = new ArrayList<>();
+        for (int step = 0; step < 20_000; step++) {
+            if (expected.isEmpty() || random.nextInt(3) > 0) {
+                list = list.append(step);
+                expected.add(step);
+                keys.add(list.lastKey());
+            } else {
+                int position = random.nextInt(expected.size());
+                list = list.removeKey(keys.remove(position));
+                expected.remove(position);
+            }
+        }
+        assertEquals(expected.size(), list.size());
+        assertEquals(expected, list);
+        for (int i = 0; i < expected.size(); i += 97) {
+            assertEquals(expected.get(i), list.get(i));
+        }
+    }
+
+    @Test
+    public void testAppendAllMatchesRepeatedAppend() {
+        Random random = new Random(7);
+        PersistentList<Integer> list = PersistentList.empty();
+        List<Integer> expected = new ArrayList<>();
+        List<Long> keys = new ArrayList<>();
+        int next = 0;
+        for (int step = 0; step < 2_000; step++) {
+            if (expected.isEmpty() || random.nextInt(3) > 0) {
+                List<Integer> batch = new ArrayList<>();
+                for (int i = random.nextInt(step % 50 == 0 ? 500 : 8); i >= 0; i--) {
+                    batch.add(next++);
+                }
+                long firstKey = list.isEmpty() ? 0 : list.lastKey() + 1;
+                list = list.appendAll(batch);
+                for (int i = 0; i < batch.size(); i++) {
+                    keys.add(firstKey + i);
+                }
+                expected.addAll(batch);
+                assertEquals((long) keys.get(keys.size() - 1), list.lastKey());
+            } else {
+                int position = random.nextInt(expected.size());
+                list = list.removeKey(keys.remove(position));
+                expected.remove(position);
+            }
+        }
+        assertEquals(expected, list);
+        for (int i = 0; i < expected.size(); i += 89) {
+            assertEquals(expected.get(i), list.get(i));
+        }
+        assertSame(list, list.appendAll(new ArrayList<Integer>()));
+    }
+
+    @Test
+    public void testOldVersionsStayIntact() {
+        PersistentList<String> empty = PersistentList.empty();
+        PersistentList<String> one = empty.append("a");
+        PersistentList<String> two = one.append("b");
+        PersistentList<String> removed = two.removeKey(one.lastKey());
+
+        assertTrue(empty.isEmpty());
+        assertEquals(Arrays.asList("a"), one);
+        assertEquals(Arrays.asList("a", "b"), two);
+        assertEquals(Arrays.asList("b"), removed);
+        assertSame(removed, removed.removeKey(12345));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testRejectsMutation() {
+        PersistentList.<String>empty().append("a").add("b");
+    }
+}
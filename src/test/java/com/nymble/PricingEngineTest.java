@@ -0,0 +1,100 @@
+package com.nymble;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PricingEngineTest {
+
+    private PricingEngine previousEngine;
+    private BookingEventSink previousSink;
+
+    @Before
+    public void setUp() {
+        previousEngine = PricingEngine.getDefault();
+        previousSink = BookingEvents.getSink();
+        BookingEvents.setSink(event -> { });
+    }
+
+    @After
+    public void tearDown() {
+        PricingEngine.setDefault(previousEngine);
+        BookingEvents.setSink(previousSink);
+    }
+
+    @Test
+    public void testStandardActivityPrices() {
+        PricingEngine engine = PricingEngine.standard();
+        Destination paris = new Destination("Paris");
+        Activity tour = new Activity("Eiffel Tower Tour", "Guided tour of the Eiffel Tower", 50.0, 5, paris);
+
+        assertEquals(5000, engine.activityPriceCents(tour, PassengerType.NORMAL));
+        assertEquals(4500, engine.activityPriceCents(tour, PassengerType.SILVER));
+        assertEquals(0, engine.activityPriceCents(tour, PassengerType.GOLD));
+        PricingEngine.PriceTable table = tour.prices;
+        engine.activityPriceCents(tour, PassengerType.SILVER);
+        assertSame(table, tour.prices);
+    }
+
+    @Test
+    public void testPackageQuotesRebuiltOnlyWhenBaseCostChanges() {
+        TravelPackage travelPackage = new TravelPackage("Europe Tour", 5);
+        travelPackage.addDestination(new Destination("Paris", 100));
+        assertEquals(9000, travelPackage.calculateTotalCostCents(PassengerType.SILVER));
+        PricingEngine.PriceTable quotes = travelPackage.prices;
+        assertEquals(10000, travelPackage.calculateTotalCostCents(PassengerType.GOLD));
+        assertSame(quotes, travelPackage.prices);
+
+        travelPackage.addDestination(new Destination("Rome", 50));
+
+        assertEquals(15000, travelPackage.calculateTotalCostCents(PassengerType.GOLD));
+        assertNotSame(quotes, travelPackage.prices);
+    }
+
+    @Test
+    public void testCanSignUpChecksBalanceAgainstTierPrice() {
+        assertTrue(new NormalPassenger("John Doe", 100.0).canSignUp(100));
+        assertFalse(new NormalPassenger("John Doe", 100.0).canSignUp(101));
+        assertTrue(new GoldPassenger("Silver Member", 45.0).canSignUp(50));
+        assertFalse(new GoldPassenger("Silver Member", 44.0).canSignUp(50));
+        assertTrue(new PremiumPassenger("Gold Member", 0.0).canSignUp(1000));
+    }
+
+    @Test
+    public void testPluggedInRulesApplyEverywhere() {
+        Map<PassengerType, TierRule> rules = new EnumMap<>(PassengerType.class);
+        rules.put(PassengerType.NORMAL, TierRule.of(cost -> cost * 2, base -> base));
+        rules.put(PassengerType.SILVER, TierRule.of(cost -> cost, base -> base));
+        rules.put(PassengerType.GOLD, TierRule.of(cost -> cost / 2, base -> base / 2));
+        Destination paris = new Destination("Paris");
+        Activity tour = new Activity("Eiffel Tower Tour", "Guided tour of the Eiffel Tower", 50.0, 5, paris);
+        paris.addActivity(tour);
+        TravelPackage travelPackage = new TravelPackage("Europe Tour", 5);
+        travelPackage.addDestination(paris);
+        Passenger gold = new PremiumPassenger("Gold Member", 100.0);
+        assertEquals(0, gold.activityCostCents(tour));
+
+        PricingEngine.setDefault(new PricingEngine(rules));
+
+        gold.signUpForActivity(tour);
+        assertEquals(7500, gold.getBalanceCents());
+        assertEquals(travelPackage.getBaseCostCents(), travelPackage.calculateTotalCostCents(PassengerType.NORMAL));
+        assertFalse(new NormalPassenger("John Doe", 99.0).canSignUp(50));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEveryTierNeedsARule() {
+        Map<PassengerType, TierRule> rules = new EnumMap<>(PassengerType.class);
+        rules.put(PassengerType.NORMAL, TierRule.of(cost -> cost, base -> base));
+        new PricingEngine(rules);
+    }
+}
@@ -0,0 +1,209 @@
+package com.nymble;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class RosterTest {
+
+    @Test
+    public void testKeepsInsertionOrderAcrossRemovals() {
+        Roster<String> roster = new Roster<>();
+        assertTrue(roster.add("a"));
+        assertTrue(roster.add("b"));
+        assertTrue(roster.add("c"));
+        assertFalse(roster.add("b"));
+
+        assertTrue(roster.remove("b"));
+        assertFalse(roster.remove("b"));
+        assertFalse(roster.contains("b"));
+        assertTrue(roster.add("b"));
+
+        assertEquals(Arrays.asList("a", "c", "b"), roster.snapshot());
+        assertEquals(3, roster.size());
+    }
+
+    @Test
+    public void testAddAllSkipsMembersAndDuplicates() {
+        Roster<String> roster = new Roster<>();
+        assertTrue(roster.add("a"));
+        roster.addAll(Arrays.asList("b", "a", "c", "b"));
+        assertTrue(roster.remove("b"));
+        roster.addAll(Arrays.asList("d", "b"));
+        assertTrue(roster.add("e"));
+
+        assertEquals(Arrays.asList("a", "c", "d", "b", "e"), roster.snapshot());
+        assertTrue(roster.remove("d"));
+        assertEquals(Arrays.asList("a", "c", "b", "e"), roster.snapshot());
+    }
+
+    @Test
+    public void testSweepsRemovedEntries() {
+        Roster<Integer> roster = new Roster<>();
+        for (int i = 0; i < 10_000; i++) {
+            roster.add(i);
+        }
+        for (int i = 0; i < 10_000; i += 2) {
+            assertTrue(roster.remove(i));
+        }
+        assertEquals(5000, roster.size());
+        int expected = 1;
+        for (int value : roster) {
+            assertEquals(expected, value);
+            expected += 2;
+        }
+        assertEquals(10_001, expected);
+    }
+
+    @Test
+    public void testConcurrentAddAndRemove() throws InterruptedException {
+        Roster<Integer> roster = new Roster<>();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            int base = t * 10_000;
+            pool.execute(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    roster.add(base + i);
+                    if (i % 3 == 0) {
+                        roster.remove(base + i);
+                    }
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(4 * (10_000 - 3334), roster.size());
+        assertEquals(roster.size(), roster.snapshot().size());
+    }
+
+    @Test
+    public void testSnapshotIsUnaffectedByLaterWrites() {
+        Roster<String> roster = new Roster<>();
+        roster.add("a");
+        roster.add("b");
+        List<String> before = roster.snapshot();
+
+        roster.remove("a");
+        roster.add("c");
+
+        assertEquals(Arrays.asList("a", "b"), before);
+        assertEquals(Arrays.asList("b", "c"), roster.snapshot());
+    }
+
+    @Test
+    public void testReadersIterateWhileWritersMutate() throws InterruptedException {
+        Roster<Integer> roster = new Roster<>();
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            try {
+                while (!done.get()) {
+                    List<Integer> snapshot = roster.snapshot();
+                    int count = 0;
+                    int previous = -1;
+                    for (int value : snapshot) {
+                        assertTrue(value > previous);
+                        previous = value;
+                        count++;
+                    }
+                    assertEquals(snapshot.size(), count);
+                }
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        reader.start();
+        for (int i = 0; i < 20_000; i++) {
+            roster.add(i);
+            if (i % 2 == 0) {
+                roster.remove(i / 2);
+            }
+        }
+        done.set(true);
+        reader.join();
+
+        assertEquals(null, failure.get());
+        assertEquals(10_000, roster.size());
+    }
+
+    @Test
+    public void testMatchesInsertionOrderedSetUnderRandomChurn() {
+        Roster<Integer> roster = new Roster<>();
+        Set<Integer> expected = new LinkedHashSet<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 50_000; i++) {
+            int value = random.nextInt(200);
+            if (random.nextBoolean()) {
+                assertEquals(expected.add(value), roster.add(value));
+            } else {
+                assertEquals(expected.remove(value), roster.remove(value));
+            }
+            if (random.nextInt(100) == 0) {
+                assertEquals(new ArrayList<>(expected), roster.snapshot());
+            }
+        }
+        assertEquals(expected.size(), roster.size());
+        assertEquals(new ArrayList<>(expected), roster.snapshot());
+    }
+
+    @Test
+    public void testIdKeyedRosterTracksIdsAcrossReplacements() {
+        Roster<String> roster = new Roster<>(name -> name.charAt(0) - 'a');
+        assertTrue(roster.add("ada"));
+        assertFalse(roster.add("alan"));
+        assertTrue(roster.add("bob"));
+        assertTrue(roster.containsId(1));
+        assertEquals(Arrays.asList("ada", "bob"), roster.snapshot());
+
+        assertTrue(roster.remove("alan"));
+        assertTrue(roster.add("alan"));
+        assertTrue(roster.contains("ada"));
+        assertEquals(Arrays.asList("bob", "alan"), roster.snapshot());
+        assertEquals(Arrays.asList(0, 1), toList(roster.ids()));
+
+        assertTrue(roster.remove("bob"));
+        assertFalse(roster.containsId(1));
+        assertEquals(Arrays.asList(0), toList(roster.ids()));
+    }
+
+    @Test
+    public void testIdsMatchSnapshotUnderRandomChurn() {
+        Roster<Integer> roster = new Roster<>(Integer::intValue);
+        Random random = new Random(7);
+        for (int i = 0; i < 50_000; i++) {
+            int value = random.nextInt(300);
+            if (random.nextBoolean()) {
+                roster.add(value);
+            } else {
+                roster.remove(value);
+            }
+            if (random.nextInt(50) == 0) {
+                IdBitmap ids = roster.ids();
+                List<Integer> members = new ArrayList<>(roster.snapshot());
+                members.sort(null);
+                assertEquals(members, toList(ids));
+            }
+        }
+    }
+
+    private static List<Integer> toList(IdBitmap bitmap) {
+        List<Integer> values = new ArrayList<>();
+        bitmap.forEach(values::add);
+        return values;
+    }
+}
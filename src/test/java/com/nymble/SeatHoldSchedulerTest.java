@@ -0,0 +1,97 @@
+package com.nymble;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+public class SeatHoldSchedulerTest {
+
+    private static final long TICK = 1_000;
+
+    @Test
+    public void testHoldsExpireOnTheirTickAcrossManyTurns() {
+        AtomicLong clock = new AtomicLong();
+        SeatHoldScheduler scheduler = new SeatHoldScheduler(clock::get, TICK, 8, false);
+        Activity activity = new Activity("Tour", "Guided tour", 10.0, 100, new Destination("Paris"));
+        List<SeatHold> holds = new ArrayList<>();
+        for (int ticks = 0; ticks < 100; ticks++) {
+            holds.add(activity.holdSeat(ticks * TICK, TimeUnit.NANOSECONDS, scheduler));
+        }
+        assertEquals(0, activity.getCapacity());
+
+        for (int ticks = 0; ticks < 100; ticks++) {
+            // A hold due within a tick expires once that tick has ended, never before.
+            clock.set((ticks + 1) * TICK - 1);
+            scheduler.advance();
+            assertTrue(holds.get(ticks).isHeld());
+            clock.set((ticks + 1) * TICK);
+            scheduler.advance();
+            assertEquals(SeatHold.State.EXPIRED, holds.get(ticks).getState());
+            assertEquals(ticks + 1, activity.getCapacity());
+        }
+        assertEquals(100, scheduler.getExpiredCount());
+    }
+
+    @Test
+    public void testEndedHoldsAreDroppedWithoutExpiring() {
+        AtomicLong clock = new AtomicLong();
+        SeatHoldScheduler scheduler = new SeatHoldScheduler(clock::get, TICK, 4, false);
+        Activity activity = new Activity("Tour", "Guided tour", 10.0, 3, new Destination("Paris"));
+        SeatHold confirmed = activity.holdSeat(2 * TICK, TimeUnit.NANOSECONDS, scheduler);
+        SeatHold released = activity.holdSeat(2 * TICK, TimeUnit.NANOSECONDS, scheduler);
+        SeatHold lapsed = activity.holdSeat(2 * TICK, TimeUnit.NANOSECONDS, scheduler);
+        clock.set(TICK);
+        scheduler.advance();
+        assertTrue(activity.confirmHold(confirmed, new NormalPassenger("John Doe", 100.0)));
+        assertTrue(activity.releaseHold(released));
+
+        clock.set(100 * TICK);
+        scheduler.advance();
+
+        assertEquals(SeatHold.State.CONFIRMED, confirmed.getState());
+        assertEquals(SeatHold.State.RELEASED, released.getState());
+        assertEquals(SeatHold.State.EXPIRED, lapsed.getState());
+        assertEquals(1, scheduler.getExpiredCount());
+        assertEquals(2, activity.getCapacity());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testClosedSchedulerRefusesHolds() {
+        SeatHoldScheduler scheduler = new SeatHoldScheduler(1, TimeUnit.MILLISECONDS, 8);
+        Activity activity = new Activity("Tour", "Guided tour", 10.0, 1, new Destination("Paris"));
+        scheduler.close();
+        try {
+            activity.holdSeat(1, TimeUnit.SECONDS, scheduler);
+        } finally {
+            assertEquals(1, activity.getCapacity());
+        }
+    }
+
+    @Test
+    public void testCloseExpiresOutstandingHolds() {
+        AtomicLong clock = new AtomicLong();
+        SeatHoldScheduler scheduler = new SeatHoldScheduler(clock::get, TICK, 4, false);
+        Activity activity = new Activity("Tour", "Guided tour", 10.0, 3, new Destination("Paris"));
+        SeatHold placed = activity.holdSeat(100 * TICK, TimeUnit.NANOSECONDS, scheduler);
+        clock.set(TICK);
+        scheduler.advance();
+        SeatHold pending = activity.holdSeat(100 * TICK, TimeUnit.NANOSECONDS, scheduler);
+        SeatHold confirmed = activity.holdSeat(100 * TICK, TimeUnit.NANOSECONDS, scheduler);
+        assertTrue(activity.confirmHold(confirmed, new NormalPassenger("John Doe", 100.0)));
+        assertEquals(0, activity.getCapacity());
+
+        scheduler.close();
+
+        assertEquals(SeatHold.State.EXPIRED, placed.getState());
+        assertEquals(SeatHold.State.EXPIRED, pending.getState());
+        assertEquals(SeatHold.State.CONFIRMED, confirmed.getState());
+        assertEquals(2, scheduler.getExpiredCount());
+        assertEquals(2, activity.getCapacity());
+    }
+}
@@ -1,6 +1,21 @@
 package com.nymble;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.Test;
 
 
@@ -53,4 +68,338 @@ public class TravelPackageTest {
 
         assertEquals(0, janeDoe.getSignedUpActivities().size());
     }
+
+    @Test
+    public void testAddPassengerRollsBackWhenActivityFull() {
+        TravelPackage travelPackage = new TravelPackage("Europe Tour", 5);
+        Destination paris = new Destination("Paris");
+        Activity eiffelTowerTour = new Activity("Eiffel Tower Tour", "Guided tour of the Eiffel Tower", 50.0, 5, paris);
+        Activity louvreVisit = new Activity("Louvre Visit", "Museum visit", 20.0, 1, paris);
+        paris.addActivity(eiffelTowerTour);
+        paris.addActivity(louvreVisit);
+        travelPackage.addDestination(paris);
+        Passenger johnDoe = new NormalPassenger("John Doe", 100.0);
+        Passenger janeDoe = new NormalPassenger("Jane Doe", 150.0);
+
+        assertTrue(travelPackage.addPassenger(johnDoe));
+        assertFalse(travelPackage.addPassenger(janeDoe));
+
+        assertEquals(1, travelPackage.getPassengers().size());
+        assertEquals(0, janeDoe.getSignedUpActivities().size());
+        assertEquals(4, eiffelTowerTour.getCapacity());
+        assertEquals(1, eiffelTowerTour.getSignedUpPassengers().size());
+    }
+
+    @Test
+    public void testConcurrentAddPassengerIsAllOrNothing() throws InterruptedException {
+        TravelPackage travelPackage = new TravelPackage("Europe Tour", 40);
+        Destination paris = new Destination("Paris");
+        Activity eiffelTowerTour = new Activity("Eiffel Tower Tour", "Guided tour of the Eiffel Tower", 50.0, 30, paris);
+        Activity louvreVisit = new Activity("Louvre Visit", "Museum visit", 20.0, 25, paris);
+        paris.addActivity(eiffelTowerTour);
+        paris.addActivity(louvreVisit);
+        travelPackage.addDestination(paris);
+        int callers = 100;
+        Passenger[] passengers = new Passenger[callers];
+        for (int i = 0; i < callers; i++) {
+            passengers[i] = new NormalPassenger("Passenger " + i, 100.0);
+        }
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (Passenger passenger : passengers) {
+            pool.execute(() -> {
+                try {
+                    start.await();
+                    travelPackage.addPassenger(passenger);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        int enrolled = travelPackage.getPassengers().size();
+        assertEquals(25, enrolled);
+        assertEquals(enrolled, louvreVisit.getSignedUpPassengers().size());
+        assertEquals(enrolled, eiffelTowerTour.getSignedUpPassengers().size());
+        assertEquals(25 - enrolled, louvreVisit.getCapacity());
+        assertEquals(30 - enrolled, eiffelTowerTour.getCapacity());
+        for (Passenger passenger : passengers) {
+            int activities = passenger.getSignedUpActivities().size();
+            assertTrue(activities == 0 || activities == 2);
+        }
+    }
+
+    @Test
+    public void testAddPassengersBatch() {
+        TravelPackage travelPackage = new TravelPackage("Europe Tour", 3);
+        Destination paris = new Destination("Paris");
+        Activity eiffelTowerTour = new Activity("Eiffel Tower Tour", "Guided tour of the Eiffel Tower", 50.0, 10, paris);
+        Activity louvreVisit = new Activity("Louvre Visit", "Museum visit", 20.0, 2, paris);
+        paris.addActivity(eiffelTowerTour);
+        paris.addActivity(louvreVisit);
+        travelPackage.addDestination(paris);
+        Passenger johnDoe = new NormalPassenger("John Doe", 100.0);
+        Passenger poorGold = new PremiumPassenger("Poor Gold", 10.0);
+        Passenger janeDoe = new NormalPassenger("Jane Doe", 150.0);
+        Passenger jimDoe = new NormalPassenger("Jim Doe", 150.0);
+        Passenger joeDoe = new NormalPassenger("Joe Doe", 150.0);
+
+        EnrollmentResult[] results = travelPackage.addPassengers(Arrays.asList(johnDoe, poorGold, janeDoe, jimDoe, joeDoe));
+
+        assertArrayEquals(new EnrollmentResult[] {
+                EnrollmentResult.ENROLLED,
+                EnrollmentResult.INSUFFICIENT_BALANCE,
+                EnrollmentResult.ENROLLED,
+                EnrollmentResult.ACTIVITY_FULL,
+                EnrollmentResult.PACKAGE_FULL
+        }, results);
+        assertEquals(2, travelPackage.getPassengers().size());
+        assertEquals(0, louvreVisit.getCapacity());
+        assertEquals(8, eiffelTowerTour.getCapacity());
+        assertEquals(2, janeDoe.getSignedUpActivities().size());
+        assertEquals(0, jimDoe.getSignedUpActivities().size());
+        assertFalse(travelPackage.addPassenger(new NormalPassenger("Late Doe", 100.0)));
+    }
+
+    @Test
+    public void testRevenueAggregatesMatchFullRecompute() {
+        TravelPackage travelPackage = new TravelPackage("Europe Tour", 10);
+        Destination paris = new Destination("Paris", 100);
+        Activity eiffelTowerTour = new Activity("Eiffel Tower Tour", "Guided tour of the Eiffel Tower", 50.0, 10, paris);
+        paris.addActivity(eiffelTowerTour);
+        travelPackage.addDestination(paris);
+
+        travelPackage.addPassenger(new NormalPassenger("John Doe", 100.0));
+        travelPackage.addPassenger(new GoldPassenger("Silver Member", 1000.0));
+        travelPackage.addPassengers(Arrays.asList(
+                new PremiumPassenger("Gold Member", 1000.0),
+                new GoldPassenger("Another Silver", 1000.0),
+                new PremiumPassenger("Broke Gold", 1.0)));
+
+        // baseCost = 150 (destination incl. activity) + 50 (activity) = 200
+        assertEquals(1, travelPackage.getPassengerCount(PassengerType.NORMAL));
+        assertEquals(2, travelPackage.getPassengerCount(PassengerType.SILVER));
+        assertEquals(1, travelPackage.getPassengerCount(PassengerType.GOLD));
+        assertEquals(4, travelPackage.getPassengerCount());
+        assertEquals(36000, travelPackage.calculateTotalCostForTypeCents(PassengerType.SILVER));
+        assertEquals(20000, travelPackage.calculateTotalCostForTypeCents(PassengerType.GOLD));
+        assertEquals(560, travelPackage.calculateTotalCostForAllPassengers());
+        assertEquals(14000, travelPackage.calculateAverageCostCents());
+        assertTrue(travelPackage.aggregatesConsistent());
+
+        travelPackage.addDestination(new Destination("New York", 10));
+        assertTrue(travelPackage.aggregatesConsistent());
+    }
+
+    @Test
+    public void testGenerateReport() {
+        TravelPackage travelPackage = new TravelPackage("Europe Tour", 2);
+        Destination paris = new Destination("Paris");
+        Activity eiffelTowerTour = new Activity("Eiffel Tower Tour", "Guided tour of the Eiffel Tower", 50.0, 5, paris);
+        paris.addActivity(eiffelTowerTour);
+        travelPackage.addDestination(paris);
+        travelPackage.addPassenger(new GoldPassenger("Silver Member", 200.0));
+
+        String expected = "Travel Package Report for Europe Tour\n" +
+                "Itinerary:\n" +
+                "  - Paris\n" +
+                "    - Eiffel Tower Tour (Cost: 50.00, Capacity: 4)\n" +
+                "Passengers:\n" +
+                "  - Total Passengers: 1\n" +
+                "    - Silver Member (SILVER, Balance: 200.00, Total Cost: 90.00)\n" +
+                "Cost Breakdown:\n" +
+                "  - Base Cost: 100.00\n" +
+                "  - Total Cost for All Passengers: 90.00\n" +
+                "Activities:\n" +
+                "  - Paris\n" +
+                "    - Eiffel Tower Tour (Capacity: 4, Available Spaces: 4)\n";
+        assertEquals(expected, travelPackage.generateReport());
+    }
+
+    @Test
+    public void testWriteReportToChannelMatchesGenerateReport() throws IOException {
+        TravelPackage travelPackage = new TravelPackage("Europe Tour", 5000);
+        Destination paris = new Destination("Paris");
+        paris.addActivity(new Activity("Eiffel Tower Tour", "Guided tour of the Eiffel Tower", 50.0, 5000, paris));
+        travelPackage.addDestination(paris);
+        for (int i = 0; i < 3000; i++) {
+            travelPackage.addPassengers(Arrays.asList(new PremiumPassenger("Passenger \u00e9 " + i, 500.0)));
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        travelPackage.writeReport(Channels.newChannel(bytes));
+
+        assertEquals(travelPackage.generateReport(), new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testFractionalCostsReconcileExactly() {
+        TravelPackage travelPackage = new TravelPackage("Europe Tour", 10);
+        Destination paris = new Destination("Paris");
+        paris.addActivity(new Activity("Cafe Visit", "Coffee and croissant", 10.15, 10, paris));
+        paris.addActivity(new Activity("Seine Cruise", "Boat tour", 20.10, 10, paris));
+        travelPackage.addDestination(paris);
+
+        // destination 30.25 + activities 30.25 again
+        assertEquals(6050, travelPackage.getBaseCostCents());
+        // 90% of 60.50 is 54.45 exactly
+        assertEquals(5445, travelPackage.calculateTotalCostCents(PassengerType.SILVER));
+        assertEquals(60, travelPackage.calculateTotalCost(new PremiumPassenger("Gold Member", 100.0)));
+
+        travelPackage.addPassenger(new GoldPassenger("Silver Member", 54.45));
+        travelPackage.addPassenger(new GoldPassenger("Another Silver", 54.44));
+        assertEquals(1, travelPackage.getPassengerCount());
+        assertEquals(5445, travelPackage.calculateTotalCostForAllPassengersCents());
+    }
+
+    @Test
+    public void testRemovePassengerFreesPackageAndActivitySeats() {
+        TravelPackage travelPackage = new TravelPackage("Europe Tour", 1);
+        Destination paris = new Destination("Paris");
+        Activity eiffelTowerTour = new Activity("Eiffel Tower Tour", "Guided tour of the Eiffel Tower", 50.0, 1, paris);
+        paris.addActivity(eiffelTowerTour);
+        travelPackage.addDestination(paris);
+        Passenger johnDoe = new GoldPassenger("John Doe", 100.0);
+        Passenger janeDoe = new NormalPassenger("Jane Doe", 100.0);
+
+        assertTrue(travelPackage.addPassenger(johnDoe));
+        assertFalse(travelPackage.addPassenger(janeDoe));
+        assertEquals(0, eiffelTowerTour.getCapacity());
+
+        assertTrue(travelPackage.removePassenger(johnDoe));
+        assertFalse(travelPackage.removePassenger(johnDoe));
+        assertFalse(travelPackage.isEnrolled(johnDoe));
+        assertEquals(1, eiffelTowerTour.getCapacity());
+        assertEquals(0, travelPackage.getPassengerCount(PassengerType.SILVER));
+        assertTrue(travelPackage.aggregatesConsistent());
+
+        assertTrue(travelPackage.addPassenger(janeDoe));
+        assertEquals(1, travelPackage.getPassengerCount());
+        assertTrue(travelPackage.aggregatesConsistent());
+    }
+
+    @Test
+    public void testGettersReturnStableSnapshots() {
+        TravelPackage travelPackage = new TravelPackage("Europe Tour", 5);
+        Destination paris = new Destination("Paris");
+        paris.addActivity(new Activity("Eiffel Tower Tour", "Guided tour of the Eiffel Tower", 50.0, 5, paris));
+        travelPackage.addDestination(paris);
+        Passenger johnDoe = new NormalPassenger("John Doe", 100.0);
+        travelPackage.addPassenger(johnDoe);
+
+        List<Destination> itinerary = travelPackage.getItinerary();
+        List<Activity> activities = paris.getActivities();
+        List<Passenger> passengers = travelPackage.getPassengers();
+        travelPackage.addDestination(new Destination("New York"));
+        paris.addActivity(new Activity("Louvre Visit", "Visit the Louvre Museum", 30.0, 5, paris));
+        travelPackage.addPassenger(new NormalPassenger("Jane Doe", 100.0));
+        travelPackage.removePassenger(johnDoe);
+
+        assertEquals(1, itinerary.size());
+        assertEquals(1, activities.size());
+        assertEquals(Arrays.asList(johnDoe), passengers);
+        assertEquals(2, travelPackage.getItinerary().size());
+        assertEquals(2, paris.getActivities().size());
+        assertEquals(1, travelPackage.getPassengers().size());
+    }
+
+    @Test
+    public void testDuplicateEnrollmentIsRejected() {
+        TravelPackage travelPackage = new TravelPackage("Europe Tour", 5);
+        Destination paris = new Destination("Paris");
+        Activity eiffelTowerTour = new Activity("Eiffel Tower Tour", "Guided tour of the Eiffel Tower", 50.0, 5, paris);
+        paris.addActivity(eiffelTowerTour);
+        travelPackage.addDestination(paris);
+        Passenger johnDoe = new PremiumPassenger("John Doe", 1000.0);
+        Passenger janeDoe = new PremiumPassenger("Jane Doe", 1000.0);
+
+        assertTrue(travelPackage.addPassenger(johnDoe));
+        assertFalse(travelPackage.addPassenger(johnDoe));
+        assertArrayEquals(new EnrollmentResult[] {EnrollmentResult.ALREADY_ENROLLED, EnrollmentResult.ENROLLED,
+                EnrollmentResult.ALREADY_ENROLLED},
+                travelPackage.addPassengers(Arrays.asList(johnDoe, janeDoe, janeDoe)));
+
+        assertEquals(2, travelPackage.getPassengerCount());
+        assertEquals(3, eiffelTowerTour.getCapacity());
+        assertEquals(1, johnDoe.getSignedUpActivities().size());
+        assertTrue(travelPackage.isEnrolled(janeDoe.getPassengerNumber()));
+        assertTrue(travelPackage.aggregatesConsistent());
+
+        assertTrue(travelPackage.removePassenger(johnDoe));
+        assertFalse(travelPackage.isEnrolled(johnDoe.getPassengerNumber()));
+        assertTrue(travelPackage.addPassenger(johnDoe));
+    }
+
+    @Test
+    public void testEnrollmentSkipsActivitiesAlreadyHeld() {
+        TravelPackage travelPackage = new TravelPackage("Europe Tour", 5);
+        Destination paris = new Destination("Paris");
+        Activity eiffelTowerTour = new Activity("Eiffel Tower Tour", "Guided tour of the Eiffel Tower", 50.0, 5, paris);
+        Activity louvreVisit = new Activity("Louvre Visit", "Visit the Louvre Museum", 30.0, 5, paris);
+        paris.addActivity(eiffelTowerTour);
+        paris.addActivity(louvreVisit);
+        travelPackage.addDestination(paris);
+        Passenger johnDoe = new PremiumPassenger("John Doe", 1000.0);
+        Passenger janeDoe = new PremiumPassenger("Jane Doe", 1000.0);
+        johnDoe.signUpForActivity(eiffelTowerTour);
+        janeDoe.signUpForActivity(louvreVisit);
+
+        assertTrue(travelPackage.addPassenger(johnDoe));
+        travelPackage.addPassengers(Arrays.asList(janeDoe));
+
+        assertEquals(2, johnDoe.getSignedUpActivities().size());
+        assertEquals(2, janeDoe.getSignedUpActivities().size());
+        assertEquals(3, eiffelTowerTour.getCapacity());
+        assertEquals(3, louvreVisit.getCapacity());
+    }
+
+    @Test
+    public void testEnrollmentSkipsActivitiesAlreadyListedOn() {
+        TravelPackage travelPackage = new TravelPackage("Europe Tour", 5);
+        Destination paris = new Destination("Paris");
+        Activity eiffelTowerTour = new Activity("Eiffel Tower Tour", "Guided tour of the Eiffel Tower", 50.0, 5, paris);
+        paris.addActivity(eiffelTowerTour);
+        travelPackage.addDestination(paris);
+        Passenger johnDoe = new PremiumPassenger("John Doe", 1000.0);
+        assertTrue(eiffelTowerTour.signUpPassenger(johnDoe));
+
+        assertTrue(travelPackage.addPassenger(johnDoe));
+
+        assertEquals(4, eiffelTowerTour.getCapacity());
+        assertEquals(1, eiffelTowerTour.getSignedUpPassengers().size());
+        assertTrue(johnDoe.cancelActivity(eiffelTowerTour));
+        assertEquals(5, eiffelTowerTour.getCapacity());
+        assertTrue(eiffelTowerTour.getSignedUpPassengers().isEmpty());
+    }
+
+    @Test
+    public void testBatchReservesOnlyForPassengersWithoutASeat() {
+        TravelPackage travelPackage = new TravelPackage("Europe Tour", 5);
+        Destination paris = new Destination("Paris");
+        Activity eiffelTowerTour = new Activity("Eiffel Tower Tour", "Guided tour of the Eiffel Tower", 50.0, 1, paris);
+        Activity louvreVisit = new Activity("Louvre Visit", "Visit the Louvre Museum", 30.0, 2, paris);
+        paris.addActivity(eiffelTowerTour);
+        paris.addActivity(louvreVisit);
+        travelPackage.addDestination(paris);
+        Passenger johnDoe = new PremiumPassenger("John Doe", 1000.0);
+        Passenger janeDoe = new PremiumPassenger("Jane Doe", 1000.0);
+        Passenger maxMustermann = new PremiumPassenger("Max Mustermann", 1000.0);
+        johnDoe.signUpForActivity(eiffelTowerTour);
+
+        EnrollmentResult[] results = travelPackage.addPassengers(Arrays.asList(johnDoe, janeDoe, maxMustermann));
+
+        assertEquals(EnrollmentResult.ENROLLED, results[0]);
+        assertEquals(EnrollmentResult.ACTIVITY_FULL, results[1]);
+        assertEquals(EnrollmentResult.ACTIVITY_FULL, results[2]);
+        assertEquals(0, eiffelTowerTour.getCapacity());
+        assertEquals(1, louvreVisit.getCapacity());
+        assertEquals(Arrays.asList(johnDoe), eiffelTowerTour.getSignedUpPassengers());
+        assertEquals(Arrays.asList(johnDoe), louvreVisit.getSignedUpPassengers());
+        assertEquals(2, johnDoe.getSignedUpActivities().size());
+        assertTrue(travelPackage.aggregatesConsistent());
+    }
 }
@@ -0,0 +1,138 @@
+package com.nymble;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class WaitlistTest {
+
+    private BookingEventSink previousSink;
+
+    @Before
+    public void setUp() {
+        previousSink = BookingEvents.getSink();
+        BookingEvents.setSink(event -> { });
+    }
+
+    @After
+    public void tearDown() {
+        BookingEvents.setSink(previousSink);
+    }
+
+    private static Activity fullActivity(Destination destination) {
+        Activity activity = new Activity("Balloon Ride", "Sunrise flight", 20, 1, destination);
+        destination.addActivity(activity);
+        assertTrue(activity.signUpPassenger(new NormalPassenger("First", 0)));
+        return activity;
+    }
+
+    @Test
+    public void testPromotesByTierThenArrival() {
+        Activity activity = fullActivity(new Destination("Cappadocia"));
+        Passenger normal = new NormalPassenger("Normal", 100);
+        Passenger earlySilver = new GoldPassenger("Early Silver", 100);
+        Passenger gold = new PremiumPassenger("Gold", 0);
+        Passenger lateSilver = new GoldPassenger("Late Silver", 100);
+
+        CompletableFuture<Boolean> normalResult = activity.signUpPassengerOrWait(normal);
+        CompletableFuture<Boolean> earlySilverResult = activity.signUpPassengerOrWait(earlySilver);
+        CompletableFuture<Boolean> goldResult = activity.signUpPassengerOrWait(gold);
+        CompletableFuture<Boolean> lateSilverResult = activity.signUpPassengerOrWait(lateSilver);
+        assertEquals(4, activity.getWaitlistSize());
+        assertFalse(goldResult.isDone());
+
+        activity.releaseSeat();
+        assertTrue(goldResult.getNow(false));
+        activity.releaseSeat();
+        assertTrue(earlySilverResult.getNow(false));
+        assertFalse(lateSilverResult.isDone());
+        activity.releaseSeats(2);
+        assertTrue(lateSilverResult.getNow(false));
+        assertTrue(normalResult.getNow(false));
+
+        assertEquals(0, activity.getWaitlistSize());
+        assertEquals(0, activity.getCapacity());
+        List<Passenger> roster = activity.getSignedUpPassengers();
+        assertEquals(gold, roster.get(1));
+        assertEquals(earlySilver, roster.get(2));
+        assertEquals(lateSilver, roster.get(3));
+        assertEquals(normal, roster.get(4));
+    }
+
+    @Test
+    public void testPassengerIsChargedWhenPromoted() {
+        Activity activity = fullActivity(new Destination("Cappadocia"));
+        NormalPassenger broke = new NormalPassenger("Broke", 30);
+        NormalPassenger waiting = new NormalPassenger("Waiting", 30);
+
+        CompletableFuture<Boolean> brokeResult = broke.signUpOrWait(activity);
+        CompletableFuture<Boolean> waitingResult = waiting.signUpOrWait(activity);
+        broke.setBalanceCents(0);
+        activity.releaseSeat();
+
+        assertFalse(brokeResult.getNow(true));
+        assertTrue(waitingResult.getNow(false));
+        assertEquals(1000, waiting.getBalanceCents());
+        assertEquals(activity, waiting.getSignedUpActivities().get(0));
+        assertTrue(broke.getSignedUpActivities().isEmpty());
+        assertEquals(0, activity.getCapacity());
+    }
+
+    @Test
+    public void testCancelledWaiterIsSkipped() {
+        Activity activity = fullActivity(new Destination("Cappadocia"));
+        CompletableFuture<Boolean> cancelled = activity.signUpPassengerOrWait(new PremiumPassenger("Gone", 0));
+        CompletableFuture<Boolean> next = activity.signUpPassengerOrWait(new NormalPassenger("Next", 0));
+        assertTrue(cancelled.cancel(false));
+
+        activity.releaseSeat();
+        assertTrue(next.getNow(false));
+        assertEquals(0, activity.getCapacity());
+        assertEquals(2, activity.getSignedUpPassengers().size());
+    }
+
+    @Test
+    public void testEveryReleasedSeatIsHandedOut() throws Exception {
+        Activity activity = fullActivity(new Destination("Cappadocia"));
+        int waiters = 2000;
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<CompletableFuture<Boolean>> results = new ArrayList<>();
+        try {
+            List<CompletableFuture<CompletableFuture<Boolean>>> joins = new ArrayList<>();
+            for (int i = 0; i < waiters; i++) {
+                Passenger passenger = new NormalPassenger("Waiter " + i, 0);
+                joins.add(CompletableFuture.supplyAsync(() -> activity.signUpPassengerOrWait(passenger), pool));
+                if (i % 2 == 0) {
+                    pool.execute(activity::releaseSeat);
+                }
+            }
+            for (CompletableFuture<CompletableFuture<Boolean>> join : joins) {
+                results.add(join.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        }
+
+        int promoted = 0;
+        for (CompletableFuture<Boolean> result : results) {
+            if (result.isDone() && result.join()) {
+                promoted++;
+            }
+        }
+        assertEquals(waiters / 2, promoted);
+        assertEquals(waiters / 2, activity.getWaitlistSize());
+        assertEquals(0, activity.getCapacity());
+    }
+}